@@ -0,0 +1,153 @@
+package ru.soigo.auth.benchmark;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latency breakdown of the auth events in a JFR recording.
+ * <p>
+ * Reads the {@code ru.soigo.auth.*} events, recorded with the {@code jfr/auth.jfc} profile, and groups them by event
+ * type, component (session store bean or repository), operation and outcome. For every group it prints the number
+ * of events, their total duration, the percentiles of their duration and their share of the recorded time; groups
+ * are sorted by total duration, so the first lines show where the time of the service goes. A second table sums the
+ * time by event type.
+ * </p>
+ * <p>
+ * Session store calls through the resilient wrapper are recorded twice, for the wrapper and for the store behind
+ * it, so the shares of the session store overlap; compare the wrapper with the store to see the cost of the
+ * wrapper itself. Parsing is recorded within the validation of a token, which is otherwise not recorded.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * jcmd &lt;pid&gt; JFR.dump name=1 filename=auth.jfr
+ * ./gradlew :auth:jfrReport -Precording=auth.jfr
+ * </pre>
+ */
+public class JfrLatencyReport {
+    static final String PREFIX = "ru.soigo.auth.";
+
+    final Path recording;
+
+    JfrLatencyReport(Path recording) {
+        this.recording = recording;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String recording = args.length > 0 ? args[0] : System.getProperty("benchmark.recording");
+        if (recording == null) {
+            System.err.println("Usage: JfrLatencyReport <recording.jfr>");
+            System.exit(2);
+        }
+        new JfrLatencyReport(Path.of(recording)).run();
+    }
+
+    void run() throws IOException {
+        Map<String, Group> groups = new TreeMap<>();
+        Instant first = null;
+        Instant last = null;
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                String type = event.getEventType().getName();
+                if (!type.startsWith(PREFIX)) {
+                    continue;
+                }
+                Group group = groups.computeIfAbsent(key(event), Group::new);
+                group.type = type.substring(PREFIX.length());
+                group.add(event.getDuration().toNanos());
+                first = first == null || event.getStartTime().isBefore(first) ? event.getStartTime() : first;
+                last = last == null || event.getEndTime().isAfter(last) ? event.getEndTime() : last;
+            }
+        }
+        if (groups.isEmpty()) {
+            System.out.println("No auth events in " + recording + "; was it recorded with jfr/auth.jfc?");
+            return;
+        }
+
+        long span = Math.max(1, Duration.between(first, last).toNanos());
+        List<Group> sorted = new ArrayList<>(groups.values());
+        sorted.sort(Comparator.comparingLong((Group group) -> group.total).reversed());
+
+        System.out.printf(Locale.ROOT, "%s: %d groups over %s%n%n", recording, sorted.size(), Duration.ofNanos(span));
+        System.out.printf(Locale.ROOT, "%-60s %9s %11s %9s %9s %9s %9s %7s%n",
+                "event", "count", "total ms", "p50 us", "p90 us", "p99 us", "max us", "time %");
+        for (Group group : sorted) {
+            System.out.printf(Locale.ROOT, "%-60s %9d %11.1f %9.1f %9.1f %9.1f %9.1f %7.2f%n",
+                    group.key, group.count, group.total / 1e6,
+                    group.percentile(0.50) / 1e3, group.percentile(0.90) / 1e3, group.percentile(0.99) / 1e3,
+                    group.percentile(1.0) / 1e3, 100.0 * group.total / span);
+        }
+
+        Map<String, long[]> byType = new TreeMap<>();
+        for (Group group : sorted) {
+            long[] totals = byType.computeIfAbsent(group.type, type -> new long[2]);
+            totals[0] += group.count;
+            totals[1] += group.total;
+        }
+        System.out.printf(Locale.ROOT, "%n%-20s %9s %11s %7s%n", "type", "count", "total ms", "time %");
+        byType.forEach((type, totals) -> System.out.printf(Locale.ROOT, "%-20s %9d %11.1f %7.2f%n",
+                type, totals[0], totals[1] / 1e6, 100.0 * totals[1] / span));
+    }
+
+    private static String key(RecordedEvent event) {
+        StringBuilder key = new StringBuilder(event.getEventType().getName().substring(PREFIX.length()));
+        for (String component : List.of("store", "repository")) {
+            if (event.hasField(component)) {
+                key.append(' ').append((String) event.getValue(component));
+            }
+        }
+        for (String field : List.of("operation", "method")) {
+            if (event.hasField(field)) {
+                key.append('.').append((String) event.getValue(field));
+            }
+        }
+        return key.append(' ').append(event.getString("outcome")).toString();
+    }
+
+    /**
+     * Durations of the events of one group, in nanoseconds.
+     */
+    static final class Group {
+        final String key;
+        String type;
+        long[] durations = new long[64];
+        int count;
+        long total;
+        boolean sorted;
+
+        Group(String key) {
+            this.key = key;
+        }
+
+        void add(long duration) {
+            if (count == durations.length) {
+                durations = Arrays.copyOf(durations, count * 2);
+            }
+            durations[count++] = duration;
+            total += duration;
+            sorted = false;
+        }
+
+        long percentile(double quantile) {
+            if (!sorted) {
+                Arrays.sort(durations, 0, count);
+                sorted = true;
+            }
+            int index = (int) Math.ceil(quantile * count) - 1;
+            return durations[Math.max(0, Math.min(count - 1, index))];
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package ru.soigo.auth.benchmark;
+
+import ru.soigo.auth.model.id.UuidV7Generator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark comparing random UUIDv4 and time-ordered UUIDv7 primary keys.
+ * <p>
+ * For each key kind the benchmark creates a table shaped like {@code messenger_user}, with a {@code uuid} primary
+ * key, and fills it with {@code rows} rows from {@code threads} connections in batches of {@code batchSize}. It
+ * records:
+ * </p>
+ * <ul>
+ *   <li>insert throughput over the whole run and over its last tenth, where the index is largest and random keys
+ *   suffer most from pages falling out of the buffer cache;</li>
+ *   <li>the size of the primary key index and of the table;</li>
+ *   <li>the average leaf density and fragmentation of the index, if the {@code pgstattuple} extension can be
+ *   created;</li>
+ *   <li>the buffer cache hit ratio of index block accesses during the inserts.</li>
+ * </ul>
+ * <p>
+ * Before the database runs, key generation alone is measured in-process with the same number of threads. The
+ * tables are dropped at the end. The result is written as a Markdown report to {@code benchmark.report.dir}.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * ./gradlew :auth:primaryKeyBenchmark -Prows=10000000 -Pthreads=8 \
+ *     -PjdbcUrl=jdbc:postgresql://localhost:5432/messenger -Puser=admin -Ppassword=password
+ * </pre>
+ */
+public class PrimaryKeyBenchmark {
+    static final int GENERATED_KEYS = 5_000_000;
+
+    final String jdbcUrl = System.getProperty("benchmark.jdbcUrl", "jdbc:postgresql://localhost:5432/messenger");
+    final String user = System.getProperty("benchmark.user", "admin");
+    final String password = System.getProperty("benchmark.password", "password");
+    final int rows = Integer.getInteger("benchmark.rows", 2_000_000);
+    final int batchSize = Integer.getInteger("benchmark.batchSize", 1_000);
+    final int threads = Integer.getInteger("benchmark.threads", 4);
+    final Path reportDir = Path.of(System.getProperty("benchmark.report.dir", "build/reports/primary-keys"));
+
+    public static void main(String[] args) throws Exception {
+        new PrimaryKeyBenchmark().run();
+    }
+
+    void run() throws Exception {
+        List<KeyKind> kinds = List.of(
+                new KeyKind("v4", UUID::randomUUID),
+                new KeyKind("v7", UuidV7Generator::nextUuid)
+        );
+
+        List<Generation> generations = new ArrayList<>();
+        for (KeyKind kind : kinds) {
+            generations.add(measureGeneration(kind));
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (KeyKind kind : kinds) {
+            Result result = measureInserts(kind);
+            System.out.printf(Locale.ROOT, "%s: %.0f rows/s, index %d MB%n",
+                    kind.name(), result.throughput(), result.indexBytes() >> 20);
+            results.add(result);
+        }
+        writeReport(generations, results);
+    }
+
+    private Generation measureGeneration(KeyKind kind) throws Exception {
+        for (int i = 0; i < GENERATED_KEYS / 10; i++) {
+            kind.generator().get();
+        }
+        int perThread = GENERATED_KEYS / threads;
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    long sink = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        sink ^= kind.generator().get().getLeastSignificantBits();
+                    }
+                    return sink;
+                }));
+            }
+            for (Future<Long> future : futures) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return new Generation(kind.name(), perThread * (long) threads / seconds);
+    }
+
+    private Result measureInserts(KeyKind kind) throws Exception {
+        String table = "pk_benchmark_" + kind.name();
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            statement.execute("CREATE TABLE " + table + " (id uuid PRIMARY KEY, username varchar(255), "
+                    + "email varchar(255), created_at timestamp)");
+        }
+
+        AtomicLong inserted = new AtomicLong();
+        long tailStart = Math.round(rows * 0.9);
+        AtomicLong tailStartNanos = new AtomicLong();
+        int perThread = rows / threads;
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int offset = thread * perThread;
+                futures.add(executor.submit(() -> {
+                    insert(table, kind, offset, perThread, inserted, tailStart, tailStartNanos);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        }
+        long end = System.nanoTime();
+        long total = inserted.get();
+        double throughput = total / ((end - start) / 1e9);
+        double tailThroughput = (total - tailStart) / ((end - tailStartNanos.get()) / 1e9);
+
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            long indexBytes = single(statement, "SELECT pg_relation_size('" + table + "_pkey')");
+            long tableBytes = single(statement, "SELECT pg_relation_size('" + table + "')");
+            double[] density = leafDensity(statement, table + "_pkey");
+            Thread.sleep(1_000);
+            double hitRatio = indexHitRatio(connection, table + "_pkey");
+            statement.execute("DROP TABLE " + table);
+            return new Result(kind.name(), total, throughput, tailThroughput, indexBytes, tableBytes,
+                    density[0], density[1], hitRatio);
+        }
+    }
+
+    private void insert(
+            String table,
+            KeyKind kind,
+            int offset,
+            int count,
+            AtomicLong inserted,
+            long tailStart,
+            AtomicLong tailStartNanos
+    ) throws SQLException {
+        String sql = "INSERT INTO " + table + " (id, username, email, created_at) VALUES (?, ?, ?, ?)";
+        try (Connection connection = connect(); PreparedStatement statement = connection.prepareStatement(sql)) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < count; i++) {
+                int row = offset + i;
+                statement.setObject(1, kind.generator().get());
+                statement.setString(2, "user-" + row);
+                statement.setString(3, "user-" + row + "@example.com");
+                statement.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                statement.addBatch();
+                if ((i + 1) % batchSize == 0 || i == count - 1) {
+                    statement.executeBatch();
+                    connection.commit();
+                    int batch = (i % batchSize) + 1;
+                    long after = inserted.addAndGet(batch);
+                    if (after >= tailStart && after - batch < tailStart) {
+                        tailStartNanos.set(System.nanoTime());
+                    }
+                }
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", user);
+        properties.setProperty("password", password);
+        properties.setProperty("reWriteBatchedInserts", "true");
+        return DriverManager.getConnection(jdbcUrl, properties);
+    }
+
+    private static long single(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static double[] leafDensity(Statement statement, String index) {
+        try {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS pgstattuple");
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT avg_leaf_density, leaf_fragmentation FROM pgstatindex('" + index + "')")) {
+                resultSet.next();
+                return new double[]{resultSet.getDouble(1), resultSet.getDouble(2)};
+            }
+        } catch (SQLException exception) {
+            System.out.println("pgstattuple is not available: " + exception.getMessage());
+            return new double[]{Double.NaN, Double.NaN};
+        }
+    }
+
+    private static double indexHitRatio(Connection connection, String index) throws SQLException {
+        String sql = "SELECT idx_blks_read, idx_blks_hit FROM pg_statio_user_indexes WHERE indexrelname = ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, index);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Double.NaN;
+                }
+                double read = resultSet.getLong(1);
+                double hit = resultSet.getLong(2);
+                return read + hit == 0 ? Double.NaN : hit / (read + hit);
+            }
+        }
+    }
+
+    private void writeReport(List<Generation> generations, List<Result> results) throws IOException {
+        StringBuilder report = new StringBuilder()
+                .append("# Primary key benchmark\n\n")
+                .append("| Setting | Value |\n|---|---|\n")
+                .append("| Java | ").append(Runtime.version()).append(" |\n")
+                .append("| Database | ").append(jdbcUrl).append(" |\n")
+                .append("| Rows | ").append(rows).append(" |\n")
+                .append("| Batch size | ").append(batchSize).append(" |\n")
+                .append("| Threads | ").append(threads).append(" |\n")
+                .append("\n## Key generation\n\n")
+                .append("| Key | Keys/s |\n|---|---:|\n");
+        for (Generation generation : generations) {
+            report.append(String.format(Locale.ROOT, "| %s | %.0f |%n", generation.kind(), generation.keysPerSecond()));
+        }
+
+        report.append("\n## Inserts\n\n")
+                .append("| Key | Rows/s | Rows/s, last 10% | Index (MB) | Table (MB) | Leaf density (%) ")
+                .append("| Leaf fragmentation (%) | Index cache hit ratio |\n")
+                .append("|---|---:|---:|---:|---:|---:|---:|---:|\n");
+        for (Result result : results) {
+            report.append(String.format(Locale.ROOT, "| %s | %.0f | %.0f | %.1f | %.1f | %s | %s | %s |%n",
+                    result.kind(), result.throughput(), result.tailThroughput(),
+                    result.indexBytes() / 1048576.0, result.tableBytes() / 1048576.0,
+                    format(result.leafDensity()), format(result.leafFragmentation()), format(result.hitRatio())));
+        }
+
+        Files.createDirectories(reportDir);
+        Path file = reportDir.resolve("primary-keys.md");
+        Files.writeString(file, report);
+        System.out.println("Report written to " + file.toAbsolutePath());
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "n/a" : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * A kind of primary key.
+     *
+     * @param name      the name of the kind, used in table names and the report.
+     * @param generator the key generator.
+     */
+    record KeyKind(String name, Supplier<UUID> generator) {
+    }
+
+    /**
+     * Key generation rate of one kind.
+     *
+     * @param kind          the name of the kind.
+     * @param keysPerSecond the generated keys per second over all threads.
+     */
+    record Generation(String kind, double keysPerSecond) {
+    }
+
+    /**
+     * Insert measurements of one kind.
+     *
+     * @param kind              the name of the kind.
+     * @param rows              the number of inserted rows.
+     * @param throughput        the rows inserted per second over the whole run.
+     * @param tailThroughput    the rows inserted per second over the last tenth of the run.
+     * @param indexBytes        the size of the primary key index.
+     * @param tableBytes        the size of the table.
+     * @param leafDensity       the average fill of the index leaf pages in percent, or {@code NaN}.
+     * @param leafFragmentation the share of out-of-order leaf pages in percent, or {@code NaN}.
+     * @param hitRatio          the buffer cache hit ratio of index block accesses, or {@code NaN}.
+     */
+    record Result(
+            String kind,
+            long rows,
+            double throughput,
+            double tailThroughput,
+            long indexBytes,
+            long tableBytes,
+            double leafDensity,
+            double leafFragmentation,
+            double hitRatio
+    ) {
+    }
+}
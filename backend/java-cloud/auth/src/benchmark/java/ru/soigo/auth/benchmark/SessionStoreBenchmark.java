@@ -0,0 +1,143 @@
+package ru.soigo.auth.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import ru.soigo.auth.jwt.service.RedisService;
+import ru.soigo.auth.jwt.service.impl.InMemoryRedisServiceImpl;
+import ru.soigo.auth.jwt.service.impl.RedisServiceImpl;
+import ru.soigo.auth.jwt.session.SessionJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing the session stores on the operations of a login, a refresh and a logout.
+ * <p>
+ * Each invocation picks a random user out of {@code users} and adds a session, lists the sessions and removes the
+ * session again, which is what a refresh does. The {@code memory} store runs without a journal, {@code memory-aof}
+ * with a journal forced to disk every second and {@code redis} against a Redis server at
+ * {@code benchmark.redisHost}:{@code benchmark.redisPort}. The benchmark runs with eight threads, so lock contention
+ * in the in-memory store and the shared connection to Redis both show.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * ./gradlew :auth:sessionStoreBenchmark -PredisHost=localhost -PredisPort=6379
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class SessionStoreBenchmark {
+    @Param({"memory", "memory-aof", "redis"})
+    String store;
+
+    @Param({"10000"})
+    int users;
+
+    RedisService redisService;
+    LettuceConnectionFactory connectionFactory;
+    InMemoryRedisServiceImpl inMemoryStore;
+    Path journal;
+    String[] usernames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        usernames = new String[users];
+        for (int i = 0; i < users; i++) {
+            usernames[i] = "benchmark-user-" + i;
+        }
+        switch (store) {
+            case "memory" -> redisService = inMemoryStore = newInMemoryStore("");
+            case "memory-aof" -> {
+                journal = Files.createTempFile("sessions", ".aof");
+                redisService = inMemoryStore = newInMemoryStore(journal.toString());
+            }
+            case "redis" -> redisService = newRedisStore();
+            default -> throw new IllegalArgumentException("Unknown store: " + store);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (inMemoryStore != null) {
+            inMemoryStore.close();
+        }
+        if (journal != null) {
+            Files.deleteIfExists(journal);
+        }
+        if (connectionFactory != null) {
+            for (String username : usernames) {
+                redisService.removeAllTokens(username);
+            }
+            connectionFactory.destroy();
+        }
+    }
+
+    @Benchmark
+    public List<String> refresh() {
+        String username = usernames[ThreadLocalRandom.current().nextInt(usernames.length)];
+        String sessionId = UUID.randomUUID().toString();
+        redisService.addToken(username, sessionId);
+        List<String> sessions = redisService.getAllTokens(username);
+        redisService.removeToken(username, sessionId);
+        return sessions;
+    }
+
+    private static InMemoryRedisServiceImpl newInMemoryStore(String aofPath) {
+        return new InMemoryRedisServiceImpl(
+                new SimpleMeterRegistry(),
+                Duration.ofDays(1),
+                Duration.ofSeconds(1),
+                64,
+                aofPath,
+                SessionJournal.FsyncPolicy.EVERY_SECOND,
+                16 * 1024 * 1024
+        );
+    }
+
+    private RedisService newRedisStore() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+                System.getProperty("benchmark.redisHost", "localhost"),
+                Integer.getInteger("benchmark.redisPort", 6379)
+        ));
+        connectionFactory.afterPropertiesSet();
+
+        StringRedisTemplate stringTemplate = new StringRedisTemplate(connectionFactory);
+        RedisTemplate<String, List<String>> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new GenericToStringSerializer<>(List.class));
+        template.afterPropertiesSet();
+        return new RedisServiceImpl(stringTemplate.opsForList(), template);
+    }
+}
@@ -0,0 +1,193 @@
+package ru.soigo.auth.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import ru.soigo.auth.jwt.claims.TokenClaims;
+import ru.soigo.auth.jwt.model.ClaimFormat;
+import ru.soigo.auth.model.Role;
+import ru.soigo.auth.model.User;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Benchmark comparing the legacy and the compact claim format of access tokens.
+ * <p>
+ * For each {@link ClaimFormat} the benchmark mints access tokens the way {@code JwtServiceImpl} does, for users
+ * with one and with two roles, and records:
+ * </p>
+ * <ul>
+ *   <li>the size of the {@code Authorization} header carrying the token;</li>
+ *   <li>the time and heap allocation per minted token;</li>
+ *   <li>the time and heap allocation per verified token: signature check, JSON parsing and reading the type, user
+ *   id, roles and session id through {@link TokenClaims}.</li>
+ * </ul>
+ * <p>
+ * Allocation is measured with {@link com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()} around a
+ * single-threaded loop, after a warm-up of the same length. The service itself is bypassed so that its logging
+ * does not dominate the numbers. The result is written as a Markdown report to {@code benchmark.report.dir}.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * ./gradlew :auth:tokenFormatBenchmark -Poperations=500000
+ * </pre>
+ */
+public class TokenFormatBenchmark {
+    static final String HEADER_PREFIX = "Bearer ";
+    static final long ACCESS_EXPIRATION = 60_000;
+
+    final int operations = Integer.getInteger("benchmark.operations", 200_000);
+    final Path reportDir = Path.of(System.getProperty("benchmark.report.dir", "build/reports/token-format"));
+    final SecretKey key = Keys.hmacShaKeyFor(
+            "a0ee78192cbee5489dfdf18b91dfaed39017b054253530249a20fffea2a4aedd".getBytes(StandardCharsets.UTF_8)
+    );
+    final JwtParser parser = Jwts.parser().verifyWith(key).build();
+    final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final List<User> users = List.of(
+            user("alice", Set.of(Role.ROLE_USER)),
+            user("administrator", Set.of(Role.ROLE_USER, Role.ROLE_ADMIN))
+    );
+
+    public static void main(String[] args) throws Exception {
+        new TokenFormatBenchmark().run();
+    }
+
+    void run() throws IOException {
+        List<Result> results = new ArrayList<>();
+        for (ClaimFormat format : ClaimFormat.values()) {
+            String[] tokens = new String[users.size()];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = mint(users.get(i), format);
+            }
+            Measurement minting = measure(i -> mint(users.get(i % users.size()), format).length());
+            Measurement parsing = measure(i -> verify(tokens[i % tokens.length]));
+            Result result = new Result(
+                    format,
+                    HEADER_PREFIX.length() + tokens[0].length(),
+                    HEADER_PREFIX.length() + tokens[1].length(),
+                    minting,
+                    parsing
+            );
+            System.out.printf(Locale.ROOT, "%s: header %d bytes, parse %.2f us, %d bytes/op%n",
+                    format, result.headerBytes(), parsing.micros(), parsing.allocatedBytes());
+            results.add(result);
+        }
+        writeReport(results);
+    }
+
+    private String mint(User user, ClaimFormat format) {
+        long now = System.currentTimeMillis();
+        return Jwts
+                .builder()
+                .id(TokenClaims.jwtId(UUID.randomUUID(), format))
+                .claims(TokenClaims.access(user, format))
+                .subject(user.getUsername())
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + ACCESS_EXPIRATION))
+                .signWith(key)
+                .compact();
+    }
+
+    private int verify(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        return TokenClaims.tokenType(claims).ordinal()
+                + TokenClaims.userId(claims).hashCode()
+                + TokenClaims.roles(claims).size()
+                + TokenClaims.sessionId(claims).length();
+    }
+
+    private Measurement measure(IntUnaryOperator operation) {
+        int sink = 0;
+        for (int i = 0; i < operations; i++) {
+            sink += operation.applyAsInt(i);
+        }
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            sink += operation.applyAsInt(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return new Measurement(elapsed / 1e3 / operations, allocated / operations);
+    }
+
+    private void writeReport(List<Result> results) throws IOException {
+        StringBuilder report = new StringBuilder()
+                .append("# Access token format benchmark\n\n")
+                .append("| Setting | Value |\n|---|---|\n")
+                .append("| Java | ").append(Runtime.version()).append(" |\n")
+                .append("| Operations | ").append(operations).append(" |\n")
+                .append("\n| Format | Header, 1 role (bytes) | Header, 2 roles (bytes) | Mint (us) ")
+                .append("| Mint (bytes/op) | Verify (us) | Verify (bytes/op) |\n")
+                .append("|---|---:|---:|---:|---:|---:|---:|\n");
+        for (Result result : results) {
+            report.append(String.format(Locale.ROOT, "| %s | %d | %d | %.2f | %d | %.2f | %d |%n",
+                    result.format(), result.headerBytes(), result.adminHeaderBytes(),
+                    result.minting().micros(), result.minting().allocatedBytes(),
+                    result.parsing().micros(), result.parsing().allocatedBytes()));
+        }
+
+        Files.createDirectories(reportDir);
+        Path file = reportDir.resolve("token-format.md");
+        Files.writeString(file, report);
+        System.out.println("Report written to " + file.toAbsolutePath());
+    }
+
+    private static User user(String username, Set<Role> roles) {
+        return User
+                .builder()
+                .id(UUID.randomUUID())
+                .username(username)
+                .email(username + "@example.com")
+                .first_name("Benchmark")
+                .last_name("User")
+                .password("password")
+                .roles(roles)
+                .build();
+    }
+
+    /**
+     * Cost of one operation.
+     *
+     * @param micros         the average time per operation in microseconds.
+     * @param allocatedBytes the average heap allocation per operation.
+     */
+    record Measurement(double micros, long allocatedBytes) {
+    }
+
+    /**
+     * Measurements of one claim format.
+     *
+     * @param format           the claim format.
+     * @param headerBytes      the size of the {@code Authorization} header for a user with one role.
+     * @param adminHeaderBytes the size of the {@code Authorization} header for a user with two roles.
+     * @param minting          the cost of minting a token.
+     * @param parsing          the cost of verifying a token and reading its claims.
+     */
+    record Result(
+            ClaimFormat format,
+            int headerBytes,
+            int adminHeaderBytes,
+            Measurement minting,
+            Measurement parsing
+    ) {
+    }
+}
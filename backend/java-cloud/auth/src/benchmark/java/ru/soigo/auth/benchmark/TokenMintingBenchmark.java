@@ -0,0 +1,105 @@
+package ru.soigo.auth.benchmark;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.soigo.auth.jwt.claims.TokenClaims;
+import ru.soigo.auth.jwt.claims.TokenMinter;
+import ru.soigo.auth.jwt.dto.PairToken;
+import ru.soigo.auth.jwt.model.ClaimFormat;
+import ru.soigo.auth.model.Role;
+import ru.soigo.auth.model.User;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing token pair minting through the jjwt builder with the {@link TokenMinter}.
+ * <p>
+ * {@link #builder} mints a pair the way {@code JwtServiceImpl} did before the minter: two builders, a claims map
+ * per token and separate {@link Date Dates} for each. {@link #minter} mints the same pair in one pass. Run with the
+ * {@code gc} profiler, which the Gradle task enables, {@code gc.alloc.rate.norm} is the allocation per pair.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * ./gradlew :auth:tokenMintingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenMintingBenchmark {
+    static final long ACCESS_EXPIRATION = 60_000;
+    static final long REFRESH_EXPIRATION = 3_600_000;
+
+    @Param({"LEGACY", "COMPACT"})
+    ClaimFormat format;
+
+    SecretKey key;
+    TokenMinter tokenMinter;
+    User user;
+    UUID sessionId;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(
+                "a0ee78192cbee5489dfdf18b91dfaed39017b054253530249a20fffea2a4aedd".getBytes(StandardCharsets.UTF_8)
+        );
+        tokenMinter = new TokenMinter(key, format);
+        user = User
+                .builder()
+                .id(UUID.randomUUID())
+                .username("benchmark-user")
+                .email("benchmark-user@example.com")
+                .first_name("Benchmark")
+                .last_name("User")
+                .password("password")
+                .roles(Set.of(Role.ROLE_USER, Role.ROLE_ADMIN))
+                .build();
+        sessionId = UUID.randomUUID();
+    }
+
+    @Benchmark
+    public PairToken builder() {
+        return new PairToken(
+                build(TokenClaims.access(user, format), ACCESS_EXPIRATION),
+                build(TokenClaims.refresh(format), REFRESH_EXPIRATION)
+        );
+    }
+
+    @Benchmark
+    public PairToken minter() {
+        return tokenMinter.mintPair(user, sessionId, ACCESS_EXPIRATION, REFRESH_EXPIRATION);
+    }
+
+    private String build(Map<String, Object> claims, long expiration) {
+        return Jwts
+                .builder()
+                .id(TokenClaims.jwtId(sessionId, format))
+                .claims(claims)
+                .subject(user.getUsername())
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + expiration))
+                .signWith(key)
+                .compact();
+    }
+}
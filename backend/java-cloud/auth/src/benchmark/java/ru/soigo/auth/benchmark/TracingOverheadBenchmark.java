@@ -0,0 +1,145 @@
+package ru.soigo.auth.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.otel.bridge.OtelBaggageManager;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.soigo.auth.jwt.model.ClaimFormat;
+import ru.soigo.auth.jwt.rejection.TokenRejections;
+import ru.soigo.auth.jwt.service.impl.InMemoryRedisServiceImpl;
+import ru.soigo.auth.jwt.service.impl.JwtServiceImpl;
+import ru.soigo.auth.jwt.session.SessionJournal;
+import ru.soigo.auth.model.Role;
+import ru.soigo.auth.model.User;
+import ru.soigo.tracing.TailSamplingSpanProcessor;
+import ru.soigo.tracing.export.InMemorySpanExporter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark measuring the cost of tracing on the validation of an access token.
+ * <p>
+ * Each invocation validates a valid access token within an observation standing for the server request, as the
+ * security filter does, so it creates two spans: the request and {@code auth.token.validation}. Sessions are held
+ * by the in-memory store, which keeps Redis latency out of the numbers; with Redis, its command adds one more span.
+ * </p>
+ * <ul>
+ *   <li>{@code off} - No observation handler, the baseline without tracing.</li>
+ *   <li>{@code dropped} - Spans recorded and held by the {@link TailSamplingSpanProcessor}, then dropped as fast,
+ *   the cost paid by almost every request in production.</li>
+ *   <li>{@code kept} - Every trace kept and exported to an {@link InMemorySpanExporter}, the cost of a slow
+ *   request.</li>
+ * </ul>
+ * <p>
+ * The difference to {@code off} is the overhead per request; the {@code gc} profiler shows the allocation of the
+ * spans.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * ./gradlew :auth:tracingOverheadBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class TracingOverheadBenchmark {
+    @Param({"off", "dropped", "kept"})
+    String tracing;
+
+    ObservationRegistry observationRegistry;
+    SdkTracerProvider tracerProvider;
+    InMemoryRedisServiceImpl sessionStore;
+    JwtServiceImpl jwtService;
+    String accessToken;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        observationRegistry = ObservationRegistry.create();
+        if (!tracing.equals("off")) {
+            Duration latencyThreshold = tracing.equals("kept") ? Duration.ZERO : Duration.ofHours(1);
+            TailSamplingSpanProcessor processor = new TailSamplingSpanProcessor(
+                    new InMemorySpanExporter(10_000), new SimpleMeterRegistry(), latencyThreshold, 0, 10_000, 512,
+                    Duration.ofMinutes(1), 65_536, Duration.ofMillis(100)
+            );
+            tracerProvider = SdkTracerProvider
+                    .builder()
+                    .setSampler(Sampler.alwaysOn())
+                    .addSpanProcessor(processor)
+                    .build();
+            OtelCurrentTraceContext currentTraceContext = new OtelCurrentTraceContext();
+            OtelTracer tracer = new OtelTracer(
+                    tracerProvider.get("benchmark"),
+                    currentTraceContext,
+                    event -> {
+                    },
+                    new OtelBaggageManager(currentTraceContext, List.of(), List.of())
+            );
+            observationRegistry.observationConfig().observationHandler(new DefaultTracingObservationHandler(tracer));
+        }
+
+        sessionStore = new InMemoryRedisServiceImpl(
+                new SimpleMeterRegistry(), Duration.ofDays(1), Duration.ofSeconds(1), 64, "",
+                SessionJournal.FsyncPolicy.EVERY_SECOND, 16 * 1024 * 1024
+        );
+        jwtService = new JwtServiceImpl(
+                sessionStore, 3_600_000, 3_600_000, "a0ee78192cbee5489dfdf18b91dfaed39017b054253530249a20fffea2a4aedd",
+                ClaimFormat.COMPACT,
+                new TokenRejections(new SimpleMeterRegistry(), 8192, Duration.ofMinutes(10), 0, Duration.ofMinutes(1)),
+                observationRegistry, null
+        );
+        User user = User
+                .builder()
+                .id(UUID.randomUUID())
+                .username("benchmark-user")
+                .email("benchmark-user@example.com")
+                .first_name("Benchmark")
+                .last_name("User")
+                .password("password")
+                .roles(Set.of(Role.ROLE_USER))
+                .build();
+        accessToken = jwtService.generatePairToken(user).getAccess();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (tracerProvider != null) {
+            tracerProvider.shutdown().join(10, TimeUnit.SECONDS);
+        }
+        sessionStore.close();
+    }
+
+    @Benchmark
+    public Boolean validate() {
+        return Observation
+                .createNotStarted("http.server.requests", observationRegistry)
+                .observe(() -> jwtService.validateAccessToken(accessToken));
+    }
+}
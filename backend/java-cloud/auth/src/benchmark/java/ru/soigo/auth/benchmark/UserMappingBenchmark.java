@@ -0,0 +1,118 @@
+package ru.soigo.auth.benchmark;
+
+import org.modelmapper.ModelMapper;
+import org.modelmapper.convention.MatchingStrategies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.soigo.auth.dto.request.UserRequest;
+import ru.soigo.auth.dto.response.UserResponse;
+import ru.soigo.auth.dto.shared.ObjectWithUUID;
+import ru.soigo.auth.mapper.UserMapper;
+import ru.soigo.auth.mapper.impl.UserMapperImpl;
+import ru.soigo.auth.model.Role;
+import ru.soigo.auth.model.User;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing the hand-written {@link UserMapper} with ModelMapper in the strict matching strategy the
+ * service used before.
+ * <p>
+ * Each mapping of the service is measured with both mappers on a warmed-up instance. Run with the {@code gc}
+ * profiler, which the Gradle task enables, {@code gc.alloc.rate.norm} is the allocation per mapping.
+ * {@link #modelMapperFirstCall} measures a registration on a fresh ModelMapper, which is what the first request
+ * after a start paid.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * ./gradlew :auth:userMappingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMappingBenchmark {
+    ModelMapper modelMapper;
+    UserMapper userMapper;
+    UserRequest userRequest;
+    User user;
+
+    @Setup
+    public void setUp() {
+        modelMapper = newModelMapper();
+        userMapper = new UserMapperImpl();
+        userRequest = UserRequest
+                .builder()
+                .username("benchmark-user")
+                .password("password")
+                .email("benchmark-user@example.com")
+                .first_name("Benchmark")
+                .last_name("User")
+                .build();
+        user = userMapper.toUser(userRequest);
+        user.setId(UUID.randomUUID());
+        user.setRoles(Set.of(Role.ROLE_USER, Role.ROLE_ADMIN));
+    }
+
+    @Benchmark
+    public User modelMapperToUser() {
+        return modelMapper.map(userRequest, User.class);
+    }
+
+    @Benchmark
+    public User userMapperToUser() {
+        return userMapper.toUser(userRequest);
+    }
+
+    @Benchmark
+    public UserResponse modelMapperToResponse() {
+        return modelMapper.map(user, UserResponse.class);
+    }
+
+    @Benchmark
+    public UserResponse userMapperToResponse() {
+        return userMapper.toResponse(user);
+    }
+
+    @Benchmark
+    public ObjectWithUUID modelMapperToObjectWithUUID() {
+        return modelMapper.map(user, ObjectWithUUID.class);
+    }
+
+    @Benchmark
+    public ObjectWithUUID userMapperToObjectWithUUID() {
+        return userMapper.toObjectWithUUID(user);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 20)
+    @Fork(5)
+    public User modelMapperFirstCall() {
+        return newModelMapper().map(userRequest, User.class);
+    }
+
+    private static ModelMapper newModelMapper() {
+        ModelMapper mapper = new ModelMapper();
+        mapper
+                .getConfiguration()
+                .setMatchingStrategy(MatchingStrategies.STRICT);
+        return mapper;
+    }
+}
@@ -0,0 +1,133 @@
+package ru.soigo.auth.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.soigo.auth.datasource.ReplicaLagMonitor;
+import ru.soigo.auth.datasource.ReplicaRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration class routing read-only transactions to PostgreSQL replicas.
+ * <p>
+ * Active only when {@code datasource.replica.urls} lists at least one replica; otherwise the data source is
+ * auto-configured from {@code spring.datasource} as before.
+ * </p>
+ * <p>
+ * The application data source is a {@link LazyConnectionDataSourceProxy} that takes the physical connection only
+ * when the first statement runs, after the transaction manager has marked the connection read-only or not.
+ * Read-only connections come from the {@link ReplicaRoutingDataSource}, all others from the primary. Transactions
+ * are read-only for the query methods of the repositories and read-write for writes, so user lookups go to the
+ * replicas while registrations and password changes go to the primary.
+ * </p>
+ *
+ * <p><b>Properties:</b></p>
+ * <ul>
+ *   <li>{@code datasource.replica.urls} - JDBC URLs of the replicas, comma separated.</li>
+ *   <li>{@code datasource.replica.username}, {@code datasource.replica.password} - Credentials of the replicas,
+ *   defaulting to those of the primary.</li>
+ *   <li>{@code datasource.replica.max-lag} - The largest replication lag at which a replica serves reads.</li>
+ *   <li>{@code datasource.replica.lag-check-interval} - How often the lag is checked.</li>
+ * </ul>
+ *
+ * @see ReplicaRoutingDataSource
+ * @see ReplicaLagMonitor
+ * @see ru.soigo.auth.datasource.PrimaryStickiness
+ */
+@Configuration
+@ConditionalOnProperty("datasource.replica.urls")
+public class DataSourceConfig {
+
+    /**
+     * Creates the connection pool of the primary from {@code spring.datasource}.
+     *
+     * @param properties the data source properties.
+     * @return the connection pool of the primary.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties
+                .initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    /**
+     * Creates the replica pool. Each replica gets a read-only connection pool sized like the pool of the primary,
+     * which does not fail startup while the replica is unreachable.
+     *
+     * @param primaryDataSource the connection pool of the primary.
+     * @param urls              the JDBC URLs of the replicas.
+     * @param username          the user name of the replicas.
+     * @param password          the password of the replicas.
+     * @return the replica pool.
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(
+            HikariDataSource primaryDataSource,
+            @Value("${datasource.replica.urls}") List<String> urls,
+            @Value("${datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${datasource.replica.password:${spring.datasource.password}}") String password
+    ) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(urls.get(i).trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setDriverClassName(primaryDataSource.getDriverClassName());
+            replica.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+            replica.setReadOnly(true);
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    /**
+     * Creates the application data source, routing read-only connections to the replicas.
+     *
+     * @param primaryDataSource the connection pool of the primary.
+     * @param replicaDataSource the replica pool.
+     * @return the application data source.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    /**
+     * Creates the monitor taking lagging replicas out of rotation.
+     *
+     * @param replicaDataSource the replica pool.
+     * @param meterRegistry     the registry used to publish the lag of the replicas.
+     * @param maxLag            the largest lag at which a replica serves reads.
+     * @param interval          how often the lag is checked.
+     * @return the lag monitor.
+     */
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            ReplicaRoutingDataSource replicaDataSource,
+            MeterRegistry meterRegistry,
+            @Value("${datasource.replica.max-lag:2s}") Duration maxLag,
+            @Value("${datasource.replica.lag-check-interval:1s}") Duration interval
+    ) {
+        return new ReplicaLagMonitor(replicaDataSource, meterRegistry, maxLag, interval);
+    }
+}
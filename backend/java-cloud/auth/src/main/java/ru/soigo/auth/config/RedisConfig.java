@@ -1,9 +1,13 @@
 package ru.soigo.auth.config;
 
+import io.lettuce.core.resource.ClientResources;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.ListOperations;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -16,18 +20,32 @@ import java.util.List;
  * Configuration class for setting up Redis with Spring.
  * This configuration class sets up the necessary beans for working with Redis,
  * including the connection factory, Redis template, and list operations.
+ * <p>
+ * Active unless another session store is selected with {@code session.store}; the sharded store connects to its
+ * nodes itself.
+ * </p>
  */
 @Configuration
+@ConditionalOnProperty(name = "session.store", havingValue = "redis", matchIfMissing = true)
 public class RedisConfig {
 
     /**
      * Creates a {@link RedisConnectionFactory} using Lettuce.
+     * <p>
+     * The connections share the {@link ClientResources} of Spring Boot, which carry the observation of Redis
+     * commands, so every command is traced as a span of the request it serves.
+     * </p>
      *
+     * @param clientResources the Lettuce client resources.
      * @return a {@link LettuceConnectionFactory} instance.
      */
     @Bean
-    public RedisConnectionFactory redisConnectionFactory() {
-        return new LettuceConnectionFactory();
+    public RedisConnectionFactory redisConnectionFactory(ClientResources clientResources) {
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration
+                .builder()
+                .clientResources(clientResources)
+                .build();
+        return new LettuceConnectionFactory(new RedisStandaloneConfiguration(), clientConfiguration);
     }
 
     /**
@@ -35,12 +53,13 @@ public class RedisConfig {
      * The keys are serialized using {@link StringRedisSerializer}, and the values are serialized
      * using {@link GenericToStringSerializer} with {@link List} type.
      *
+     * @param redisConnectionFactory the connection factory.
      * @return a configured {@link RedisTemplate} instance.
      */
     @Bean
-    public RedisTemplate<String, List<String>> redisTemplate() {
+    public RedisTemplate<String, List<String>> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
         RedisTemplate<String, List<String>> template = new RedisTemplate<>();
-        template.setConnectionFactory(redisConnectionFactory());
+        template.setConnectionFactory(redisConnectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
         template.setValueSerializer(new GenericToStringSerializer<>(List.class));
         return template;
@@ -4,7 +4,6 @@ import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -12,9 +11,10 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.SecurityFilterChain;
-import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import ru.soigo.auth.handler.UnauthorizedResponse;
 import ru.soigo.auth.jwt.filter.JwtAuthenticationFilter;
+import ru.soigo.auth.limit.filter.ConcurrencyLimitFilter;
 
 /**
  * Configuration class for setting up the security configuration for the application.
@@ -22,11 +22,17 @@ import ru.soigo.auth.jwt.filter.JwtAuthenticationFilter;
  * This class enables web security and method security, and defines the security filter chain
  * that manages how HTTP security is configured in the application.
  * </p>
+ * <p>
+ * The {@code traces} actuator endpoint lists the spans of recent requests, including their queries, and can clear
+ * them, so it is reserved to {@code ROLE_ADMIN}; other actuator endpoints only require authentication.
+ * </p>
  *
  * <p><b>Dependencies:</b></p>
  * <ul>
  *   <li>{@link UserDetailsService} - Service for loading user-specific data.</li>
  *   <li>{@link JwtAuthenticationFilter} - Filter for processing JWT authentication.</li>
+ *   <li>{@link ConcurrencyLimitFilter} - Filter shedding load above the adaptive concurrency limit, placed before JWT authentication.</li>
+ *   <li>{@link UnauthorizedResponse} - Entry point answering unauthenticated requests with a pre-serialized 401 body.</li>
  * </ul>
  *
  * <p><b>Annotations:</b></p>
@@ -38,6 +44,7 @@ import ru.soigo.auth.jwt.filter.JwtAuthenticationFilter;
  *
  * @see UserDetailsService
  * @see JwtAuthenticationFilter
+ * @see ConcurrencyLimitFilter
  * @see HttpSecurity
  */
 @Configuration
@@ -47,6 +54,8 @@ import ru.soigo.auth.jwt.filter.JwtAuthenticationFilter;
 public class SecurityConfig {
     final UserDetailsService userDetailsService;
     final JwtAuthenticationFilter jwtAuthenticationFilter;
+    final ConcurrencyLimitFilter concurrencyLimitFilter;
+    final UnauthorizedResponse unauthorizedResponse;
 
     @Bean
     public SecurityFilterChain securityFilterChain(@NotNull HttpSecurity http) throws Exception {
@@ -59,6 +68,8 @@ public class SecurityConfig {
                                 "/refresh-pair-token/**"
                         )
                         .permitAll()
+                        .requestMatchers("/actuator/traces/**")
+                        .hasRole("ADMIN")
                         .anyRequest()
                         .authenticated()
                 )
@@ -67,8 +78,9 @@ public class SecurityConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(concurrencyLimitFilter, JwtAuthenticationFilter.class)
                 .exceptionHandling(exceptionConfigurer -> exceptionConfigurer
-                        .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+                        .authenticationEntryPoint(unauthorizedResponse)
                 )
                 .build();
     }
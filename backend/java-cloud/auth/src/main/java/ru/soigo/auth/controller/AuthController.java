@@ -3,7 +3,6 @@ package ru.soigo.auth.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -16,6 +15,7 @@ import ru.soigo.auth.dto.request.CredentialRequest;
 import ru.soigo.auth.dto.request.RefreshTokenRequest;
 import ru.soigo.auth.dto.request.UserRequest;
 import ru.soigo.auth.jwt.dto.PairToken;
+import ru.soigo.auth.mapper.UserMapper;
 import ru.soigo.auth.model.User;
 import ru.soigo.auth.service.AuthService;
 
@@ -23,7 +23,7 @@ import ru.soigo.auth.service.AuthService;
 @RequiredArgsConstructor
 public class AuthController {
     final AuthService authService;
-    final ModelMapper mapper;
+    final UserMapper userMapper;
 
     @Value("${jwt.header.start}")
     String jwtHeaderStart;
@@ -31,7 +31,7 @@ public class AuthController {
 
     @PostMapping("register")
     ResponseEntity<PairToken> register(@RequestBody @Valid @NotNull UserRequest userRequest) {
-        User user = mapper.map(userRequest, User.class);
+        User user = userMapper.toUser(userRequest);
         PairToken pairToken = authService.register(user);
         return ResponseEntity
                 .status(HttpStatus.OK)
@@ -0,0 +1,72 @@
+package ru.soigo.auth.datasource;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Component remembering which users wrote recently, so their own reads can be served by the primary.
+ * <p>
+ * Replicas apply writes with a delay, so a user reading right after a registration or a password change could be
+ * served the state from before it. For {@code datasource.replica.sticky-window} after a write of a user, their
+ * reads therefore go to the primary. The window should exceed the lag tolerated by {@link ReplicaLagMonitor}.
+ * </p>
+ * <p>
+ * Writes are remembered per instance; expired entries are dropped when the table grows.
+ * </p>
+ *
+ * @see ru.soigo.auth.service.impl.UserServiceImpl
+ */
+@Component
+public class PrimaryStickiness {
+    static final int CLEANUP_THRESHOLD = 10_000;
+
+    final Map<String, Long> writes = new ConcurrentHashMap<>();
+    final long windowNanos;
+
+    /**
+     * Constructs a new instance of {@link PrimaryStickiness}.
+     *
+     * @param window how long the reads of a user go to the primary after their write.
+     */
+    @Autowired
+    public PrimaryStickiness(@Value("${datasource.replica.sticky-window:5s}") Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Records a write of the user.
+     *
+     * @param username the user who wrote.
+     */
+    public void markWritten(@NotNull String username) {
+        long now = System.nanoTime();
+        if (writes.size() >= CLEANUP_THRESHOLD) {
+            writes.values().removeIf(writtenAt -> now - writtenAt > windowNanos);
+        }
+        writes.put(username, now);
+    }
+
+    /**
+     * Returns whether the reads of the user must go to the primary.
+     *
+     * @param username the user who reads.
+     * @return {@code true} if the user wrote within the sticky window.
+     */
+    public boolean isSticky(@NotNull String username) {
+        Long writtenAt = writes.get(username);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt > windowNanos) {
+            writes.remove(username, writtenAt);
+            return false;
+        }
+        return true;
+    }
+}
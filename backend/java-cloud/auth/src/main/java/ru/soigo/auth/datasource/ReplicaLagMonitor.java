@@ -0,0 +1,137 @@
+package ru.soigo.auth.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monitor measuring the replication lag of the replicas and taking lagging replicas out of rotation.
+ * <p>
+ * Every {@code interval}, each replica reports how far behind the primary it is: zero when it has replayed all
+ * WAL it received, otherwise the age of the last replayed transaction. A replica is taken out of rotation when its
+ * lag exceeds {@code maxLag} or it cannot be queried, and returns once its lag is below half of {@code maxLag}, so a
+ * replica hovering around the limit does not flap in and out.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code auth.datasource.replica.lag} - Replication lag in seconds, tagged by {@code replica};
+ *   {@code NaN} while the replica cannot be queried.</li>
+ *   <li>{@code auth.datasource.replica.available} - {@code 1} while the replica takes part in the rotation.</li>
+ * </ul>
+ *
+ * @see ReplicaRoutingDataSource
+ */
+@Slf4j
+public class ReplicaLagMonitor implements Closeable {
+    static final String LAG_QUERY = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN NULL
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+            END""";
+
+    final ReplicaRoutingDataSource dataSource;
+    final double maxLagSeconds;
+    final Map<String, Double> lags = new ConcurrentHashMap<>();
+    final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("replica-lag-monitor").daemon().factory()
+    );
+
+    /**
+     * Constructs a new instance of {@link ReplicaLagMonitor} and starts checking the replicas.
+     *
+     * @param dataSource    the replica pool to monitor.
+     * @param meterRegistry the registry used to publish the lag of the replicas.
+     * @param maxLag        the largest lag at which a replica stays in rotation.
+     * @param interval      the time between two checks.
+     */
+    public ReplicaLagMonitor(
+            @NotNull ReplicaRoutingDataSource dataSource,
+            @NotNull MeterRegistry meterRegistry,
+            @NotNull Duration maxLag,
+            @NotNull Duration interval
+    ) {
+        this.dataSource = dataSource;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+
+        for (ReplicaRoutingDataSource.Replica replica : dataSource.getReplicas()) {
+            lags.put(replica.name(), Double.NaN);
+            Gauge
+                    .builder("auth.datasource.replica.lag", lags, values -> values.get(replica.name()))
+                    .description("Replication lag of the replica in seconds")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.name())
+                    .register(meterRegistry);
+            Gauge
+                    .builder("auth.datasource.replica.available", replica, value -> value.isAvailable() ? 1 : 0)
+                    .description("Whether the replica takes part in the read rotation")
+                    .tag("replica", replica.name())
+                    .register(meterRegistry);
+        }
+        executor.scheduleWithFixedDelay(this::checkAll, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops checking the replicas.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void checkAll() {
+        dataSource.getReplicas().forEach(this::check);
+    }
+
+    private void check(@NotNull ReplicaRoutingDataSource.Replica replica) {
+        double lag = lag(replica);
+        lags.put(replica.name(), lag);
+
+        boolean available = replica.isAvailable()
+                ? lag <= maxLagSeconds
+                : lag <= maxLagSeconds / 2;
+        if (available != replica.isAvailable()) {
+            if (available) {
+                log.info("Replica {} back in rotation, lag {} s", replica.name(), lag);
+            } else {
+                log.warn("Replica {} taken out of rotation, lag {} s (max {} s)", replica.name(), lag, maxLagSeconds);
+            }
+            replica.setAvailable(available);
+        }
+    }
+
+    /**
+     * Queries the replication lag of a replica.
+     *
+     * @param replica the replica to query.
+     * @return the lag in seconds, or {@code NaN} if the replica cannot be queried or is not a replica.
+     */
+    private double lag(@NotNull ReplicaRoutingDataSource.Replica replica) {
+        try (Connection connection = replica.dataSource().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+            if (!resultSet.next()) {
+                return Double.NaN;
+            }
+            double lag = resultSet.getDouble(1);
+            return resultSet.wasNull() ? Double.NaN : lag;
+        } catch (SQLException exception) {
+            log.debug("Lag check of replica {} failed: {}", replica.name(), exception.getMessage());
+            return Double.NaN;
+        }
+    }
+}
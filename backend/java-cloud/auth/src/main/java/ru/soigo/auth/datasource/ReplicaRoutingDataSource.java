@@ -0,0 +1,116 @@
+package ru.soigo.auth.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data source spreading read-only connections over a pool of PostgreSQL replicas.
+ * <p>
+ * Connections are taken from the replicas in rotation. A replica only takes part in the rotation while
+ * {@link ReplicaLagMonitor} considers it available; replicas start out unavailable until their lag has been
+ * checked. If no replica is available, connections are taken from the primary.
+ * </p>
+ * <p>
+ * This data source is the read-only target of the {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * configured in {@link ru.soigo.auth.config.DataSourceConfig}, so it only serves transactions marked read-only.
+ * </p>
+ *
+ * @see ReplicaLagMonitor
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    final List<Replica> replicas;
+    final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Constructs a new instance of {@link ReplicaRoutingDataSource}.
+     *
+     * @param primary  the data source used when no replica is available.
+     * @param replicas the connection pools of the replicas.
+     */
+    public ReplicaRoutingDataSource(@NotNull DataSource primary, @NotNull List<HikariDataSource> replicas) {
+        this.replicas = replicas.stream().map(Replica::new).toList();
+
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        this.replicas.forEach(replica -> targets.put(replica.name(), replica.dataSource()));
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Returns the replicas of the pool.
+     *
+     * @return the replicas, in configuration order.
+     */
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Closes the connection pools of the replicas.
+     */
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource().close());
+    }
+
+    /**
+     * Selects the next available replica.
+     *
+     * @return the name of the replica, or {@code null} to use the primary.
+     */
+    @Override
+    protected @Nullable Object determineCurrentLookupKey() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isAvailable()) {
+                return replica.name();
+            }
+        }
+        log.debug("No replica available, reading from the primary");
+        return null;
+    }
+
+    /**
+     * A replica and whether it currently takes part in the rotation.
+     */
+    public static class Replica {
+        final HikariDataSource dataSource;
+        volatile boolean available;
+
+        Replica(@NotNull HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        public String name() {
+            return dataSource.getPoolName();
+        }
+
+        public HikariDataSource dataSource() {
+            return dataSource;
+        }
+
+        public boolean isAvailable() {
+            return available;
+        }
+
+        void setAvailable(boolean available) {
+            this.available = available;
+        }
+    }
+}
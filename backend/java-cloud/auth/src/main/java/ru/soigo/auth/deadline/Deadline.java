@@ -0,0 +1,54 @@
+package ru.soigo.auth.deadline;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+
+/**
+ * Point in time after which the caller will no longer wait for the response of a request.
+ * <p>
+ * Deadlines are based on {@link System#nanoTime()}, so they are not affected by wall clock adjustments.
+ * </p>
+ *
+ * <p><b>Example Usage:</b></p>
+ * <pre>{@code
+ * Deadline deadline = Deadline.after(Duration.ofMillis(800));
+ * if (deadline.isExpired()) {
+ *     // skip the remaining work
+ * }
+ * }</pre>
+ *
+ * @param expiresAtNanos the {@link System#nanoTime()} value at which the deadline expires.
+ */
+public record Deadline(long expiresAtNanos) {
+
+    /**
+     * Creates a deadline that expires after the given budget.
+     *
+     * @param budget the time budget starting now.
+     * @return a new deadline.
+     */
+    @Contract("_ -> new")
+    public static @NotNull Deadline after(@NotNull Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    /**
+     * Returns the time left before the deadline.
+     *
+     * @return the remaining time, or {@link Duration#ZERO} if the deadline has passed.
+     */
+    public @NotNull Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    /**
+     * Checks whether the deadline has passed.
+     *
+     * @return {@code true} if the deadline has passed.
+     */
+    public boolean isExpired() {
+        return System.nanoTime() - expiresAtNanos >= 0;
+    }
+}
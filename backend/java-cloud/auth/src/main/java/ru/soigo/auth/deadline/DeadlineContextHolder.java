@@ -0,0 +1,91 @@
+package ru.soigo.auth.deadline;
+
+import org.jetbrains.annotations.Nullable;
+import ru.soigo.auth.exception.DeadlineExceededException;
+
+/**
+ * Associates the {@link Deadline} of the current request with the executing thread.
+ * <p>
+ * The deadline is set by {@link ru.soigo.auth.deadline.filter.DeadlineFilter} and checked by services before
+ * each expensive stage (database queries, password hashing, Redis calls), in the same way
+ * {@link org.springframework.security.core.context.SecurityContextHolder} carries the authentication.
+ * Code running without a deadline, such as direct calls that bypass the gateway, is never interrupted.
+ * </p>
+ * <p>
+ * An operation must not be abandoned halfway through its writes, so the stage before its first state change
+ * calls {@link #commit(String)} instead: past that point the request runs to completion, however late.
+ * </p>
+ *
+ * <p><b>Example Usage:</b></p>
+ * <pre>{@code
+ * DeadlineContextHolder.check("password hashing");
+ * passwordEncoder.matches(rawPassword, user.getPassword());
+ * }</pre>
+ *
+ * @see Deadline
+ * @see DeadlineExceededException
+ */
+public final class DeadlineContextHolder {
+    private static final ThreadLocal<Deadline> holder = new ThreadLocal<>();
+
+    private DeadlineContextHolder() {
+    }
+
+    /**
+     * Returns the deadline of the current request.
+     *
+     * @return the deadline, or {@code null} if the request has none.
+     */
+    public static @Nullable Deadline getDeadline() {
+        return holder.get();
+    }
+
+    /**
+     * Sets the deadline of the current request.
+     *
+     * @param deadline the deadline, or {@code null} to clear it.
+     */
+    public static void setDeadline(@Nullable Deadline deadline) {
+        if (deadline == null) {
+            holder.remove();
+        } else {
+            holder.set(deadline);
+        }
+    }
+
+    /**
+     * Clears the deadline of the current request.
+     */
+    public static void clear() {
+        holder.remove();
+    }
+
+    /**
+     * Aborts the current request if its deadline has passed.
+     *
+     * @param stage a short name of the stage about to start, used in the error message.
+     * @throws DeadlineExceededException if the deadline has passed.
+     */
+    public static void check(String stage) {
+        Deadline deadline = holder.get();
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException(stage);
+        }
+    }
+
+    /**
+     * Aborts the current request if its deadline has passed, and otherwise releases it from the deadline.
+     * <p>
+     * Called right before the first state change of an operation, so that the remaining checks pass and calls
+     * bounded by the deadline fall back to their own timeouts: the operation then either changes nothing or
+     * completes.
+     * </p>
+     *
+     * @param stage a short name of the first state-changing stage, used in the error message.
+     * @throws DeadlineExceededException if the deadline has passed.
+     */
+    public static void commit(String stage) {
+        check(stage);
+        holder.remove();
+    }
+}
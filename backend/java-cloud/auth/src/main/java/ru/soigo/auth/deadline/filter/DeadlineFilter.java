@@ -0,0 +1,89 @@
+package ru.soigo.auth.deadline.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.soigo.auth.deadline.Deadline;
+import ru.soigo.auth.deadline.DeadlineContextHolder;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Filter that reads the time budget propagated by the gateway and makes it available to services.
+ * <p>
+ * The gateway sends the number of milliseconds it will still wait for the response in the
+ * {@value #TIMEOUT_HEADER} header. This filter converts it into a {@link Deadline} held by
+ * {@link DeadlineContextHolder} for the duration of the request. Requests whose budget is already spent on
+ * arrival are rejected with {@code 504 Gateway Timeout} before any other filter runs.
+ * </p>
+ *
+ * @see Deadline
+ * @see DeadlineContextHolder
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DeadlineFilter extends OncePerRequestFilter {
+    /**
+     * Header carrying the remaining time budget of the request in milliseconds.
+     */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    /**
+     * Reads the deadline of the request, rejects it if it has already passed, and otherwise
+     * holds it in {@link DeadlineContextHolder} while the rest of the chain runs.
+     *
+     * @param request     the incoming HTTP request.
+     * @param response    the HTTP response.
+     * @param filterChain the filter chain.
+     * @throws ServletException if an error occurs during filtering.
+     * @throws IOException      if an I/O error occurs during filtering.
+     */
+    @Override
+    protected void doFilterInternal(
+            @NotNull HttpServletRequest request,
+            @NotNull HttpServletResponse response,
+            @NotNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        Deadline deadline = parseDeadline(request.getHeader(TIMEOUT_HEADER));
+        if (deadline != null && deadline.isExpired()) {
+            log.debug("Rejecting request with an exhausted deadline: {}", request.getRequestURI());
+            response.setStatus(HttpStatus.GATEWAY_TIMEOUT.value());
+            return;
+        }
+
+        DeadlineContextHolder.setDeadline(deadline);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            DeadlineContextHolder.clear();
+        }
+    }
+
+    /**
+     * Converts the value of the {@value #TIMEOUT_HEADER} header into a deadline.
+     *
+     * @param header the header value, may be {@code null}.
+     * @return the deadline, or {@code null} if the header is absent or malformed.
+     */
+    private Deadline parseDeadline(String header) {
+        if (header == null) {
+            return null;
+        }
+        try {
+            return Deadline.after(Duration.ofMillis(Long.parseLong(header.trim())));
+        } catch (NumberFormatException exception) {
+            log.debug("Ignoring malformed {} header: {}", TIMEOUT_HEADER, header);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.soigo.auth.exception;
+
+/**
+ * Exception thrown when a request's time budget runs out before an expensive stage starts.
+ * <p>
+ * This exception is thrown on every abandoned request under overload, so it is created without a stack trace
+ * and carries only the name of the stage that was skipped.
+ * </p>
+ *
+ * @see ru.soigo.auth.deadline.DeadlineContextHolder
+ * @see RuntimeException
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    /**
+     * Constructs a DeadlineExceededException for the given stage.
+     *
+     * @param stage The stage that was not started because the deadline had passed.
+     */
+    public DeadlineExceededException(String stage) {
+        super("Deadline exceeded before " + stage, null, false, false);
+    }
+}
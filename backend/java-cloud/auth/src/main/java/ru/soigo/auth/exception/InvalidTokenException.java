@@ -0,0 +1,35 @@
+package ru.soigo.auth.exception;
+
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Exception thrown when a token presented by a client is rejected.
+ * <p>
+ * Invalid tokens are replayed in bulk by bots, so this exception is created without a stack trace. It extends
+ * {@link JwtException} and is answered like any other token error.
+ * </p>
+ *
+ * @see ru.soigo.auth.jwt.rejection.TokenRejections
+ * @see JwtException
+ */
+public class InvalidTokenException extends JwtException {
+
+    /**
+     * Constructs an InvalidTokenException with the specified error message.
+     *
+     * @param message The detail message.
+     */
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+
+    /**
+     * Skips capturing the stack trace.
+     *
+     * @return this exception.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.soigo.auth.exception;
+
+/**
+ * Exception thrown when the session store cannot serve a call and the call cannot be degraded.
+ * <p>
+ * Thrown for every call while the store is down, so it is created without a stack trace.
+ * </p>
+ *
+ * @see ru.soigo.auth.jwt.service.impl.ResilientRedisServiceImpl
+ * @see RuntimeException
+ */
+public class SessionStoreUnavailableException extends RuntimeException {
+
+    /**
+     * Constructs a SessionStoreUnavailableException with the specified error message.
+     *
+     * @param message The detail message.
+     */
+    public SessionStoreUnavailableException(String message) {
+        super(message, null, false, false);
+    }
+}
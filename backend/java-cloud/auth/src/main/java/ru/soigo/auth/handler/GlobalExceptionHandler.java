@@ -2,6 +2,7 @@ package ru.soigo.auth.handler;
 
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +15,8 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import ru.soigo.auth.exception.AlreadyUserException;
+import ru.soigo.auth.exception.DeadlineExceededException;
+import ru.soigo.auth.exception.SessionStoreUnavailableException;
 import ru.soigo.auth.handler.dto.ErrorMessage;
 
 import java.util.HashMap;
@@ -30,17 +33,23 @@ import java.util.Map;
  * <p><b>Exception Handlers:</b></p>
  * <ul>
  *   <li>{@link AccessDeniedException} - Handles access denied exceptions with HTTP status 403 (FORBIDDEN).</li>
- *   <li>{@link AuthenticationException}, {@link JwtException} - Handles authentication-related exceptions with HTTP status 401 (UNAUTHORIZED).</li>
+ *   <li>{@link AuthenticationException} - Handles authentication-related exceptions with HTTP status 401 (UNAUTHORIZED).</li>
+ *   <li>{@link JwtException} - Handles rejected tokens with HTTP status 401 (UNAUTHORIZED) and the pre-serialized body of {@link UnauthorizedResponse}.</li>
  *   <li>{@link AlreadyUserException}, {@link HttpMessageNotReadableException} - Handles exceptions related to user already exists or invalid HTTP message with HTTP status 400 (BAD_REQUEST).</li>
  *   <li>{@link MethodArgumentNotValidException} - Handles validation exceptions for method arguments with HTTP status 400 (BAD_REQUEST).</li>
+ *   <li>{@link DeadlineExceededException} - Handles requests abandoned by the caller with HTTP status 504 (GATEWAY_TIMEOUT).</li>
+ *   <li>{@link SessionStoreUnavailableException} - Handles session writes that can neither reach nor be queued for the session store with HTTP status 503 (SERVICE_UNAVAILABLE).</li>
  * </ul>
  *
  * <p><b>Methods:</b></p>
  * <ul>
  *   <li>{@code handleAccessDeniedException} - Handles {@link AccessDeniedException} and returns a forbidden HTTP response.</li>
- *   <li>{@code handleAuthenticationException} - Handles {@link AuthenticationException} and {@link JwtException} and returns an unauthorized HTTP response.</li>
+ *   <li>{@code handleAuthenticationException} - Handles {@link AuthenticationException} and returns an unauthorized HTTP response.</li>
+ *   <li>{@code handleJwtException} - Handles {@link JwtException} and returns the pre-serialized unauthorized HTTP response.</li>
  *   <li>{@code handleAlreadyUserException} - Handles {@link AlreadyUserException} and {@link HttpMessageNotReadableException} and returns a bad request HTTP response.</li>
  *   <li>{@code handleMethodArgumentNotValid} - Handles {@link MethodArgumentNotValidException} and returns a bad request HTTP response with detailed validation errors.</li>
+ *   <li>{@code handleDeadlineExceededException} - Handles {@link DeadlineExceededException} and returns an empty gateway timeout HTTP response.</li>
+ *   <li>{@code handleSessionStoreUnavailableException} - Handles {@link SessionStoreUnavailableException} and returns a service unavailable HTTP response.</li>
  * </ul>
  *
  * <p><b>Utility Method:</b></p>
@@ -63,7 +72,9 @@ import java.util.Map;
  * @see org.springframework.web.bind.annotation.ExceptionHandler
  */
 @ControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
+    final UnauthorizedResponse unauthorizedResponse;
 
     /**
      * Handles AccessDeniedException and returns a forbidden HTTP response.
@@ -83,13 +94,13 @@ public class GlobalExceptionHandler {
     }
 
     /**
-     * Handles AuthenticationException and JwtException and returns an unauthorized HTTP response.
+     * Handles AuthenticationException and returns an unauthorized HTTP response.
      *
-     * @param exception The AuthenticationException or JwtException instance.
+     * @param exception The AuthenticationException instance.
      * @param request   The HttpServletRequest where the exception occurred.
      * @return A ResponseEntity with HTTP status 401 (UNAUTHORIZED) and an ErrorMessage.
      */
-    @ExceptionHandler({AuthenticationException.class, JwtException.class})
+    @ExceptionHandler({AuthenticationException.class})
     public ResponseEntity<?> handleAuthenticationException(
             @NotNull AuthenticationException exception,
             HttpServletRequest request
@@ -99,6 +110,25 @@ public class GlobalExceptionHandler {
                 .body(generateMessage(request, exception.getMessage()));
     }
 
+    /**
+     * Handles JwtException and returns an unauthorized HTTP response.
+     * <p>
+     * Rejected tokens are the most frequent error under bot traffic, so the response body is the pre-serialized
+     * one of {@link UnauthorizedResponse} instead of a new {@link ErrorMessage}.
+     * </p>
+     *
+     * @param exception The JwtException instance.
+     * @param request   The HttpServletRequest where the exception occurred.
+     * @return A ResponseEntity with HTTP status 401 (UNAUTHORIZED) and the pre-serialized body.
+     */
+    @ExceptionHandler({JwtException.class})
+    public ResponseEntity<byte[]> handleJwtException(
+            @NotNull JwtException exception,
+            @NotNull HttpServletRequest request
+    ) {
+        return unauthorizedResponse.toResponseEntity(request);
+    }
+
     /**
      * Handles AlreadyUserException and HttpMessageNotReadableException and returns a bad request HTTP response.
      *
@@ -139,6 +169,39 @@ public class GlobalExceptionHandler {
                 .body(generateMessage(request, errors));
     }
 
+    /**
+     * Handles DeadlineExceededException and returns a gateway timeout HTTP response without a body.
+     * <p>
+     * Nobody is waiting for this response any more, so no {@link ErrorMessage} is built for it.
+     * </p>
+     *
+     * @param exception The DeadlineExceededException instance.
+     * @return A ResponseEntity with HTTP status 504 (GATEWAY_TIMEOUT) and no body.
+     */
+    @ExceptionHandler({DeadlineExceededException.class})
+    public ResponseEntity<?> handleDeadlineExceededException(@NotNull DeadlineExceededException exception) {
+        return ResponseEntity
+                .status(HttpStatus.GATEWAY_TIMEOUT)
+                .build();
+    }
+
+    /**
+     * Handles SessionStoreUnavailableException and returns a service unavailable HTTP response.
+     *
+     * @param exception The SessionStoreUnavailableException instance.
+     * @param request   The HttpServletRequest where the exception occurred.
+     * @return A ResponseEntity with HTTP status 503 (SERVICE_UNAVAILABLE) and an ErrorMessage.
+     */
+    @ExceptionHandler({SessionStoreUnavailableException.class})
+    public ResponseEntity<?> handleSessionStoreUnavailableException(
+            @NotNull SessionStoreUnavailableException exception,
+            HttpServletRequest request
+    ) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(generateMessage(request, exception.getMessage()));
+    }
+
     /**
      * Private method to generate an ErrorMessage object containing the error message and the URL where the error occurred.
      *
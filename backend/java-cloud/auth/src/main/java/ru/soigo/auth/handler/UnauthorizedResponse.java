@@ -0,0 +1,83 @@
+package ru.soigo.auth.handler;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.AuthenticationEntryPoint;
+import org.springframework.security.web.util.UrlUtils;
+import org.springframework.stereotype.Component;
+import ru.soigo.auth.handler.dto.ErrorMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Component answering rejected tokens with a {@code 401 Unauthorized} response.
+ * <p>
+ * The body has the shape of an {@link ErrorMessage} with a fixed message, so everything but the request URL is
+ * serialized once: a rejection writes the precomputed prefix, the JSON-escaped URL and the precomputed suffix,
+ * without building an {@link ErrorMessage} or going through the message converters.
+ * </p>
+ * <p>
+ * It is used as the {@link AuthenticationEntryPoint} of requests without a valid access token, and by
+ * {@link GlobalExceptionHandler} for token errors of the public endpoints.
+ * </p>
+ *
+ * @see ErrorMessage
+ * @see GlobalExceptionHandler
+ */
+@Component
+public class UnauthorizedResponse implements AuthenticationEntryPoint {
+    static final String MESSAGE = "Invalid or missing token";
+    static final byte[] PREFIX =
+            ("{\"message\":\"" + MESSAGE + "\",\"url\":\"").getBytes(StandardCharsets.UTF_8);
+    static final byte[] SUFFIX = "\"}".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Writes the {@code 401} response for a request without a valid access token.
+     *
+     * @param request       the request that was rejected.
+     * @param response      the response to write.
+     * @param authException the reason of the rejection.
+     * @throws IOException if the response cannot be written.
+     */
+    @Override
+    public void commence(
+            HttpServletRequest request,
+            @NotNull HttpServletResponse response,
+            AuthenticationException authException
+    ) throws IOException {
+        byte[] body = body(request);
+        response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Creates the {@code 401} response for a rejected token.
+     *
+     * @param request the request that was rejected.
+     * @return the response entity with the serialized body.
+     */
+    public ResponseEntity<byte[]> toResponseEntity(@NotNull HttpServletRequest request) {
+        return ResponseEntity
+                .status(HttpStatus.UNAUTHORIZED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body(request));
+    }
+
+    private byte[] body(@NotNull HttpServletRequest request) {
+        byte[] url = JsonStringEncoder.getInstance().quoteAsUTF8(UrlUtils.buildFullRequestUrl(request));
+        byte[] body = new byte[PREFIX.length + url.length + SUFFIX.length];
+        System.arraycopy(PREFIX, 0, body, 0, PREFIX.length);
+        System.arraycopy(url, 0, body, PREFIX.length, url.length);
+        System.arraycopy(SUFFIX, 0, body, PREFIX.length + url.length, SUFFIX.length);
+        return body;
+    }
+}
@@ -0,0 +1,240 @@
+package ru.soigo.auth.jfr;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.repository.Repository;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import ru.soigo.auth.jwt.service.RedisService;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Bean post processor recording calls of the session stores, the password encoder and the repositories as JFR
+ * events.
+ * <p>
+ * Every {@link RedisService} bean is wrapped in a proxy emitting a {@link SessionStoreEvent}, every
+ * {@link PasswordEncoder} in one emitting a {@link PasswordHashEvent} and every Spring Data {@link Repository} in
+ * one emitting a {@link RepositoryEvent}. Session stores are proxied by class, as the sharded store is also injected
+ * by its type; the others by their interfaces. Tokens are recorded by
+ * {@link ru.soigo.auth.jwt.service.impl.JwtServiceImpl} itself as {@link TokenEvent}.
+ * </p>
+ * <p>
+ * The events cost a check of {@link jdk.jfr.Event#isEnabled()} per call while no recording asks for them, and a
+ * timestamp and a buffer write while one does; arguments are never recorded, only their lengths. The profile
+ * {@code jfr/auth.jfc}, copied out of the jar, enables them for an always-on recording:
+ * </p>
+ * <pre>
+ * {@code
+ *  -XX:StartFlightRecording=settings=default,settings=auth.jfc,maxage=6h,maxsize=256m,disk=true
+ * }
+ * </pre>
+ * <p>
+ * The proxies are off by default and added with {@code jfr.events.enabled=true}: even while no recording asks for
+ * the events, every proxied call goes through an interceptor, so they are only worth it on instances that are
+ * recorded.
+ * </p>
+ *
+ * @see TokenEvent
+ * @see SessionStoreEvent
+ * @see PasswordHashEvent
+ * @see RepositoryEvent
+ */
+@Component
+@ConditionalOnProperty(value = "jfr.events.enabled", havingValue = "true")
+public class JfrInstrumentation implements BeanPostProcessor {
+    static final String SUCCESS = "success";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object postProcessAfterInitialization(@NotNull Object bean, @NotNull String beanName) {
+        if (bean instanceof RedisService) {
+            return proxy(bean, true, new SessionStoreInterceptor(beanName));
+        }
+        if (bean instanceof PasswordEncoder) {
+            return proxy(bean, false, new PasswordEncoderInterceptor());
+        }
+        if (bean instanceof Repository<?, ?>) {
+            return proxy(bean, false, new RepositoryInterceptor(repositoryName(bean)));
+        }
+        return bean;
+    }
+
+    /**
+     * Returns the outcome of a call recorded by the events.
+     *
+     * @param failure the exception thrown by the call, or {@code null}.
+     * @return {@code success}, or the simple name of the exception.
+     */
+    static @NotNull String outcome(Throwable failure) {
+        return failure == null ? SUCCESS : failure.getClass().getSimpleName();
+    }
+
+    private static Object proxy(Object bean, boolean proxyTargetClass, MethodInterceptor interceptor) {
+        ProxyFactory factory = new ProxyFactory(bean);
+        if (proxyTargetClass) {
+            factory.setProxyTargetClass(true);
+        } else {
+            factory.setInterfaces(ClassUtils.getAllInterfaces(bean));
+        }
+        factory.addAdvice(interceptor);
+        return factory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    private static String repositoryName(Object bean) {
+        for (Class<?> type : ClassUtils.getAllInterfaces(bean)) {
+            if (Repository.class.isAssignableFrom(type) && type.getPackageName().startsWith("ru.soigo.")) {
+                return type.getSimpleName();
+            }
+        }
+        return bean.getClass().getSimpleName();
+    }
+
+    private static int length(Object argument) {
+        return argument instanceof CharSequence chars ? chars.length() : 0;
+    }
+
+    private static Object firstArgument(MethodInvocation invocation) {
+        Object[] arguments = invocation.getArguments();
+        return arguments.length == 0 ? null : arguments[0];
+    }
+
+    /**
+     * Records calls of a session store as {@link SessionStoreEvent}.
+     */
+    static final class SessionStoreInterceptor implements MethodInterceptor {
+        final String store;
+
+        SessionStoreInterceptor(String store) {
+            this.store = store;
+        }
+
+        @Override
+        public Object invoke(@NotNull MethodInvocation invocation) throws Throwable {
+            SessionStoreEvent event = new SessionStoreEvent();
+            if (!event.isEnabled() || AopUtils.isObjectMethod(invocation.getMethod())) {
+                return invocation.proceed();
+            }
+            event.begin();
+            Object result = null;
+            Throwable failure = null;
+            try {
+                result = invocation.proceed();
+                return result;
+            } catch (Throwable throwable) {
+                failure = throwable;
+                throw throwable;
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.store = store;
+                    event.operation = invocation.getMethod().getName();
+                    event.outcome = outcome(failure);
+                    event.usernameLength = length(firstArgument(invocation));
+                    event.resultSize = result instanceof Collection<?> collection ? collection.size()
+                            : Boolean.TRUE.equals(result) ? 1 : 0;
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Records hashing and verification of passwords as {@link PasswordHashEvent}.
+     */
+    static final class PasswordEncoderInterceptor implements MethodInterceptor {
+
+        @Override
+        public Object invoke(@NotNull MethodInvocation invocation) throws Throwable {
+            PasswordHashEvent event = new PasswordHashEvent();
+            if (!event.isEnabled() || AopUtils.isObjectMethod(invocation.getMethod())) {
+                return invocation.proceed();
+            }
+            event.begin();
+            Object result = null;
+            Throwable failure = null;
+            try {
+                result = invocation.proceed();
+                return result;
+            } catch (Throwable throwable) {
+                failure = throwable;
+                throw throwable;
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    String operation = invocation.getMethod().getName();
+                    event.operation = operation;
+                    event.outcome = failure == null && "matches".equals(operation)
+                            ? Boolean.TRUE.equals(result) ? "match" : "mismatch"
+                            : outcome(failure);
+                    event.passwordLength = "upgradeEncoding".equals(operation) ? 0 : length(firstArgument(invocation));
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Records queries of a repository as {@link RepositoryEvent}.
+     */
+    static final class RepositoryInterceptor implements MethodInterceptor {
+        final String repository;
+
+        RepositoryInterceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(@NotNull MethodInvocation invocation) throws Throwable {
+            RepositoryEvent event = new RepositoryEvent();
+            if (!event.isEnabled() || AopUtils.isObjectMethod(invocation.getMethod())) {
+                return invocation.proceed();
+            }
+            event.begin();
+            Object result = null;
+            Throwable failure = null;
+            try {
+                result = invocation.proceed();
+                return result;
+            } catch (Throwable throwable) {
+                failure = throwable;
+                throw throwable;
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.repository = repository;
+                    event.method = invocation.getMethod().getName();
+                    event.outcome = outcome(failure);
+                    event.keyLength = length(firstArgument(invocation));
+                    event.resultSize = resultSize(result);
+                    event.commit();
+                }
+            }
+        }
+
+        private static int resultSize(Object result) {
+            if (result instanceof Optional<?> optional) {
+                return optional.isPresent() ? 1 : 0;
+            }
+            if (result instanceof Collection<?> collection) {
+                return collection.size();
+            }
+            if (result instanceof Boolean found) {
+                return found ? 1 : 0;
+            }
+            if (result instanceof Number count) {
+                return (int) Math.min(count.longValue(), Integer.MAX_VALUE);
+            }
+            return result == null ? 0 : 1;
+        }
+    }
+}
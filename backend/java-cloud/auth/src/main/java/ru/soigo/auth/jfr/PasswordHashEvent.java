@@ -0,0 +1,28 @@
+package ru.soigo.auth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for hashing or verifying a password with the {@link org.springframework.security.crypto.password.PasswordEncoder}.
+ */
+@Name("ru.soigo.auth.PasswordHash")
+@Label("Password Hash")
+@Category({"Auth", "Password"})
+@Description("Hashing or verification of a password")
+@StackTrace(false)
+public class PasswordHashEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    @Description("encode, matches or upgradeEncoding")
+    public String operation;
+
+    @Label("Outcome")
+    @Description("success, match, mismatch, or the simple name of the exception thrown")
+    public String outcome;
+
+    @Label("Password Length")
+    public int passwordLength;
+}
@@ -0,0 +1,36 @@
+package ru.soigo.auth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a call of the {@link ru.soigo.auth.repository.UserRepository}.
+ */
+@Name("ru.soigo.auth.Repository")
+@Label("Repository")
+@Category({"Auth", "Repository"})
+@Description("Call of a Spring Data repository")
+@StackTrace(false)
+public class RepositoryEvent extends jdk.jfr.Event {
+    @Label("Repository")
+    @Description("Simple name of the repository interface")
+    public String repository;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Outcome")
+    @Description("success, or the simple name of the exception thrown")
+    public String outcome;
+
+    @Label("Key Length")
+    @Description("Length of the first argument if it is a string, such as a username, otherwise 0")
+    public int keyLength;
+
+    @Label("Result Size")
+    @Description("Entities returned or found: 0 or 1 for a single entity or an exists query, the size of a collection, the count of a count query")
+    public int resultSize;
+}
@@ -0,0 +1,40 @@
+package ru.soigo.auth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a call of a {@link ru.soigo.auth.jwt.service.RedisService}.
+ * <p>
+ * Every session store bean is recorded, so with the resilient wrapper in place a call appears twice: once for the
+ * wrapper, as the caller sees it, and once for the store behind it.
+ * </p>
+ */
+@Name("ru.soigo.auth.SessionStore")
+@Label("Session Store")
+@Category({"Auth", "Session Store"})
+@Description("Call of a session store")
+@StackTrace(false)
+public class SessionStoreEvent extends jdk.jfr.Event {
+    @Label("Store")
+    @Description("Name of the session store bean")
+    public String store;
+
+    @Label("Operation")
+    @Description("Name of the called method")
+    public String operation;
+
+    @Label("Outcome")
+    @Description("success, or the simple name of the exception thrown")
+    public String outcome;
+
+    @Label("Username Length")
+    public int usernameLength;
+
+    @Label("Result Size")
+    @Description("Number of sessions returned by getAllTokens, 1 or 0 for containsToken and verifyToken, otherwise 0")
+    public int resultSize;
+}
@@ -0,0 +1,31 @@
+package ru.soigo.auth.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for minting or parsing a JWT in {@link ru.soigo.auth.jwt.service.impl.JwtServiceImpl}.
+ */
+@Name("ru.soigo.auth.Token")
+@Label("Token")
+@Category({"Auth", "JWT"})
+@Description("Minting or parsing of a JWT")
+@StackTrace(false)
+public class TokenEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    @Description("mint-pair, mint-access, mint-refresh or parse")
+    public String operation;
+
+    @Label("Outcome")
+    @Description("success, or the simple name of the exception thrown")
+    public String outcome;
+
+    @Label("Token Length")
+    @Description("Length of the minted or parsed token; of the access token for a pair")
+    @DataAmount(DataAmount.BYTES)
+    public int tokenLength;
+}
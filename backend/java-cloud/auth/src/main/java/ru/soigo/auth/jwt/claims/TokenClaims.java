@@ -0,0 +1,197 @@
+package ru.soigo.auth.jwt.claims;
+
+import io.jsonwebtoken.Claims;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.soigo.auth.jwt.model.ClaimFormat;
+import ru.soigo.auth.jwt.model.TypeToken;
+import ru.soigo.auth.model.Role;
+import ru.soigo.auth.model.User;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Utility class writing and reading the claims of the tokens in both {@link ClaimFormat claim formats}.
+ * <p>
+ * Writers take the format to issue; readers detect the format of a token from its {@code v} claim, so tokens
+ * issued before and after a format switch are both understood. Readers always return values in their canonical
+ * form: session and user ids as standard UUID strings and {@link UUID UUIDs}, roles as {@link Role} values.
+ * </p>
+ *
+ * <p><b>Example Usage:</b></p>
+ * <pre>{@code
+ * Map<String, Object> claims = TokenClaims.access(user, ClaimFormat.COMPACT);
+ * String jwtId = TokenClaims.jwtId(sessionId, ClaimFormat.COMPACT);
+ * ...
+ * if (TokenClaims.tokenType(parsed) == TypeToken.ACCESS) {
+ *     UUID userId = TokenClaims.userId(parsed);
+ * }
+ * }</pre>
+ *
+ * @see ClaimFormat
+ */
+public final class TokenClaims {
+    public static final String VERSION = "v";
+    public static final int COMPACT_VERSION = 2;
+    public static final String TYPE = "t";
+    public static final String ROLES = "r";
+    public static final String USER_ID = "uid";
+    public static final String LEGACY_TYPE = "tokenType";
+    public static final String LEGACY_ROLES = "roles";
+    public static final String LEGACY_USER_ID = "userId";
+
+    static final int COMPACT_UUID_LENGTH = 22;
+    static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private TokenClaims() {
+    }
+
+    /**
+     * Creates the custom claims of an access token.
+     *
+     * @param user   the user the token is issued to.
+     * @param format the claim format to issue.
+     * @return the claims, without the registered ones such as {@code sub} and {@code jti}.
+     */
+    public static @NotNull Map<String, Object> access(@NotNull User user, @NotNull ClaimFormat format) {
+        Map<String, Object> claims = new HashMap<>(8);
+        if (format == ClaimFormat.COMPACT) {
+            claims.put(VERSION, COMPACT_VERSION);
+            claims.put(TYPE, TypeToken.ACCESS.getCode());
+            claims.put(ROLES, Role.toMask(user.getAuthorities()));
+            claims.put(USER_ID, encodeUuid(user.getId()));
+        } else {
+            claims.put(LEGACY_TYPE, TypeToken.ACCESS.toString());
+            claims.put(LEGACY_ROLES, user.getAuthorities().stream().map(Object::toString).toList());
+            claims.put(LEGACY_USER_ID, user.getId());
+        }
+        return claims;
+    }
+
+    /**
+     * Creates the custom claims of a refresh token.
+     *
+     * @param format the claim format to issue.
+     * @return the claims, without the registered ones such as {@code sub} and {@code jti}.
+     */
+    public static @NotNull Map<String, Object> refresh(@NotNull ClaimFormat format) {
+        if (format == ClaimFormat.COMPACT) {
+            return Map.of(VERSION, COMPACT_VERSION, TYPE, TypeToken.REFRESH.getCode());
+        }
+        return Map.of(LEGACY_TYPE, TypeToken.REFRESH.toString());
+    }
+
+    /**
+     * Encodes the session id as the {@code jti} claim.
+     *
+     * @param sessionId the session id.
+     * @param format    the claim format to issue.
+     * @return the value of the {@code jti} claim.
+     */
+    public static @NotNull String jwtId(@NotNull UUID sessionId, @NotNull ClaimFormat format) {
+        return format == ClaimFormat.COMPACT ? encodeUuid(sessionId) : sessionId.toString();
+    }
+
+    /**
+     * Returns whether the claims are in the compact format.
+     *
+     * @param claims the claims of a token.
+     * @return {@code true} if the claims carry {@code v: 2}.
+     */
+    public static boolean isCompact(@NotNull Claims claims) {
+        return claims.get(VERSION) instanceof Number version && version.intValue() == COMPACT_VERSION;
+    }
+
+    /**
+     * Reads the type of the token.
+     *
+     * @param claims the claims of a token.
+     * @return the token type, or {@code null} if it is missing or unknown.
+     */
+    public static @Nullable TypeToken tokenType(@NotNull Claims claims) {
+        return TypeToken.fromClaim(claims.get(isCompact(claims) ? TYPE : LEGACY_TYPE));
+    }
+
+    /**
+     * Reads the session id of the token.
+     *
+     * @param claims the claims of a token.
+     * @return the session id as a standard UUID string, or {@code null} if the token has no {@code jti}.
+     */
+    public static @Nullable String sessionId(@NotNull Claims claims) {
+        String jwtId = claims.getId();
+        if (jwtId == null || jwtId.length() != COMPACT_UUID_LENGTH) {
+            return jwtId;
+        }
+        return decodeUuid(jwtId).toString();
+    }
+
+    /**
+     * Reads the id of the user an access token was issued to.
+     *
+     * @param claims the claims of an access token.
+     * @return the user id, or {@code null} if the token has none.
+     */
+    public static @Nullable UUID userId(@NotNull Claims claims) {
+        Object userId = claims.get(isCompact(claims) ? USER_ID : LEGACY_USER_ID);
+        return userId == null ? null : decodeUuid(userId.toString());
+    }
+
+    /**
+     * Reads the roles of the user an access token was issued to.
+     *
+     * @param claims the claims of an access token.
+     * @return the roles; unknown role names and bits are ignored.
+     */
+    public static @NotNull Set<Role> roles(@NotNull Claims claims) {
+        if (isCompact(claims)) {
+            return claims.get(ROLES) instanceof Number mask ? Role.fromMask(mask.intValue()) : EnumSet.noneOf(Role.class);
+        }
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        if (claims.get(LEGACY_ROLES) instanceof Collection<?> names) {
+            for (Object name : names) {
+                for (Role role : Role.values()) {
+                    if (role.name().equals(name)) {
+                        roles.add(role);
+                    }
+                }
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * Encodes a UUID as 22 characters of unpadded base64url.
+     *
+     * @param uuid the UUID to encode.
+     * @return the encoded UUID.
+     */
+    public static @NotNull String encodeUuid(@NotNull UUID uuid) {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        return ENCODER.encodeToString(buffer.array());
+    }
+
+    /**
+     * Decodes a UUID in either the compact or the standard form.
+     *
+     * @param value the encoded UUID.
+     * @return the decoded UUID.
+     * @throws IllegalArgumentException if the value is not a UUID in either form.
+     */
+    public static @NotNull UUID decodeUuid(@NotNull String value) {
+        if (value.length() != COMPACT_UUID_LENGTH) {
+            return UUID.fromString(value);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(DECODER.decode(value));
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,438 @@
+package ru.soigo.auth.jwt.claims;
+
+import org.jetbrains.annotations.NotNull;
+import ru.soigo.auth.jwt.dto.PairToken;
+import ru.soigo.auth.jwt.model.ClaimFormat;
+import ru.soigo.auth.jwt.model.TypeToken;
+import ru.soigo.auth.model.Role;
+import ru.soigo.auth.model.User;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Signs tokens without going through the generic jjwt builder.
+ * <p>
+ * The builder serializes a fresh claims map through Jackson, encodes and signs it with a newly initialized
+ * {@link Mac} for every token. The claims of the tokens of this service have a fixed shape, so the minter writes
+ * their JSON directly:
+ * </p>
+ * <ul>
+ *   <li>the encoded header and the type and role claims are precomputed once per {@link ClaimFormat} and role
+ *   bitmask;</li>
+ *   <li>the payload is written, base64url encoded and signed in per-thread buffers with a per-thread {@link Mac},
+ *   so a token costs little more than its resulting {@link String};</li>
+ *   <li>{@link #mintPair} writes the claims shared by the access and the refresh token, {@code jti}, {@code sub}
+ *   and {@code iat}, once and signs both tokens with the same timestamp.</li>
+ * </ul>
+ * <p>
+ * Since the minter knows the exact header and signature length of its tokens, it also provides
+ * {@link #isWellFormed}, a structural check that rejects garbage before any cryptography or JSON parsing.
+ * </p>
+ * <p>
+ * The tokens are byte-compatible JWS compact serializations with the same claims as those built by jjwt for the
+ * same {@link ClaimFormat}, and are signed with the HMAC algorithm jjwt chooses for the key, so they are parsed by
+ * {@code Jwts.parser()} and the gateway unchanged.
+ * </p>
+ *
+ * <p><b>Example Usage:</b></p>
+ * <pre>{@code
+ * TokenMinter minter = new TokenMinter(key, ClaimFormat.COMPACT);
+ * PairToken pairToken = minter.mintPair(user, sessionId, accessExpiration, refreshExpiration);
+ * }</pre>
+ *
+ * @see TokenClaims
+ */
+public class TokenMinter {
+    static final Map<String, String> ALGORITHMS = Map.of(
+            "HmacSHA256", "HS256",
+            "HmacSHA384", "HS384",
+            "HmacSHA512", "HS512"
+    );
+    static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] BASE64_URL =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+    static final int INITIAL_BUFFER_SIZE = 512;
+    static final int MAX_TOKEN_LENGTH = 8192;
+
+    final SecretKey key;
+    final ClaimFormat format;
+    final byte[] header;
+    final String headerPrefix;
+    final int signatureLength;
+    final byte[][] accessClaims;
+    final byte[] refreshClaims;
+    final byte[] userIdName;
+    final ThreadLocal<Buffers> buffers;
+
+    /**
+     * Constructs a new instance of {@link TokenMinter}.
+     *
+     * @param key    the HMAC key the tokens are signed with.
+     * @param format the claim format to issue.
+     * @throws IllegalArgumentException if the key is not an HMAC-SHA key.
+     */
+    public TokenMinter(@NotNull SecretKey key, @NotNull ClaimFormat format) {
+        String algorithm = ALGORITHMS.get(key.getAlgorithm());
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Unsupported signing key algorithm: " + key.getAlgorithm());
+        }
+        this.key = key;
+        this.format = format;
+        this.headerPrefix = encode("{\"alg\":\"" + algorithm + "\"}") + ".";
+        this.header = ascii(headerPrefix);
+        this.signatureLength = (newBuffers().signature.length * 4 + 2) / 3;
+        this.accessClaims = new byte[1 << Role.values().length][];
+        for (int mask = 0; mask < accessClaims.length; mask++) {
+            accessClaims[mask] = ascii(accessFragment(mask));
+        }
+        this.refreshClaims = ascii(format == ClaimFormat.COMPACT
+                ? ",\"" + TokenClaims.VERSION + "\":" + TokenClaims.COMPACT_VERSION
+                + ",\"" + TokenClaims.TYPE + "\":\"" + TypeToken.REFRESH.getCode() + "\""
+                : ",\"" + TokenClaims.LEGACY_TYPE + "\":\"" + TypeToken.REFRESH + "\"");
+        this.userIdName = ascii(",\""
+                + (format == ClaimFormat.COMPACT ? TokenClaims.USER_ID : TokenClaims.LEGACY_USER_ID) + "\":\"");
+        this.buffers = ThreadLocal.withInitial(this::newBuffers);
+    }
+
+    /**
+     * Mints an access and a refresh token sharing the session id and the issue time.
+     *
+     * @param user              the user the tokens are issued to.
+     * @param sessionId         the session id, written as {@code jti}.
+     * @param accessExpiration  the lifetime of the access token in milliseconds.
+     * @param refreshExpiration the lifetime of the refresh token in milliseconds.
+     * @return the signed token pair.
+     */
+    public @NotNull PairToken mintPair(
+            @NotNull User user,
+            @NotNull UUID sessionId,
+            long accessExpiration,
+            long refreshExpiration
+    ) {
+        Buffers buffer = buffers.get();
+        long now = System.currentTimeMillis();
+        buffer.writeCommon(sessionId, user.getUsername(), now);
+        String access = buffer.signAccess(user, now + accessExpiration);
+        String refresh = buffer.signRefresh(now + refreshExpiration);
+        return new PairToken(access, refresh);
+    }
+
+    /**
+     * Mints an access token.
+     *
+     * @param user       the user the token is issued to.
+     * @param sessionId  the session id, written as {@code jti}.
+     * @param expiration the lifetime of the token in milliseconds.
+     * @return the signed access token.
+     */
+    public @NotNull String mintAccess(@NotNull User user, @NotNull UUID sessionId, long expiration) {
+        Buffers buffer = buffers.get();
+        long now = System.currentTimeMillis();
+        buffer.writeCommon(sessionId, user.getUsername(), now);
+        return buffer.signAccess(user, now + expiration);
+    }
+
+    /**
+     * Mints a refresh token.
+     *
+     * @param username   the name of the user the token is issued to.
+     * @param sessionId  the session id, written as {@code jti}.
+     * @param expiration the lifetime of the token in milliseconds.
+     * @return the signed refresh token.
+     */
+    public @NotNull String mintRefresh(@NotNull String username, @NotNull UUID sessionId, long expiration) {
+        Buffers buffer = buffers.get();
+        long now = System.currentTimeMillis();
+        buffer.writeCommon(sessionId, username, now);
+        return buffer.signRefresh(now + expiration);
+    }
+
+    /**
+     * Checks whether the token has the shape of a token minted with this key: the expected header, a non-empty
+     * base64url payload and a base64url signature of the expected length. Tokens minted by jjwt with the same key
+     * have the same shape.
+     *
+     * @param token the token to check, may be {@code null}.
+     * @return {@code true} if the token is worth verifying.
+     */
+    public boolean isWellFormed(String token) {
+        if (token == null || token.length() > MAX_TOKEN_LENGTH || !token.startsWith(headerPrefix)) {
+            return false;
+        }
+        int signatureStart = token.length() - signatureLength;
+        if (signatureStart < headerPrefix.length() + 2 || token.charAt(signatureStart - 1) != '.') {
+            return false;
+        }
+        for (int i = headerPrefix.length(); i < token.length(); i++) {
+            if (i != signatureStart - 1 && !isBase64Url(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBase64Url(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+
+    private String accessFragment(int mask) {
+        if (format == ClaimFormat.COMPACT) {
+            return ",\"" + TokenClaims.VERSION + "\":" + TokenClaims.COMPACT_VERSION
+                    + ",\"" + TokenClaims.TYPE + "\":\"" + TypeToken.ACCESS.getCode() + "\""
+                    + ",\"" + TokenClaims.ROLES + "\":" + mask;
+        }
+        StringJoiner roles = new StringJoiner(",", "[", "]");
+        for (Role role : Role.fromMask(mask)) {
+            roles.add("\"" + role.name() + "\"");
+        }
+        return ",\"" + TokenClaims.LEGACY_TYPE + "\":\"" + TypeToken.ACCESS + "\""
+                + ",\"" + TokenClaims.LEGACY_ROLES + "\":" + roles;
+    }
+
+    private Buffers newBuffers() {
+        try {
+            Mac mac = Mac.getInstance(key.getAlgorithm());
+            mac.init(key);
+            return new Buffers(mac);
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException("Cannot initialize " + key.getAlgorithm(), exception);
+        }
+    }
+
+    private static String encode(String json) {
+        byte[] bytes = ascii(json);
+        byte[] encoded = new byte[(bytes.length * 4 + 2) / 3];
+        encodeBase64(bytes, 0, bytes.length, encoded, 0);
+        return new String(encoded, StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Encodes bytes as unpadded base64url.
+     *
+     * @return the offset in {@code target} after the encoded bytes.
+     */
+    private static int encodeBase64(byte[] source, int offset, int length, byte[] target, int position) {
+        int end = offset + length;
+        int i = offset;
+        for (; i + 2 < end; i += 3) {
+            int bits = (source[i] & 0xFF) << 16 | (source[i + 1] & 0xFF) << 8 | (source[i + 2] & 0xFF);
+            target[position++] = BASE64_URL[bits >>> 18];
+            target[position++] = BASE64_URL[(bits >>> 12) & 0x3F];
+            target[position++] = BASE64_URL[(bits >>> 6) & 0x3F];
+            target[position++] = BASE64_URL[bits & 0x3F];
+        }
+        if (i < end) {
+            int bits = (source[i] & 0xFF) << 16 | (i + 1 < end ? (source[i + 1] & 0xFF) << 8 : 0);
+            target[position++] = BASE64_URL[bits >>> 18];
+            target[position++] = BASE64_URL[(bits >>> 12) & 0x3F];
+            if (i + 1 < end) {
+                target[position++] = BASE64_URL[(bits >>> 6) & 0x3F];
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Per-thread buffers and {@link Mac} of the minter.
+     * <p>
+     * {@code json} holds the payload: the claims shared by both tokens of a pair up to {@code commonLength},
+     * followed by the claims of the token being signed. {@code token} receives the encoded header, payload and
+     * signature.
+     * </p>
+     */
+    final class Buffers {
+        final Mac mac;
+        final byte[] signature;
+        final byte[] uuid = new byte[16];
+        byte[] json = new byte[INITIAL_BUFFER_SIZE];
+        byte[] token = new byte[INITIAL_BUFFER_SIZE * 2];
+        int length;
+        int commonLength;
+
+        Buffers(Mac mac) {
+            this.mac = mac;
+            this.signature = new byte[mac.getMacLength()];
+        }
+
+        void writeCommon(UUID sessionId, String username, long now) {
+            length = 0;
+            writeAscii("{\"jti\":\"");
+            writeUuid(sessionId);
+            writeAscii("\",\"sub\":\"");
+            writeString(username);
+            writeAscii("\",\"iat\":");
+            writeLong(now / 1000);
+            commonLength = length;
+        }
+
+        String signAccess(User user, long expiresAt) {
+            length = commonLength;
+            writeExpiration(expiresAt);
+            write(accessClaims[Role.toMask(user.getAuthorities())]);
+            write(userIdName);
+            if (format == ClaimFormat.COMPACT) {
+                writeCompactUuid(user.getId());
+            } else {
+                writeCanonicalUuid(user.getId());
+            }
+            writeAscii("\"}");
+            return sign();
+        }
+
+        String signRefresh(long expiresAt) {
+            length = commonLength;
+            writeExpiration(expiresAt);
+            write(refreshClaims);
+            writeAscii("}");
+            return sign();
+        }
+
+        private String sign() {
+            int size = header.length + (length * 4 + 2) / 3 + 1 + (signature.length * 4 + 2) / 3;
+            if (token.length < size) {
+                token = new byte[Math.max(size, token.length * 2)];
+            }
+            System.arraycopy(header, 0, token, 0, header.length);
+            int position = encodeBase64(json, 0, length, token, header.length);
+            mac.update(token, 0, position);
+            try {
+                mac.doFinal(signature, 0);
+            } catch (ShortBufferException exception) {
+                throw new IllegalStateException(exception);
+            }
+            token[position++] = '.';
+            position = encodeBase64(signature, 0, signature.length, token, position);
+            return new String(token, 0, position, StandardCharsets.US_ASCII);
+        }
+
+        private void writeExpiration(long expiresAt) {
+            writeAscii(",\"exp\":");
+            writeLong(expiresAt / 1000);
+        }
+
+        private void writeUuid(UUID uuid) {
+            if (format == ClaimFormat.COMPACT) {
+                writeCompactUuid(uuid);
+            } else {
+                writeCanonicalUuid(uuid);
+            }
+        }
+
+        private void writeCompactUuid(UUID value) {
+            long most = value.getMostSignificantBits();
+            long least = value.getLeastSignificantBits();
+            for (int i = 0; i < 8; i++) {
+                uuid[i] = (byte) (most >>> (56 - 8 * i));
+                uuid[8 + i] = (byte) (least >>> (56 - 8 * i));
+            }
+            ensure(22);
+            length = encodeBase64(uuid, 0, uuid.length, json, length);
+        }
+
+        private void writeCanonicalUuid(UUID uuid) {
+            ensure(36);
+            writeHex(uuid.getMostSignificantBits() >>> 32, 8);
+            json[length++] = '-';
+            writeHex(uuid.getMostSignificantBits() >>> 16, 4);
+            json[length++] = '-';
+            writeHex(uuid.getMostSignificantBits(), 4);
+            json[length++] = '-';
+            writeHex(uuid.getLeastSignificantBits() >>> 48, 4);
+            json[length++] = '-';
+            writeHex(uuid.getLeastSignificantBits(), 12);
+        }
+
+        private void writeHex(long value, int digits) {
+            for (int i = digits - 1; i >= 0; i--) {
+                json[length++] = HEX[(int) (value >>> (4 * i)) & 0xF];
+            }
+        }
+
+        private void writeLong(long value) {
+            ensure(20);
+            if (value == 0) {
+                json[length++] = '0';
+                return;
+            }
+            int start = length;
+            for (long rest = value; rest > 0; rest /= 10) {
+                json[length++] = (byte) ('0' + rest % 10);
+            }
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte digit = json[i];
+                json[i] = json[j];
+                json[j] = digit;
+            }
+        }
+
+        /**
+         * Writes a JSON string body as UTF-8, escaping quotes, backslashes and control characters.
+         */
+        private void writeString(String value) {
+            ensure(value.length() * 6);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    json[length++] = '\\';
+                    json[length++] = (byte) c;
+                } else if (c < 0x20) {
+                    json[length++] = '\\';
+                    json[length++] = 'u';
+                    json[length++] = '0';
+                    json[length++] = '0';
+                    json[length++] = HEX[c >>> 4];
+                    json[length++] = HEX[c & 0xF];
+                } else if (c < 0x80) {
+                    json[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    json[length++] = (byte) (0xC0 | c >>> 6);
+                    json[length++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    json[length++] = (byte) (0xF0 | codePoint >>> 18);
+                    json[length++] = (byte) (0x80 | (codePoint >>> 12) & 0x3F);
+                    json[length++] = (byte) (0x80 | (codePoint >>> 6) & 0x3F);
+                    json[length++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    json[length++] = '?';
+                } else {
+                    json[length++] = (byte) (0xE0 | c >>> 12);
+                    json[length++] = (byte) (0x80 | (c >>> 6) & 0x3F);
+                    json[length++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+
+        private void writeAscii(String value) {
+            ensure(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                json[length++] = (byte) value.charAt(i);
+            }
+        }
+
+        private void write(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, json, length, bytes.length);
+            length += bytes.length;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > json.length) {
+                json = Arrays.copyOf(json, Math.max(length + extra, json.length * 2));
+            }
+        }
+    }
+}
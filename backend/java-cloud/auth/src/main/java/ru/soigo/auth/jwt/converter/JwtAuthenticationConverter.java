@@ -59,10 +59,10 @@ public class JwtAuthenticationConverter implements AuthenticationConverter {
      */
     @Override
     public Authentication convert(HttpServletRequest request) {
-        log.info("Converting HTTP request to Authentication object");
+        log.debug("Converting HTTP request to Authentication object");
         String token = tokenExtractor(request);
 
-        if (!jwtService.validateAccessToken(token)) {
+        if (token == null || !jwtService.validateAccessToken(token)) {
             return null;
         }
 
@@ -91,16 +91,14 @@ public class JwtAuthenticationConverter implements AuthenticationConverter {
      * @return the extracted JWT if present and correctly formatted, or {@code null} if the header is missing or invalid.
      */
     private @Nullable String tokenExtractor(@NotNull HttpServletRequest request) {
-        log.info("Extracting JWT from Authorization header");
+        log.debug("Extracting JWT from Authorization header");
         String headerValue = request.getHeader(HttpHeaders.AUTHORIZATION);
 
         if (headerValue == null || !headerValue.startsWith(jwtHeaderStart + " ")) {
-            log.warn("Authorization header is missing or does not start with the expected prefix: {}", jwtHeaderStart);
+            log.debug("Authorization header is missing or does not start with the expected prefix: {}", jwtHeaderStart);
             return null;
         }
 
-        String token = headerValue.replace(jwtHeaderStart + " ", "");
-        log.debug("JWT extracted from header: {}", token);
-        return token;
+        return headerValue.substring(jwtHeaderStart.length() + 1);
     }
 }
@@ -0,0 +1,31 @@
+package ru.soigo.auth.jwt.model;
+
+/**
+ * Enum representing the claim formats of the tokens issued by the service.
+ * <p>
+ * This enum defines two formats:
+ * </p>
+ * <ul>
+ *   <li>{@link #LEGACY} - The original format: {@code tokenType} as the type name, {@code roles} as a list of role
+ *   names, {@code userId} and {@code jti} as canonical UUID strings.</li>
+ *   <li>{@link #COMPACT} - Version {@code 2} of the claims, marked by {@code v: 2}: {@code t} as a one-letter type
+ *   code, {@code r} as a bitmask of roles, {@code uid} and {@code jti} as 22 character base64url UUIDs.</li>
+ * </ul>
+ * <p>
+ * Tokens in both formats are accepted regardless of the format used for issuing, so the format can be switched
+ * once all verifiers understand the compact one.
+ * </p>
+ *
+ * @see ru.soigo.auth.jwt.claims.TokenClaims
+ */
+public enum ClaimFormat {
+    /**
+     * The original, verbose claim format.
+     */
+    LEGACY,
+
+    /**
+     * The compact, versioned claim format.
+     */
+    COMPACT
+}
@@ -1,5 +1,7 @@
 package ru.soigo.auth.jwt.model;
 
+import org.jetbrains.annotations.Nullable;
+
 /**
  * Enum representing the types of tokens used in the authentication system.
  * <p>
@@ -9,15 +11,53 @@ package ru.soigo.auth.jwt.model;
  *   <li>{@link #REFRESH} - A refresh token used to obtain a new access and refresh tokens without re-authenticating the user.</li>
  *   <li>{@link #ACCESS} - A access token used to authenticate user requests and grant access to protected resources.</li>
  * </ul>
+ * <p>
+ * Tokens in the {@link ClaimFormat#COMPACT} format carry the one-letter {@link #getCode() code} of the type instead
+ * of its name.
+ * </p>
  */
 public enum TypeToken {
     /**
      * A refresh token used to obtain a new access and refresh tokens without re-authenticating the user.
      */
-    REFRESH,
+    REFRESH("r"),
 
     /**
      * An access token used to authenticate user requests and grant access to protected resources.
      */
-    ACCESS
+    ACCESS("a");
+
+    final String code;
+
+    TypeToken(String code) {
+        this.code = code;
+    }
+
+    /**
+     * Returns the short code of the type used in compact tokens.
+     *
+     * @return the one-letter code of the type.
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Resolves a token type from the value of a token type claim in either format.
+     *
+     * @param value the claim value, either the name or the code of a type.
+     * @return the token type, or {@code null} if the value matches no type.
+     */
+    public static @Nullable TypeToken fromClaim(@Nullable Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString();
+        for (TypeToken type : values()) {
+            if (type.code.equals(text) || type.name().equals(text)) {
+                return type;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,84 @@
+package ru.soigo.auth.jwt.rejection;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded negative cache of recently rejected tokens.
+ * <p>
+ * Tokens are stored as 128 bit digests in a direct-mapped table of a fixed number of slots: a new rejection simply
+ * overwrites whatever occupied its slot, so the cache never grows, needs no eviction and no locks, and a lookup is a
+ * single array read. Entries expire after {@code ttl}.
+ * </p>
+ * <p>
+ * The digest is not cryptographic. A valid token could only be shadowed by a rejected one with the same 128 bit
+ * digest, which requires knowing the valid token in the first place.
+ * </p>
+ *
+ * @see TokenRejections
+ */
+class RejectedTokenCache {
+    final AtomicReferenceArray<Entry> slots;
+    final int mask;
+    final long ttlNanos;
+
+    /**
+     * Constructs a new instance of {@link RejectedTokenCache}.
+     *
+     * @param size     the number of slots, rounded up to a power of two.
+     * @param ttlNanos how long a rejection is remembered.
+     */
+    RejectedTokenCache(int size, long ttlNanos) {
+        int slotCount = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.mask = slotCount - 1;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * Checks whether the token was rejected recently.
+     *
+     * @param token the token.
+     * @return {@code true} if the token is in the cache and its entry has not expired.
+     */
+    boolean contains(@NotNull String token) {
+        long high = hash(token, 0x9E3779B97F4A7C15L);
+        long low = hash(token, 0xC2B2AE3D27D4EB4FL);
+        Entry entry = slots.get((int) high & mask);
+        return entry != null && entry.high == high && entry.low == low && entry.expiresAt - System.nanoTime() > 0;
+    }
+
+    /**
+     * Remembers a rejected token.
+     *
+     * @param token the token.
+     */
+    void add(@NotNull String token) {
+        long high = hash(token, 0x9E3779B97F4A7C15L);
+        long low = hash(token, 0xC2B2AE3D27D4EB4FL);
+        slots.set((int) high & mask, new Entry(high, low, System.nanoTime() + ttlNanos));
+    }
+
+    private static long hash(String value, long seed) {
+        long hash = seed ^ value.length();
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * seed;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * A remembered rejection.
+     *
+     * @param high      the upper half of the digest, also selecting the slot.
+     * @param low       the lower half of the digest.
+     * @param expiresAt the {@link System#nanoTime()} at which the entry expires.
+     */
+    record Entry(long high, long low, long expiresAt) {
+    }
+}
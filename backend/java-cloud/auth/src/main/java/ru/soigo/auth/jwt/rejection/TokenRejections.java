@@ -0,0 +1,175 @@
+package ru.soigo.auth.jwt.rejection;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.soigo.auth.jwt.model.TypeToken;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Component keeping the rejection of invalid tokens cheap.
+ * <p>
+ * Bots replaying garbage, tampered or long expired tokens would otherwise make token rejection the most expensive
+ * path of the service: signature verification, JSON parsing, an exception with a stack trace and an error log line
+ * per request. This component provides the shared state for the fast path in
+ * {@link ru.soigo.auth.jwt.service.impl.JwtServiceImpl}:
+ * </p>
+ * <ul>
+ *   <li>a bounded negative cache of recently rejected tokens, checked before any cryptography, so a replayed token
+ *   is rejected with a hash lookup. Only rejections that cannot change are cached: malformed, forged and expired
+ *   tokens, but not tokens of an unexpected type or of a session that is not in the store;</li>
+ *   <li>rate-limited logging: at most {@code jwt.rejection.log-limit} rejections are logged per
+ *   {@code jwt.rejection.log-interval}, without stack traces, and the number of suppressed lines is reported with
+ *   the next logged one.</li>
+ * </ul>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code auth.token.rejected} - Rejected tokens, tagged with the {@code reason}: {@code malformed},
+ *   {@code cached}, {@code expired}, {@code signature}, {@code invalid}, {@code wrong_type} or {@code revoked}.</li>
+ * </ul>
+ *
+ * @see RejectedTokenCache
+ */
+@Slf4j
+@Component
+public class TokenRejections {
+    final RejectedTokenCache cache;
+    final Map<Reason, Counter> counters = new EnumMap<>(Reason.class);
+    final int logLimit;
+    final long logIntervalNanos;
+    final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    final AtomicInteger logged = new AtomicInteger();
+    final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * Constructs a new instance of {@link TokenRejections}.
+     *
+     * @param meterRegistry the registry used to count rejected tokens.
+     * @param cacheSize     the number of rejected tokens remembered.
+     * @param cacheTtl      how long a rejected token is remembered.
+     * @param logLimit      the number of rejections logged per interval.
+     * @param logInterval   the interval of the log limit.
+     */
+    @Autowired
+    public TokenRejections(
+            MeterRegistry meterRegistry,
+            @Value("${jwt.rejection.cache-size:8192}") int cacheSize,
+            @Value("${jwt.rejection.cache-ttl:10m}") Duration cacheTtl,
+            @Value("${jwt.rejection.log-limit:10}") int logLimit,
+            @Value("${jwt.rejection.log-interval:10s}") Duration logInterval
+    ) {
+        this.cache = new RejectedTokenCache(cacheSize, cacheTtl.toNanos());
+        this.logLimit = logLimit;
+        this.logIntervalNanos = logInterval.toNanos();
+        for (Reason reason : Reason.values()) {
+            counters.put(reason, Counter
+                    .builder("auth.token.rejected")
+                    .description("Tokens rejected by the service")
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Checks whether the token was rejected recently, and counts it if so.
+     *
+     * @param token the token.
+     * @return {@code true} if the token is known to be invalid.
+     */
+    public boolean isRejected(@NotNull String token) {
+        if (!cache.contains(token)) {
+            return false;
+        }
+        counters.get(Reason.CACHED).increment();
+        return true;
+    }
+
+    /**
+     * Records the rejection of a token.
+     *
+     * @param token     the rejected token.
+     * @param typeToken the type the token was presented as.
+     * @param reason    why the token was rejected.
+     * @param detail    a short description of the failure for the log.
+     */
+    public void reject(@NotNull String token, @NotNull TypeToken typeToken, @NotNull Reason reason, String detail) {
+        counters.get(reason).increment();
+        if (reason.cacheable) {
+            cache.add(token);
+        }
+        if (shouldLog()) {
+            long skipped = suppressed.getAndSet(0);
+            log.warn("Rejected {} token ({}): {}{}", typeToken, reason, detail,
+                    skipped > 0 ? " [" + skipped + " similar rejections not logged]" : "");
+        }
+    }
+
+    private boolean shouldLog() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start > logIntervalNanos && windowStart.compareAndSet(start, now)) {
+            logged.set(0);
+        }
+        if (logged.incrementAndGet() <= logLimit) {
+            return true;
+        }
+        suppressed.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Enum representing why a token was rejected.
+     */
+    public enum Reason {
+        /**
+         * The token does not have the shape of a token issued by this service.
+         */
+        MALFORMED(false),
+
+        /**
+         * The token was rejected recently and found in the negative cache.
+         */
+        CACHED(false),
+
+        /**
+         * The token has expired.
+         */
+        EXPIRED(true),
+
+        /**
+         * The signature of the token does not match.
+         */
+        SIGNATURE(true),
+
+        /**
+         * The token could not be parsed for another reason.
+         */
+        INVALID(true),
+
+        /**
+         * The token is valid but of another type than expected.
+         */
+        WRONG_TYPE(false),
+
+        /**
+         * The session of the token is not in the session store.
+         */
+        REVOKED(false);
+
+        final boolean cacheable;
+
+        Reason(boolean cacheable) {
+            this.cacheable = cacheable;
+        }
+    }
+}
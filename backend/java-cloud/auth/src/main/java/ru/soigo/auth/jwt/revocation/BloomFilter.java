@@ -0,0 +1,95 @@
+package ru.soigo.auth.jwt.revocation;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter of strings.
+ * <p>
+ * Sized for an expected number of insertions and false positive rate: {@code m = -n ln p / (ln 2)^2} bits, rounded
+ * up to a power of two, and {@code k = m / n ln 2} hash functions. The {@code k} bit positions are derived from two
+ * 64 bit hashes of the value ({@code h1 + i * h2}), so a lookup hashes the value twice whatever {@code k} is. Bits are
+ * set with atomic updates, so insertions and lookups need no lock; a lookup racing an insertion of the same value
+ * may miss it, which only delays the insertion.
+ * </p>
+ *
+ * @see RevocationFilter
+ */
+class BloomFilter {
+    final AtomicLongArray words;
+    final long mask;
+    final int hashes;
+    final AtomicInteger insertions = new AtomicInteger();
+
+    /**
+     * Constructs a new instance of {@link BloomFilter}.
+     *
+     * @param expectedInsertions the number of values the filter is sized for.
+     * @param falsePositiveRate  the rate of false positives at that number of values.
+     */
+    BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-Math.max(1, expectedInsertions) * Math.log(falsePositiveRate) / (ln2 * ln2));
+        long bits = Long.highestOneBit(Math.max(64, optimalBits) - 1) << 1;
+        this.words = new AtomicLongArray((int) (bits >>> 6));
+        this.mask = bits - 1;
+        this.hashes = (int) Math.max(1, Math.round((double) optimalBits / Math.max(1, expectedInsertions) * ln2));
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value.
+     */
+    void add(@NotNull String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & mask;
+            long word = 1L << bit;
+            words.accumulateAndGet((int) (bit >>> 6), word, (current, set) -> current | set);
+        }
+        insertions.incrementAndGet();
+    }
+
+    /**
+     * Checks whether a value may have been added.
+     *
+     * @param value the value.
+     * @return {@code false} if the value was certainly not added, {@code true} if it probably was.
+     */
+    boolean mightContain(@NotNull String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & mask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of values added.
+     *
+     * @return the number of insertions, counting repeated values repeatedly.
+     */
+    int size() {
+        return insertions.get();
+    }
+
+    private static long hash(String value, long seed) {
+        long hash = seed ^ value.length();
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * seed;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,256 @@
+package ru.soigo.auth.jwt.revocation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replicated filter of revoked sessions letting access tokens be validated without a session lookup.
+ * <p>
+ * Selected with {@code jwt.revocation.mode=filter}. Access tokens live for {@code jwt.access.expiration}, so a
+ * revocation only has to be remembered that long. Revoked session ids and users are added to a {@link BloomFilter}
+ * of the current window; every window the filters are swapped, the current one becoming the previous one and a new
+ * empty one the current one, and lookups check both, so each revocation is remembered for one to two windows and the
+ * memory stays fixed at two filters of {@code jwt.revocation.expected-per-window} entries. A token whose session
+ * and user are in neither filter is certainly not revoked and needs no lookup; only hits, revoked tokens and the
+ * rare false positives at {@code jwt.revocation.false-positive-rate}, fall through to the session store.
+ * </p>
+ * <p>
+ * Revocations are published as {@link TokenRevokedEvent} and broadcast to all instances over the Redis channel
+ * {@code jwt.revocation.channel}. An instance only trusts its filter once it has seen every revocation of the last
+ * window: one window after it started, and one window after its subscription recovered from a failure. Failures are
+ * detected from pings the instance sends to itself every {@code jwt.revocation.ping-interval}: once no ping has come
+ * back for {@value #SILENT_PINGS} intervals, the filter is distrusted (see {@link RevocationTrust}). Until then every
+ * token falls through. With {@code jwt.revocation.replication=none}, for a single instance, revocations stay local.
+ * </p>
+ * <p>
+ * A revocation broadcast while the subscription is silently broken is thus missed for at most
+ * {@value #SILENT_PINGS} ping intervals, independently of the length of a window. Each instance sends one ping per
+ * interval, received by all instances, so the interval should grow with the number of instances.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code auth.token.revocation.checks} - Filter checks, tagged by {@code result}: {@code clear} for tokens
+ *   validated without a lookup, {@code hit} for tokens that may be revoked and {@code untrusted} for tokens checked
+ *   while the filter is not trusted. The false positives are the hits not rejected as {@code revoked}.</li>
+ *   <li>{@code auth.token.revocation.entries} - Revocations in the current and previous filter.</li>
+ * </ul>
+ *
+ * @see BloomFilter
+ * @see TokenRevokedEvent
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jwt.revocation.mode", havingValue = "filter")
+public class RevocationFilter implements MessageListener, Closeable {
+    static final String SESSION_PREFIX = "s:";
+    static final String USER_PREFIX = "u:";
+    static final String PING_PREFIX = "p:";
+    static final int SILENT_PINGS = 3;
+
+    final long windowMillis;
+    final long expectedPerWindow;
+    final double falsePositiveRate;
+    final String channel;
+    final String ping = PING_PREFIX + UUID.randomUUID();
+    final RevocationTrust trust;
+    final StringRedisTemplate redisTemplate;
+    final RedisMessageListenerContainer listenerContainer;
+    final Counter clear;
+    final Counter hit;
+    final Counter untrusted;
+    final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("revocation-filter").daemon().factory()
+    );
+
+    volatile BloomFilter current;
+    volatile BloomFilter previous;
+
+    /**
+     * Constructs a new instance of {@link RevocationFilter}, subscribes to the revocation channel and starts swapping
+     * the filters.
+     *
+     * @param meterRegistry      the registry used to publish the filter checks.
+     * @param connectionFactory  the Redis connection used for replication.
+     * @param accessExpiration   the lifetime of access tokens in milliseconds, the length of a window.
+     * @param expectedPerWindow  the number of revocations per window each filter is sized for.
+     * @param falsePositiveRate  the rate of false positives at that number of revocations.
+     * @param channel            the Redis channel revocations are broadcast on.
+     * @param replication        {@code redis} to broadcast revocations, {@code none} to keep them local.
+     * @param pingInterval       the interval between pings checking the subscription to the channel.
+     */
+    @Autowired
+    public RevocationFilter(
+            MeterRegistry meterRegistry,
+            ObjectProvider<RedisConnectionFactory> connectionFactory,
+            @Value("${jwt.access.expiration}") long accessExpiration,
+            @Value("${jwt.revocation.expected-per-window:100000}") long expectedPerWindow,
+            @Value("${jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+            @Value("${jwt.revocation.channel:auth:revocations}") String channel,
+            @Value("${jwt.revocation.replication:redis}") String replication,
+            @Value("${jwt.revocation.ping-interval:1s}") Duration pingInterval
+    ) {
+        this.windowMillis = accessExpiration;
+        this.expectedPerWindow = expectedPerWindow;
+        this.falsePositiveRate = falsePositiveRate;
+        this.channel = channel;
+        this.current = new BloomFilter(expectedPerWindow, falsePositiveRate);
+        this.previous = new BloomFilter(expectedPerWindow, falsePositiveRate);
+        boolean replicated = !"none".equalsIgnoreCase(replication);
+        this.trust = new RevocationTrust(
+                windowMillis,
+                replicated ? SILENT_PINGS * pingInterval.toMillis() : Long.MAX_VALUE,
+                !replicated,
+                System.currentTimeMillis()
+        );
+
+        this.clear = checks(meterRegistry, "clear");
+        this.hit = checks(meterRegistry, "hit");
+        this.untrusted = checks(meterRegistry, "untrusted");
+        Gauge
+                .builder("auth.token.revocation.entries", this, filter -> filter.current.size() + filter.previous.size())
+                .description("Revocations in the current and previous revocation filter")
+                .register(meterRegistry);
+
+        if (!replicated) {
+            this.redisTemplate = null;
+            this.listenerContainer = null;
+        } else {
+            RedisConnectionFactory factory = connectionFactory.getObject();
+            this.redisTemplate = new StringRedisTemplate(factory);
+            this.listenerContainer = new RedisMessageListenerContainer();
+            listenerContainer.setConnectionFactory(factory);
+            listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+            listenerContainer.afterPropertiesSet();
+            listenerContainer.start();
+            long interval = Math.max(1, pingInterval.toMillis());
+            executor.scheduleWithFixedDelay(this::ping, 0, interval, TimeUnit.MILLISECONDS);
+        }
+        executor.scheduleWithFixedDelay(this::swap, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks whether a token may be revoked.
+     *
+     * @param username  the subject of the token.
+     * @param sessionId the session id of the token.
+     * @return {@code false} if the session is certainly not revoked, {@code true} if it has to be looked up. While the
+     * revocation channel is silent, tokens are answered from the filter for at most {@value #SILENT_PINGS} ping
+     * intervals before they fall through.
+     */
+    public boolean mightBeRevoked(@NotNull String username, @Nullable String sessionId) {
+        if (!trust.isTrusted(System.currentTimeMillis())) {
+            untrusted.increment();
+            return true;
+        }
+        if (contains(USER_PREFIX + username) || sessionId == null || contains(SESSION_PREFIX + sessionId)) {
+            hit.increment();
+            return true;
+        }
+        clear.increment();
+        return false;
+    }
+
+    /**
+     * Adds a revocation to the filter and broadcasts it to the other instances.
+     *
+     * @param event the revocation.
+     */
+    @EventListener
+    public void onTokenRevoked(@NotNull TokenRevokedEvent event) {
+        String entry = event.sessionId() == null ? USER_PREFIX + event.username() : SESSION_PREFIX + event.sessionId();
+        current.add(entry);
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.convertAndSend(channel, entry);
+            } catch (RuntimeException exception) {
+                log.warn("Cannot broadcast revocation: {}", exception.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds a revocation broadcast by an instance, or records a ping of this instance.
+     *
+     * @param message the message of the revocation channel.
+     * @param pattern the pattern of the subscription, unused.
+     */
+    @Override
+    public void onMessage(@NotNull Message message, byte[] pattern) {
+        String entry = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (!entry.startsWith(PING_PREFIX)) {
+            current.add(entry);
+            return;
+        }
+        if (entry.equals(ping)) {
+            long now = System.currentTimeMillis();
+            if (trust.onPing(now)) {
+                log.info("Revocation channel {} subscribed, filter trusted in {} ms", channel, trust.trustedFrom - now);
+            }
+        }
+    }
+
+    /**
+     * Stops swapping the filters and unsubscribes from the revocation channel.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        if (listenerContainer != null) {
+            listenerContainer.stop();
+        }
+    }
+
+    private boolean contains(String entry) {
+        return current.mightContain(entry) || previous.mightContain(entry);
+    }
+
+    void swap() {
+        previous = current;
+        current = new BloomFilter(expectedPerWindow, falsePositiveRate);
+        log.debug("Swapped revocation filters, {} revocations in the last window", previous.size());
+    }
+
+    private void ping() {
+        if (trust.checkSilence(System.currentTimeMillis())) {
+            log.warn("Revocation channel {} silent, validating every token against the session store", channel);
+        }
+        try {
+            redisTemplate.convertAndSend(channel, ping);
+        } catch (RuntimeException exception) {
+            log.debug("Cannot ping revocation channel: {}", exception.getMessage());
+        }
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String result) {
+        return Counter
+                .builder("auth.token.revocation.checks")
+                .description("Revocation filter checks")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
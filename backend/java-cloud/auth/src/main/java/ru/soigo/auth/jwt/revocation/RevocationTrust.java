@@ -0,0 +1,86 @@
+package ru.soigo.auth.jwt.revocation;
+
+/**
+ * Decides from the pings of an instance whether its revocation filter holds every recent revocation.
+ * <p>
+ * An instance that may have missed revocations, because it just started or its subscription was interrupted, has to
+ * see a full window of revocations before its filter is trusted again. The subscription counts as interrupted once no
+ * ping of the instance has come back for {@code silenceMillis}: the filter is distrusted from that moment, without
+ * waiting for the next ping to be sent, and the ping that ends the silence starts a new window.
+ * </p>
+ * <p>
+ * A revocation lost with the subscription is therefore missed for at most {@code silenceMillis}, after which every
+ * token is looked up until the window has passed.
+ * </p>
+ *
+ * @see RevocationFilter
+ */
+class RevocationTrust {
+    final long windowMillis;
+    final long silenceMillis;
+
+    volatile boolean subscribed;
+    volatile long trustedFrom;
+    volatile long lastPing;
+
+    /**
+     * Constructs a new instance of {@link RevocationTrust}, trusted one window from now at the earliest.
+     *
+     * @param windowMillis  the length of a window in milliseconds.
+     * @param silenceMillis the time without a ping after which the subscription counts as interrupted, or
+     *                      {@link Long#MAX_VALUE} if revocations are not replicated.
+     * @param subscribed    {@code true} if revocations are already received, {@code false} until the first ping.
+     * @param now           the current time in milliseconds.
+     */
+    RevocationTrust(long windowMillis, long silenceMillis, boolean subscribed, long now) {
+        this.windowMillis = windowMillis;
+        this.silenceMillis = silenceMillis;
+        this.subscribed = subscribed;
+        this.trustedFrom = now + windowMillis;
+        this.lastPing = now;
+    }
+
+    /**
+     * Checks whether the filter holds every revocation of the last window.
+     *
+     * @param now the current time in milliseconds.
+     * @return {@code true} if tokens not in the filter need no lookup.
+     */
+    boolean isTrusted(long now) {
+        return subscribed && !isSilent(now) && now >= trustedFrom;
+    }
+
+    /**
+     * Records a ping that came back over the revocation channel.
+     *
+     * @param now the current time in milliseconds.
+     * @return {@code true} if the ping ended an interruption, so the filter is only trusted again one window later.
+     */
+    boolean onPing(long now) {
+        boolean recovered = !subscribed || isSilent(now);
+        lastPing = now;
+        if (recovered) {
+            trustedFrom = Math.max(trustedFrom, now + windowMillis);
+            subscribed = true;
+        }
+        return recovered;
+    }
+
+    /**
+     * Marks the subscription as interrupted if no ping has come back for too long.
+     *
+     * @param now the current time in milliseconds.
+     * @return {@code true} if the subscription was found interrupted by this call.
+     */
+    boolean checkSilence(long now) {
+        if (subscribed && isSilent(now)) {
+            subscribed = false;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isSilent(long now) {
+        return now - lastPing > silenceMillis;
+    }
+}
@@ -0,0 +1,14 @@
+package ru.soigo.auth.jwt.revocation;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Application event published when sessions are revoked before their tokens expire.
+ *
+ * @param username  the user whose sessions are revoked.
+ * @param sessionId the revoked session, or {@code null} if all sessions of the user are revoked.
+ * @see RevocationFilter
+ */
+public record TokenRevokedEvent(@NotNull String username, @Nullable String sessionId) {
+}
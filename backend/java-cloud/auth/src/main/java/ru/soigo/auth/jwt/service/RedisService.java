@@ -6,6 +6,14 @@ import java.util.List;
  * Service interface for managing JWT tokens in Redis.
  * This interface defines the operations for adding, removing, and retrieving JWT tokens
  * associated with a specific username, leveraging Redis for storage.
+ * <p>
+ * The implementation is selected by {@code session.store}: {@code redis} (the default) for
+ * {@link ru.soigo.auth.jwt.service.impl.RedisServiceImpl}, {@code memory} for the in-process
+ * {@link ru.soigo.auth.jwt.service.impl.InMemoryRedisServiceImpl} and {@code sharded} for
+ * {@link ru.soigo.auth.jwt.service.impl.ShardedRedisServiceImpl}, which spreads the users over several Redis nodes.
+ * The selected store is qualified as {@code sessionStore} and wrapped by
+ * {@link ru.soigo.auth.jwt.service.impl.ResilientRedisServiceImpl}.
+ * </p>
  */
 public interface RedisService {
 
@@ -39,4 +47,32 @@ public interface RedisService {
      * @return a list of token UUIDs associated with the specified username.
      */
     public List<String> getAllTokens(String username);
+
+    /**
+     * Checks whether a JWT token is still associated with the specified username.
+     *
+     * @param username the username associated with the token.
+     * @param tokenUUID the UUID of the token to be checked.
+     * @return {@code true} if the token is associated with the username.
+     */
+    public default boolean containsToken(String username, String tokenUUID) {
+        return getAllTokens(username).contains(tokenUUID);
+    }
+
+    /**
+     * Checks whether a JWT token is still associated with the specified username, without guessing.
+     * <p>
+     * Unlike {@link #containsToken(String, String)}, which may answer from a stale copy or accept the token while the
+     * store is unavailable, this check fails when the store cannot answer. It is used for refresh tokens, whose
+     * acceptance starts a new session, so a revoked refresh token must never pass.
+     * </p>
+     *
+     * @param username the username associated with the token.
+     * @param tokenUUID the UUID of the token to be checked.
+     * @return {@code true} if the token is associated with the username.
+     * @throws ru.soigo.auth.exception.SessionStoreUnavailableException if the store cannot be reached.
+     */
+    public default boolean verifyToken(String username, String tokenUUID) {
+        return containsToken(username, tokenUUID);
+    }
 }
@@ -0,0 +1,298 @@
+package ru.soigo.auth.jwt.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.soigo.auth.jwt.service.RedisService;
+import ru.soigo.auth.jwt.session.HierarchicalTimingWheel;
+import ru.soigo.auth.jwt.session.SessionJournal;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process implementation of the {@link RedisService} interface for single-node deployments and tests.
+ * <p>
+ * Selected with {@code session.store=memory}; {@link RedisServiceImpl} stays the default. The sessions of each user
+ * are kept in a small insertion-ordered map from session id to expiration time, inside a concurrent map by user name.
+ * Each user map is guarded by one of {@code session.store.memory.stripes} locks chosen by the hash of the user name,
+ * so operations on different users rarely contend and no lock is held across users.
+ * </p>
+ * <p>
+ * Unlike the Redis lists, sessions expire: each session lives for {@code session.store.memory.ttl}, by default the
+ * lifetime of the refresh token, after which no token of it can be refreshed anyway. Expiration is driven by a
+ * {@link HierarchicalTimingWheel} advanced by one background thread every {@code session.store.memory.tick}, instead
+ * of a timer per session; sessions are also filtered by their expiration time on read, so they are never returned
+ * late.
+ * </p>
+ * <p>
+ * If {@code session.store.memory.aof-path} is set, every change is appended to a {@link SessionJournal} so the
+ * sessions survive restarts, forced to disk according to {@code session.store.memory.aof-fsync}.
+ * </p>
+ * <p>
+ * Spring Boot still auto-configures a Redis connection factory when the Redis client is on the class path; set
+ * {@code management.health.redis.enabled=false} so the health of the instance does not depend on a Redis server it
+ * does not use.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code auth.session.store.users} - The number of users with at least one session.</li>
+ *   <li>{@code auth.session.store.expired} - Sessions removed because they expired.</li>
+ * </ul>
+ *
+ * @see RedisService
+ * @see HierarchicalTimingWheel
+ * @see SessionJournal
+ */
+@Slf4j
+@Service
+@Qualifier("sessionStore")
+@ConditionalOnProperty(name = "session.store", havingValue = "memory")
+public class InMemoryRedisServiceImpl implements RedisService, Closeable {
+    final Map<String, Map<String, Long>> sessions = new ConcurrentHashMap<>();
+    final ReentrantLock[] stripes;
+    final long ttlMillis;
+    final HierarchicalTimingWheel<Expiry> timingWheel;
+    final SessionJournal journal;
+    final Counter expired;
+    final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("session-expiry").daemon().factory()
+    );
+    long lastSync;
+
+    /**
+     * Constructs a new instance of {@link InMemoryRedisServiceImpl}, loads the journal if configured and starts the
+     * expiration thread.
+     *
+     * @param meterRegistry  the registry used to publish the number of users and expired sessions.
+     * @param ttl            how long a session lives.
+     * @param tick           the resolution of expiration.
+     * @param stripes        the number of locks the users are spread over.
+     * @param aofPath        the path of the journal, or an empty string to keep the sessions in memory only.
+     * @param fsyncPolicy    when journal records are forced to disk.
+     * @param minRewriteSize the size below which the journal is never rewritten.
+     */
+    @Autowired
+    public InMemoryRedisServiceImpl(
+            MeterRegistry meterRegistry,
+            @Value("${session.store.memory.ttl:${jwt.refresh.expiration}}") Duration ttl,
+            @Value("${session.store.memory.tick:1s}") Duration tick,
+            @Value("${session.store.memory.stripes:64}") int stripes,
+            @Value("${session.store.memory.aof-path:}") String aofPath,
+            @Value("${session.store.memory.aof-fsync:every_second}") SessionJournal.FsyncPolicy fsyncPolicy,
+            @Value("${session.store.memory.aof-rewrite-min-size:16777216}") long minRewriteSize
+    ) {
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, stripes - 1)) << 1];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.ttlMillis = ttl.toMillis();
+        long now = System.currentTimeMillis();
+        this.timingWheel = new HierarchicalTimingWheel<>(tick.toMillis(), now, this::expire);
+        this.journal = aofPath.isBlank() ? null : new SessionJournal(Path.of(aofPath), fsyncPolicy, minRewriteSize);
+        this.expired = Counter
+                .builder("auth.session.store.expired")
+                .description("Sessions removed from the in-memory session store because they expired")
+                .register(meterRegistry);
+        Gauge
+                .builder("auth.session.store.users", sessions, Map::size)
+                .description("Users with at least one session in the in-memory session store")
+                .register(meterRegistry);
+
+        if (journal != null) {
+            journal.load(now).forEach((username, userSessions) -> {
+                sessions.put(username, userSessions);
+                userSessions.forEach((sessionId, expiresAt) ->
+                        timingWheel.schedule(new Expiry(username, sessionId, expiresAt), expiresAt));
+            });
+        }
+        this.lastSync = now;
+        executor.scheduleWithFixedDelay(this::tick, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToken(String username, String tokenUUID) {
+        log.debug("Adding token for username: {}", username);
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        ReentrantLock lock = lockFor(username);
+        lock.lock();
+        try {
+            sessions.computeIfAbsent(username, key -> new LinkedHashMap<>()).put(tokenUUID, expiresAt);
+            if (journal != null) {
+                journal.add(username, tokenUUID, expiresAt);
+            }
+        } finally {
+            lock.unlock();
+        }
+        timingWheel.schedule(new Expiry(username, tokenUUID, expiresAt), expiresAt);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeToken(String username, String tokenUUID) {
+        log.debug("Removing token for username: {}", username);
+        ReentrantLock lock = lockFor(username);
+        lock.lock();
+        try {
+            Map<String, Long> userSessions = sessions.get(username);
+            if (userSessions != null && userSessions.remove(tokenUUID) != null) {
+                if (userSessions.isEmpty()) {
+                    sessions.remove(username);
+                }
+                if (journal != null) {
+                    journal.remove(username, tokenUUID);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAllTokens(String username) {
+        log.debug("Removing all tokens for username: {}", username);
+        ReentrantLock lock = lockFor(username);
+        lock.lock();
+        try {
+            if (sessions.remove(username) != null && journal != null) {
+                journal.clear(username);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getAllTokens(String username) {
+        long now = System.currentTimeMillis();
+        ReentrantLock lock = lockFor(username);
+        lock.lock();
+        try {
+            Map<String, Long> userSessions = sessions.get(username);
+            if (userSessions == null) {
+                return List.of();
+            }
+            List<String> tokens = new ArrayList<>(userSessions.size());
+            userSessions.forEach((sessionId, expiresAt) -> {
+                if (expiresAt > now) {
+                    tokens.add(sessionId);
+                }
+            });
+            return tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the expiration thread and closes the journal.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            timingWheel.advance(now);
+            if (journal != null) {
+                if (now - lastSync >= 1000) {
+                    journal.sync();
+                    lastSync = now;
+                }
+                if (journal.needsRewrite()) {
+                    journal.rewrite(this::snapshot);
+                }
+            }
+        } catch (RuntimeException exception) {
+            log.warn("Session expiration failed: {}", exception.getMessage());
+        }
+    }
+
+    private void expire(@NotNull Expiry expiry) {
+        ReentrantLock lock = lockFor(expiry.username());
+        lock.lock();
+        try {
+            Map<String, Long> userSessions = sessions.get(expiry.username());
+            if (userSessions == null) {
+                return;
+            }
+            Long expiresAt = userSessions.get(expiry.sessionId());
+            if (expiresAt != null && expiresAt == expiry.expiresAt()) {
+                userSessions.remove(expiry.sessionId());
+                if (userSessions.isEmpty()) {
+                    sessions.remove(expiry.username());
+                }
+                expired.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Map<String, Long>> snapshot() {
+        Map<String, Map<String, Long>> snapshot = new HashMap<>(sessions.size());
+        for (String username : sessions.keySet()) {
+            ReentrantLock lock = lockFor(username);
+            lock.lock();
+            try {
+                Map<String, Long> userSessions = sessions.get(username);
+                if (userSessions != null) {
+                    snapshot.put(username, new LinkedHashMap<>(userSessions));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    private ReentrantLock lockFor(@NotNull String username) {
+        int hash = username.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * A scheduled expiration of a session.
+     *
+     * @param username  the user name.
+     * @param sessionId the session id.
+     * @param expiresAt the expiration time the session had when it was scheduled.
+     */
+    record Expiry(String username, String sessionId, long expiresAt) {
+    }
+}
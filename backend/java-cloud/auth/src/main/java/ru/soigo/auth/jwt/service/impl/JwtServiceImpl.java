@@ -5,22 +5,59 @@ import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.soigo.auth.deadline.DeadlineContextHolder;
+import ru.soigo.auth.jfr.TokenEvent;
+import ru.soigo.auth.jwt.claims.TokenClaims;
+import ru.soigo.auth.jwt.claims.TokenMinter;
 import ru.soigo.auth.jwt.dto.PairToken;
+import ru.soigo.auth.jwt.model.ClaimFormat;
 import ru.soigo.auth.jwt.model.TypeToken;
+import ru.soigo.auth.jwt.rejection.TokenRejections;
+import ru.soigo.auth.jwt.revocation.RevocationFilter;
 import ru.soigo.auth.jwt.service.JwtService;
 import ru.soigo.auth.jwt.service.RedisService;
 import ru.soigo.auth.model.User;
 
 import javax.crypto.SecretKey;
-import java.util.*;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
 /**
  * Implementation of {@link JwtService} that handles JWT operations using the jjwt library.
+ * <p>
+ * Tokens are issued in the {@link ClaimFormat} configured by {@code jwt.claims.format} and accepted in both
+ * formats.
+ * </p>
+ * <p>
+ * Tokens are minted by a {@link TokenMinter}, which writes and signs the claims directly instead of going through
+ * the jjwt builder; parsing still uses jjwt.
+ * </p>
+ * <p>
+ * Validation rejects tokens that do not have the shape of a minted token, and tokens recently rejected, before any
+ * cryptography through {@link TokenRejections}.
+ * </p>
+ * <p>
+ * With {@code jwt.revocation.mode=filter}, access tokens are checked against the {@link RevocationFilter} and only
+ * looked up in the session store when the filter cannot rule out their revocation.
+ * </p>
+ * <p>
+ * Minting and parsing are recorded as {@link TokenEvent} while a JFR recording enables them. Validations are
+ * observed as {@code auth.token.validation}, tagged with the token type and result, which makes them a span of the
+ * request in traces and a timer in metrics.
+ * </p>
+ *
+ * @see TokenClaims
+ * @see TokenMinter
  */
 @Slf4j
 @Service
@@ -29,13 +66,22 @@ public class JwtServiceImpl implements JwtService {
     final Integer accessExpiration;
     final Integer refreshExpiration;
     final SecretKey key;
+    final ClaimFormat claimFormat;
+    final TokenMinter tokenMinter;
+    final TokenRejections tokenRejections;
+    final ObservationRegistry observationRegistry;
+    final RevocationFilter revocationFilter;
 
     /**
      * Constructs a new instance of {@link JwtServiceImpl} with specified parameters.
      *
-     * @param accessExpiration  the expiration time for access tokens in milliseconds.
-     * @param refreshExpiration the expiration time for refresh tokens in milliseconds.
-     * @param jwtSecret         the secret key used to sign the tokens.
+     * @param accessExpiration    the expiration time for access tokens in milliseconds.
+     * @param refreshExpiration   the expiration time for refresh tokens in milliseconds.
+     * @param jwtSecret           the secret key used to sign the tokens.
+     * @param claimFormat         the claim format of issued tokens.
+     * @param tokenRejections     the fast path for rejected tokens.
+     * @param observationRegistry the registry observing token validations.
+     * @param revocationFilter    the filter of revoked sessions, or {@code null} to look up every session.
      */
     @Autowired
     public JwtServiceImpl(
@@ -45,12 +91,22 @@ public class JwtServiceImpl implements JwtService {
             @Value("${jwt.refresh.expiration}")
             @NotNull Integer refreshExpiration,
             @Value("${jwt.secret}")
-            @NotNull String jwtSecret
+            @NotNull String jwtSecret,
+            @Value("${jwt.claims.format:legacy}")
+            @NotNull ClaimFormat claimFormat,
+            TokenRejections tokenRejections,
+            ObservationRegistry observationRegistry,
+            @Nullable RevocationFilter revocationFilter
     ) {
         this.redisService = redisService;
         this.accessExpiration = accessExpiration;
         this.refreshExpiration = refreshExpiration;
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.claimFormat = claimFormat;
+        this.tokenMinter = new TokenMinter(key, claimFormat);
+        this.tokenRejections = tokenRejections;
+        this.observationRegistry = observationRegistry;
+        this.revocationFilter = revocationFilter;
     }
 
     /**
@@ -58,16 +114,16 @@ public class JwtServiceImpl implements JwtService {
      */
     @Override
     public PairToken generatePairToken(@NotNull User user) {
-        log.info("Generating pair token for user: {}", user.getUsername());
+        log.debug("Generating pair token for user: {}", user.getUsername());
         UUID uuid = UUID.randomUUID();
-        PairToken pairToken = PairToken
-                .builder()
-                .access(generateAccessToken(user, uuid))
-                .refresh(generateRefreshToken(user, uuid))
-                .build();
+        PairToken pairToken = record(
+                "mint-pair",
+                () -> tokenMinter.mintPair(user, uuid, accessExpiration, refreshExpiration),
+                pair -> pair.getAccess().length()
+        );
 
+        DeadlineContextHolder.commit("session store");
         redisService.addToken(user.getUsername(), uuid.toString());
-        log.debug("Generated pair token for user {}: {}", user.getUsername(), pairToken);
         return pairToken;
     }
 
@@ -76,7 +132,7 @@ public class JwtServiceImpl implements JwtService {
      */
     @Override
     public String getUsernameFromToken(String token) {
-        log.info("Extracting username from token: {}", token);
+        log.debug("Extracting username from token");
         String username = parseClaims(token).getSubject();
         log.debug("Extracted username from token: {}", username);
         return username;
@@ -87,13 +143,12 @@ public class JwtServiceImpl implements JwtService {
      */
     @Override
     public String generateRefreshToken(@NotNull User user, @NotNull UUID uuid) {
-        log.info("Generating refresh token for user: {}", user.getUsername());
-        Map<String, Object> claims = new HashMap<>() {{
-            put("tokenType", TypeToken.REFRESH.toString());
-        }};
-        String refreshToken = generateToken(uuid, claims, user.getUsername(), refreshExpiration);
-        log.debug("Generated refresh token for user {}: {}", user.getUsername(), refreshToken);
-        return refreshToken;
+        log.debug("Generating refresh token for user: {}", user.getUsername());
+        return record(
+                "mint-refresh",
+                () -> tokenMinter.mintRefresh(user.getUsername(), uuid, refreshExpiration),
+                String::length
+        );
     }
 
     /**
@@ -101,21 +156,12 @@ public class JwtServiceImpl implements JwtService {
      */
     @Override
     public String generateAccessToken(@NotNull User user, @NotNull UUID uuid) {
-        log.info("Generating access token for user: {}", user.getUsername());
-        List<String> roles = user
-                .getAuthorities()
-                .stream()
-                .map(Object::toString)
-                .toList();
-
-        Map<String, Object> claims = new HashMap<>() {{
-            put("roles", roles);
-            put("userId", user.getId());
-            put("tokenType", TypeToken.ACCESS.toString());
-        }};
-        String accessToken = generateToken(uuid, claims, user.getUsername(), accessExpiration);
-        log.debug("Generated access token for user {}: {}", user.getUsername(), accessToken);
-        return accessToken;
+        log.debug("Generating access token for user: {}", user.getUsername());
+        return record(
+                "mint-access",
+                () -> tokenMinter.mintAccess(user, uuid, accessExpiration),
+                String::length
+        );
     }
 
     /**
@@ -123,8 +169,8 @@ public class JwtServiceImpl implements JwtService {
      */
     @Override
     public boolean validateAccessToken(String accessToken) {
-        log.info("Validating access token: {}", accessToken);
-        boolean isValid = validateToken(accessToken, TypeToken.ACCESS);
+        log.debug("Validating access token");
+        boolean isValid = observeValidation(accessToken, TypeToken.ACCESS);
         log.debug("Access token validation result: {}", isValid);
         return isValid;
     }
@@ -134,8 +180,8 @@ public class JwtServiceImpl implements JwtService {
      */
     @Override
     public boolean validateRefreshToken(String refreshToken) {
-        log.info("Validating refresh token: {}", refreshToken);
-        boolean isValid = validateToken(refreshToken, TypeToken.REFRESH);
+        log.debug("Validating refresh token");
+        boolean isValid = observeValidation(refreshToken, TypeToken.REFRESH);
         log.debug("Refresh token validation result: {}", isValid);
         return isValid;
     }
@@ -145,13 +191,17 @@ public class JwtServiceImpl implements JwtService {
      */
     @Override
     public Claims parseClaims(String token) {
-        log.info("Parsing claims from token");
-        Claims claims = Jwts
-                .parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        log.debug("Parsing claims from token");
+        Claims claims = record(
+                "parse",
+                () -> Jwts
+                        .parser()
+                        .verifyWith(key)
+                        .build()
+                        .parseSignedClaims(token)
+                        .getPayload(),
+                parsed -> token.length()
+        );
         log.debug("Parsed claims from token: {}", claims);
         return claims;
     }
@@ -161,80 +211,134 @@ public class JwtServiceImpl implements JwtService {
      */
     @Override
     public String getUUIDFormToken(String token) {
-        return parseClaims(token).getId();
+        return TokenClaims.sessionId(parseClaims(token));
     }
 
     /**
-     * Generates a token with the given parameters.
+     * Validates a token within the observation {@code auth.token.validation}.
      *
-     * @param uuid       the unique identifier for the token.
-     * @param claims     the claims to be included in the token.
-     * @param username   the subject (username) of the token.
-     * @param expiration the expiration time for the token in milliseconds.
-     * @return a newly generated token as a String.
+     * @param token     the JWT token to be validated, may be {@code null}.
+     * @param typeToken the expected type of the token.
+     * @return {@code true} if the token is valid.
      */
-    private String generateToken(
-            @NotNull UUID uuid,
-            @NotNull Map<String, Object> claims,
-            @NotNull String username,
-            @NotNull Integer expiration
-    ) {
-        log.info("Generating token for username: {}, UUID: {}", username, uuid);
-        String token = Jwts
-                .builder()
-                .id(uuid.toString())
-                .claims(claims)
-                .subject(username)
-                .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(key)
-                .compact();
-        log.debug("Generated token for username {}: {}", username, token);
-        return token;
+    private boolean observeValidation(String token, @NotNull TypeToken typeToken) {
+        Observation observation = Observation
+                .createNotStarted("auth.token.validation", observationRegistry)
+                .contextualName("validate " + typeToken.name().toLowerCase())
+                .lowCardinalityKeyValue("token.type", typeToken.name().toLowerCase())
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
+            boolean isValid = validateToken(token, typeToken);
+            observation.lowCardinalityKeyValue("valid", Boolean.toString(isValid));
+            return isValid;
+        } catch (RuntimeException exception) {
+            observation.error(exception);
+            throw exception;
+        } finally {
+            observation.stop();
+        }
     }
 
     /**
      * Validates the given JWT token against the specified token type.
      * <p>
-     * This method parses the claims from the JWT token and checks if the token type
-     * matches the provided {@code TypeToken}. If the token is invalid or the token type
-     * does not match, the method returns {@code false}.
+     * Tokens that are not well-formed or were rejected recently are refused without being parsed. Otherwise this
+     * method parses the claims from the JWT token and checks if the token type matches the provided
+     * {@code TypeToken} and the session of the token is still in the session store. Access tokens the
+     * {@link RevocationFilter} clears skip the session store. Refresh tokens are checked with
+     * {@link RedisService#verifyToken(String, String)}, so they are refused with
+     * {@link ru.soigo.auth.exception.SessionStoreUnavailableException} rather than accepted while the session store
+     * is unavailable.
      * </p>
      * <p>
-     * The method also logs the validation process and handles exceptions that may occur
-     * during token parsing. In the case of a refresh token, if the token has expired,
-     * it will be removed from the Redis store.
+     * Rejections are recorded through {@link TokenRejections}, which counts them, logs them at a limited rate and
+     * remembers those that cannot change. In the case of a refresh token, if the token has expired, it will be
+     * removed from the Redis store.
      * </p>
      *
-     * @param token     the JWT token to be validated, must not be {@code null}.
+     * @param token     the JWT token to be validated, may be {@code null}.
      * @param typeToken the expected type of the token, must not be {@code null}.
      * @return {@code true} if the token is valid and the token type matches the expected type, {@code false} otherwise.
      */
-    private boolean validateToken(@NotNull String token, @NotNull TypeToken typeToken) {
-        log.info("Validating token of type: {}", typeToken);
+    private boolean validateToken(String token, @NotNull TypeToken typeToken) {
+        log.debug("Validating token of type: {}", typeToken);
+        if (token == null) {
+            return false;
+        }
+        if (!tokenMinter.isWellFormed(token)) {
+            tokenRejections.reject(token, typeToken, TokenRejections.Reason.MALFORMED, "not a well-formed token");
+            return false;
+        }
+        if (tokenRejections.isRejected(token)) {
+            return false;
+        }
         try {
             Claims claims = parseClaims(token);
-            String tokenType = claims.get("tokenType").toString();
-            boolean isValid = tokenType.equals(typeToken.toString());
-            log.debug("Token validation result for type {}: {}", typeToken, isValid);
-
-            if (!isValid) {
+            if (TokenClaims.tokenType(claims) != typeToken) {
+                tokenRejections.reject(token, typeToken, TokenRejections.Reason.WRONG_TYPE, "unexpected token type");
+                return false;
+            }
+            String sessionId = TokenClaims.sessionId(claims);
+            if (typeToken == TypeToken.ACCESS && revocationFilter != null
+                    && !revocationFilter.mightBeRevoked(claims.getSubject(), sessionId)) {
+                return true;
+            }
+            boolean active = typeToken == TypeToken.ACCESS
+                    ? redisService.containsToken(claims.getSubject(), sessionId)
+                    : redisService.verifyToken(claims.getSubject(), sessionId);
+            if (!active) {
+                tokenRejections.reject(token, typeToken, TokenRejections.Reason.REVOKED, "session not found");
                 return false;
             }
-            return redisService.getAllTokens(claims.getSubject()).contains(claims.getId());
+            return true;
+        } catch (ExpiredJwtException exception) {
+            tokenRejections.reject(token, typeToken, TokenRejections.Reason.EXPIRED, exception.getMessage());
+            Claims claims = exception.getClaims();
+            if (typeToken == TypeToken.REFRESH && TokenClaims.tokenType(claims) == TypeToken.REFRESH) {
+                redisService.removeToken(claims.getSubject(), TokenClaims.sessionId(claims));
+            }
+            return false;
+        } catch (SignatureException exception) {
+            tokenRejections.reject(token, typeToken, TokenRejections.Reason.SIGNATURE, exception.getMessage());
+            return false;
         } catch (JwtException | IllegalArgumentException exception) {
-            log.error("Token validation failed for type {}: {}", typeToken, exception.getMessage());
-
-            if (typeToken.equals(TypeToken.REFRESH) && exception instanceof ExpiredJwtException) {
-                Claims claims = ((ExpiredJwtException) exception).getClaims();
-                String tokenType = claims.get("tokenType").toString();
+            tokenRejections.reject(token, typeToken, TokenRejections.Reason.INVALID, exception.getMessage());
+            return false;
+        }
+    }
 
-                if (tokenType.equals(TypeToken.REFRESH.toString())) {
-                    redisService.removeToken(claims.getSubject(), claims.getId());
-                }
+    /**
+     * Mints or parses a token, recording it as a {@link TokenEvent} if a JFR recording enables the event.
+     *
+     * @param operation   the name of the operation in the event.
+     * @param call        mints or parses the token.
+     * @param tokenLength the length of the token, from the result of the call.
+     * @param <T>         the type of the result.
+     * @return the result of the call.
+     */
+    private static <T> T record(String operation, Supplier<T> call, ToIntFunction<T> tokenLength) {
+        TokenEvent event = new TokenEvent();
+        if (!event.isEnabled()) {
+            return call.get();
+        }
+        event.begin();
+        String outcome = "success";
+        int length = 0;
+        try {
+            T result = call.get();
+            length = tokenLength.applyAsInt(result);
+            return result;
+        } catch (RuntimeException exception) {
+            outcome = exception.getClass().getSimpleName();
+            throw exception;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.outcome = outcome;
+                event.tokenLength = length;
+                event.commit();
             }
-
-            return false;
         }
     }
 }
@@ -2,6 +2,8 @@ package ru.soigo.auth.jwt.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.redis.core.ListOperations;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
@@ -13,9 +15,15 @@ import java.util.List;
  * Implementation of the {@link RedisService} interface.
  * This service provides methods for managing JWT tokens in Redis,
  * including adding, removing, and retrieving tokens associated with a specific username.
+ * <p>
+ * This is the default session store; {@code session.store=memory} replaces it with {@link InMemoryRedisServiceImpl}
+ * and {@code session.store=sharded} with {@link ShardedRedisServiceImpl}.
+ * </p>
  */
 @Slf4j
 @Service
+@Qualifier("sessionStore")
+@ConditionalOnProperty(name = "session.store", havingValue = "redis", matchIfMissing = true)
 @RequiredArgsConstructor
 public class RedisServiceImpl implements RedisService {
     final ListOperations<String, String> listOps;
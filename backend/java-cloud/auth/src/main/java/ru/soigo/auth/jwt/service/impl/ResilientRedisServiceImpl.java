@@ -0,0 +1,531 @@
+package ru.soigo.auth.jwt.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.audit.listener.AuditApplicationEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import ru.soigo.auth.deadline.Deadline;
+import ru.soigo.auth.deadline.DeadlineContextHolder;
+import ru.soigo.auth.exception.DeadlineExceededException;
+import ru.soigo.auth.exception.SessionStoreUnavailableException;
+import ru.soigo.auth.jwt.service.RedisService;
+import ru.soigo.auth.jwt.session.CircuitBreaker;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of the {@link RedisService} interface keeping the auth service responsive while the session store
+ * is slow or down.
+ * <p>
+ * Wraps the configured session store, qualified as {@code sessionStore}, and is the {@link RedisService} every other
+ * bean sees unless {@code session.resilience.enabled=false}. Each call to the store runs with a strict timeout of
+ * {@code session.resilience.timeout}, shortened to the remaining request deadline, and goes through a
+ * {@link CircuitBreaker} opening after {@code session.resilience.failure-threshold} consecutive failures for
+ * {@code session.resilience.open-duration}. A call cut short by the request deadline rather than by the timeout
+ * fails the request with {@link DeadlineExceededException} and is not counted against the store, since clients choose
+ * their deadline. A failed call, or a call while the breaker is open, is degraded instead of failing the request:
+ * </p>
+ * <ul>
+ *   <li>Session checks are answered from a local snapshot of the sessions read from the store in the last
+ *   {@code session.resilience.staleness}. Users not in the snapshot are accepted on the signature and expiry of
+ *   their token alone, which the caller has already checked. This only holds for access tokens: refresh tokens are
+ *   checked through {@link #verifyToken(String, String)}, which fails with
+ *   {@link SessionStoreUnavailableException} instead, so a revoked refresh token cannot start a new session.</li>
+ *   <li>Writes are queued in a buffer of {@code session.resilience.replay-buffer} writes and replayed in order once
+ *   the store answers again. Queued removals are honoured locally right away, so a logout during an outage takes
+ *   effect on this instance immediately. When the buffer is full, writes fail with
+ *   {@link SessionStoreUnavailableException}.</li>
+ * </ul>
+ * <p>
+ * While writes of a user are queued, new writes of that user are queued behind them, so the store sees the writes of
+ * each user in order. A write of a user and the replay of a queued write of the same user are serialized by one of
+ * {@value #STRIPES} locks chosen by the hash of the user name, so a write cannot go to the store directly while an
+ * earlier write of the user is being replayed, nor overtake one that is being queued. The in-memory
+ * store cannot stall, so with {@code session.store=memory} the wrapper only adds a thread hop per call and is best
+ * disabled. The thread hop carries the context of the caller, such as the current observation, so the spans of the
+ * store commands stay children of the request.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code auth.session.store.mode} - The state of the breaker: {@code 0} closed, {@code 1} open (degraded),
+ *   {@code 2} half-open (probing).</li>
+ *   <li>{@code auth.session.store.failures} - Failed calls, tagged by {@code cause}: {@code timeout} or
+ *   {@code error}.</li>
+ *   <li>{@code auth.session.store.degraded} - Calls served without the store, tagged by {@code operation}:
+ *   {@code read} or {@code write}.</li>
+ *   <li>{@code auth.session.store.unverified} - Sessions accepted on signature and expiry only.</li>
+ *   <li>{@code auth.session.store.replay.pending} - Writes waiting to be replayed.</li>
+ *   <li>{@code auth.session.store.replay.rejected} - Writes refused because the buffer was full.</li>
+ * </ul>
+ *
+ * <p><b>Audit events:</b></p>
+ * <p>
+ * Every change of state publishes an {@link AuditApplicationEvent} of type {@code SESSION_STORE_CLOSED},
+ * {@code SESSION_STORE_OPEN} or {@code SESSION_STORE_HALF_OPEN} for principal {@code session-store}, recorded by the
+ * actuator's audit event repository if one is configured.
+ * </p>
+ *
+ * @see CircuitBreaker
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(name = "session.resilience.enabled", havingValue = "true", matchIfMissing = true)
+public class ResilientRedisServiceImpl implements RedisService, Closeable {
+    static final String AUDIT_PRINCIPAL = "session-store";
+    static final ContextSnapshotFactory CONTEXT_SNAPSHOTS = ContextSnapshotFactory.builder().build();
+    static final int STRIPES = 64;
+
+    final RedisService delegate;
+    final ApplicationEventPublisher eventPublisher;
+    final long timeoutNanos;
+    final long stalenessMillis;
+    final int maxSnapshots;
+    final CircuitBreaker circuitBreaker;
+    final BlockingQueue<PendingWrite> pendingWrites;
+    final Map<String, Integer> queuedWrites = new ConcurrentHashMap<>();
+    final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    final Set<String> pendingAdds = ConcurrentHashMap.newKeySet();
+    final Set<String> pendingRemoves = ConcurrentHashMap.newKeySet();
+    final Set<String> pendingClears = ConcurrentHashMap.newKeySet();
+    final ExecutorService callExecutor = ContextExecutorService.wrap(
+            Executors.newVirtualThreadPerTaskExecutor(),
+            () -> CONTEXT_SNAPSHOTS.captureAll()
+    );
+    final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("session-store-replay").daemon().factory()
+    );
+    final Counter timeouts;
+    final Counter errors;
+    final Counter degradedReads;
+    final Counter degradedWrites;
+    final Counter unverified;
+    final Counter rejected;
+
+    /**
+     * Constructs a new instance of {@link ResilientRedisServiceImpl} and starts the replay thread.
+     *
+     * @param delegate         the session store.
+     * @param meterRegistry    the registry used to publish the state of the store.
+     * @param eventPublisher   the publisher of audit events.
+     * @param timeout          the longest a call to the store may take.
+     * @param failureThreshold the number of consecutive failures opening the breaker.
+     * @param openDuration     how long the breaker stays open before a probe.
+     * @param staleness        how long sessions read from the store are trusted while it is unavailable.
+     * @param maxSnapshots     the largest number of users whose sessions are kept locally.
+     * @param replayBuffer     the largest number of writes queued while the store is unavailable.
+     */
+    @Autowired
+    public ResilientRedisServiceImpl(
+            @Qualifier("sessionStore") RedisService delegate,
+            MeterRegistry meterRegistry,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${session.resilience.timeout:200ms}") Duration timeout,
+            @Value("${session.resilience.failure-threshold:5}") int failureThreshold,
+            @Value("${session.resilience.open-duration:10s}") Duration openDuration,
+            @Value("${session.resilience.staleness:5m}") Duration staleness,
+            @Value("${session.resilience.snapshot-size:100000}") int maxSnapshots,
+            @Value("${session.resilience.replay-buffer:10000}") int replayBuffer
+    ) {
+        this.delegate = delegate;
+        this.eventPublisher = eventPublisher;
+        this.timeoutNanos = timeout.toNanos();
+        this.stalenessMillis = staleness.toMillis();
+        this.maxSnapshots = maxSnapshots;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDuration, this::onTransition);
+        this.pendingWrites = new ArrayBlockingQueue<>(replayBuffer);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+
+        this.timeouts = failures(meterRegistry, "timeout");
+        this.errors = failures(meterRegistry, "error");
+        this.degradedReads = degraded(meterRegistry, "read");
+        this.degradedWrites = degraded(meterRegistry, "write");
+        this.unverified = Counter
+                .builder("auth.session.store.unverified")
+                .description("Sessions accepted on token signature and expiry only")
+                .register(meterRegistry);
+        this.rejected = Counter
+                .builder("auth.session.store.replay.rejected")
+                .description("Session store writes refused because the replay buffer was full")
+                .register(meterRegistry);
+        Gauge
+                .builder("auth.session.store.mode", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("State of the session store breaker: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        Gauge
+                .builder("auth.session.store.replay.pending", pendingWrites, BlockingQueue::size)
+                .description("Session store writes waiting to be replayed")
+                .register(meterRegistry);
+
+        executor.scheduleWithFixedDelay(this::replay, 1, 1, TimeUnit.SECONDS);
+        long evictionInterval = Math.max(1000, stalenessMillis / 4);
+        executor.scheduleWithFixedDelay(this::evictSnapshots, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToken(String username, String tokenUUID) {
+        write(new PendingWrite(Operation.ADD, username, tokenUUID));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeToken(String username, String tokenUUID) {
+        write(new PendingWrite(Operation.REMOVE, username, tokenUUID));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAllTokens(String username) {
+        write(new PendingWrite(Operation.REMOVE_ALL, username, null));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * While the store is unavailable, returns the sessions of the local snapshot, or none if the user is not in
+     * it.
+     * </p>
+     */
+    @Override
+    public List<String> getAllTokens(String username) {
+        try {
+            return read(username);
+        } catch (SessionStoreUnavailableException exception) {
+            degradedReads.increment();
+            Snapshot snapshot = freshSnapshot(username);
+            return snapshot == null ? List.of() : List.copyOf(snapshot.sessions());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Writes still queued for replay take precedence over the store. While the store is unavailable, the session is
+     * looked up in the local snapshot and accepted if the user is not in it.
+     * </p>
+     */
+    @Override
+    public boolean containsToken(String username, String tokenUUID) {
+        String key = key(username, tokenUUID);
+        if (pendingRemoves.contains(key)) {
+            return false;
+        }
+        if (pendingAdds.contains(key)) {
+            return true;
+        }
+        if (pendingClears.contains(username)) {
+            return false;
+        }
+        try {
+            return read(username).contains(tokenUUID);
+        } catch (SessionStoreUnavailableException exception) {
+            degradedReads.increment();
+            Snapshot snapshot = freshSnapshot(username);
+            if (snapshot != null) {
+                return snapshot.sessions().contains(tokenUUID);
+            }
+            unverified.increment();
+            return true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Writes still queued for replay take precedence over the store, as in {@link #containsToken(String, String)},
+     * but neither the snapshot nor the signature stand in for the store: while it is unavailable, the check fails.
+     * </p>
+     */
+    @Override
+    public boolean verifyToken(String username, String tokenUUID) {
+        String key = key(username, tokenUUID);
+        if (pendingRemoves.contains(key)) {
+            return false;
+        }
+        if (pendingAdds.contains(key)) {
+            return true;
+        }
+        if (pendingClears.contains(username)) {
+            return false;
+        }
+        return read(username).contains(tokenUUID);
+    }
+
+    /**
+     * Stops the replay thread. Writes still queued are lost.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        callExecutor.shutdownNow();
+        if (!pendingWrites.isEmpty()) {
+            log.warn("Discarding {} session store writes that were not replayed", pendingWrites.size());
+        }
+    }
+
+    private List<String> read(String username) {
+        List<String> sessions = call(() -> delegate.getAllTokens(username));
+        long now = System.currentTimeMillis();
+        if (snapshots.size() < maxSnapshots || snapshots.containsKey(username)) {
+            snapshots.put(username, new Snapshot(Set.copyOf(sessions), now));
+        }
+        return sessions;
+    }
+
+    private void write(PendingWrite write) {
+        ReentrantLock lock = lockFor(write.username());
+        lock.lock();
+        try {
+            if (!queuedWrites.containsKey(write.username())) {
+                try {
+                    call(() -> {
+                        write.applyTo(delegate);
+                        return null;
+                    });
+                    updateSnapshot(write);
+                    return;
+                } catch (SessionStoreUnavailableException exception) {
+                    log.debug("Queueing {} for {}: {}", write.operation(), write.username(), exception.getMessage());
+                }
+            }
+            if (!pendingWrites.offer(write)) {
+                rejected.increment();
+                throw new SessionStoreUnavailableException("Session store unavailable and replay buffer full");
+            }
+            queuedWrites.merge(write.username(), 1, Integer::sum);
+            switch (write.operation()) {
+                case ADD -> pendingAdds.add(key(write.username(), write.sessionId()));
+                case REMOVE -> pendingRemoves.add(key(write.username(), write.sessionId()));
+                case REMOVE_ALL -> {
+                    pendingClears.add(write.username());
+                    pendingAdds.removeIf(key -> key.startsWith(write.username() + '\n'));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        degradedWrites.increment();
+        updateSnapshot(write);
+    }
+
+    private void replay() {
+        int replayed = 0;
+        try {
+            for (PendingWrite write = pendingWrites.peek(); write != null; write = pendingWrites.peek()) {
+                PendingWrite next = write;
+                ReentrantLock lock = lockFor(write.username());
+                lock.lock();
+                try {
+                    call(() -> {
+                        next.applyTo(delegate);
+                        return null;
+                    });
+                    pendingWrites.poll();
+                    queuedWrites.computeIfPresent(write.username(), (username, count) -> count > 1 ? count - 1 : null);
+                    switch (write.operation()) {
+                        case ADD -> pendingAdds.remove(key(write.username(), write.sessionId()));
+                        case REMOVE -> pendingRemoves.remove(key(write.username(), write.sessionId()));
+                        case REMOVE_ALL -> pendingClears.remove(write.username());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                replayed++;
+            }
+        } catch (SessionStoreUnavailableException exception) {
+            log.debug("Replay stopped: {}", exception.getMessage());
+        } catch (RuntimeException exception) {
+            log.warn("Replay failed: {}", exception.getMessage());
+        }
+        if (replayed > 0) {
+            log.info("Replayed {} session store writes, {} pending", replayed, pendingWrites.size());
+        }
+    }
+
+    /**
+     * Calls the store through the breaker. Only a call that ran for the full {@code session.resilience.timeout} and
+     * timed out, or that failed, counts against the store: a call cut short by the request deadline, which clients
+     * can shorten at will, says nothing about the store, so it fails the request with
+     * {@link DeadlineExceededException} and leaves the breaker as it was.
+     */
+    private <R> R call(Callable<R> command) {
+        long timeout = timeoutNanos();
+        if (timeout <= 0) {
+            throw new DeadlineExceededException("session store");
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            throw new SessionStoreUnavailableException("Session store circuit open");
+        }
+        Future<R> future = callExecutor.submit(command);
+        try {
+            R result = future.get(timeout, TimeUnit.NANOSECONDS);
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (TimeoutException exception) {
+            future.cancel(true);
+            if (timeout < timeoutNanos) {
+                circuitBreaker.onCancelled();
+                throw new DeadlineExceededException("session store response");
+            }
+            timeouts.increment();
+            circuitBreaker.onFailure();
+            throw new SessionStoreUnavailableException("Session store call timed out");
+        } catch (ExecutionException exception) {
+            errors.increment();
+            circuitBreaker.onFailure();
+            throw new SessionStoreUnavailableException("Session store call failed: " + exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            circuitBreaker.onCancelled();
+            throw new SessionStoreUnavailableException("Interrupted while calling the session store");
+        }
+    }
+
+    private long timeoutNanos() {
+        Deadline deadline = DeadlineContextHolder.getDeadline();
+        return deadline == null ? timeoutNanos : Math.min(timeoutNanos, deadline.remaining().toNanos());
+    }
+
+    private void updateSnapshot(PendingWrite write) {
+        switch (write.operation()) {
+            case ADD -> snapshots.computeIfPresent(write.username(), (username, snapshot) ->
+                    snapshot.with(write.sessionId(), true));
+            case REMOVE -> snapshots.computeIfPresent(write.username(), (username, snapshot) ->
+                    snapshot.with(write.sessionId(), false));
+            case REMOVE_ALL -> snapshots.remove(write.username());
+        }
+    }
+
+    private @Nullable Snapshot freshSnapshot(String username) {
+        Snapshot snapshot = snapshots.get(username);
+        return snapshot != null && System.currentTimeMillis() - snapshot.readAt() <= stalenessMillis ? snapshot : null;
+    }
+
+    private void evictSnapshots() {
+        long oldest = System.currentTimeMillis() - stalenessMillis;
+        snapshots.values().removeIf(snapshot -> snapshot.readAt() < oldest);
+    }
+
+    private void onTransition(CircuitBreaker.State state) {
+        switch (state) {
+            case OPEN -> log.warn("Session store unavailable, degrading: sessions checked against a snapshot of "
+                    + "at most {} ms, writes queued", stalenessMillis);
+            case HALF_OPEN -> log.info("Probing session store");
+            case CLOSED -> log.info("Session store available again, replaying {} writes", pendingWrites.size());
+        }
+        eventPublisher.publishEvent(new AuditApplicationEvent(AUDIT_PRINCIPAL, "SESSION_STORE_" + state.name(),
+                Map.of("pendingWrites", pendingWrites.size())));
+    }
+
+    private ReentrantLock lockFor(String username) {
+        int hash = username.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static Counter failures(MeterRegistry meterRegistry, String cause) {
+        return Counter
+                .builder("auth.session.store.failures")
+                .description("Failed session store calls")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    private static Counter degraded(MeterRegistry meterRegistry, String operation) {
+        return Counter
+                .builder("auth.session.store.degraded")
+                .description("Session store calls served without the store")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static String key(String username, String sessionId) {
+        return username + '\n' + sessionId;
+    }
+
+    /**
+     * Enum representing the kind of a write to the session store.
+     */
+    enum Operation {
+        ADD,
+        REMOVE,
+        REMOVE_ALL
+    }
+
+    /**
+     * A write to the session store, possibly waiting to be replayed.
+     *
+     * @param operation the kind of write.
+     * @param username  the user name.
+     * @param sessionId the session id, {@code null} for {@link Operation#REMOVE_ALL}.
+     */
+    record PendingWrite(@NotNull Operation operation, @NotNull String username, @Nullable String sessionId) {
+
+        void applyTo(RedisService store) {
+            switch (operation) {
+                case ADD -> store.addToken(username, sessionId);
+                case REMOVE -> store.removeToken(username, sessionId);
+                case REMOVE_ALL -> store.removeAllTokens(username);
+            }
+        }
+    }
+
+    /**
+     * The sessions of a user as last read from the store, updated by the writes since.
+     *
+     * @param sessions the session ids.
+     * @param readAt   when the sessions were read in milliseconds.
+     */
+    record Snapshot(@NotNull Set<String> sessions, long readAt) {
+
+        Snapshot with(String sessionId, boolean present) {
+            Set<String> updated = new HashSet<>(sessions);
+            if (present) {
+                updated.add(sessionId);
+            } else {
+                updated.remove(sessionId);
+            }
+            return new Snapshot(Set.copyOf(updated), readAt);
+        }
+    }
+}
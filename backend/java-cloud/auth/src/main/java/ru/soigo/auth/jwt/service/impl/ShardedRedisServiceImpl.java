@@ -0,0 +1,389 @@
+package ru.soigo.auth.jwt.service.impl;
+
+import io.lettuce.core.resource.ClientResources;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import ru.soigo.auth.jwt.service.RedisService;
+import ru.soigo.auth.jwt.session.ConsistentHashRing;
+import ru.soigo.auth.jwt.session.RedisShard;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of the {@link RedisService} interface spreading the sessions over several independent Redis nodes.
+ * <p>
+ * Selected with {@code session.store=sharded}. The nodes are listed in {@code session.sharding.nodes} as
+ * {@code host:port} and each user is assigned to one of them by a {@link ConsistentHashRing} with
+ * {@code session.sharding.virtual-nodes} points per node, so every per-user operation is a single command on a single
+ * node and capacity grows with the number of nodes, without Redis Cluster. Only the administrative operations,
+ * {@link #getShardSizes()} and {@link #rebalance()}, fan out to all nodes.
+ * </p>
+ * <p>
+ * The node list is refreshable. When it changes, the service switches to the new ring and moves the users whose
+ * node changed, about {@code 1/n} of them, in the background: each shard is scanned and every list it no longer owns
+ * is moved to its new owner with {@code MIGRATE}. While the move is in progress, a user is looked up on its node in
+ * the previous ring first, like an {@code ASK} redirect in Redis Cluster: writes go to the old node while the list is
+ * still there and to the new node once it has moved, so no session is lost or revived. Only once a pass over all
+ * shards completes without error is the previous ring dropped and are removed nodes disconnected; until then the
+ * move is retried every {@code session.sharding.retry-interval}, so users on a node that failed are never stranded. The nodes must be able to reach each other at
+ * the configured addresses for {@code MIGRATE}; otherwise, or when the new node already holds a list of the user,
+ * the lists are merged as described in {@link RedisShard#migrate}.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code auth.session.store.shard.latency} - Latency of session commands, tagged by {@code shard}.</li>
+ *   <li>{@code auth.session.store.shard.keys} - Keys per shard, refreshed every
+ *   {@code session.sharding.stats-interval}.</li>
+ *   <li>{@code auth.session.store.rebalanced} - Users moved to another shard by rebalancing.</li>
+ * </ul>
+ *
+ * @see RedisShard
+ * @see ConsistentHashRing
+ */
+@Slf4j
+@Service
+@Qualifier("sessionStore")
+@ConditionalOnProperty(name = "session.store", havingValue = "sharded")
+public class ShardedRedisServiceImpl implements RedisService, Closeable {
+    static final String PREFIX = "session.sharding.";
+    static final String NODES = PREFIX + "nodes";
+    static final String VIRTUAL_NODES = PREFIX + "virtual-nodes";
+    static final int MAX_REBALANCE_PASSES = 3;
+
+    final Environment environment;
+    final MeterRegistry meterRegistry;
+    final String password;
+    final ClientResources clientResources;
+    final Duration migrateTimeout;
+    final Duration retryInterval;
+    final Map<String, RedisShard> shards = new ConcurrentHashMap<>();
+    final Counter rebalanced;
+    final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("session-rebalancer").daemon().factory()
+    );
+
+    volatile Topology topology;
+
+    /**
+     * Constructs a new instance of {@link ShardedRedisServiceImpl} and connects to the nodes.
+     *
+     * @param environment    the environment the node list is reread from when it changes.
+     * @param meterRegistry  the registry used to publish the latency and size of the shards.
+     * @param resources      the Lettuce client resources shared by the shards, which carry the tracing of commands.
+     * @param nodes          the nodes as {@code host:port}.
+     * @param virtualNodes   the number of points per node on the ring.
+     * @param password       the password of the nodes, or an empty string.
+     * @param migrateTimeout the timeout of moving one user to another node.
+     * @param retryInterval  the delay before an incomplete move is retried.
+     * @param statsInterval  the interval between two refreshes of the key counts.
+     */
+    @Autowired
+    public ShardedRedisServiceImpl(
+            Environment environment,
+            MeterRegistry meterRegistry,
+            ObjectProvider<ClientResources> resources,
+            @Value("${session.sharding.nodes}") List<String> nodes,
+            @Value("${session.sharding.virtual-nodes:160}") int virtualNodes,
+            @Value("${spring.data.redis.password:}") String password,
+            @Value("${session.sharding.migrate-timeout:5s}") Duration migrateTimeout,
+            @Value("${session.sharding.retry-interval:30s}") Duration retryInterval,
+            @Value("${session.sharding.stats-interval:30s}") Duration statsInterval
+    ) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.password = password;
+        this.clientResources = resources.getIfAvailable();
+        this.migrateTimeout = migrateTimeout;
+        this.retryInterval = retryInterval;
+        this.rebalanced = Counter
+                .builder("auth.session.store.rebalanced")
+                .description("Users moved to another shard by rebalancing")
+                .register(meterRegistry);
+        this.topology = new Topology(ring(nodes, virtualNodes), null);
+        log.info("Sharding sessions over {}", nodes);
+        executor.scheduleWithFixedDelay(this::refreshKeyCounts, 0, statsInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToken(String username, String tokenUUID) {
+        log.debug("Adding token for username: {}", username);
+        Topology current = topology;
+        RedisShard source = current.source(username);
+        if (source == null || !source.pushIfExists(username, tokenUUID)) {
+            current.ring().nodeFor(username).push(username, tokenUUID);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeToken(String username, String tokenUUID) {
+        log.debug("Removing token for username: {}", username);
+        Topology current = topology;
+        RedisShard source = current.source(username);
+        if (source == null || !source.removeIfExists(username, tokenUUID)) {
+            current.ring().nodeFor(username).remove(username, tokenUUID);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAllTokens(String username) {
+        log.debug("Removing all tokens for username: {}", username);
+        Topology current = topology;
+        RedisShard source = current.source(username);
+        if (source != null) {
+            source.delete(username);
+        }
+        current.ring().nodeFor(username).delete(username);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getAllTokens(String username) {
+        Topology current = topology;
+        RedisShard source = current.source(username);
+        if (source != null) {
+            List<String> tokens = source.range(username);
+            if (!tokens.isEmpty()) {
+                return tokens;
+            }
+        }
+        return current.ring().nodeFor(username).range(username);
+    }
+
+    /**
+     * Counts the keys of every shard. Fans out to all nodes.
+     *
+     * @return the number of keys by shard address.
+     */
+    public @NotNull Map<String, Long> getShardSizes() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (RedisShard shard : topology.ring().getNodes()) {
+            sizes.put(shard.getAddress(), shard.refreshKeyCount());
+        }
+        return sizes;
+    }
+
+    /**
+     * Checks whether users are being moved between shards.
+     *
+     * @return {@code true} while a rebalancing is in progress.
+     */
+    public boolean isRebalancing() {
+        return topology.previous() != null;
+    }
+
+    /**
+     * Moves every user not stored on the shard the ring assigns it to. Fans out to all nodes.
+     * <p>
+     * Rebalancing after a change of nodes is automatic; this repairs lists written to the wrong node, for example by
+     * an instance that had not yet seen a new node list.
+     * </p>
+     *
+     * @return the completion of the rebalancing.
+     */
+    public @NotNull Future<?> rebalance() {
+        return executor.submit(() -> migrate(topology.ring()).moved());
+    }
+
+    /**
+     * Switches to a new ring when the node list or the number of virtual nodes changes.
+     *
+     * @param event the event published after environment changes.
+     */
+    @EventListener(EnvironmentChangeEvent.class)
+    public void onEnvironmentChanged(EnvironmentChangeEvent event) {
+        if (event.getKeys().stream().noneMatch(key -> key.startsWith(PREFIX))) {
+            return;
+        }
+        List<String> nodes = Binder.get(environment).bind(NODES, Bindable.listOf(String.class)).orElse(List.of());
+        int virtualNodes = environment.getProperty(VIRTUAL_NODES, Integer.class, 160);
+        if (nodes.isEmpty()) {
+            log.warn("Ignoring empty {}, keeping {}", NODES, shards.keySet());
+            return;
+        }
+        executor.execute(() -> reshard(nodes, virtualNodes));
+    }
+
+    /**
+     * Stops rebalancing and disconnects from the nodes.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        shards.values().forEach(RedisShard::close);
+        shards.clear();
+    }
+
+    private void reshard(List<String> nodes, int virtualNodes) {
+        ConsistentHashRing<RedisShard> previous = topology.ring();
+        ConsistentHashRing<RedisShard> next;
+        try {
+            next = ring(nodes, virtualNodes);
+        } catch (RuntimeException exception) {
+            log.error("Cannot shard sessions over {}, keeping {}: {}", nodes, shards.keySet(), exception.getMessage());
+            return;
+        }
+        log.info("Resharding sessions from {} to {}", addresses(previous), nodes);
+        topology = new Topology(next, previous);
+        completeReshard(next);
+    }
+
+    private void completeReshard(ConsistentHashRing<RedisShard> next) {
+        if (topology.ring() != next || topology.previous() == null) {
+            return;
+        }
+        Migration migration = migrate(next);
+        if (migration.failed() > 0) {
+            log.warn("Resharding over {} incomplete after moving {} users, {} shards failed; keeping the previous ring "
+                    + "and retrying in {}", addresses(next), migration.moved(), migration.failed(), retryInterval);
+            executor.schedule(() -> completeReshard(next), retryInterval.toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+        topology = new Topology(next, null);
+        log.info("Resharded sessions over {}, moved {} users", addresses(next), migration.moved());
+
+        Set<String> removed = new HashSet<>(shards.keySet());
+        removed.removeAll(addresses(next));
+        executor.schedule(() -> removed.forEach(address -> {
+            Topology current = topology;
+            if (current.previous() != null || addresses(current.ring()).contains(address)) {
+                return;
+            }
+            RedisShard shard = shards.remove(address);
+            if (shard != null) {
+                shard.close();
+            }
+        }), migrateTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private Migration migrate(ConsistentHashRing<RedisShard> ring) {
+        long total = 0;
+        int failed = 0;
+        for (int pass = 0; pass < MAX_REBALANCE_PASSES; pass++) {
+            long moved = 0;
+            failed = 0;
+            for (RedisShard shard : List.copyOf(shards.values())) {
+                try {
+                    moved += migrate(shard, ring);
+                } catch (RuntimeException exception) {
+                    failed++;
+                    log.error("Rebalancing shard {} failed: {}", shard.getAddress(), exception.getMessage());
+                }
+            }
+            total += moved;
+            if (moved == 0 && failed == 0) {
+                break;
+            }
+        }
+        return new Migration(total, failed);
+    }
+
+    private long migrate(RedisShard shard, ConsistentHashRing<RedisShard> ring) {
+        AtomicLong moved = new AtomicLong();
+        shard.scan(username -> {
+            RedisShard owner = ring.nodeFor(username);
+            if (owner != shard) {
+                shard.migrate(username, owner, migrateTimeout);
+                moved.incrementAndGet();
+                rebalanced.increment();
+            }
+        });
+        return moved.get();
+    }
+
+    private void refreshKeyCounts() {
+        for (RedisShard shard : shards.values()) {
+            try {
+                shard.refreshKeyCount();
+            } catch (RuntimeException exception) {
+                log.warn("Cannot count keys of shard {}: {}", shard.getAddress(), exception.getMessage());
+            }
+        }
+    }
+
+    private ConsistentHashRing<RedisShard> ring(List<String> nodes, int virtualNodes) {
+        List<RedisShard> ringShards = nodes
+                .stream()
+                .map(String::trim)
+                .distinct()
+                .map(address -> shards.computeIfAbsent(address, key -> new RedisShard(key, password, meterRegistry, clientResources)))
+                .toList();
+        return new ConsistentHashRing<>(ringShards, RedisShard::getAddress, virtualNodes);
+    }
+
+    private static Set<String> addresses(ConsistentHashRing<RedisShard> ring) {
+        Set<String> addresses = new HashSet<>();
+        ring.getNodes().forEach(shard -> addresses.add(shard.getAddress()));
+        return addresses;
+    }
+
+    /**
+     * The outcome of moving users to the shards of a ring.
+     *
+     * @param moved  the number of users moved.
+     * @param failed the number of shards that could not be scanned completely in the last pass.
+     */
+    record Migration(long moved, int failed) {
+    }
+
+    /**
+     * The rings in use.
+     *
+     * @param ring     the ring assigning users to shards.
+     * @param previous the ring before the last change of nodes while users are being moved, otherwise {@code null}.
+     */
+    record Topology(@NotNull ConsistentHashRing<RedisShard> ring, @Nullable ConsistentHashRing<RedisShard> previous) {
+
+        /**
+         * Finds the shard a user may still be stored on while users are being moved.
+         *
+         * @param username the user name.
+         * @return the shard of the user in the previous ring if it differs from the current one, otherwise
+         * {@code null}.
+         */
+        @Nullable RedisShard source(String username) {
+            if (previous == null) {
+                return null;
+            }
+            RedisShard source = previous.nodeFor(username);
+            return source == ring.nodeFor(username) ? null : source;
+        }
+    }
+}
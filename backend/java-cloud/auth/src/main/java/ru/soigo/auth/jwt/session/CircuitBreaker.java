@@ -0,0 +1,125 @@
+package ru.soigo.auth.jwt.session;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Circuit breaker cutting off calls to a failing dependency.
+ * <p>
+ * The breaker starts {@link State#CLOSED}, letting every call through. After {@code failureThreshold} consecutive
+ * failures it opens, and calls are refused without touching the dependency for {@code openDuration}. The first call
+ * after that is let through as a probe, in {@link State#HALF_OPEN}, while all others are still refused: its success
+ * closes the breaker, its failure opens it for another {@code openDuration}. Every call let through must be
+ * followed by {@link #onSuccess()}, {@link #onFailure()} or, if its outcome says nothing about the dependency,
+ * {@link #onCancelled()}.
+ * </p>
+ */
+public class CircuitBreaker {
+    final int failureThreshold;
+    final long openNanos;
+    final Consumer<State> onTransition;
+    final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    final AtomicInteger failures = new AtomicInteger();
+
+    volatile long openedAt;
+
+    /**
+     * Constructs a new instance of {@link CircuitBreaker}.
+     *
+     * @param failureThreshold the number of consecutive failures opening the breaker.
+     * @param openDuration     how long the breaker stays open before a probe.
+     * @param onTransition     called with the new state after every change of state.
+     */
+    public CircuitBreaker(int failureThreshold, @NotNull Duration openDuration, @NotNull Consumer<State> onTransition) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.onTransition = onTransition;
+    }
+
+    /**
+     * Checks whether a call may go through.
+     *
+     * @return {@code true} if the breaker is closed, or if it is open long enough and this call is the probe.
+     */
+    public boolean tryAcquire() {
+        return switch (state.get()) {
+            case CLOSED -> true;
+            case OPEN -> System.nanoTime() - openedAt >= openNanos && transition(State.OPEN, State.HALF_OPEN);
+            case HALF_OPEN -> false;
+        };
+    }
+
+    /**
+     * Records a successful call, closing the breaker after a probe.
+     */
+    public void onSuccess() {
+        failures.set(0);
+        transition(State.HALF_OPEN, State.CLOSED);
+    }
+
+    /**
+     * Records a failed call, opening the breaker after a probe or enough consecutive failures.
+     */
+    public void onFailure() {
+        if (!transition(State.HALF_OPEN, State.OPEN) && failures.incrementAndGet() >= failureThreshold) {
+            transition(State.CLOSED, State.OPEN);
+        }
+    }
+
+    /**
+     * Records a call abandoned by its caller, for instance because the caller's own deadline was shorter than the
+     * timeout of the dependency. Failures are not counted; an abandoned probe is released without restarting
+     * {@code openDuration}, so the next call probes again.
+     */
+    public void onCancelled() {
+        state.compareAndSet(State.HALF_OPEN, State.OPEN);
+    }
+
+    /**
+     * Returns the state of the breaker.
+     *
+     * @return the current state.
+     */
+    public @NotNull State getState() {
+        return state.get();
+    }
+
+    private boolean transition(State from, State to) {
+        if (state.get() != from) {
+            return false;
+        }
+        if (to == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        failures.set(0);
+        onTransition.accept(to);
+        return true;
+    }
+
+    /**
+     * Enum representing the state of a {@link CircuitBreaker}.
+     */
+    public enum State {
+        /**
+         * Calls go through.
+         */
+        CLOSED,
+
+        /**
+         * Calls are refused.
+         */
+        OPEN,
+
+        /**
+         * One probe call goes through, the others are refused.
+         */
+        HALF_OPEN
+    }
+}
@@ -0,0 +1,105 @@
+package ru.soigo.auth.jwt.session;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Immutable consistent hash ring mapping keys to nodes.
+ * <p>
+ * Each node is placed on a ring of 64 bit hashes at {@code virtualNodes} points derived from its name, and a key
+ * belongs to the node of the first point at or after the hash of the key. With enough virtual nodes per node the
+ * keys spread evenly, and adding or removing a node only moves the keys of the points it gains or loses, about
+ * {@code 1/n} of all keys, instead of rehashing everything as {@code hash % n} would.
+ * </p>
+ * <p>
+ * The points are kept in a sorted array, so a lookup is a binary search without allocation. A change of nodes builds
+ * a new ring; the old one stays valid for readers still holding it.
+ * </p>
+ *
+ * @param <T> the type of the nodes.
+ */
+public class ConsistentHashRing<T> {
+    final List<T> nodes;
+    final long[] points;
+    final T[] owners;
+
+    /**
+     * Constructs a new instance of {@link ConsistentHashRing}.
+     *
+     * @param nodes        the nodes; must not be empty.
+     * @param name         the stable name of a node, which determines its points.
+     * @param virtualNodes the number of points per node.
+     * @throws IllegalArgumentException if there are no nodes or fewer than one point per node.
+     */
+    @SuppressWarnings("unchecked")
+    public ConsistentHashRing(@NotNull Collection<T> nodes, @NotNull Function<T, String> name, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one node and one point per node");
+        }
+        this.nodes = List.copyOf(nodes);
+        Point[] ring = new Point[this.nodes.size() * virtualNodes];
+        for (int node = 0; node < this.nodes.size(); node++) {
+            String nodeName = name.apply(this.nodes.get(node));
+            for (int point = 0; point < virtualNodes; point++) {
+                ring[node * virtualNodes + point] = new Point(hash(nodeName + "#" + point), node);
+            }
+        }
+        Arrays.sort(ring, Comparator.comparingLong(Point::hash));
+
+        this.points = new long[ring.length];
+        this.owners = (T[]) new Object[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            points[i] = ring[i].hash();
+            owners[i] = this.nodes.get(ring[i].node());
+        }
+    }
+
+    /**
+     * Finds the node owning a key.
+     *
+     * @param key the key.
+     * @return the node of the first point at or after the hash of the key.
+     */
+    public @NotNull T nodeFor(@NotNull String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * Returns the nodes of the ring.
+     *
+     * @return the nodes, in the order they were given.
+     */
+    public @NotNull List<T> getNodes() {
+        return nodes;
+    }
+
+    static long hash(String value) {
+        long hash = 0x9E3779B97F4A7C15L ^ value.length();
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x9E3779B97F4A7C15L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * A point of a node on the ring.
+     *
+     * @param hash the position on the ring.
+     * @param node the index of the node.
+     */
+    record Point(long hash, int node) {
+    }
+}
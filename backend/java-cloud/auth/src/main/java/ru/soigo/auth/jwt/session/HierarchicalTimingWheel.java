@@ -0,0 +1,161 @@
+package ru.soigo.auth.jwt.session;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel firing a callback for each scheduled value once its deadline has passed.
+ * <p>
+ * Time is divided into ticks of {@code tickMillis}. The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots
+ * each; a slot of level {@code n} spans {@code 64^n} ticks, so with one second ticks the levels cover about a minute,
+ * an hour, three days and half a year. A value is placed on the lowest level whose range holds its deadline and is
+ * moved one level down whenever the wheel reaches the slot it sits in, until it fires from level zero. Scheduling
+ * and firing are {@code O(1)} and no per-entry timer or priority queue is involved; deadlines beyond the top level
+ * are parked in its furthest slot and rescheduled when it comes around.
+ * </p>
+ * <p>
+ * Scheduling is thread-safe and lock-free: values are queued and moved into the slots by the single thread calling
+ * {@link #advance(long)}, which owns the slots. Scheduled values cannot be cancelled; the callback is expected to
+ * check whether the value is still current, which keeps cancellation free for the callers.
+ * </p>
+ *
+ * @param <T> the type of the scheduled values.
+ */
+public class HierarchicalTimingWheel<T> {
+    static final int LEVELS = 4;
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int SLOT_MASK = SLOTS - 1;
+
+    final long tickMillis;
+    final long startMillis;
+    final Consumer<T> onExpired;
+    final ConcurrentLinkedQueue<Entry<T>> pending = new ConcurrentLinkedQueue<>();
+    final Entry<T>[][] slots;
+    long currentTick;
+
+    /**
+     * Constructs a new instance of {@link HierarchicalTimingWheel}.
+     *
+     * @param tickMillis  the resolution of the wheel in milliseconds.
+     * @param startMillis the time of tick zero in milliseconds.
+     * @param onExpired   the callback for values whose deadline has passed, called on the advancing thread.
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, long startMillis, @NotNull Consumer<T> onExpired) {
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.onExpired = onExpired;
+        this.slots = new Entry[LEVELS][SLOTS];
+    }
+
+    /**
+     * Schedules a value.
+     *
+     * @param value          the value to pass to the callback.
+     * @param deadlineMillis the time after which the value expires in milliseconds.
+     */
+    public void schedule(@NotNull T value, long deadlineMillis) {
+        long deadlineTick = Math.max(0, deadlineMillis - startMillis + tickMillis - 1) / tickMillis;
+        pending.add(new Entry<>(value, deadlineTick));
+    }
+
+    /**
+     * Advances the wheel to the given time, firing every value whose deadline has passed.
+     * <p>
+     * Must always be called from the same thread, or with external synchronization.
+     * </p>
+     *
+     * @param nowMillis the current time in milliseconds.
+     * @return the number of fired values.
+     */
+    public int advance(long nowMillis) {
+        int fired = drainPending();
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+            int slot = (int) (currentTick & SLOT_MASK);
+            Entry<T> entry = slots[0][slot];
+            slots[0][slot] = null;
+            fired += fire(entry);
+        }
+        return fired;
+    }
+
+    private int drainPending() {
+        int fired = 0;
+        for (Entry<T> entry = pending.poll(); entry != null; entry = pending.poll()) {
+            if (entry.deadlineTick <= currentTick) {
+                onExpired.accept(entry.value);
+                fired++;
+            } else {
+                place(entry);
+            }
+        }
+        return fired;
+    }
+
+    private void cascade(int level) {
+        int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        Entry<T> entry = slots[level][slot];
+        slots[level][slot] = null;
+        while (entry != null) {
+            Entry<T> next = entry.next;
+            entry.next = null;
+            if (entry.deadlineTick <= currentTick) {
+                entry.next = slots[0][(int) (currentTick & SLOT_MASK)];
+                slots[0][(int) (currentTick & SLOT_MASK)] = entry;
+            } else {
+                place(entry);
+            }
+            entry = next;
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                int slot = (int) ((entry.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                entry.next = slots[level][slot];
+                slots[level][slot] = entry;
+                return;
+            }
+        }
+        int top = LEVELS - 1;
+        int slot = (int) (((currentTick >>> (SLOT_BITS * top)) - 1) & SLOT_MASK);
+        entry.next = slots[top][slot];
+        slots[top][slot] = entry;
+    }
+
+    private int fire(Entry<T> entry) {
+        int fired = 0;
+        while (entry != null) {
+            onExpired.accept(entry.value);
+            fired++;
+            entry = entry.next;
+        }
+        return fired;
+    }
+
+    /**
+     * A scheduled value, linked with the other values of its slot.
+     */
+    static final class Entry<T> {
+        final T value;
+        final long deadlineTick;
+        Entry<T> next;
+
+        Entry(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package ru.soigo.auth.jwt.session;
+
+import io.lettuce.core.resource.ClientResources;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * One Redis node of the sharded session store, holding the session lists of the users the ring assigns to it.
+ * <p>
+ * Besides the plain list commands, a shard offers the conditional variants used while keys move between shards:
+ * {@link #pushIfExists} and {@link #removeIfExists} only touch a list that still exists on this node, atomically in
+ * a Lua script, and report whether they did. Together with {@code MIGRATE}, which atomically moves a key and deletes
+ * it from the source, this is the {@code ASK} protocol of Redis Cluster: a write for a moving key goes to the old
+ * shard while the key is there and to the new one once it is gone.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code auth.session.store.shard.latency} - Latency of session commands, tagged by {@code shard}.</li>
+ *   <li>{@code auth.session.store.shard.keys} - Keys on the shard as of the last {@link #refreshKeyCount()}.</li>
+ * </ul>
+ *
+ * @see ConsistentHashRing
+ * @see ru.soigo.auth.jwt.service.impl.ShardedRedisServiceImpl
+ */
+@Slf4j
+public class RedisShard implements Closeable {
+    static final RedisScript<Long> PUSH_IF_EXISTS = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return redis.call('rpush', KEYS[1], ARGV[1]) end return 0",
+            Long.class
+    );
+    static final RedisScript<Long> REMOVE_IF_EXISTS = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then redis.call('lrem', KEYS[1], 0, ARGV[1]) return 1 end return 0",
+            Long.class
+    );
+    static final RedisScript<Long> PUSH_ABSENT = new DefaultRedisScript<>(
+            "for _, value in ipairs(ARGV) do "
+                    + "if not redis.call('lpos', KEYS[1], value) then redis.call('rpush', KEYS[1], value) end "
+                    + "end return redis.call('llen', KEYS[1])",
+            Long.class
+    );
+    static final RedisScript<Long> DELETE_IF_EQUALS = new DefaultRedisScript<>(
+            "local values = redis.call('lrange', KEYS[1], 0, -1) "
+                    + "if #values ~= #ARGV then return 0 end "
+                    + "for i = 1, #ARGV do if values[i] ~= ARGV[i] then return 0 end end "
+                    + "redis.call('del', KEYS[1]) return 1",
+            Long.class
+    );
+    static final int MAX_MERGE_ATTEMPTS = 5;
+
+    final String address;
+    final String host;
+    final int port;
+    final String password;
+    final LettuceConnectionFactory connectionFactory;
+    final StringRedisTemplate template;
+    final MeterRegistry meterRegistry;
+    final Timer latency;
+    final Gauge keys;
+
+    volatile double keyCount = Double.NaN;
+
+    /**
+     * Constructs a new instance of {@link RedisShard} and connects to the node.
+     *
+     * @param address         the node as {@code host:port}.
+     * @param password        the password of the node, or an empty string.
+     * @param meterRegistry   the registry used to publish the latency and size of the shard.
+     * @param clientResources the Lettuce client resources shared with the other shards, which carry the tracing of
+     *                        commands, or {@code null} for resources of its own.
+     * @throws IllegalArgumentException if the address has no port.
+     */
+    public RedisShard(
+            @NotNull String address,
+            @NotNull String password,
+            @NotNull MeterRegistry meterRegistry,
+            @Nullable ClientResources clientResources
+    ) {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Shard address must be host:port, got " + address);
+        }
+        this.address = address;
+        this.host = address.substring(0, colon);
+        this.port = Integer.parseInt(address.substring(colon + 1));
+        this.password = password;
+
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(host, port);
+        if (!password.isEmpty()) {
+            configuration.setPassword(password);
+        }
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder clientConfiguration = LettuceClientConfiguration
+                .builder();
+        if (clientResources != null) {
+            clientConfiguration.clientResources(clientResources);
+        }
+        this.connectionFactory = new LettuceConnectionFactory(configuration, clientConfiguration.build());
+        this.connectionFactory.afterPropertiesSet();
+        this.template = new StringRedisTemplate(connectionFactory);
+
+        this.meterRegistry = meterRegistry;
+        this.latency = Timer
+                .builder("auth.session.store.shard.latency")
+                .description("Latency of session commands on the shard")
+                .tag("shard", address)
+                .register(meterRegistry);
+        this.keys = Gauge
+                .builder("auth.session.store.shard.keys", this, shard -> shard.keyCount)
+                .description("Keys on the shard")
+                .tag("shard", address)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the address of the node.
+     *
+     * @return the node as {@code host:port}.
+     */
+    public @NotNull String getAddress() {
+        return address;
+    }
+
+    /**
+     * Appends a session to the list of a user.
+     *
+     * @param key   the user name.
+     * @param value the session id.
+     */
+    public void push(@NotNull String key, @NotNull String value) {
+        latency.record(() -> template.opsForList().rightPush(key, value));
+    }
+
+    /**
+     * Appends a session to the list of a user if the list exists on this node.
+     *
+     * @param key   the user name.
+     * @param value the session id.
+     * @return {@code true} if the session was appended.
+     */
+    public boolean pushIfExists(@NotNull String key, @NotNull String value) {
+        Long length = latency.record(() -> template.execute(PUSH_IF_EXISTS, List.of(key), value));
+        return length != null && length > 0;
+    }
+
+    /**
+     * Removes a session from the list of a user.
+     *
+     * @param key   the user name.
+     * @param value the session id.
+     */
+    public void remove(@NotNull String key, @NotNull String value) {
+        latency.record(() -> template.opsForList().remove(key, 0, value));
+    }
+
+    /**
+     * Removes a session from the list of a user if the list exists on this node.
+     *
+     * @param key   the user name.
+     * @param value the session id.
+     * @return {@code true} if the list existed.
+     */
+    public boolean removeIfExists(@NotNull String key, @NotNull String value) {
+        Long existed = latency.record(() -> template.execute(REMOVE_IF_EXISTS, List.of(key), value));
+        return existed != null && existed > 0;
+    }
+
+    /**
+     * Deletes the list of a user.
+     *
+     * @param key the user name.
+     */
+    public void delete(@NotNull String key) {
+        latency.record(() -> template.delete(key));
+    }
+
+    /**
+     * Reads the list of a user.
+     *
+     * @param key the user name.
+     * @return the session ids, empty if the list does not exist on this node.
+     */
+    public @NotNull List<String> range(@NotNull String key) {
+        List<String> values = latency.record(() -> template.opsForList().range(key, 0, -1));
+        return values == null ? List.of() : values;
+    }
+
+    /**
+     * Iterates over the session lists of this node with {@code SCAN}, without blocking the node.
+     *
+     * @param consumer receives the user name of each list.
+     */
+    public void scan(@NotNull Consumer<String> consumer) {
+        ScanOptions options = ScanOptions.scanOptions().type(DataType.LIST).count(1000).build();
+        try (Cursor<String> cursor = template.scan(options)) {
+            cursor.forEachRemaining(consumer);
+        }
+    }
+
+    /**
+     * Moves the list of a user to another shard.
+     * <p>
+     * The list is moved with {@code MIGRATE}, authenticated with the password of the target, which is atomic: until
+     * the target has the list, the source keeps it. {@code MIGRATE} refuses to overwrite a list the target already
+     * holds, typically written by an instance that had not seen the new ring yet, so the lists are then merged
+     * instead:
+     * </p>
+     * <ol>
+     *   <li>the sessions of the source are appended to the list of the target, skipping those it already holds;</li>
+     *   <li>the source list is deleted in a Lua script only if it still holds exactly the copied sessions;</li>
+     *   <li>otherwise a session was added or removed meanwhile: sessions removed from the source are removed from the
+     *   target as well and the merge starts over.</li>
+     * </ol>
+     * <p>
+     * While the source list exists, reads and writes of the user go to the source, so the copies on the target are
+     * not seen until the source is deleted, and by then they match it: no removed session is revived and no added
+     * session is lost.
+     * </p>
+     *
+     * @param key     the user name.
+     * @param target  the shard the list belongs to.
+     * @param timeout the timeout of the transfer.
+     * @throws IllegalStateException if the list kept changing during {@value #MAX_MERGE_ATTEMPTS} merges.
+     */
+    public void migrate(@NotNull String key, @NotNull RedisShard target, @NotNull Duration timeout) {
+        try {
+            template.execute((RedisCallback<Object>) connection ->
+                    connection.execute("MIGRATE", migrateArguments(key, target, timeout)));
+            return;
+        } catch (DataAccessException exception) {
+            log.debug("MIGRATE of {} to {} failed, merging instead: {}", key, target.address, exception.getMessage());
+        }
+        merge(key, target);
+    }
+
+    /**
+     * Reads the number of keys on the node with {@code DBSIZE} into the {@code auth.session.store.shard.keys} gauge.
+     *
+     * @return the number of keys.
+     */
+    public long refreshKeyCount() {
+        Long size = template.execute((RedisCallback<Long>) connection -> connection.serverCommands().dbSize());
+        keyCount = Objects.requireNonNullElse(size, 0L);
+        return (long) keyCount;
+    }
+
+    private void merge(String key, RedisShard target) {
+        List<String> copied = List.of();
+        for (int attempt = 0; attempt < MAX_MERGE_ATTEMPTS; attempt++) {
+            List<String> values = range(key);
+            List<String> removed = new ArrayList<>(copied);
+            removed.removeAll(values);
+            removed.forEach(value -> target.remove(key, value));
+            if (values.isEmpty()) {
+                return;
+            }
+            target.latency.record(() -> target.template.execute(PUSH_ABSENT, List.of(key), values.toArray()));
+            copied = values;
+            Long deleted = latency.record(() -> template.execute(DELETE_IF_EQUALS, List.of(key), values.toArray()));
+            if (deleted != null && deleted > 0) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Sessions of " + key + " kept changing while merged into " + target.address);
+    }
+
+    private static byte[][] migrateArguments(String key, RedisShard target, Duration timeout) {
+        List<String> arguments = new ArrayList<>(List.of(
+                target.host, Integer.toString(target.port), key, "0", Long.toString(timeout.toMillis())
+        ));
+        if (!target.password.isEmpty()) {
+            arguments.add("AUTH");
+            arguments.add(target.password);
+        }
+        return arguments
+                .stream()
+                .map(argument -> argument.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+    }
+
+    /**
+     * Closes the connection to the node and removes its meters.
+     */
+    @Override
+    public void close() {
+        meterRegistry.remove(latency);
+        meterRegistry.remove(keys);
+        connectionFactory.destroy();
+    }
+}
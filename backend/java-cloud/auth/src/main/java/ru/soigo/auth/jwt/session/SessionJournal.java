@@ -0,0 +1,351 @@
+package ru.soigo.auth.jwt.session;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Append-only file persisting the sessions of the in-memory session store across restarts.
+ * <p>
+ * Every change is appended as one line: {@code A <expiresAt> <session> <user>} for an added session,
+ * {@code R <session> <user>} for a removed one and {@code C <user>} for all sessions of a user removed; user names
+ * are base64url encoded. All records are idempotent, so applying a record twice has no effect, which keeps the
+ * rewrite below simple. Expired sessions are not recorded, they are skipped when the file is loaded.
+ * </p>
+ * <p>
+ * Like the Redis AOF, the file is flushed to the operating system on every record and forced to disk according to
+ * the {@link FsyncPolicy}. It is rewritten from the live sessions when it is loaded and whenever it has grown to
+ * twice its size after the last rewrite: records appended while the snapshot is taken are buffered and copied to the
+ * new file before it atomically replaces the old one.
+ * </p>
+ *
+ * @see ru.soigo.auth.jwt.service.impl.InMemoryRedisServiceImpl
+ */
+@Slf4j
+public class SessionJournal implements Closeable {
+    static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    final Path path;
+    final FsyncPolicy fsyncPolicy;
+    final long minRewriteSize;
+
+    FileChannel channel;
+    Writer writer;
+    long size;
+    long sizeAfterRewrite;
+    boolean dirty;
+    List<String> rewriteBuffer;
+
+    /**
+     * Constructs a new instance of {@link SessionJournal}. The file is opened by {@link #load(long)}.
+     *
+     * @param path           the path of the file.
+     * @param fsyncPolicy    when records are forced to disk.
+     * @param minRewriteSize the size below which the file is never rewritten.
+     */
+    public SessionJournal(@NotNull Path path, @NotNull FsyncPolicy fsyncPolicy, long minRewriteSize) {
+        this.path = path;
+        this.fsyncPolicy = fsyncPolicy;
+        this.minRewriteSize = minRewriteSize;
+    }
+
+    /**
+     * Reads the sessions from the file, rewrites it with only the live ones and opens it for appending.
+     * <p>
+     * A truncated last line, left by a crash in the middle of a write, is ignored. The compacted file is forced to
+     * disk before it replaces the old one, so a crash right after loading cannot leave an empty journal behind.
+     * </p>
+     *
+     * @param nowMillis the current time; sessions expired by then are dropped.
+     * @return the live sessions by user name and session id, with their expiration time.
+     * @throws UncheckedIOException if the file cannot be read or written.
+     */
+    public synchronized @NotNull Map<String, Map<String, Long>> load(long nowMillis) {
+        Map<String, Map<String, Long>> sessions = new HashMap<>();
+        int records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            boolean complete = endsWithNewline();
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if ((next != null || complete) && apply(sessions, line)) {
+                    records++;
+                }
+                line = next;
+            }
+        } catch (NoSuchFileException exception) {
+            log.info("Session journal {} does not exist yet", path);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        sessions.values().forEach(userSessions -> userSessions.values().removeIf(expiresAt -> expiresAt <= nowMillis));
+        sessions.values().removeIf(Map::isEmpty);
+        log.info("Loaded {} users from {} records of session journal {}", sessions.size(), records, path);
+
+        try {
+            Path temporary = writeSnapshot(sessions);
+            force(temporary);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            open();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return sessions;
+    }
+
+    /**
+     * Records an added session.
+     *
+     * @param username  the user name.
+     * @param sessionId the session id.
+     * @param expiresAt the expiration time of the session in milliseconds.
+     */
+    public void add(@NotNull String username, @NotNull String sessionId, long expiresAt) {
+        append("A " + expiresAt + " " + sessionId + " " + encode(username));
+    }
+
+    /**
+     * Records a removed session.
+     *
+     * @param username  the user name.
+     * @param sessionId the session id.
+     */
+    public void remove(@NotNull String username, @NotNull String sessionId) {
+        append("R " + sessionId + " " + encode(username));
+    }
+
+    /**
+     * Records that all sessions of a user were removed.
+     *
+     * @param username the user name.
+     */
+    public void clear(@NotNull String username) {
+        append("C " + encode(username));
+    }
+
+    /**
+     * Forces appended records to disk if the policy is {@link FsyncPolicy#EVERY_SECOND}. Called once a second.
+     */
+    public synchronized void sync() {
+        if (fsyncPolicy == FsyncPolicy.EVERY_SECOND && dirty) {
+            try {
+                channel.force(false);
+                dirty = false;
+            } catch (IOException exception) {
+                log.warn("Cannot sync session journal {}: {}", path, exception.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Checks whether the file has grown enough to be rewritten.
+     *
+     * @return {@code true} if the file is at least the minimum size and twice its size after the last rewrite.
+     */
+    public synchronized boolean needsRewrite() {
+        return rewriteBuffer == null && size >= minRewriteSize && size >= 2 * sizeAfterRewrite;
+    }
+
+    /**
+     * Rewrites the file from a snapshot of the live sessions.
+     * <p>
+     * The snapshot is taken and written without blocking appends; records appended meanwhile are buffered and
+     * copied to the new file under the lock, before it replaces the old one.
+     * </p>
+     *
+     * @param snapshot supplies the live sessions by user name and session id, with their expiration time.
+     */
+    public void rewrite(@NotNull Supplier<Map<String, Map<String, Long>>> snapshot) {
+        synchronized (this) {
+            rewriteBuffer = new ArrayList<>();
+        }
+        Path temporary = null;
+        try {
+            temporary = writeSnapshot(snapshot.get());
+            synchronized (this) {
+                try (Writer tail = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+                    for (String line : rewriteBuffer) {
+                        tail.write(line);
+                        tail.write('\n');
+                    }
+                }
+                force(temporary);
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                writer.close();
+                open();
+                log.info("Rewrote session journal {} to {} bytes", path, size);
+            }
+        } catch (IOException exception) {
+            log.warn("Cannot rewrite session journal {}: {}", path, exception.getMessage());
+            deleteQuietly(temporary);
+        } finally {
+            synchronized (this) {
+                rewriteBuffer = null;
+            }
+        }
+    }
+
+    /**
+     * Forces the appended records to disk and closes the file.
+     */
+    @Override
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+            channel.force(false);
+            writer.close();
+        } catch (IOException exception) {
+            log.warn("Cannot close session journal {}: {}", path, exception.getMessage());
+        }
+    }
+
+    private synchronized void append(String line) {
+        if (rewriteBuffer != null) {
+            rewriteBuffer.add(line);
+        }
+        try {
+            writer.write(line);
+            writer.write('\n');
+            writer.flush();
+            size += line.length() + 1;
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                channel.force(false);
+            } else {
+                dirty = true;
+            }
+        } catch (IOException exception) {
+            log.warn("Cannot append to session journal {}: {}", path, exception.getMessage());
+        }
+    }
+
+    private boolean endsWithNewline() throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (file.size() == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            file.read(last, file.size() - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    private static void force(Path file) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            fileChannel.force(true);
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+        size = channel.size();
+        sizeAfterRewrite = size;
+        dirty = false;
+    }
+
+    private Path writeSnapshot(Map<String, Map<String, Long>> sessions) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".rewrite");
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (Writer snapshotWriter = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Map<String, Long>> user : sessions.entrySet()) {
+                String encoded = encode(user.getKey());
+                for (Map.Entry<String, Long> session : user.getValue().entrySet()) {
+                    snapshotWriter.write("A " + session.getValue() + " " + session.getKey() + " " + encoded + "\n");
+                }
+            }
+        }
+        return temporary;
+    }
+
+    private static boolean apply(Map<String, Map<String, Long>> sessions, String line) {
+        String[] parts = line.split(" ");
+        try {
+            switch (parts[0]) {
+                case "A" -> sessions
+                        .computeIfAbsent(decode(parts[3]), key -> new LinkedHashMap<>())
+                        .put(parts[2], Long.parseLong(parts[1]));
+                case "R" -> {
+                    Map<String, Long> userSessions = sessions.get(decode(parts[2]));
+                    if (userSessions != null) {
+                        userSessions.remove(parts[1]);
+                    }
+                }
+                case "C" -> sessions.remove(decode(parts[1]));
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        } catch (RuntimeException exception) {
+            log.warn("Skipping malformed session journal record: {}", line);
+            return false;
+        }
+    }
+
+    private static String encode(String username) {
+        return ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String encoded) {
+        return new String(DECODER.decode(encoded), StandardCharsets.UTF_8);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException exception) {
+            log.debug("Cannot delete {}: {}", file, exception.getMessage());
+        }
+    }
+
+    /**
+     * Enum representing when appended records are forced to disk.
+     */
+    public enum FsyncPolicy {
+        /**
+         * After every record; no acknowledged change is lost, at the cost of a disk flush per change.
+         */
+        ALWAYS,
+
+        /**
+         * Once a second; at most the last second of changes is lost on a power failure.
+         */
+        EVERY_SECOND,
+
+        /**
+         * Never explicitly; the operating system decides.
+         */
+        NO
+    }
+}
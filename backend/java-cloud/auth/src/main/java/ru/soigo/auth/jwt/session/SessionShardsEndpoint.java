@@ -0,0 +1,53 @@
+package ru.soigo.auth.jwt.session;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.soigo.auth.jwt.service.impl.ShardedRedisServiceImpl;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint {@code sessionshards} for the administration of the sharded session store.
+ * <p>
+ * A read returns the number of keys on every shard and whether users are being moved; a write starts a
+ * rebalancing. Both fan out to all shards, which the per-user operations of the store never do. Like every actuator
+ * endpoint it has to be exposed with {@code management.endpoints.web.exposure.include}.
+ * </p>
+ *
+ * <p><b>Dependencies:</b></p>
+ * <ul>
+ *   <li>{@link ShardedRedisServiceImpl} - The sharded session store.</li>
+ * </ul>
+ */
+@Component
+@Endpoint(id = "sessionshards")
+@ConditionalOnProperty(name = "session.store", havingValue = "sharded")
+@RequiredArgsConstructor
+public class SessionShardsEndpoint {
+    final ShardedRedisServiceImpl sessionStore;
+
+    /**
+     * Reports the shards.
+     *
+     * @return the number of keys by shard and whether a rebalancing is in progress.
+     */
+    @ReadOperation
+    public Map<String, Object> shards() {
+        return Map.of(
+                "shards", sessionStore.getShardSizes(),
+                "rebalancing", sessionStore.isRebalancing()
+        );
+    }
+
+    /**
+     * Starts moving users stored on the wrong shard.
+     */
+    @WriteOperation
+    public void rebalance() {
+        sessionStore.rebalance();
+    }
+}
@@ -0,0 +1,156 @@
+package ru.soigo.auth.limit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limiter that learns how many requests the service can process at once from observed latency.
+ * <p>
+ * The limit follows a gradient algorithm: a long-term average of request latency is compared with each new sample,
+ * and the limit is scaled by {@code tolerance * longRtt / sampleRtt} (clamped to {@code [0.5, 1]}) plus a small
+ * queue allowance of {@code sqrt(limit)}. While latency stays close to the baseline the queue allowance lets the
+ * limit grow; once requests start queueing in the Tomcat or connection pools, latency rises and the limit shrinks.
+ * Failed requests (server errors or exceptions) cut the limit multiplicatively, as in AIMD.
+ * </p>
+ * <p>
+ * Requests are admitted in two priorities. Expensive requests (login and registration, which hash passwords) may only
+ * occupy {@code expensiveShare} of the limit, so the remaining capacity is always kept for cheap authenticated
+ * traffic when the service is saturated.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code auth.concurrency.limit} - The current estimated limit.</li>
+ *   <li>{@code auth.concurrency.inflight} - The number of requests currently being processed.</li>
+ * </ul>
+ *
+ * @see ru.soigo.auth.limit.filter.ConcurrencyLimitFilter
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimiter {
+    static final double SMOOTHING = 0.2;
+    static final double BACKOFF_RATIO = 0.9;
+    static final int LONG_WINDOW = 600;
+
+    final AtomicInteger inflight = new AtomicInteger();
+    final int minLimit;
+    final int maxLimit;
+    final double tolerance;
+    final double expensiveShare;
+
+    volatile double estimatedLimit;
+    double longRtt;
+
+    /**
+     * Constructs a new instance of {@link AdaptiveConcurrencyLimiter}.
+     *
+     * @param meterRegistry  the registry used to publish the current limit.
+     * @param initialLimit   the limit used before any latency has been observed.
+     * @param minLimit       the lowest limit the algorithm may choose.
+     * @param maxLimit       the highest limit the algorithm may choose.
+     * @param tolerance      how much latency may grow over the baseline before the limit shrinks.
+     * @param expensiveShare the share of the limit expensive requests may occupy.
+     */
+    @Autowired
+    public AdaptiveConcurrencyLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${concurrency.limit.initial:20}") int initialLimit,
+            @Value("${concurrency.limit.min:4}") int minLimit,
+            @Value("${concurrency.limit.max:200}") int maxLimit,
+            @Value("${concurrency.limit.tolerance:1.5}") double tolerance,
+            @Value("${concurrency.limit.expensive-share:0.7}") double expensiveShare
+    ) {
+        this.estimatedLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.expensiveShare = expensiveShare;
+
+        Gauge
+                .builder("auth.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge
+                .builder("auth.concurrency.inflight", inflight, AtomicInteger::get)
+                .description("Requests currently being processed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tries to admit a request.
+     *
+     * @param expensive {@code true} for low priority requests that may only use part of the limit.
+     * @return {@code true} if the request was admitted and {@link #release} must be called when it completes.
+     */
+    public boolean tryAcquire(boolean expensive) {
+        int allowed = (int) Math.max(1, expensive ? getLimit() * expensiveShare : getLimit());
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted request and feeds its latency into the limit algorithm.
+     *
+     * @param rttNanos the time the request took, in nanoseconds.
+     * @param dropped  {@code true} if the request failed and the limit should back off.
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int current = inflight.getAndDecrement();
+        onSample(rttNanos, current, dropped);
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return the current estimated limit, rounded down.
+     */
+    public int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    /**
+     * Updates the estimated limit from a single latency sample.
+     *
+     * @param rttNanos the time the request took, in nanoseconds.
+     * @param inflight the number of requests in flight when the request completed, including itself.
+     * @param dropped  {@code true} if the request failed.
+     */
+    synchronized void onSample(long rttNanos, int inflight, boolean dropped) {
+        double limit = estimatedLimit;
+        if (dropped) {
+            estimatedLimit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            log.debug("Concurrency limit backed off to {}", (int) estimatedLimit);
+            return;
+        }
+        if (inflight < limit / 2) {
+            // The service is not using its limit, so the sample says nothing about its capacity.
+            return;
+        }
+
+        double rtt = Math.max(1, rttNanos);
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / LONG_WINDOW;
+        if (longRtt / rtt > 2) {
+            // Latency dropped sharply (e.g. after a slow dependency recovered), let the baseline catch up.
+            longRtt *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+}
@@ -0,0 +1,126 @@
+package ru.soigo.auth.limit.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.soigo.auth.limit.AdaptiveConcurrencyLimiter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Filter that sheds requests exceeding the adaptive concurrency limit of the service.
+ * <p>
+ * Each request must be admitted by {@link AdaptiveConcurrencyLimiter} before it reaches JWT authentication.
+ * Requests that are not admitted are answered immediately with {@code 503 Service Unavailable} and a
+ * {@code Retry-After} header, instead of waiting for a Tomcat thread or a database connection.
+ * </p>
+ * <p>
+ * Login and registration are treated as expensive low priority requests, because they run BCrypt and are not
+ * authenticated; all other requests are admitted first when the service is saturated.
+ * </p>
+ * <p>
+ * Server errors make the limiter back off, except {@code 504 Gateway Timeout}: the service answers it when the
+ * deadline set by the caller has passed, which says nothing about its own capacity, so such a request counts as a
+ * latency sample like any other.
+ * </p>
+ *
+ * <p><b>Dependencies:</b></p>
+ * <ul>
+ *   <li>{@link AdaptiveConcurrencyLimiter} - Limiter deciding whether a request is admitted.</li>
+ * </ul>
+ *
+ * @see AdaptiveConcurrencyLimiter
+ * @see OncePerRequestFilter
+ */
+@Slf4j
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    static final List<String> EXPENSIVE_PATHS = List.of("/login", "/register");
+
+    final AdaptiveConcurrencyLimiter limiter;
+    final Counter rejectedExpensive;
+    final Counter rejectedCheap;
+
+    /**
+     * Constructs a new instance of {@link ConcurrencyLimitFilter}.
+     *
+     * @param limiter       the limiter deciding whether a request is admitted.
+     * @param meterRegistry the registry used to count rejected requests.
+     */
+    @Autowired
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter, MeterRegistry meterRegistry) {
+        this.limiter = limiter;
+        this.rejectedExpensive = rejectedCounter(meterRegistry, "expensive");
+        this.rejectedCheap = rejectedCounter(meterRegistry, "cheap");
+    }
+
+    /**
+     * Admits the request through the limiter, or rejects it with {@code 503} if the limit is reached.
+     *
+     * @param request     the incoming HTTP request.
+     * @param response    the HTTP response.
+     * @param filterChain the filter chain.
+     * @throws ServletException if an error occurs during filtering.
+     * @throws IOException      if an I/O error occurs during filtering.
+     */
+    @Override
+    protected void doFilterInternal(
+            @NotNull HttpServletRequest request,
+            @NotNull HttpServletResponse response,
+            @NotNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        boolean expensive = isExpensive(request);
+        if (!limiter.tryAcquire(expensive)) {
+            (expensive ? rejectedExpensive : rejectedCheap).increment();
+            log.debug("Shedding request {} at concurrency limit {}", request.getRequestURI(), limiter.getLimit());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            filterChain.doFilter(request, response);
+            dropped = response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value()
+                    && response.getStatus() != HttpStatus.GATEWAY_TIMEOUT.value();
+        } finally {
+            limiter.release(System.nanoTime() - start, dropped);
+        }
+    }
+
+    /**
+     * Checks whether the request is an expensive unauthenticated request.
+     *
+     * @param request the incoming HTTP request.
+     * @return {@code true} for login and registration requests.
+     */
+    private boolean isExpensive(@NotNull HttpServletRequest request) {
+        String path = request.getServletPath();
+        for (String expensivePath : EXPENSIVE_PATHS) {
+            if (path.startsWith(expensivePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Counter rejectedCounter(@NotNull MeterRegistry meterRegistry, @NotNull String priority) {
+        return Counter
+                .builder("auth.concurrency.rejected")
+                .description("Requests shed by the adaptive concurrency limiter")
+                .tag("priority", priority)
+                .register(meterRegistry);
+    }
+}
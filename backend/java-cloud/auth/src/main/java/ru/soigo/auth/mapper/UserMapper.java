@@ -0,0 +1,58 @@
+package ru.soigo.auth.mapper;
+
+import ru.soigo.auth.dto.request.UserRequest;
+import ru.soigo.auth.dto.response.UserResponse;
+import ru.soigo.auth.dto.shared.ObjectWithUUID;
+import ru.soigo.auth.model.BaseModel;
+import ru.soigo.auth.model.User;
+
+/**
+ * Mapper interface converting between the user entity and its DTOs.
+ * <p>
+ * Mapping follows the rules the service used with ModelMapper in the strict matching strategy: only properties
+ * with the same name are copied, properties missing on the source side stay {@code null}, {@code null} values are
+ * copied as {@code null}, and a {@code null} source is rejected with an {@link IllegalArgumentException}.
+ * Validation of the requests is left to Bean Validation on the controllers, as before.
+ * </p>
+ *
+ * <p><b>Methods:</b></p>
+ * <ul>
+ *   <li>{@link #toUser(UserRequest)} - Creates a user entity from a registration request.</li>
+ *   <li>{@link #toResponse(User)} - Creates the response DTO of a user.</li>
+ *   <li>{@link #toObjectWithUUID(BaseModel)} - Creates a DTO carrying only the id of an entity.</li>
+ * </ul>
+ *
+ * @see ru.soigo.auth.mapper.impl.UserMapperImpl
+ */
+public interface UserMapper {
+
+    /**
+     * Creates a user entity from a registration request.
+     * <p>
+     * The id, roles and timestamps are not part of the request and stay {@code null}.
+     * </p>
+     *
+     * @param userRequest the registration request
+     * @return the new, unsaved user entity
+     * @throws IllegalArgumentException if the request is {@code null}
+     */
+    User toUser(UserRequest userRequest);
+
+    /**
+     * Creates the response DTO of a user, with the roles as their names.
+     *
+     * @param user the user entity
+     * @return the response DTO
+     * @throws IllegalArgumentException if the user is {@code null}
+     */
+    UserResponse toResponse(User user);
+
+    /**
+     * Creates a DTO carrying only the id of an entity.
+     *
+     * @param model the entity
+     * @return the DTO with the id of the entity
+     * @throws IllegalArgumentException if the entity is {@code null}
+     */
+    ObjectWithUUID toObjectWithUUID(BaseModel model);
+}
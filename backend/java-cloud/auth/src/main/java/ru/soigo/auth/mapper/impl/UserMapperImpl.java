@@ -0,0 +1,78 @@
+package ru.soigo.auth.mapper.impl;
+
+import org.springframework.stereotype.Component;
+import ru.soigo.auth.dto.request.UserRequest;
+import ru.soigo.auth.dto.response.UserResponse;
+import ru.soigo.auth.dto.shared.ObjectWithUUID;
+import ru.soigo.auth.mapper.UserMapper;
+import ru.soigo.auth.model.BaseModel;
+import ru.soigo.auth.model.Role;
+import ru.soigo.auth.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written implementation of {@link UserMapper}.
+ * <p>
+ * Properties are copied with plain getter and setter calls, without reflection, introspection or a type map to
+ * build on the first call, so the first registration after a start costs the same as any other.
+ * </p>
+ *
+ * @see UserMapper
+ */
+@Component
+public class UserMapperImpl implements UserMapper {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public User toUser(UserRequest userRequest) {
+        requireSource(userRequest);
+        User user = new User();
+        user.setUsername(userRequest.getUsername());
+        user.setPassword(userRequest.getPassword());
+        user.setEmail(userRequest.getEmail());
+        user.setFirst_name(userRequest.getFirst_name());
+        user.setLast_name(userRequest.getLast_name());
+        return user;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public UserResponse toResponse(User user) {
+        requireSource(user);
+        UserResponse userResponse = new UserResponse();
+        userResponse.setId(user.getId());
+        userResponse.setUsername(user.getUsername());
+        userResponse.setEmail(user.getEmail());
+        userResponse.setFirst_name(user.getFirst_name());
+        userResponse.setLast_name(user.getLast_name());
+        if (user.getRoles() != null) {
+            List<String> roles = new ArrayList<>(user.getRoles().size());
+            for (Role role : user.getRoles()) {
+                roles.add(role.name());
+            }
+            userResponse.setRoles(roles);
+        }
+        return userResponse;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ObjectWithUUID toObjectWithUUID(BaseModel model) {
+        requireSource(model);
+        return new ObjectWithUUID(model.getId());
+    }
+
+    private static void requireSource(Object source) {
+        if (source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+    }
+}
@@ -5,6 +5,7 @@ import lombok.*;
 import lombok.experimental.SuperBuilder;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import ru.soigo.auth.model.id.UuidV7;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -33,7 +34,8 @@ import java.util.UUID;
  *
  * <p><b>Fields:</b></p>
  * <ul>
- *   <li>{@code id} - A unique identifier for the entity. It is auto-generated using UUID strategy.</li>
+ *   <li>{@code id} - A unique identifier for the entity. It is generated as a time-ordered UUIDv7, so new rows
+ *       are appended to the primary key index instead of being scattered over it.</li>
  *   <li>{@code createdAt} - A timestamp indicating when the entity was created. It is set automatically and is not updatable.</li>
  *   <li>{@code updatedAt} - A timestamp indicating the last time the entity was updated. It is set automatically.</li>
  * </ul>
@@ -48,6 +50,7 @@ import java.util.UUID;
  * }</pre>
  *
  * @see MappedSuperclass
+ * @see UuidV7
  * @see AllArgsConstructor
  * @see NoArgsConstructor
  * @see SuperBuilder
@@ -64,7 +67,7 @@ import java.util.UUID;
 @Setter
 public class BaseModel {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidV7
     UUID id;
 
     @CreationTimestamp
@@ -4,6 +4,11 @@ package ru.soigo.auth.model;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Represents the roles that can be assigned to a user within the system.
  * <p>
@@ -27,12 +32,52 @@ import org.springframework.security.core.GrantedAuthority;
  *                 .build();
  * }</pre>
  *
+ * <p>
+ * Compact access tokens carry the roles as a bitmask in which bit {@code n} stands for the role with ordinal
+ * {@code n}, so new roles must only ever be appended to this enum.
+ * </p>
+ *
  * @see GrantedAuthority
  * @see User
  */
 public enum Role implements GrantedAuthority {
     ROLE_USER,
     ROLE_ADMIN;
+
+    static final Role[] VALUES = values();
+
+    /**
+     * Encodes roles as a bitmask.
+     *
+     * @param authorities the roles to encode; authorities that are not roles are ignored.
+     * @return the bitmask with the bit of every role set.
+     */
+    public static int toMask(@NotNull Collection<? extends GrantedAuthority> authorities) {
+        int mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            if (authority instanceof Role role) {
+                mask |= 1 << role.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Decodes roles from a bitmask.
+     *
+     * @param mask the bitmask created by {@link #toMask(Collection)}.
+     * @return the roles whose bits are set; bits of unknown roles are ignored.
+     */
+    public static @NotNull Set<Role> fromMask(int mask) {
+        Set<Role> roles = EnumSet.noneOf(Role.class);
+        for (Role role : VALUES) {
+            if ((mask & (1 << role.ordinal())) != 0) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
     /**
      * Returns the authority granted by this role.
      *
@@ -0,0 +1,29 @@
+package ru.soigo.auth.model.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an identifier as generated by {@link UuidV7Generator}.
+ * <p>
+ * Replaces {@code @GeneratedValue} on {@link java.util.UUID} identifiers that should be time-ordered.
+ * </p>
+ *
+ * <p><b>Example Usage:</b></p>
+ * <pre>{@code
+ * @Id
+ * @UuidV7
+ * UUID id;
+ * }</pre>
+ *
+ * @see UuidV7Generator
+ */
+@IdGeneratorType(UuidV7Generator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface UuidV7 {
+}
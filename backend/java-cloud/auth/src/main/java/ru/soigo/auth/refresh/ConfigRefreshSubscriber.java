@@ -0,0 +1,166 @@
+package ru.soigo.auth.refresh;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Component that subscribes to refresh notifications of the config server and reloads the configuration when
+ * they arrive.
+ * <p>
+ * The subscription is a server-sent event stream at {@code {spring.cloud.config.uri}subscriptions/{application}}.
+ * On a {@code refresh} event the environment is reloaded through {@link ContextRefresher} after a random delay
+ * of up to {@code config.refresh.max-jitter}, so a fleet of instances does not refetch at the same moment. Events
+ * arriving while a refresh is pending are merged into it.
+ * </p>
+ * <p>
+ * Broken or finished subscriptions are reopened with exponential backoff, up to one minute.
+ * </p>
+ *
+ * <p><b>Dependencies:</b></p>
+ * <ul>
+ *   <li>{@link ContextRefresher} - Reloads the environment from the config server.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "config.refresh.enabled", havingValue = "true", matchIfMissing = true)
+public class ConfigRefreshSubscriber {
+    static final String REFRESH_EVENT = "refresh";
+    static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+    final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    final AtomicBoolean refreshPending = new AtomicBoolean();
+    final ContextRefresher contextRefresher;
+    final URI subscriptionUri;
+    final Duration maxJitter;
+
+    volatile boolean running = true;
+    Thread thread;
+
+    /**
+     * Constructs a new instance of {@link ConfigRefreshSubscriber}.
+     *
+     * @param contextRefresher the refresher reloading the environment.
+     * @param configUri        the base URI of the config server.
+     * @param application      the application name to subscribe for.
+     * @param maxJitter        the upper bound of the random delay before a refresh.
+     */
+    @Autowired
+    public ConfigRefreshSubscriber(
+            ContextRefresher contextRefresher,
+            @Value("${spring.cloud.config.uri}") String configUri,
+            @Value("${spring.application.name}") String application,
+            @Value("${config.refresh.max-jitter:5s}") Duration maxJitter
+    ) {
+        this.contextRefresher = contextRefresher;
+        this.subscriptionUri = URI.create((configUri.endsWith("/") ? configUri : configUri + "/")
+                + "subscriptions/" + application);
+        this.maxJitter = maxJitter;
+    }
+
+    /**
+     * Opens the subscription once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        thread = Thread.ofVirtual().name("config-refresh-subscriber").start(this::subscribe);
+    }
+
+    /**
+     * Closes the subscription on shutdown.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void subscribe() {
+        Duration backoff = MIN_BACKOFF;
+        while (running) {
+            try {
+                HttpRequest request = HttpRequest
+                        .newBuilder(subscriptionUri)
+                        .header("Accept", "text/event-stream")
+                        .GET()
+                        .build();
+                HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+                if (response.statusCode() == 200) {
+                    log.info("Subscribed to configuration refresh notifications at {}", subscriptionUri);
+                    backoff = MIN_BACKOFF;
+                    try (Stream<String> lines = response.body()) {
+                        readEvents(lines.iterator());
+                    }
+                } else {
+                    log.debug("Refresh subscription rejected with status {}", response.statusCode());
+                }
+            } catch (IOException | UncheckedIOException exception) {
+                log.debug("Refresh subscription failed: {}", exception.getMessage());
+            } catch (InterruptedException exception) {
+                return;
+            }
+
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException exception) {
+                return;
+            }
+            backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+        }
+    }
+
+    private void readEvents(Iterator<String> lines) {
+        String event = null;
+        while (running && lines.hasNext()) {
+            String line = lines.next();
+            if (line.startsWith("event:")) {
+                event = line.substring("event:".length()).trim();
+            } else if (line.isEmpty()) {
+                if (REFRESH_EVENT.equals(event)) {
+                    scheduleRefresh();
+                }
+                event = null;
+            }
+        }
+    }
+
+    private void scheduleRefresh() {
+        if (!refreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        long delay = maxJitter.isZero() ? 0 : ThreadLocalRandom.current().nextLong(maxJitter.toMillis() + 1);
+        Thread.ofVirtual().name("config-refresh").start(() -> {
+            try {
+                Thread.sleep(delay);
+                refreshPending.set(false);
+                Set<String> keys = contextRefresher.refresh();
+                log.info("Configuration refreshed, changed keys: {}", keys);
+            } catch (InterruptedException exception) {
+                refreshPending.set(false);
+            }
+        });
+    }
+}
@@ -2,6 +2,7 @@ package ru.soigo.auth.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.soigo.auth.model.User;
 
 import java.util.Optional;
@@ -13,6 +14,12 @@ import java.util.UUID;
  * This interface extends {@link JpaRepository} to provide CRUD operations and
  * custom query methods for {@code User} entities.
  * </p>
+ * <p>
+ * Spring Data runs derived query methods without a transaction of their own, so the lookups are marked read-only
+ * transactional here. Only then is their connection flagged read-only before the first statement and routed to a
+ * replica by {@link ru.soigo.auth.config.DataSourceConfig}; inside a read-write transaction they join it and stay
+ * on the primary.
+ * </p>
  *
  * @see User
  * @see JpaRepository
@@ -26,6 +33,7 @@ public interface UserRepository extends JpaRepository<User, UUID> {
      * @param username the username to search for
      * @return an {@link Optional} containing the found user, or empty if no user was found
      */
+    @Transactional(readOnly = true)
     Optional<User> findByUsername(String username);
 
     /**
@@ -34,5 +42,6 @@ public interface UserRepository extends JpaRepository<User, UUID> {
      * @param username the username to check
      * @return {@code true} if a user with the given username exists, {@code false} otherwise
      */
+    @Transactional(readOnly = true)
     boolean existsByUsername(String username);
 }
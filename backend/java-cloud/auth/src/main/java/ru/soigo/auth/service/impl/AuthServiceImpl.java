@@ -1,13 +1,18 @@
 package ru.soigo.auth.service.impl;
 
-import io.jsonwebtoken.JwtException;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import ru.soigo.auth.deadline.DeadlineContextHolder;
+import ru.soigo.auth.exception.InvalidTokenException;
 import ru.soigo.auth.jwt.dto.PairToken;
+import ru.soigo.auth.jwt.revocation.TokenRevokedEvent;
 import ru.soigo.auth.jwt.service.JwtService;
 import ru.soigo.auth.jwt.service.RedisService;
 import ru.soigo.auth.model.User;
@@ -20,6 +25,19 @@ import ru.soigo.auth.service.UserService;
  * Provides methods for user registration, login, and refreshing
  * authentication tokens using {@link JwtService} and {@link UserService}.
  * </p>
+ * <p>
+ * Sessions ended by a refresh or a logout are announced as {@link TokenRevokedEvent}, from which
+ * {@link ru.soigo.auth.jwt.revocation.RevocationFilter} learns that their access tokens are revoked.
+ * </p>
+ * <p>
+ * The password check of a login is observed as {@code auth.password.verification}: it is the costliest step of a
+ * login and, unlike the user lookup and the session store, not traced otherwise.
+ * </p>
+ * <p>
+ * The deadline of the request is checked before each stage up to the first state change, which commits the
+ * operation through {@link DeadlineContextHolder#commit(String)}: a refresh looks the user up before it ends the old
+ * session, so a late request never leaves the caller without a session.
+ * </p>
  */
 @Slf4j
 @Service
@@ -29,6 +47,8 @@ public class AuthServiceImpl implements AuthService {
     final JwtService jwtService;
     final RedisService redisService;
     final PasswordEncoder passwordEncoder;
+    final ApplicationEventPublisher eventPublisher;
+    final ObservationRegistry observationRegistry;
 
     /**
      * {@inheritDoc}
@@ -36,6 +56,7 @@ public class AuthServiceImpl implements AuthService {
     @Override
     public PairToken register(@NotNull User user) {
         log.info("Registering user with username: {}", user.getUsername());
+        DeadlineContextHolder.check("user creation");
         User createUser = userService.create(user);
         PairToken pairToken = jwtService.generatePairToken(createUser);
         log.debug("Generated tokens for user {}: {}", user.getUsername(), pairToken);
@@ -48,12 +69,19 @@ public class AuthServiceImpl implements AuthService {
     @Override
     public PairToken login(String username, String rawPassword) {
         log.info("User attempting to login with username: {}", username);
+        DeadlineContextHolder.check("user lookup");
         User findUser = userService.findByUsername(username);
 
-        if (!passwordEncoder.matches(rawPassword, findUser.getPassword())) {
+        DeadlineContextHolder.check("password verification");
+        Boolean matches = Observation
+                .createNotStarted("auth.password.verification", observationRegistry)
+                .contextualName("verify password")
+                .observe(() -> passwordEncoder.matches(rawPassword, findUser.getPassword()));
+        if (!Boolean.TRUE.equals(matches)) {
             log.warn("Invalid password for user: {}", username);
             throw new BadCredentialsException("Invalid password");
         }
+        DeadlineContextHolder.check("token issue");
         PairToken pairToken = jwtService.generatePairToken(findUser);
         log.debug("Generated tokens for user {}: {}", username, pairToken);
         return pairToken;
@@ -65,17 +93,22 @@ public class AuthServiceImpl implements AuthService {
     @Override
     public PairToken updatePairTokenByRefreshToken(String refreshToken) {
         log.info("Updating pair token using refresh token");
+        DeadlineContextHolder.check("refresh token validation");
         if (!jwtService.validateRefreshToken(refreshToken)) {
             log.warn("Invalid refresh token provided");
-            throw new JwtException("Invalid refresh token");
+            throw new InvalidTokenException("Invalid refresh token");
         }
         String username = jwtService.getUsernameFromToken(refreshToken);
         String uuid = jwtService.getUUIDFormToken(refreshToken);
 
+        DeadlineContextHolder.check("user lookup");
+        User findUser = userService.findByUsername(username);
+
+        DeadlineContextHolder.commit("session store");
         redisService.removeToken(username, uuid);
+        eventPublisher.publishEvent(new TokenRevokedEvent(username, uuid));
         log.debug("Token with UUID {} removed for user: {}", uuid, username);
 
-        User findUser = userService.findByUsername(username);
         PairToken pairToken = jwtService.generatePairToken(findUser);
         log.debug("Generated new tokens for user {}: {}", username, pairToken);
         return pairToken;
@@ -91,6 +124,7 @@ public class AuthServiceImpl implements AuthService {
 
         log.info("Logging out current device for user: {}", username);
         redisService.removeToken(username, uuid);
+        eventPublisher.publishEvent(new TokenRevokedEvent(username, uuid));
         log.debug("Token with UUID {} removed for user: {}", uuid, username);
     }
 
@@ -103,6 +137,7 @@ public class AuthServiceImpl implements AuthService {
 
         log.info("Logging out all devices for user: {}", username);
         redisService.removeAllTokens(username);
+        eventPublisher.publishEvent(new TokenRevokedEvent(username, null));
         log.debug("All tokens removed for user: {}", username);
     }
 
@@ -7,12 +7,16 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.soigo.auth.datasource.PrimaryStickiness;
+import ru.soigo.auth.deadline.DeadlineContextHolder;
 import ru.soigo.auth.exception.AlreadyUserException;
 import ru.soigo.auth.model.Role;
 import ru.soigo.auth.model.User;
 import ru.soigo.auth.repository.UserRepository;
 import ru.soigo.auth.service.UserService;
 
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -22,17 +26,27 @@ import java.util.Set;
  * and changing user passwords. It integrates with Spring Security and uses a {@link PasswordEncoder}
  * to handle password encryption.
  * </p>
+ * <p>
+ * Lookups run in the read-only transactions of the repository and are served by a replica when replicas are
+ * configured. Lookups that precede a write, and the lookups of a user who wrote within the sticky window of
+ * {@link PrimaryStickiness}, run in a read-write transaction and are served by the primary. Password hashing
+ * stays outside of transactions, so no connection is held while it runs.
+ * </p>
  *
  * <p><b>Dependencies:</b></p>
  * <ul>
  *   <li>{@link UserRepository} - Repository for accessing user data.</li>
  *   <li>{@link PasswordEncoder} - Encoder for encrypting user passwords.</li>
+ *   <li>{@link PrimaryStickiness} - Tracks users whose reads must go to the primary.</li>
+ *   <li>{@link TransactionTemplate} - Runs lookups in read-write transactions on the primary.</li>
  * </ul>
  *
  * <p><b>Fields:</b></p>
  * <ul>
  *   <li>{@code userRepository} - Final reference to the user repository.</li>
  *   <li>{@code passwordEncoder} - Final reference to the password encoder.</li>
+ *   <li>{@code primaryStickiness} - Final reference to the tracker of recent writes.</li>
+ *   <li>{@code transactionTemplate} - Final reference to the template of read-write transactions.</li>
  *   <li>{@code defaultRoles} - Static set of default roles assigned to new users.</li>
  * </ul>
  *
@@ -47,6 +61,8 @@ import java.util.Set;
 public class UserServiceImpl implements UserService {
     final UserRepository userRepository;
     final PasswordEncoder passwordEncoder;
+    final PrimaryStickiness primaryStickiness;
+    final TransactionTemplate transactionTemplate;
     static final Set<Role> defaultRoles = Set.of(Role.ROLE_USER);
 
     /**
@@ -67,14 +83,18 @@ public class UserServiceImpl implements UserService {
     public User create(@NotNull User user) {
         log.info("Creating new user with username: {}", user.getUsername());
 
-        if (userRepository.existsByUsername(user.getUsername())) {
+        Boolean exists = transactionTemplate.execute(status -> userRepository.existsByUsername(user.getUsername()));
+        if (Boolean.TRUE.equals(exists)) {
             log.warn("Attempt to create a user with an existing username: {}", user.getUsername());
             throw new AlreadyUserException(String.format("Username: %s already exist", user.getUsername()));
         }
 
+        DeadlineContextHolder.check("password hashing");
         user.setRoles(defaultRoles);
         user.setPassword(passwordEncoder.encode(user.getPassword()));
+        DeadlineContextHolder.commit("user insert");
         User createdUser = userRepository.save(user);
+        primaryStickiness.markWritten(createdUser.getUsername());
         log.debug("Created user with username: {}", createdUser.getUsername());
         return createdUser;
     }
@@ -85,8 +105,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public User findByUsername(String username) {
         log.info("Finding user by username: {}", username);
-        User user = userRepository
-                .findByUsername(username)
+        User user = lookup(username, primaryStickiness.isSticky(username))
                 .orElseThrow(() -> {
                     log.warn("Username not found: {}", username);
                     return new UsernameNotFoundException("Not found username: " + username);
@@ -101,10 +120,27 @@ public class UserServiceImpl implements UserService {
     @Override
     public User changePassword(String username, String newRawPassword) {
         log.info("Changing password for user: {}", username);
-        User user = findByUsername(username);
+        User user = lookup(username, true)
+                .orElseThrow(() -> new UsernameNotFoundException("Not found username: " + username));
         user.setPassword(passwordEncoder.encode(newRawPassword));
         User updatedUser = userRepository.save(user);
+        primaryStickiness.markWritten(username);
         log.debug("Password changed for user: {}", updatedUser.getUsername());
         return updatedUser;
     }
+
+    /**
+     * Looks up a user by username.
+     *
+     * @param username the username to search for.
+     * @param primary  whether the lookup must be served by the primary.
+     * @return the found user, or empty if no user was found.
+     */
+    private Optional<User> lookup(String username, boolean primary) {
+        if (!primary) {
+            return userRepository.findByUsername(username);
+        }
+        log.debug("Reading user {} from the primary", username);
+        return transactionTemplate.execute(status -> userRepository.findByUsername(username));
+    }
 }
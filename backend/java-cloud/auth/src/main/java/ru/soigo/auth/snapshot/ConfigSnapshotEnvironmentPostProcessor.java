@@ -0,0 +1,104 @@
+package ru.soigo.auth.snapshot;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Starts the application from the local config snapshot instead of waiting for the config server.
+ * <p>
+ * The post-processor runs twice during startup. In the bootstrap environment (the one reading
+ * {@code bootstrap.properties}) it reads the snapshot and, if it is valid, disables the config server fetch with
+ * {@code spring.cloud.config.enabled=false}. In the application environment it then adds the snapshot as the
+ * {@value #PROPERTY_SOURCE_NAME} property source, with the same precedence remote configuration would have.
+ * </p>
+ * <p>
+ * Only the first startup is served from the snapshot. Later bootstrap runs, such as those of a context refresh,
+ * fetch from the config server as usual. Without a valid snapshot the application starts exactly as before.
+ * Setting {@code config.snapshot.enabled=false} turns the snapshot off.
+ * </p>
+ * <p>
+ * The snapshot holds no secrets, which must then be set locally, for example as environment variables; a snapshot
+ * whose secrets are not set is not used. It is stored in {@code config.snapshot.path}, by default
+ * {@code ~/.config-snapshot/<application>.properties} rather than the shared temporary directory, and only its
+ * owner can read it.
+ * </p>
+ *
+ * @see ConfigSnapshotStore
+ * @see ConfigSnapshotReconciler
+ */
+public class ConfigSnapshotEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+    /**
+     * Name of the property source holding the snapshot in the application environment.
+     */
+    public static final String PROPERTY_SOURCE_NAME = "configSnapshot";
+    static final String BOOTSTRAP_PROPERTY_SOURCE_NAME = "configSnapshotBootstrap";
+
+    static final AtomicBoolean firstBootstrap = new AtomicBoolean(true);
+    static volatile Map<String, String> bootSnapshot;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty("config.snapshot.enabled", Boolean.class, true)) {
+            return;
+        }
+
+        if ("bootstrap".equals(environment.getProperty("spring.config.name"))) {
+            if (!firstBootstrap.compareAndSet(true, false)) {
+                return;
+            }
+            Map<String, String> snapshot = new ConfigSnapshotStore(snapshotPath(environment))
+                    .read(environment::containsProperty);
+            if (snapshot != null) {
+                bootSnapshot = snapshot;
+                environment.getPropertySources().addFirst(new MapPropertySource(
+                        BOOTSTRAP_PROPERTY_SOURCE_NAME,
+                        Map.of("spring.cloud.config.enabled", "false")
+                ));
+            }
+            return;
+        }
+
+        Map<String, String> snapshot = bootSnapshot;
+        if (snapshot != null && !environment.getPropertySources().contains(PROPERTY_SOURCE_NAME)) {
+            bootSnapshot = null;
+            environment.getPropertySources().addFirst(new MapPropertySource(
+                    PROPERTY_SOURCE_NAME,
+                    new ConcurrentHashMap<>(snapshot)
+            ));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    /**
+     * Resolves the snapshot file of the application.
+     *
+     * @param environment the application environment.
+     * @return the snapshot file.
+     */
+    public static Path snapshotPath(Environment environment) {
+        String applicationName = environment.getProperty("spring.application.name", "application");
+        String defaultPath = Path
+                .of(System.getProperty("user.home"), ".config-snapshot", applicationName + ".properties")
+                .toString();
+        return Path.of(environment.getProperty("config.snapshot.path", defaultPath));
+    }
+}
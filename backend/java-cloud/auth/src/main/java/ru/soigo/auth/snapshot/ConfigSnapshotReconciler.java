@@ -0,0 +1,251 @@
+package ru.soigo.auth.snapshot;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.config.client.ConfigClientProperties;
+import org.springframework.cloud.config.client.ConfigServicePropertySourceLocator;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.CompositePropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Component that keeps the local config snapshot in sync with the config server.
+ * <p>
+ * When the application started from the snapshot, the environment is fetched from the config server in the
+ * background once the application is ready, retrying every {@code config.snapshot.retry-interval} while the
+ * server is unavailable. Changed properties are then applied to the running application only if they are
+ * refresh-safe: properties under {@code config.snapshot.restart-required-prefixes} (data sources, Redis, server
+ * and instance settings, JWT keys) are bound once at startup, so their changes are only logged and take effect
+ * with the next restart. Applied changes are announced with {@link EnvironmentChangeEvent}, like a regular
+ * refresh.
+ * </p>
+ * <p>
+ * When the application started from the config server, or after a context refresh, the fetched configuration is
+ * written to the snapshot, so the next startup can use it. Secrets are left out of the snapshot and compared with
+ * their local values instead.
+ * </p>
+ * <p>
+ * Background fetches are observed as {@code config.fetch}, so a slow config server shows up in traces; the fetch of
+ * the bootstrap context happens before tracing is set up.
+ * </p>
+ *
+ * <p><b>Dependencies:</b></p>
+ * <ul>
+ *   <li>{@link ApplicationContext} - Publishes change events.</li>
+ *   <li>{@link ConfigurableEnvironment} - The environment holding the snapshot and remote property sources.</li>
+ *   <li>{@link ObservationRegistry} - Observes the config server fetches.</li>
+ * </ul>
+ *
+ * @see ConfigSnapshotEnvironmentPostProcessor
+ * @see ConfigSnapshotStore
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "config.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+public class ConfigSnapshotReconciler {
+    static final String REMOTE_SOURCE_MARKER = "configserver:";
+
+    final ApplicationContext applicationContext;
+    final ConfigurableEnvironment environment;
+    final ConfigSnapshotStore store;
+    final ObservationRegistry observationRegistry;
+    final List<String> restartRequiredPrefixes;
+    final Duration retryInterval;
+
+    volatile String lastChecksum;
+
+    /**
+     * Constructs a new instance of {@link ConfigSnapshotReconciler}.
+     *
+     * @param applicationContext      the context publishing change events.
+     * @param environment             the application environment.
+     * @param observationRegistry     the registry observing the config server fetches.
+     * @param restartRequiredPrefixes the prefixes of properties that are only applied on restart.
+     * @param retryInterval           the interval between fetch attempts while the config server is unavailable.
+     */
+    @Autowired
+    public ConfigSnapshotReconciler(
+            ApplicationContext applicationContext,
+            ConfigurableEnvironment environment,
+            ObservationRegistry observationRegistry,
+            @Value("${config.snapshot.restart-required-prefixes:spring.datasource.,spring.data.redis.,spring.jpa.,"
+                    + "server.,spring.application.,eureka.instance.,management.server.,jwt.,datasource.replica.,"
+                    + "session.store,session.resilience.,tracing.,management.tracing.,jdbc.}")
+            List<String> restartRequiredPrefixes,
+            @Value("${config.snapshot.retry-interval:30s}") Duration retryInterval
+    ) {
+        this.applicationContext = applicationContext;
+        this.environment = environment;
+        this.store = new ConfigSnapshotStore(ConfigSnapshotEnvironmentPostProcessor.snapshotPath(environment));
+        this.observationRegistry = observationRegistry;
+        this.restartRequiredPrefixes = restartRequiredPrefixes;
+        this.retryInterval = retryInterval;
+    }
+
+    /**
+     * Starts the background reconciliation once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!environment.getPropertySources().contains(ConfigSnapshotEnvironmentPostProcessor.PROPERTY_SOURCE_NAME)) {
+            writeFromEnvironment();
+            return;
+        }
+        Thread.ofVirtual().name("config-snapshot-reconciler").start(() -> {
+            try {
+                while (!reconcile()) {
+                    Thread.sleep(retryInterval);
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Writes the snapshot after a context refresh has fetched a new configuration. From then on the fetched
+     * property sources are authoritative and the snapshot property source is removed.
+     *
+     * @param event the event published after environment changes.
+     */
+    @EventListener(EnvironmentChangeEvent.class)
+    public void onEnvironmentChanged(EnvironmentChangeEvent event) {
+        if (event.getSource() != this && writeFromEnvironment()) {
+            environment.getPropertySources().remove(ConfigSnapshotEnvironmentPostProcessor.PROPERTY_SOURCE_NAME);
+        }
+    }
+
+    /**
+     * Fetches the configuration from the config server and applies its refresh-safe changes.
+     *
+     * @return {@code true} if the configuration was fetched.
+     */
+    boolean reconcile() {
+        PropertySource<?> remote = fetch();
+        if (remote == null) {
+            log.info("Config server unavailable, running on config snapshot, retrying in {}", retryInterval);
+            return false;
+        }
+        Map<String, String> fetched = flatten(List.of(remote));
+        MapPropertySource snapshotSource = (MapPropertySource) environment
+                .getPropertySources()
+                .get(ConfigSnapshotEnvironmentPostProcessor.PROPERTY_SOURCE_NAME);
+        if (snapshotSource == null) {
+            return true;
+        }
+
+        Map<String, Object> current = snapshotSource.getSource();
+        Set<String> applied = new HashSet<>();
+        Set<String> deferred = new HashSet<>();
+        Set<String> keys = new HashSet<>(current.keySet());
+        keys.addAll(fetched.keySet());
+        for (String key : keys) {
+            String value = fetched.get(key);
+            Object currentValue = current.containsKey(key) || !ConfigSnapshotStore.isSecret(key)
+                    ? current.get(key)
+                    : environment.getProperty(key);
+            if (Objects.equals(value, currentValue)) {
+                continue;
+            }
+            if (restartRequiredPrefixes.stream().anyMatch(key::startsWith)) {
+                deferred.add(key);
+            } else if (value == null) {
+                current.remove(key);
+                applied.add(key);
+            } else {
+                current.put(key, value);
+                applied.add(key);
+            }
+        }
+
+        if (!applied.isEmpty()) {
+            applicationContext.publishEvent(new EnvironmentChangeEvent(this, applied));
+        }
+        if (!deferred.isEmpty()) {
+            log.warn("Config server changed properties that require a restart: {}", deferred);
+        }
+        log.info("Reconciled config snapshot with config server, applied {} changes", applied.size());
+        write(fetched);
+        return true;
+    }
+
+    private @Nullable PropertySource<?> fetch() {
+        try {
+            ConfigClientProperties properties = new ConfigClientProperties(environment);
+            Binder.get(environment).bind(ConfigClientProperties.PREFIX, Bindable.ofInstance(properties));
+            return Observation
+                    .createNotStarted("config.fetch", observationRegistry)
+                    .contextualName("config server fetch")
+                    .observe(() -> new ConfigServicePropertySourceLocator(properties).locate(environment));
+        } catch (RuntimeException exception) {
+            log.debug("Config server fetch failed: {}", exception.getMessage());
+            return null;
+        }
+    }
+
+    private boolean writeFromEnvironment() {
+        List<PropertySource<?>> remote = environment
+                .getPropertySources()
+                .stream()
+                .filter(source -> source.getName().contains(REMOTE_SOURCE_MARKER))
+                .toList();
+        if (remote.isEmpty()) {
+            return false;
+        }
+        write(flatten(remote));
+        return true;
+    }
+
+    private void write(Map<String, String> snapshot) {
+        String checksum = ConfigSnapshotStore.checksum(snapshot);
+        if (!checksum.equals(lastChecksum)) {
+            store.write(snapshot);
+            lastChecksum = checksum;
+        }
+    }
+
+    private static Map<String, String> flatten(Collection<PropertySource<?>> sources) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (PropertySource<?> source : sources) {
+            if (source instanceof CompositePropertySource composite) {
+                List<PropertySource<?>> nested = composite
+                        .getPropertySources()
+                        .stream()
+                        .filter(candidate -> candidate.getName().contains(REMOTE_SOURCE_MARKER))
+                        .toList();
+                flatten(nested).forEach(properties::putIfAbsent);
+            } else if (source instanceof EnumerablePropertySource<?> enumerable) {
+                for (String name : enumerable.getPropertyNames()) {
+                    Object value = enumerable.getProperty(name);
+                    if (value != null) {
+                        properties.putIfAbsent(name, value.toString());
+                    }
+                }
+            }
+        }
+        return properties;
+    }
+}
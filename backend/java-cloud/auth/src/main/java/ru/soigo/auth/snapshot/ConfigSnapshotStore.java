@@ -0,0 +1,200 @@
+package ru.soigo.auth.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Reads and writes snapshots of the environment fetched from the config server to a local file.
+ * <p>
+ * Snapshots are stored as a properties file with an additional {@value #CHECKSUM_KEY} entry holding the SHA-256
+ * checksum of all other entries. A snapshot whose checksum does not match, for example after a partial copy or a
+ * manual edit, is ignored. Writes go to a temporary file that is atomically moved over the previous snapshot.
+ * </p>
+ * <p>
+ * Secrets are never written: properties whose last name segment ends with {@code password}, {@code secret},
+ * {@code key}, {@code token} or {@code credentials} are left out and only their names are recorded in
+ * {@value #OMITTED_KEY}. A snapshot is only used if every omitted secret can be resolved locally, typically from an
+ * environment variable such as {@code JWT_SECRET}; otherwise the application fetches its configuration from the
+ * config server as if there were no snapshot. On POSIX file systems, the snapshot and the directories created for it
+ * are only accessible to their owner.
+ * </p>
+ *
+ * <p><b>Example Usage:</b></p>
+ * <pre>{@code
+ * ConfigSnapshotStore store = new ConfigSnapshotStore(Path.of("/var/lib/auth/config-snapshot.properties"));
+ * store.write(Map.of("jwt.access.expiration", "60000"));
+ * Map<String, String> properties = store.read(environment::containsProperty);
+ * }</pre>
+ */
+@Slf4j
+public class ConfigSnapshotStore {
+    static final String CHECKSUM_KEY = "config.snapshot.checksum";
+    static final String OMITTED_KEY = "config.snapshot.omitted";
+    static final List<String> SECRET_SUFFIXES = List.of("password", "secret", "key", "token", "credentials");
+    static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+    final Path path;
+
+    /**
+     * Constructs a new store backed by the given file.
+     *
+     * @param path the snapshot file.
+     */
+    public ConfigSnapshotStore(@NotNull Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Reads the last written snapshot.
+     *
+     * @param secretAvailable tells whether a secret left out of the snapshot can be resolved locally.
+     * @return the snapshot properties, without the secrets, or {@code null} if there is none, it is corrupted or a
+     * secret left out of it is not available.
+     */
+    public @Nullable Map<String, String> read(@NotNull Predicate<String> secretAvailable) {
+        if (!Files.isRegularFile(path)) {
+            log.info("No config snapshot found at: {}", path);
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException exception) {
+            log.warn("Failed to read config snapshot from {}: {}", path, exception.getMessage());
+            return null;
+        }
+
+        String checksum = (String) properties.remove(CHECKSUM_KEY);
+        Map<String, String> snapshot = new TreeMap<>();
+        properties.forEach((key, value) -> snapshot.put((String) key, (String) value));
+        if (checksum == null || !checksum.equals(checksum(snapshot))) {
+            log.warn("Ignoring config snapshot with invalid checksum at: {}", path);
+            return null;
+        }
+        String omitted = snapshot.remove(OMITTED_KEY);
+        if (omitted != null) {
+            List<String> missing = Arrays
+                    .stream(omitted.split(","))
+                    .filter(key -> !secretAvailable.test(key))
+                    .toList();
+            if (!missing.isEmpty()) {
+                log.info("Ignoring config snapshot at {}: secrets {} are not stored in it and not set locally",
+                        path, missing);
+                return null;
+            }
+        }
+        log.info("Loaded config snapshot with {} properties from: {}", snapshot.size(), path);
+        return snapshot;
+    }
+
+    /**
+     * Replaces the snapshot with the given properties, leaving out secrets.
+     *
+     * @param snapshot the properties to store.
+     */
+    public void write(@NotNull Map<String, String> snapshot) {
+        Map<String, String> stored = new TreeMap<>();
+        List<String> omitted = snapshot
+                .keySet()
+                .stream()
+                .filter(ConfigSnapshotStore::isSecret)
+                .sorted()
+                .toList();
+        snapshot.forEach((key, value) -> {
+            if (!isSecret(key)) {
+                stored.put(key, value);
+            }
+        });
+        if (!omitted.isEmpty()) {
+            stored.put(OMITTED_KEY, String.join(",", omitted));
+        }
+        Properties properties = new Properties();
+        properties.putAll(stored);
+        properties.put(CHECKSUM_KEY, checksum(stored));
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+            if (posix && !Files.isDirectory(directory)) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+            } else {
+                Files.createDirectories(directory);
+            }
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            if (posix) {
+                Files.setPosixFilePermissions(temporary, OWNER_ONLY_FILE);
+            }
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Last environment fetched from config-server");
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote config snapshot with {} properties to: {}", snapshot.size(), path);
+        } catch (IOException exception) {
+            log.warn("Failed to write config snapshot to {}: {}", path, exception.getMessage());
+        }
+    }
+
+    /**
+     * Computes the checksum of snapshot properties, independent of their order.
+     *
+     * @param snapshot the snapshot properties.
+     * @return the hex encoded SHA-256 checksum.
+     */
+    public static String checksum(@NotNull Map<String, String> snapshot) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            new TreeMap<>(snapshot).forEach((key, value) -> {
+                digest.update(key.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '=');
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            });
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    /**
+     * Checks whether a property holds a secret, which is never written to the snapshot.
+     *
+     * @param key the property name.
+     * @return {@code true} if the last segment of the name ends with {@code password}, {@code secret}, {@code key},
+     * {@code token} or {@code credentials}.
+     */
+    public static boolean isSecret(@NotNull String key) {
+        String name = key.substring(key.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return SECRET_SUFFIXES.stream().anyMatch(name::endsWith);
+    }
+
+    /**
+     * Returns the snapshot file.
+     *
+     * @return the snapshot file.
+     */
+    public @NotNull Path getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,287 @@
+package ru.soigo.auth.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.appinfo.InstanceInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.netflix.eureka.EurekaInstanceConfigBean;
+import org.springframework.cloud.netflix.eureka.serviceregistry.EurekaRegistration;
+import org.springframework.cloud.netflix.eureka.serviceregistry.EurekaServiceRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import ru.soigo.auth.jwt.claims.TokenClaims;
+import ru.soigo.auth.jwt.dto.PairToken;
+import ru.soigo.auth.jwt.model.ClaimFormat;
+import ru.soigo.auth.jwt.rejection.TokenRejections;
+import ru.soigo.auth.jwt.service.JwtService;
+import ru.soigo.auth.jwt.service.impl.JwtServiceImpl;
+import ru.soigo.auth.model.Role;
+import ru.soigo.auth.model.User;
+import ru.soigo.auth.repository.UserRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Component that warms up the hot code paths of the service before it takes traffic.
+ * <p>
+ * A fresh JVM runs the token, password and persistence code in the interpreter and C1 until C2 has collected enough
+ * profile to compile it, so the first few thousand requests after a deploy are markedly slower. To keep that phase
+ * away from users, the instance registers with Eureka as {@code STARTING}, which clients and the gateway do not
+ * route to, and is switched to {@code UP} only after the warm-up has finished or {@code warm-up.max-duration} has
+ * passed, whichever comes first. Registration proceeds normally if the warm-up fails.
+ * </p>
+ * <p>
+ * Each of the {@code warm-up.iterations} rounds:
+ * </p>
+ * <ul>
+ *   <li>mints a token pair for a synthetic user, validates both tokens, parses their claims and reads the roles,
+ *   user id and session id from them, and every few rounds rejects a forged token twice, the second time from the
+ *   negative cache, and a malformed one;</li>
+ *   <li>serializes the {@link PairToken} to JSON and reads it back;</li>
+ *   <li>every few rounds, hashes and verifies a password, {@code warm-up.password-iterations} times in total;</li>
+ *   <li>every few rounds, looks up a user name that cannot exist through {@link UserRepository},
+ *   {@code warm-up.query-iterations} times in total, which prepares the statements of the login and registration
+ *   queries.</li>
+ * </ul>
+ * <p>
+ * The synthetic users are never persisted and the tokens go to an in-memory {@link WarmUpSessionStore} through a
+ * separate {@link JwtServiceImpl} with its own {@link TokenRejections}, so the warm-up has no side effects on the
+ * database, the session store or the rejection metrics. Its log output is suppressed through the {@code warm-up}
+ * MDC key.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code auth.warmup.duration} - Duration of the warm-up, tagged with its {@code outcome}: {@code completed},
+ *   {@code time_cap} or {@code failed}.</li>
+ * </ul>
+ *
+ * <p><b>Dependencies:</b></p>
+ * <ul>
+ *   <li>{@link PasswordEncoder} - The password hashing to warm up.</li>
+ *   <li>{@link UserRepository} - The queries to warm up.</li>
+ *   <li>{@link ObjectMapper} - The JSON serialization to warm up.</li>
+ *   <li>{@link EurekaServiceRegistry} - Switches the instance to {@code UP}.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class WarmUpRunner {
+    static final String MDC_KEY = "warm-up";
+    static final int SYNTHETIC_USERS = 16;
+    static final int TAMPERED_EVERY = 16;
+
+    final JwtService jwtService;
+    final PasswordEncoder passwordEncoder;
+    final UserRepository userRepository;
+    final ObjectMapper objectMapper;
+    final MeterRegistry meterRegistry;
+    final ObjectProvider<EurekaInstanceConfigBean> instanceConfig;
+    final ObjectProvider<EurekaServiceRegistry> serviceRegistry;
+    final ObjectProvider<EurekaRegistration> registration;
+    final List<User> users;
+    final boolean enabled;
+    final int iterations;
+    final int passwordIterations;
+    final int queryIterations;
+    final Duration maxDuration;
+
+    /**
+     * Constructs a new instance of {@link WarmUpRunner}.
+     * <p>
+     * If the warm-up is enabled, the initial Eureka status of the instance is set to {@code STARTING} here, before
+     * the instance registers.
+     * </p>
+     *
+     * @param passwordEncoder    the password encoder to warm up.
+     * @param userRepository     the repository to warm up.
+     * @param objectMapper       the JSON mapper to warm up.
+     * @param meterRegistry      the registry used to publish the warm-up duration.
+     * @param instanceConfig     the Eureka instance configuration.
+     * @param serviceRegistry    the Eureka service registry.
+     * @param registration       the Eureka registration of this instance.
+     * @param accessExpiration   the expiration time for access tokens in milliseconds.
+     * @param refreshExpiration  the expiration time for refresh tokens in milliseconds.
+     * @param jwtSecret          the secret key used to sign the tokens.
+     * @param claimFormat        the claim format of issued tokens.
+     * @param enabled            whether the warm-up runs at all.
+     * @param iterations         the number of token rounds.
+     * @param passwordIterations the number of password hash and verify rounds.
+     * @param queryIterations    the number of repository lookup rounds.
+     * @param maxDuration        the time after which the instance is switched to {@code UP} regardless.
+     */
+    @Autowired
+    public WarmUpRunner(
+            PasswordEncoder passwordEncoder,
+            UserRepository userRepository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            ObjectProvider<EurekaInstanceConfigBean> instanceConfig,
+            ObjectProvider<EurekaServiceRegistry> serviceRegistry,
+            ObjectProvider<EurekaRegistration> registration,
+            @Value("${jwt.access.expiration}") @NotNull Integer accessExpiration,
+            @Value("${jwt.refresh.expiration}") @NotNull Integer refreshExpiration,
+            @Value("${jwt.secret}") @NotNull String jwtSecret,
+            @Value("${jwt.claims.format:legacy}") @NotNull ClaimFormat claimFormat,
+            @Value("${warm-up.enabled:true}") boolean enabled,
+            @Value("${warm-up.iterations:5000}") int iterations,
+            @Value("${warm-up.password-iterations:20}") int passwordIterations,
+            @Value("${warm-up.query-iterations:50}") int queryIterations,
+            @Value("${warm-up.max-duration:30s}") Duration maxDuration
+    ) {
+        this.jwtService = new JwtServiceImpl(
+                new WarmUpSessionStore(), accessExpiration, refreshExpiration, jwtSecret, claimFormat,
+                new TokenRejections(new SimpleMeterRegistry(), 64, Duration.ofMinutes(1), 0, Duration.ofMinutes(1)),
+                ObservationRegistry.NOOP, null
+        );
+        this.passwordEncoder = passwordEncoder;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.instanceConfig = instanceConfig;
+        this.serviceRegistry = serviceRegistry;
+        this.registration = registration;
+        this.users = IntStream.range(0, SYNTHETIC_USERS).mapToObj(WarmUpRunner::syntheticUser).toList();
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.passwordIterations = passwordIterations;
+        this.queryIterations = queryIterations;
+        this.maxDuration = maxDuration;
+
+        if (enabled) {
+            instanceConfig.ifAvailable(config -> config.setInitialStatus(InstanceInfo.InstanceStatus.STARTING));
+        }
+    }
+
+    /**
+     * Starts the warm-up once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            Thread.ofPlatform().name("auth-warm-up").daemon().start(this::warmUp);
+        }
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        String outcome = "completed";
+        int round = 0;
+        MDC.put(MDC_KEY, "true");
+        try {
+            int passwordEvery = Math.max(1, iterations / Math.max(1, passwordIterations));
+            int queryEvery = Math.max(1, iterations / Math.max(1, queryIterations));
+            boolean queries = queryIterations > 0;
+            for (; round < iterations; round++) {
+                if (System.nanoTime() - deadline > 0) {
+                    outcome = "time_cap";
+                    break;
+                }
+                User user = users.get(round % users.size());
+                exerciseTokens(user, round);
+                if (passwordIterations > 0 && round % passwordEvery == 0) {
+                    exercisePasswords(user);
+                }
+                if (queries && round % queryEvery == 0) {
+                    queries = exerciseQueries();
+                }
+            }
+        } catch (IOException | RuntimeException exception) {
+            outcome = "failed";
+            MDC.remove(MDC_KEY);
+            log.warn("Warm-up failed after {} rounds: {}", round, exception.getMessage());
+        } finally {
+            MDC.remove(MDC_KEY);
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            Timer
+                    .builder("auth.warmup.duration")
+                    .description("Duration of the startup warm-up")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(duration);
+            log.info("Warm-up {} in {} ms ({} of {} rounds)", outcome, duration.toMillis(), round, iterations);
+            markUp();
+        }
+    }
+
+    private void exerciseTokens(@NotNull User user, int round) throws IOException {
+        PairToken pairToken = jwtService.generatePairToken(user);
+        jwtService.validateAccessToken(pairToken.getAccess());
+        jwtService.validateRefreshToken(pairToken.getRefresh());
+        jwtService.getUsernameFromToken(pairToken.getAccess());
+        TokenClaims.roles(jwtService.parseClaims(pairToken.getAccess()));
+        TokenClaims.userId(jwtService.parseClaims(pairToken.getAccess()));
+        if (round % TAMPERED_EVERY == 0) {
+            String access = pairToken.getAccess();
+            int position = access.length() - 10;
+            String forged = access.substring(0, position)
+                    + (access.charAt(position) == 'A' ? 'B' : 'A')
+                    + access.substring(position + 1);
+            jwtService.validateAccessToken(forged);
+            jwtService.validateAccessToken(forged);
+            jwtService.validateAccessToken(access + "x");
+        }
+
+        byte[] json = objectMapper.writeValueAsBytes(pairToken);
+        objectMapper.readValue(json, PairToken.class);
+
+        jwtService.getUUIDFormToken(pairToken.getRefresh());
+    }
+
+    private void exercisePasswords(@NotNull User user) {
+        String hash = passwordEncoder.encode(user.getPassword());
+        passwordEncoder.matches(user.getPassword(), hash);
+    }
+
+    private boolean exerciseQueries() {
+        String username = "warm-up-" + UUID.randomUUID();
+        try {
+            userRepository.existsByUsername(username);
+            userRepository.findByUsername(username);
+            return true;
+        } catch (DataAccessException exception) {
+            log.warn("Skipping the repository warm-up: {}", exception.getMessage());
+            return false;
+        }
+    }
+
+    private void markUp() {
+        instanceConfig.ifAvailable(config -> config.setInitialStatus(InstanceInfo.InstanceStatus.UP));
+        EurekaServiceRegistry registry = serviceRegistry.getIfAvailable();
+        EurekaRegistration instance = registration.getIfAvailable();
+        if (registry != null && instance != null) {
+            registry.setStatus(instance, InstanceInfo.InstanceStatus.UP.name());
+            log.info("Instance {} marked UP in Eureka", instance.getInstanceId());
+        }
+    }
+
+    private static User syntheticUser(int index) {
+        return User
+                .builder()
+                .id(UUID.randomUUID())
+                .username("warm-up-user-" + index)
+                .email("warm-up-user-" + index + "@example.com")
+                .first_name("Warm")
+                .last_name("Up")
+                .password(UUID.randomUUID().toString())
+                .roles(index % 4 == 0 ? Set.of(Role.ROLE_USER, Role.ROLE_ADMIN) : Set.of(Role.ROLE_USER))
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package ru.soigo.auth.warmup;
+
+import ru.soigo.auth.jwt.service.RedisService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory stand-in for the Redis session store used during the warm-up.
+ * <p>
+ * Tokens minted by the warm-up are registered here instead of in Redis, so exercising the token code paths leaves
+ * no sessions behind in the shared store.
+ * </p>
+ *
+ * @see WarmUpRunner
+ */
+class WarmUpSessionStore implements RedisService {
+    final Map<String, List<String>> tokens = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addToken(String username, String tokenUUID) {
+        tokens.computeIfAbsent(username, key -> new CopyOnWriteArrayList<>()).add(tokenUUID);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeToken(String username, String tokenUUID) {
+        List<String> userTokens = tokens.get(username);
+        if (userTokens != null) {
+            userTokens.remove(tokenUUID);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAllTokens(String username) {
+        tokens.remove(username);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getAllTokens(String username) {
+        return tokens.getOrDefault(username, List.of());
+    }
+}
@@ -0,0 +1,139 @@
+package ru.soigo.auth;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.observation.ObservationAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.opentelemetry.OpenTelemetryAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.tracing.MicrometerTracingAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.tracing.OpenTelemetryTracingAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import ru.soigo.auth.jwt.service.RedisService;
+import ru.soigo.auth.jwt.service.impl.ResilientRedisServiceImpl;
+import ru.soigo.tracing.TailSamplingSpanProcessor;
+import ru.soigo.tracing.TracesEndpoint;
+import ru.soigo.tracing.config.TracingAutoConfiguration;
+import ru.soigo.tracing.export.InMemorySpanExporter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthTracingTests {
+    final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    ObservationAutoConfiguration.class,
+                    MetricsAutoConfiguration.class,
+                    SimpleMetricsExportAutoConfiguration.class,
+                    OpenTelemetryAutoConfiguration.class,
+                    OpenTelemetryTracingAutoConfiguration.class,
+                    MicrometerTracingAutoConfiguration.class,
+                    TracingAutoConfiguration.class
+            ))
+            .withPropertyValues(
+                    "spring.application.name=auth",
+                    "management.tracing.propagation.type=w3c",
+                    "tracing.tail.latency-threshold=500ms"
+            );
+
+    @Test
+    void tracerProviderFeedsTailSampling() {
+        contextRunner.run(context -> {
+            assertEquals(Set.of("tailSamplingTracerProvider"), context.getBeansOfType(SdkTracerProvider.class).keySet());
+            assertEquals(1, context.getBeansOfType(TailSamplingSpanProcessor.class).size());
+            assertEquals(1, context.getBeansOfType(InMemorySpanExporter.class).size());
+            assertTrue(context.getBeansOfType(TracesEndpoint.class).isEmpty());
+        });
+    }
+
+    @Test
+    void tracesEndpointOnlyWhenExposed() {
+        contextRunner
+                .withPropertyValues("management.endpoints.web.exposure.include=traces")
+                .run(context -> assertEquals(1, context.getBeansOfType(TracesEndpoint.class).size()));
+    }
+
+    @Test
+    void tailSamplingBacksOffWhenDisabled() {
+        contextRunner
+                .withPropertyValues("tracing.tail.enabled=false")
+                .run(context -> {
+                    assertTrue(context.getBeansOfType(TailSamplingSpanProcessor.class).isEmpty());
+                    assertEquals(1, context.getBeansOfType(SdkTracerProvider.class).size());
+                });
+    }
+
+    @Test
+    void sessionStoreCallsStayInTheTraceOfTheRequest() {
+        contextRunner
+                .withPropertyValues("tracing.tail.latency-threshold=0ms", "tracing.tail.export-interval=100ms")
+                .run(context -> {
+                    ObservationRegistry registry = context.getBean(ObservationRegistry.class);
+                    InMemorySpanExporter exporter = context.getBean(InMemorySpanExporter.class);
+                    ResilientRedisServiceImpl sessionStore = new ResilientRedisServiceImpl(
+                            new ObservedSessionStore(registry), context.getBean(MeterRegistry.class), event -> {
+                    }, Duration.ofSeconds(1), 5, Duration.ofSeconds(10), Duration.ofMinutes(5), 1000, 100
+                    );
+                    try {
+                        Observation
+                                .createNotStarted("request", registry)
+                                .observe(() -> assertTrue(sessionStore.containsToken("user", "session")));
+                    } finally {
+                        sessionStore.close();
+                    }
+
+                    await().atMost(Duration.ofSeconds(5)).until(() -> exporter.getSpans().size() >= 2);
+                    Map<String, SpanData> spans = exporter
+                            .getSpans()
+                            .stream()
+                            .collect(Collectors.toMap(SpanData::getName, Function.identity()));
+                    SpanData request = spans.get("request");
+                    SpanData read = spans.get("session.store.read");
+                    assertEquals(request.getTraceId(), read.getTraceId());
+                    assertEquals(request.getSpanId(), read.getParentSpanId());
+                });
+    }
+
+    /**
+     * Session store observing its reads, as Lettuce does for its commands.
+     */
+    static class ObservedSessionStore implements RedisService {
+        final ObservationRegistry registry;
+
+        ObservedSessionStore(ObservationRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public void addToken(String username, String tokenUUID) {
+        }
+
+        @Override
+        public void removeToken(String username, String tokenUUID) {
+        }
+
+        @Override
+        public void removeAllTokens(String username) {
+        }
+
+        @Override
+        public List<String> getAllTokens(String username) {
+            return Observation
+                    .createNotStarted("session.store.read", registry)
+                    .observe(() -> List.of("session"));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ru.soigo.auth.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.annotation.Transactional;
+import ru.soigo.auth.datasource.ReplicaRoutingDataSource;
+import ru.soigo.auth.repository.UserRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataSourceConfigTests {
+    final DataSourceConfig config = new DataSourceConfig();
+    final RecordingPool primary = new RecordingPool("primary");
+    final RecordingPool replica = new RecordingPool("replica-0");
+
+    @AfterEach
+    void tearDown() {
+        primary.close();
+        replica.close();
+    }
+
+    @Test
+    void replicaPoolsAreReadOnlyAndDoNotFailStartup() {
+        primary.setMaximumPoolSize(7);
+        ReplicaRoutingDataSource replicas = config.replicaDataSource(
+                primary, List.of("jdbc:postgresql://r0:5432/messenger", " jdbc:postgresql://r1:5432/messenger"),
+                "reader", "secret"
+        );
+        try {
+            assertEquals(2, replicas.getReplicas().size());
+            for (int i = 0; i < 2; i++) {
+                HikariDataSource pool = replicas.getReplicas().get(i).dataSource();
+                assertEquals("replica-" + i, pool.getPoolName());
+                assertEquals("jdbc:postgresql://r" + i + ":5432/messenger", pool.getJdbcUrl());
+                assertEquals("reader", pool.getUsername());
+                assertEquals("secret", pool.getPassword());
+                assertEquals(7, pool.getMaximumPoolSize());
+                assertTrue(pool.isReadOnly());
+                assertEquals(-1, pool.getInitializationFailTimeout());
+            }
+        } finally {
+            replicas.close();
+        }
+    }
+
+    @Test
+    void readOnlyConnectionsAreTakenFromTheReplicas() throws Exception {
+        try (Connection connection = dataSource().getConnection()) {
+            int primaryConnections = primary.connections.get();
+            connection.setReadOnly(true);
+            connection.createStatement();
+
+            assertEquals(1, replica.connections.get());
+            assertEquals(primaryConnections, primary.connections.get());
+        }
+    }
+
+    @Test
+    void readWriteConnectionsAreTakenFromThePrimary() throws Exception {
+        try (Connection connection = dataSource().getConnection()) {
+            int primaryConnections = primary.connections.get();
+            connection.createStatement();
+
+            assertEquals(0, replica.connections.get());
+            assertEquals(primaryConnections + 1, primary.connections.get());
+        }
+    }
+
+    @Test
+    void repositoryLookupsRunInReadOnlyTransactions() throws NoSuchMethodException {
+        for (String lookup : List.of("findByUsername", "existsByUsername")) {
+            Transactional transactional = UserRepository.class
+                    .getMethod(lookup, String.class)
+                    .getAnnotation(Transactional.class);
+            assertNotNull(transactional, lookup + " runs without a transaction and is never routed to a replica");
+            assertTrue(transactional.readOnly(), lookup);
+        }
+    }
+
+    /**
+     * Creates the application data source over a single replica, which is selected as soon as it is configured.
+     */
+    private DataSource dataSource() {
+        ReplicaRoutingDataSource available = new ReplicaRoutingDataSource(primary, List.of(replica)) {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return replica.getPoolName();
+            }
+        };
+        available.afterPropertiesSet();
+        return config.dataSource(primary, available);
+    }
+
+    /**
+     * Pool counting the physical connections taken from it, handing out connections that accept every call.
+     */
+    static class RecordingPool extends HikariDataSource {
+        final AtomicInteger connections = new AtomicInteger();
+
+        RecordingPool(String name) {
+            setPoolName(name);
+        }
+
+        @Override
+        public Connection getConnection() {
+            connections.incrementAndGet();
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getAutoCommit", "isValid" -> true;
+                        case "getTransactionIsolation" -> Connection.TRANSACTION_READ_COMMITTED;
+                        case "isClosed", "isReadOnly" -> false;
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    }
+            );
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ru.soigo.auth.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrimaryStickinessTests {
+
+    @Test
+    void usersWhoDidNotWriteAreNotSticky() {
+        PrimaryStickiness stickiness = new PrimaryStickiness(Duration.ofMinutes(1));
+        stickiness.markWritten("alice");
+
+        assertFalse(stickiness.isSticky("bob"));
+    }
+
+    @Test
+    void writersAreStickyWithinTheWindow() {
+        PrimaryStickiness stickiness = new PrimaryStickiness(Duration.ofMinutes(1));
+        stickiness.markWritten("alice");
+
+        assertTrue(stickiness.isSticky("alice"));
+        assertTrue(stickiness.isSticky("alice"));
+    }
+
+    @Test
+    void writersAreNoLongerStickyOnceTheWindowElapsed() throws InterruptedException {
+        PrimaryStickiness stickiness = new PrimaryStickiness(Duration.ofMillis(20));
+        stickiness.markWritten("alice");
+
+        Thread.sleep(50);
+
+        assertFalse(stickiness.isSticky("alice"));
+        assertTrue(stickiness.writes.isEmpty());
+    }
+
+    @Test
+    void newWriteRestartsTheWindow() throws InterruptedException {
+        PrimaryStickiness stickiness = new PrimaryStickiness(Duration.ofMillis(200));
+        stickiness.markWritten("alice");
+        Thread.sleep(150);
+        stickiness.markWritten("alice");
+        Thread.sleep(150);
+
+        assertTrue(stickiness.isSticky("alice"));
+    }
+
+    @Test
+    void expiredWritesAreDroppedWhenTheTableGrows() throws InterruptedException {
+        PrimaryStickiness stickiness = new PrimaryStickiness(Duration.ofMillis(200));
+        for (int i = 0; i < PrimaryStickiness.CLEANUP_THRESHOLD; i++) {
+            stickiness.markWritten("user-" + i);
+        }
+        Thread.sleep(300);
+
+        stickiness.markWritten("alice");
+
+        assertEquals(1, stickiness.writes.size());
+        assertTrue(stickiness.isSticky("alice"));
+    }
+}
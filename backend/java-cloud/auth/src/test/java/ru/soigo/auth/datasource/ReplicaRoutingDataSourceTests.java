@@ -0,0 +1,92 @@
+package ru.soigo.auth.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicaRoutingDataSourceTests {
+    final HikariDataSource primary = pool("primary");
+    final ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(
+            primary, List.of(pool("replica-0"), pool("replica-1"), pool("replica-2"))
+    );
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+        primary.close();
+    }
+
+    @Test
+    void readsFromThePrimaryUntilTheReplicasWereChecked() {
+        assertNull(dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void rotatesOverTheAvailableReplicas() {
+        dataSource.getReplicas().forEach(replica -> replica.setAvailable(true));
+
+        assertEquals(List.of("replica-0", "replica-1", "replica-2", "replica-0", "replica-1", "replica-2"), keys(6));
+    }
+
+    @Test
+    void skipsReplicasOutOfRotation() {
+        dataSource.getReplicas().forEach(replica -> replica.setAvailable(true));
+        dataSource.getReplicas().get(1).setAvailable(false);
+
+        List<Object> keys = keys(6);
+        assertTrue(keys.contains("replica-0"));
+        assertTrue(keys.contains("replica-2"));
+        assertTrue(!keys.contains("replica-1") && !keys.contains(null), "read from " + keys);
+    }
+
+    @Test
+    void fallsBackToThePrimaryOnceNoReplicaIsAvailable() {
+        dataSource.getReplicas().forEach(replica -> replica.setAvailable(true));
+        dataSource.getReplicas().forEach(replica -> replica.setAvailable(false));
+
+        assertNull(dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void lookupKeysNameTheReplicaPools() {
+        dataSource.afterPropertiesSet();
+
+        assertSame(primary, dataSource.getResolvedDefaultDataSource());
+        for (ReplicaRoutingDataSource.Replica replica : dataSource.getReplicas()) {
+            assertSame(replica.dataSource(), dataSource.getResolvedDataSources().get(replica.name()));
+        }
+    }
+
+    @Test
+    void closingClosesTheReplicaPools() {
+        dataSource.close();
+
+        dataSource.getReplicas().forEach(replica -> assertTrue(replica.dataSource().isClosed()));
+    }
+
+    private List<Object> keys(int count) {
+        List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            keys.add(dataSource.determineCurrentLookupKey());
+        }
+        return keys;
+    }
+
+    /**
+     * Creates a pool that never connects, as no statement runs in these tests.
+     */
+    private static HikariDataSource pool(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl("jdbc:postgresql://" + name + ":5432/messenger");
+        return pool;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.soigo.auth.deadline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.soigo.auth.exception.DeadlineExceededException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DeadlineContextHolderTests {
+
+    @AfterEach
+    void tearDown() {
+        DeadlineContextHolder.clear();
+    }
+
+    @Test
+    void requestsWithoutDeadlineAreNeverAborted() {
+        assertDoesNotThrow(() -> DeadlineContextHolder.check("user lookup"));
+        assertDoesNotThrow(() -> DeadlineContextHolder.commit("session store"));
+    }
+
+    @Test
+    void checkAbortsOnceTheDeadlinePassed() {
+        DeadlineContextHolder.setDeadline(Deadline.after(Duration.ofMinutes(1)));
+        assertDoesNotThrow(() -> DeadlineContextHolder.check("user lookup"));
+
+        DeadlineContextHolder.setDeadline(Deadline.after(Duration.ZERO));
+        assertThrows(DeadlineExceededException.class, () -> DeadlineContextHolder.check("user lookup"));
+        assertNotNull(DeadlineContextHolder.getDeadline());
+    }
+
+    @Test
+    void commitAbortsOnceTheDeadlinePassedAndKeepsTheDeadline() {
+        DeadlineContextHolder.setDeadline(Deadline.after(Duration.ZERO));
+
+        assertThrows(DeadlineExceededException.class, () -> DeadlineContextHolder.commit("session store"));
+        assertNotNull(DeadlineContextHolder.getDeadline());
+    }
+
+    @Test
+    void committedOperationsRunToCompletionPastTheDeadline() throws InterruptedException {
+        DeadlineContextHolder.setDeadline(Deadline.after(Duration.ofMillis(20)));
+        DeadlineContextHolder.commit("user insert");
+
+        Thread.sleep(50);
+
+        assertNull(DeadlineContextHolder.getDeadline());
+        assertDoesNotThrow(() -> DeadlineContextHolder.check("session store"));
+        assertDoesNotThrow(() -> DeadlineContextHolder.commit("session store"));
+    }
+}
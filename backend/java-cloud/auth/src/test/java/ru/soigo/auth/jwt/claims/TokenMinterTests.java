@@ -0,0 +1,141 @@
+package ru.soigo.auth.jwt.claims;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import ru.soigo.auth.jwt.dto.PairToken;
+import ru.soigo.auth.jwt.model.ClaimFormat;
+import ru.soigo.auth.jwt.model.TypeToken;
+import ru.soigo.auth.model.Role;
+import ru.soigo.auth.model.User;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenMinterTests {
+    static final SecretKey KEY = Keys.hmacShaKeyFor(
+            "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII)
+    );
+    static final long ACCESS_EXPIRATION = 60_000;
+    static final long REFRESH_EXPIRATION = 3_600_000;
+
+    final User user = User
+            .builder()
+            .id(UUID.randomUUID())
+            .username("alice \"\u00e4\" \ud83d\ude00")
+            .roles(Set.of(Role.ROLE_USER, Role.ROLE_ADMIN))
+            .build();
+    final UUID sessionId = UUID.randomUUID();
+
+    @Test
+    void mintsCompactPairParsedByJjwt() {
+        TokenMinter minter = new TokenMinter(KEY, ClaimFormat.COMPACT);
+
+        PairToken pair = minter.mintPair(user, sessionId, ACCESS_EXPIRATION, REFRESH_EXPIRATION);
+
+        Claims access = parse(pair.access);
+        assertTrue(TokenClaims.isCompact(access));
+        assertAccess(access);
+        Claims refresh = parse(pair.refresh);
+        assertEquals(TypeToken.REFRESH, TokenClaims.tokenType(refresh));
+        assertEquals(sessionId.toString(), TokenClaims.sessionId(refresh));
+        assertEquals(access.getIssuedAt(), refresh.getIssuedAt());
+        assertEquals(REFRESH_EXPIRATION / 1000, seconds(refresh.getExpiration()) - seconds(refresh.getIssuedAt()));
+    }
+
+    @Test
+    void mintsLegacyPairParsedByJjwt() {
+        TokenMinter minter = new TokenMinter(KEY, ClaimFormat.LEGACY);
+
+        PairToken pair = minter.mintPair(user, sessionId, ACCESS_EXPIRATION, REFRESH_EXPIRATION);
+
+        Claims access = parse(pair.access);
+        assertFalse(TokenClaims.isCompact(access));
+        assertAccess(access);
+        assertEquals(TypeToken.REFRESH, TokenClaims.tokenType(parse(pair.refresh)));
+    }
+
+    @Test
+    void mintsSingleTokensParsedByJjwt() {
+        TokenMinter minter = new TokenMinter(KEY, ClaimFormat.COMPACT);
+
+        assertAccess(parse(minter.mintAccess(user, sessionId, ACCESS_EXPIRATION)));
+        Claims refresh = parse(minter.mintRefresh(user.getUsername(), sessionId, REFRESH_EXPIRATION));
+        assertEquals(TypeToken.REFRESH, TokenClaims.tokenType(refresh));
+        assertEquals(user.getUsername(), refresh.getSubject());
+    }
+
+    @Test
+    void rejectsNonHmacKey() {
+        SecretKey key = new SecretKeySpec(new byte[16], "AES");
+
+        assertThrows(IllegalArgumentException.class, () -> new TokenMinter(key, ClaimFormat.COMPACT));
+    }
+
+    @Test
+    void acceptsTokensOfSameKeyAsWellFormed() {
+        TokenMinter minter = new TokenMinter(KEY, ClaimFormat.COMPACT);
+        String built = Jwts
+                .builder()
+                .claims(TokenClaims.access(user, ClaimFormat.COMPACT))
+                .id(TokenClaims.jwtId(sessionId, ClaimFormat.COMPACT))
+                .subject(user.getUsername())
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + ACCESS_EXPIRATION))
+                .signWith(KEY)
+                .compact();
+
+        assertTrue(minter.isWellFormed(minter.mintAccess(user, sessionId, ACCESS_EXPIRATION)));
+        assertTrue(minter.isWellFormed(built));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        TokenMinter minter = new TokenMinter(KEY, ClaimFormat.COMPACT);
+        String token = minter.mintAccess(user, sessionId, ACCESS_EXPIRATION);
+        int signatureStart = token.lastIndexOf('.') + 1;
+
+        assertFalse(minter.isWellFormed(null));
+        assertFalse(minter.isWellFormed(""));
+        assertFalse(minter.isWellFormed("garbage"));
+        assertFalse(minter.isWellFormed("x" + token));
+        assertFalse(minter.isWellFormed(token + "A"));
+        assertFalse(minter.isWellFormed(token.substring(0, token.length() - 1)));
+        assertFalse(minter.isWellFormed(token.substring(0, signatureStart) + "+" + token.substring(signatureStart + 1)));
+        assertFalse(minter.isWellFormed(token.replaceFirst("\\.", "..")));
+        assertFalse(minter.isWellFormed(token.substring(0, token.indexOf('.') + 1) + "." + token.substring(signatureStart)));
+        assertFalse(minter.isWellFormed(token + "A".repeat(TokenMinter.MAX_TOKEN_LENGTH)));
+    }
+
+    private void assertAccess(Claims access) {
+        assertEquals(TypeToken.ACCESS, TokenClaims.tokenType(access));
+        assertEquals(sessionId.toString(), TokenClaims.sessionId(access));
+        assertEquals(user.getUsername(), access.getSubject());
+        assertEquals(user.getId(), TokenClaims.userId(access));
+        assertEquals(Set.of(Role.ROLE_USER, Role.ROLE_ADMIN), TokenClaims.roles(access));
+        assertEquals(ACCESS_EXPIRATION / 1000, seconds(access.getExpiration()) - seconds(access.getIssuedAt()));
+    }
+
+    private static Claims parse(String token) {
+        return Jwts
+                .parser()
+                .verifyWith(KEY)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private static long seconds(Date date) {
+        return date.getTime() / 1000;
+    }
+}
@@ -0,0 +1,69 @@
+package ru.soigo.auth.jwt.rejection;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RejectedTokenCacheTests {
+    static final long TTL = Duration.ofMinutes(1).toNanos();
+
+    @Test
+    void roundsSizeUpToPowerOfTwo() {
+        assertEquals(2, new RejectedTokenCache(1, TTL).slots.length());
+        assertEquals(1024, new RejectedTokenCache(1000, TTL).slots.length());
+        assertEquals(1024, new RejectedTokenCache(1024, TTL).slots.length());
+        assertEquals(2048, new RejectedTokenCache(1025, TTL).slots.length());
+    }
+
+    @Test
+    void remembersRejectedTokens() {
+        RejectedTokenCache cache = new RejectedTokenCache(1024, TTL);
+        cache.add("rejected");
+
+        assertTrue(cache.contains("rejected"));
+        assertFalse(cache.contains("valid"));
+        assertFalse(cache.contains("rejecte"));
+    }
+
+    @Test
+    void forgetsExpiredRejections() {
+        RejectedTokenCache cache = new RejectedTokenCache(1024, 0);
+        cache.add("rejected");
+
+        assertFalse(cache.contains("rejected"));
+    }
+
+    @Test
+    void overwritesRejectionInSameSlot() {
+        int overwritten = 0;
+        for (int i = 0; i < 100; i++) {
+            RejectedTokenCache cache = new RejectedTokenCache(2, TTL);
+            cache.add("first");
+            cache.add("token" + i);
+            assertTrue(cache.contains("token" + i));
+            if (!cache.contains("first")) {
+                overwritten++;
+            }
+        }
+
+        assertTrue(overwritten > 0 && overwritten < 100, "overwritten: " + overwritten);
+    }
+
+    @Test
+    void doesNotMatchOtherTokenInSameSlot() {
+        RejectedTokenCache cache = new RejectedTokenCache(1, TTL);
+        cache.add("first");
+        int shadowed = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (cache.contains("token" + i)) {
+                shadowed++;
+            }
+        }
+
+        assertEquals(0, shadowed);
+    }
+}
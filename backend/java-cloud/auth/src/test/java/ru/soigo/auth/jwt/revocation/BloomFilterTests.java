@@ -0,0 +1,67 @@
+package ru.soigo.auth.jwt.revocation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTests {
+    static final int EXPECTED = 100_000;
+    static final double FALSE_POSITIVE_RATE = 0.001;
+
+    @Test
+    void sizesDefaultFilterToPowerOfTwoBits() {
+        BloomFilter filter = new BloomFilter(EXPECTED, FALSE_POSITIVE_RATE);
+
+        assertEquals(1 << 21, filter.words.length() * 64L);
+        assertEquals((1 << 21) - 1, filter.mask);
+        assertEquals(10, filter.hashes);
+    }
+
+    @Test
+    void keepsAtLeastOneWordAndOneHash() {
+        BloomFilter filter = new BloomFilter(1, 0.5);
+
+        assertEquals(1, filter.words.length());
+        assertTrue(filter.hashes >= 1);
+    }
+
+    @Test
+    void hasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(EXPECTED, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < EXPECTED; i++) {
+            filter.add("s:" + i);
+        }
+
+        for (int i = 0; i < EXPECTED; i++) {
+            assertTrue(filter.mightContain("s:" + i));
+        }
+        assertEquals(EXPECTED, filter.size());
+    }
+
+    @Test
+    void keepsFalsePositivesNearTargetRateWhenFull() {
+        BloomFilter filter = new BloomFilter(EXPECTED, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < EXPECTED; i++) {
+            filter.add("s:" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 200_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("u:" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2 * FALSE_POSITIVE_RATE * probes, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void startsEmpty() {
+        BloomFilter filter = new BloomFilter(EXPECTED, FALSE_POSITIVE_RATE);
+
+        assertFalse(filter.mightContain("s:1"));
+        assertEquals(0, filter.size());
+    }
+}
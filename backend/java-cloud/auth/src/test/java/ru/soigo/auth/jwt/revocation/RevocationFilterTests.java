@@ -0,0 +1,89 @@
+package ru.soigo.auth.jwt.revocation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevocationFilterTests {
+    static final long WINDOW = Duration.ofHours(1).toMillis();
+
+    SimpleMeterRegistry meterRegistry;
+    RevocationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RevocationFilter(
+                meterRegistry, null, WINDOW, 1000, 0.001, "auth:revocations", "none", Duration.ofSeconds(1)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        filter.close();
+    }
+
+    @Test
+    void distrustsFilterForFirstWindow() {
+        assertTrue(filter.mightBeRevoked("alice", "s1"));
+        assertEquals(1, checks("untrusted"));
+    }
+
+    @Test
+    void clearsTokensNotRevoked() {
+        trust();
+
+        assertFalse(filter.mightBeRevoked("alice", "s1"));
+        assertEquals(1, checks("clear"));
+    }
+
+    @Test
+    void looksUpTokensWithoutSession() {
+        trust();
+
+        assertTrue(filter.mightBeRevoked("alice", null));
+    }
+
+    @Test
+    void remembersRevocationsForAtLeastOneWindow() {
+        trust();
+        filter.onTokenRevoked(new TokenRevokedEvent("alice", "s1"));
+        filter.onTokenRevoked(new TokenRevokedEvent("bob", null));
+
+        assertTrue(filter.mightBeRevoked("alice", "s1"));
+        assertTrue(filter.mightBeRevoked("bob", "s2"));
+        assertFalse(filter.mightBeRevoked("alice", "s2"));
+
+        filter.swap();
+        assertTrue(filter.mightBeRevoked("alice", "s1"));
+        assertTrue(filter.mightBeRevoked("bob", "s2"));
+
+        filter.swap();
+        assertFalse(filter.mightBeRevoked("alice", "s1"));
+        assertFalse(filter.mightBeRevoked("bob", "s2"));
+    }
+
+    @Test
+    void countsRevocationsOfBothWindows() {
+        filter.onTokenRevoked(new TokenRevokedEvent("alice", "s1"));
+        filter.swap();
+        filter.onTokenRevoked(new TokenRevokedEvent("alice", "s2"));
+
+        assertEquals(2, meterRegistry.get("auth.token.revocation.entries").gauge().value());
+    }
+
+    private void trust() {
+        filter.trust.trustedFrom = 0;
+    }
+
+    private double checks(String result) {
+        return meterRegistry.get("auth.token.revocation.checks").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,99 @@
+package ru.soigo.auth.jwt.revocation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevocationTrustTests {
+    static final long NOW = 1_000_000;
+    static final long WINDOW = 60_000;
+    static final long SILENCE = 3_000;
+    static final long PING = 1_000;
+
+    @Test
+    void distrustsFilterForFirstWindowAfterSubscription() {
+        RevocationTrust trust = new RevocationTrust(WINDOW, SILENCE, false, NOW);
+        long subscribed = NOW + 100;
+
+        assertFalse(trust.isTrusted(NOW + WINDOW));
+        assertTrue(trust.onPing(subscribed));
+        assertFalse(trust.isTrusted(subscribed));
+        ping(trust, subscribed, subscribed + WINDOW);
+        assertFalse(trust.isTrusted(subscribed + WINDOW - 1));
+        assertTrue(trust.isTrusted(subscribed + WINDOW));
+    }
+
+    @Test
+    void distrustsFilterAfterSilenceWithoutCheck() {
+        RevocationTrust trust = trusted();
+        long lastPing = NOW + WINDOW;
+
+        assertTrue(trust.isTrusted(lastPing + SILENCE));
+        assertFalse(trust.isTrusted(lastPing + SILENCE + 1));
+    }
+
+    @Test
+    void reportsSilenceOnce() {
+        RevocationTrust trust = trusted();
+        long lastPing = NOW + WINDOW;
+
+        assertFalse(trust.checkSilence(lastPing + SILENCE));
+        assertTrue(trust.checkSilence(lastPing + SILENCE + 1));
+        assertFalse(trust.checkSilence(lastPing + SILENCE + 2));
+    }
+
+    @Test
+    void requiresFullWindowAfterSilence() {
+        RevocationTrust trust = trusted();
+        long recovered = NOW + WINDOW + SILENCE + 1000;
+
+        assertTrue(trust.onPing(recovered));
+        assertFalse(trust.isTrusted(recovered));
+        ping(trust, recovered, recovered + WINDOW);
+        assertFalse(trust.isTrusted(recovered + WINDOW - 1));
+        assertTrue(trust.isTrusted(recovered + WINDOW));
+    }
+
+    @Test
+    void requiresFullWindowAfterReportedSilence() {
+        RevocationTrust trust = trusted();
+        long lastPing = NOW + WINDOW;
+        trust.checkSilence(lastPing + SILENCE + 1);
+
+        assertTrue(trust.onPing(lastPing + SILENCE + 2));
+        assertFalse(trust.isTrusted(lastPing + SILENCE + 2));
+    }
+
+    @Test
+    void keepsTrustWhilePingsComeBack() {
+        RevocationTrust trust = trusted();
+        for (long now = NOW + WINDOW + PING; now < NOW + 3 * WINDOW; now += PING) {
+            assertFalse(trust.onPing(now));
+            assertTrue(trust.isTrusted(now));
+        }
+    }
+
+    @Test
+    void trustsLocalFilterAfterFirstWindowWithoutPings() {
+        RevocationTrust trust = new RevocationTrust(WINDOW, Long.MAX_VALUE, true, NOW);
+
+        assertFalse(trust.isTrusted(NOW));
+        assertTrue(trust.isTrusted(NOW + WINDOW));
+        assertFalse(trust.checkSilence(NOW + 100 * WINDOW));
+        assertTrue(trust.isTrusted(NOW + 100 * WINDOW));
+    }
+
+    private static RevocationTrust trusted() {
+        RevocationTrust trust = new RevocationTrust(WINDOW, SILENCE, false, NOW);
+        trust.onPing(NOW);
+        ping(trust, NOW, NOW + WINDOW);
+        return trust;
+    }
+
+    private static void ping(RevocationTrust trust, long from, long to) {
+        for (long now = from + PING; now <= to; now += PING) {
+            trust.onPing(now);
+        }
+    }
+}
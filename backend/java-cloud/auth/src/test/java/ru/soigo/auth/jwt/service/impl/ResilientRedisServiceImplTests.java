@@ -0,0 +1,162 @@
+package ru.soigo.auth.jwt.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.soigo.auth.deadline.Deadline;
+import ru.soigo.auth.deadline.DeadlineContextHolder;
+import ru.soigo.auth.exception.DeadlineExceededException;
+import ru.soigo.auth.exception.SessionStoreUnavailableException;
+import ru.soigo.auth.jwt.service.RedisService;
+import ru.soigo.auth.jwt.session.CircuitBreaker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResilientRedisServiceImplTests {
+    final RecordingStore store = new RecordingStore();
+    final ResilientRedisServiceImpl service = new ResilientRedisServiceImpl(
+            store, new SimpleMeterRegistry(), event -> {
+    }, Duration.ofSeconds(1), 5, Duration.ofSeconds(10), Duration.ofMinutes(5), 1000, 100
+    );
+
+    @AfterEach
+    void tearDown() {
+        DeadlineContextHolder.clear();
+        service.close();
+    }
+
+    @Test
+    void writesOfUserWithQueuedWritesAreQueuedBehindThem() {
+        store.down = true;
+        service.addToken("alice", "s1");
+        store.down = false;
+
+        service.removeToken("alice", "s1");
+        service.addToken("bob", "s2");
+
+        assertEquals(List.of("add bob s2"), store.writes);
+        assertEquals(2, service.queuedWrites.get("alice"));
+        assertFalse(service.containsToken("alice", "s1"));
+
+        await().atMost(Duration.ofSeconds(5)).until(service.queuedWrites::isEmpty);
+        assertEquals(List.of("add bob s2", "add alice s1", "remove alice s1"), store.writes);
+        assertTrue(service.pendingAdds.isEmpty());
+        assertTrue(service.pendingRemoves.isEmpty());
+    }
+
+    @Test
+    void writesGoToTheStoreOnceTheQueueOfTheUserIsReplayed() {
+        store.down = true;
+        service.removeAllTokens("alice");
+        store.down = false;
+
+        await().atMost(Duration.ofSeconds(5)).until(service.queuedWrites::isEmpty);
+        service.addToken("alice", "s1");
+
+        assertEquals(List.of("clear alice", "add alice s1"), store.writes);
+        assertTrue(service.pendingWrites.isEmpty());
+        assertTrue(service.containsToken("alice", "s1"));
+    }
+
+    @Test
+    void refreshTokensFailClosedWhileTheStoreIsDown() {
+        store.down = true;
+        assertTrue(service.containsToken("alice", "s1"));
+        assertThrows(SessionStoreUnavailableException.class, () -> service.verifyToken("alice", "s1"));
+    }
+
+    @Test
+    void shortDeadlinesDoNotOpenTheBreaker() {
+        store.delayMillis = 200;
+        for (int i = 0; i < 10; i++) {
+            DeadlineContextHolder.setDeadline(Deadline.after(Duration.ofMillis(20)));
+            assertThrows(DeadlineExceededException.class, () -> service.verifyToken("alice", "s1"));
+            assertThrows(DeadlineExceededException.class, () -> service.containsToken("alice", "s1"));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, service.circuitBreaker.getState());
+        assertEquals(0, service.timeouts.count());
+    }
+
+    @Test
+    void timeoutsAtTheFullTimeoutOpenTheBreaker() {
+        ResilientRedisServiceImpl impatient = new ResilientRedisServiceImpl(
+                store, new SimpleMeterRegistry(), event -> {
+        }, Duration.ofMillis(20), 2, Duration.ofSeconds(10), Duration.ofMinutes(5), 1000, 100
+        );
+        store.delayMillis = 200;
+        try {
+            assertThrows(SessionStoreUnavailableException.class, () -> impatient.verifyToken("alice", "s1"));
+            assertThrows(SessionStoreUnavailableException.class, () -> impatient.verifyToken("alice", "s1"));
+
+            assertEquals(CircuitBreaker.State.OPEN, impatient.circuitBreaker.getState());
+        } finally {
+            impatient.close();
+        }
+    }
+
+    /**
+     * Session store recording the writes it applied, failing every call while down.
+     */
+    static class RecordingStore implements RedisService {
+        final List<String> writes = Collections.synchronizedList(new ArrayList<>());
+        final List<String> sessions = Collections.synchronizedList(new ArrayList<>());
+
+        volatile boolean down;
+        volatile long delayMillis;
+
+        @Override
+        public void addToken(String username, String tokenUUID) {
+            check();
+            writes.add("add " + username + " " + tokenUUID);
+            sessions.add(username + " " + tokenUUID);
+        }
+
+        @Override
+        public void removeToken(String username, String tokenUUID) {
+            check();
+            writes.add("remove " + username + " " + tokenUUID);
+            sessions.remove(username + " " + tokenUUID);
+        }
+
+        @Override
+        public void removeAllTokens(String username) {
+            check();
+            writes.add("clear " + username);
+            sessions.removeIf(session -> session.startsWith(username + " "));
+        }
+
+        @Override
+        public List<String> getAllTokens(String username) {
+            check();
+            return sessions
+                    .stream()
+                    .filter(session -> session.startsWith(username + " "))
+                    .map(session -> session.substring(username.length() + 1))
+                    .toList();
+        }
+
+        private void check() {
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Session store call cancelled");
+                }
+            }
+            if (down) {
+                throw new IllegalStateException("Session store down");
+            }
+        }
+    }
+}
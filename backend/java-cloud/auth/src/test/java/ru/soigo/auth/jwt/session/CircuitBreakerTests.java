@@ -0,0 +1,143 @@
+package ru.soigo.auth.jwt.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTests {
+    static final Duration OPEN_DURATION = Duration.ofMinutes(1);
+
+    final List<CircuitBreaker.State> transitions = new ArrayList<>();
+    final CircuitBreaker breaker = new CircuitBreaker(3, OPEN_DURATION, transitions::add);
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void admitsSingleProbeWhenHalfOpen() {
+        open();
+        elapse();
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void admitsSingleProbeAmongConcurrentCalls() throws Exception {
+        open();
+        elapse();
+        int threads = 8;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger acquired = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    if (breaker.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                } catch (Exception exception) {
+                    throw new IllegalStateException(exception);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+
+        assertEquals(1, acquired.get());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void closesAfterSuccessfulProbe() {
+        open();
+        elapse();
+        breaker.tryAcquire();
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(
+                List.of(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.CLOSED),
+                transitions
+        );
+    }
+
+    @Test
+    void reopensAfterFailedProbe() {
+        open();
+        elapse();
+        breaker.tryAcquire();
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        elapse();
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void cancelledCallsAreNotCountedAsFailures() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onCancelled();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.failures.get());
+    }
+
+    @Test
+    void cancelledProbeIsReleasedForNextCall() {
+        open();
+        elapse();
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onCancelled();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void refusesCallsUntilOpenDurationElapsed() {
+        open();
+
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+    }
+
+    private void elapse() {
+        breaker.openedAt = System.nanoTime() - OPEN_DURATION.toNanos();
+    }
+}
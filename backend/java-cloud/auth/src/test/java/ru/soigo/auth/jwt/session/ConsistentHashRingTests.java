@@ -0,0 +1,101 @@
+package ru.soigo.auth.jwt.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTests {
+    static final int KEYS = 100_000;
+    static final int VIRTUAL_NODES = 160;
+
+    @Test
+    void sameNodesMapKeysAlikeWhateverTheirOrder() {
+        ConsistentHashRing<String> ring = ring("a:6379", "b:6379", "c:6379");
+        ConsistentHashRing<String> reordered = ring("c:6379", "a:6379", "b:6379");
+
+        for (int key = 0; key < KEYS; key++) {
+            assertEquals(ring.nodeFor("user-" + key), reordered.nodeFor("user-" + key));
+        }
+    }
+
+    @Test
+    void spreadsKeysEvenly() {
+        ConsistentHashRing<String> ring = ring("a:6379", "b:6379", "c:6379", "d:6379");
+
+        Map<String, Integer> counts = counts(ring);
+        double mean = (double) KEYS / ring.getNodes().size();
+        counts.forEach((node, count) -> assertTrue(Math.abs(count - mean) < mean * 0.2,
+                node + " holds " + count + " keys, expected about " + mean));
+    }
+
+    @Test
+    void addingNodeOnlyMovesKeysToIt() {
+        ConsistentHashRing<String> before = ring("a:6379", "b:6379", "c:6379");
+        ConsistentHashRing<String> after = ring("a:6379", "b:6379", "c:6379", "d:6379");
+
+        int moved = 0;
+        for (int key = 0; key < KEYS; key++) {
+            String owner = after.nodeFor("user-" + key);
+            if (!owner.equals(before.nodeFor("user-" + key))) {
+                assertEquals("d:6379", owner);
+                moved++;
+            }
+        }
+        assertTrue(moved > KEYS / 4 * 0.8 && moved < KEYS / 4 * 1.2, "moved " + moved + " keys, expected about 1/4");
+    }
+
+    @Test
+    void removingNodeOnlyMovesItsKeys() {
+        ConsistentHashRing<String> before = ring("a:6379", "b:6379", "c:6379", "d:6379");
+        ConsistentHashRing<String> after = ring("a:6379", "b:6379", "c:6379");
+
+        for (int key = 0; key < KEYS; key++) {
+            String owner = before.nodeFor("user-" + key);
+            if (!owner.equals("d:6379")) {
+                assertEquals(owner, after.nodeFor("user-" + key));
+            }
+        }
+    }
+
+    @Test
+    void singleNodeOwnsEveryKey() {
+        ConsistentHashRing<String> ring = ring("a:6379");
+
+        for (int key = 0; key < 1000; key++) {
+            assertSame(ring.getNodes().get(0), ring.nodeFor("user-" + key));
+        }
+    }
+
+    @Test
+    void keepsNodesInGivenOrder() {
+        assertEquals(List.of("c:6379", "a:6379", "b:6379"), ring("c:6379", "a:6379", "b:6379").getNodes());
+    }
+
+    @Test
+    void rejectsRingWithoutNodesOrPoints() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConsistentHashRing<String>(List.of(), Function.identity(), VIRTUAL_NODES));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConsistentHashRing<>(List.of("a:6379"), Function.identity(), 0));
+    }
+
+    private static ConsistentHashRing<String> ring(String... nodes) {
+        return new ConsistentHashRing<>(List.of(nodes), Function.identity(), VIRTUAL_NODES);
+    }
+
+    private static Map<String, Integer> counts(ConsistentHashRing<String> ring) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int key = 0; key < KEYS; key++) {
+            counts.merge(ring.nodeFor("user-" + key), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,110 @@
+package ru.soigo.auth.jwt.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimingWheelTests {
+    static final long START = 1_000_000;
+    static final long TICK = 1000;
+
+    final List<Long> fired = new ArrayList<>();
+    final HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(TICK, START, fired::add);
+
+    @Test
+    void firesInDeadlineOrderOncePassed() {
+        wheel.schedule(START + 3500, START + 3500);
+        wheel.schedule(START + 1000, START + 1000);
+        wheel.schedule(START + 2001, START + 2001);
+
+        assertEquals(0, wheel.advance(START + 999));
+        assertEquals(1, wheel.advance(START + 1000));
+        assertEquals(0, wheel.advance(START + 2999));
+        assertEquals(1, wheel.advance(START + 3000));
+        assertEquals(1, wheel.advance(START + 10_000));
+        assertEquals(List.of(START + 1000, START + 2001, START + 3500), fired);
+    }
+
+    @Test
+    void firesPastDeadlinesOnNextAdvance() {
+        wheel.advance(START + 5000);
+        wheel.schedule(START + 4000, START + 4000);
+        wheel.schedule(START + 5000, START + 5000);
+
+        assertEquals(2, wheel.advance(START + 5000));
+        assertEquals(List.of(START + 4000, START + 5000), fired);
+    }
+
+    @Test
+    void firesEveryLevelWithinOneTickOfDeadline() {
+        Random random = new Random(42);
+        long horizon = 64L * 64 * 64 * 4 * TICK;
+        Map<Long, Integer> scheduled = new HashMap<>();
+        long now = START;
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < 50; i++) {
+                long deadline = now + (long) (horizon * Math.pow(random.nextDouble(), 4));
+                wheel.schedule(deadline, deadline);
+                scheduled.merge(deadline, 1, Integer::sum);
+            }
+            long target = now + random.nextLong(1, 64L * 64 * TICK);
+            for (; now < target; now += TICK) {
+                int before = fired.size();
+                wheel.advance(now);
+                assertFired(before, now);
+            }
+        }
+        for (long end = now + horizon; now <= end; now += TICK) {
+            int before = fired.size();
+            wheel.advance(now);
+            assertFired(before, now);
+        }
+
+        Map<Long, Integer> counts = new HashMap<>();
+        fired.forEach(deadline -> counts.merge(deadline, 1, Integer::sum));
+        assertEquals(scheduled, counts);
+    }
+
+    @Test
+    void reschedulesDeadlinesBeyondTopLevel() {
+        long beyond = START + 64L * 64 * 64 * 64 * TICK * 2 + 500;
+        wheel.schedule(beyond, beyond);
+
+        assertEquals(0, wheel.advance(beyond - 1));
+        assertEquals(1, wheel.advance(beyond + TICK));
+        assertEquals(List.of(beyond), fired);
+    }
+
+    @Test
+    void acceptsValuesScheduledConcurrently() throws InterruptedException {
+        int threads = 4;
+        int perThread = 1000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            long offset = t;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    wheel.schedule(offset * perThread + i, START + i * TICK);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        assertEquals(threads * perThread, wheel.advance(START + perThread * TICK));
+    }
+
+    private void assertFired(int from, long now) {
+        for (long deadline : fired.subList(from, fired.size())) {
+            assertTrue(deadline <= now && now < deadline + TICK, "fired " + deadline + " at " + now);
+        }
+    }
+}
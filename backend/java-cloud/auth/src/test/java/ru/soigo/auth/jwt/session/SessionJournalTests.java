@@ -0,0 +1,102 @@
+package ru.soigo.auth.jwt.session;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionJournalTests {
+    static final long NOW = 1_000_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRecordsAfterRestart() {
+        Path path = directory.resolve("sessions.journal");
+        try (SessionJournal journal = journal(path)) {
+            assertTrue(journal.load(NOW).isEmpty());
+            journal.add("alice", "s1", NOW + 1000);
+            journal.add("alice", "s2", NOW + 2000);
+            journal.add("bob", "s3", NOW + 1000);
+            journal.remove("alice", "s1");
+            journal.clear("bob");
+        }
+
+        try (SessionJournal journal = journal(path)) {
+            assertEquals(Map.of("alice", Map.of("s2", NOW + 2000)), journal.load(NOW));
+        }
+    }
+
+    @Test
+    void ignoresTruncatedLastRecord() throws IOException {
+        Path path = directory.resolve("sessions.journal");
+        try (SessionJournal journal = journal(path)) {
+            journal.load(NOW);
+            journal.add("alice", "s1", NOW + 1000);
+            journal.add("alice", "s2", NOW + 1000);
+        }
+        String content = Files.readString(path);
+        Files.writeString(path, content.substring(0, content.length() - 5));
+
+        try (SessionJournal journal = journal(path)) {
+            assertEquals(Map.of("alice", Map.of("s1", NOW + 1000)), journal.load(NOW));
+            journal.add("alice", "s3", NOW + 1000);
+        }
+
+        try (SessionJournal journal = journal(path)) {
+            assertEquals(Map.of("alice", Map.of("s1", NOW + 1000, "s3", NOW + 1000)), journal.load(NOW));
+        }
+    }
+
+    @Test
+    void compactsOnLoad() throws IOException {
+        Path path = directory.resolve("sessions.journal");
+        try (SessionJournal journal = journal(path)) {
+            journal.load(NOW);
+            journal.add("alice", "expired", NOW - 1);
+            journal.add("alice", "removed", NOW + 1000);
+            journal.remove("alice", "removed");
+            journal.add("alice", "live", NOW + 1000);
+        }
+
+        try (SessionJournal journal = journal(path)) {
+            assertEquals(Map.of("alice", Map.of("live", NOW + 1000)), journal.load(NOW));
+        }
+        assertEquals(1, Files.readAllLines(path).size());
+        assertFalse(Files.exists(directory.resolve("sessions.journal.rewrite")));
+    }
+
+    @Test
+    void rewriteKeepsRecordsAppendedMeanwhile() {
+        Path path = directory.resolve("sessions.journal");
+        try (SessionJournal journal = journal(path)) {
+            journal.load(NOW);
+            journal.add("alice", "s1", NOW + 1000);
+            journal.rewrite(() -> {
+                journal.add("bob", "s2", NOW + 1000);
+                return Map.of("alice", Map.of("s1", NOW + 1000));
+            });
+            journal.add("carol", "s3", NOW + 1000);
+        }
+
+        try (SessionJournal journal = journal(path)) {
+            assertEquals(Map.of(
+                    "alice", Map.of("s1", NOW + 1000),
+                    "bob", Map.of("s2", NOW + 1000),
+                    "carol", Map.of("s3", NOW + 1000)
+            ), journal.load(NOW));
+        }
+    }
+
+    private static SessionJournal journal(Path path) {
+        return new SessionJournal(path, SessionJournal.FsyncPolicy.ALWAYS, 0);
+    }
+}
@@ -0,0 +1,87 @@
+package ru.soigo.auth.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTests {
+    static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(meterRegistry, 20, 4, 200, 1.5, 0.7);
+
+    @Test
+    void growsWhileLatencyHolds() {
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(RTT, limiter.getLimit(), false);
+        }
+
+        assertTrue(limiter.getLimit() > 20, "limit " + limiter.getLimit());
+        assertEquals(limiter.getLimit(), meterRegistry.get("auth.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void shrinksOnceLatencyRises() {
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(RTT, limiter.getLimit(), false);
+        }
+        int grown = limiter.getLimit();
+
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(RTT * 10, limiter.getLimit(), false);
+        }
+
+        assertTrue(limiter.getLimit() < grown, "limit " + limiter.getLimit() + " after " + grown);
+    }
+
+    @Test
+    void samplesOfAnUnderusedLimitAreIgnored() {
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(RTT, 1, false);
+        }
+
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void failuresBackOffDownToTheMinimum() {
+        limiter.onSample(RTT, 20, true);
+        assertEquals(18, limiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(RTT, 20, true);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void expensiveRequestsOnlyUseTheirShare() {
+        for (int i = 0; i < 14; i++) {
+            assertTrue(limiter.tryAcquire(true));
+        }
+        assertFalse(limiter.tryAcquire(true));
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(limiter.tryAcquire(false));
+        }
+        assertFalse(limiter.tryAcquire(false));
+    }
+
+    @Test
+    void releasedRequestsFreeTheirSlot() {
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire(false);
+        }
+        assertFalse(limiter.tryAcquire(false));
+
+        limiter.release(RTT, false);
+
+        assertTrue(limiter.tryAcquire(false));
+        assertEquals(20, meterRegistry.get("auth.concurrency.inflight").gauge().value());
+    }
+}
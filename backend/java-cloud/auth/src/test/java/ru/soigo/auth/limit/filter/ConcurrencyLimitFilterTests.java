@@ -0,0 +1,50 @@
+package ru.soigo.auth.limit.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.soigo.auth.limit.AdaptiveConcurrencyLimiter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConcurrencyLimitFilterTests {
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(meterRegistry, 20, 4, 200, 1.5, 0.7);
+    final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limiter, meterRegistry);
+
+    @Test
+    void serverErrorBacksOff() throws Exception {
+        respond(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertEquals(18, limiter.getLimit());
+    }
+
+    @Test
+    void deadlineExceededDoesNotBackOff() throws Exception {
+        respond(HttpStatus.GATEWAY_TIMEOUT);
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void rejectsAtTheLimit() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire(false);
+        }
+        MockHttpServletResponse response = respond(HttpStatus.OK);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(1, meterRegistry.get("auth.concurrency.rejected").tag("priority", "cheap").counter().count());
+    }
+
+    private MockHttpServletResponse respond(HttpStatus status) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/validate");
+        request.setServletPath("/validate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (chainRequest, chainResponse) -> response.setStatus(status.value());
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
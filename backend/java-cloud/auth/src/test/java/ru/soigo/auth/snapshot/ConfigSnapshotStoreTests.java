@@ -0,0 +1,101 @@
+package ru.soigo.auth.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.SystemEnvironmentPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConfigSnapshotStoreTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsWhatWasWritten() {
+        ConfigSnapshotStore store = new ConfigSnapshotStore(directory.resolve("auth.properties"));
+        store.write(Map.of("jwt.access.expiration", "60000", "server.port", "0"));
+
+        assertEquals(Map.of("jwt.access.expiration", "60000", "server.port", "0"), store.read(key -> false));
+    }
+
+    @Test
+    void leavesSecretsOutOfTheFile() throws IOException {
+        Path path = directory.resolve("auth.properties");
+        ConfigSnapshotStore store = new ConfigSnapshotStore(path);
+        store.write(Map.of(
+                "jwt.secret", "a0ee7819",
+                "spring.datasource.password", "hunter2",
+                "jwt.access.expiration", "60000"
+        ));
+
+        String content = Files.readString(path);
+        assertFalse(content.contains("a0ee7819"));
+        assertFalse(content.contains("hunter2"));
+        assertTrue(content.contains("jwt.access.expiration"));
+    }
+
+    @Test
+    void isUsedOnlyIfOmittedSecretsAreSetLocally() {
+        ConfigSnapshotStore store = new ConfigSnapshotStore(directory.resolve("auth.properties"));
+        store.write(Map.of("jwt.secret", "a0ee7819", "jwt.access.expiration", "60000"));
+
+        assertNull(store.read(key -> false));
+        assertEquals(Map.of("jwt.access.expiration", "60000"), store.read("jwt.secret"::equals));
+    }
+
+    @Test
+    void datasourcePasswordIsSetLocallyByItsEnvironmentVariable() {
+        ConfigSnapshotStore store = new ConfigSnapshotStore(directory.resolve("auth.properties"));
+        store.write(Map.of("spring.datasource.password", "password", "spring.datasource.username", "admin"));
+        PropertySource<?> trainingEnvironment = new SystemEnvironmentPropertySource(
+                "trainingEnvironment", Map.of("SPRING_DATASOURCE_PASSWORD", "password")
+        );
+        PropertySource<?> containerEnvironment = new SystemEnvironmentPropertySource(
+                "containerEnvironment", Map.of("POSTGRES_PASSWORD", "password")
+        );
+
+        assertEquals(Map.of("spring.datasource.username", "admin"), store.read(trainingEnvironment::containsProperty));
+        assertNull(store.read(containerEnvironment::containsProperty));
+    }
+
+    @Test
+    void ignoresSnapshotWithInvalidChecksum() throws IOException {
+        Path path = directory.resolve("auth.properties");
+        ConfigSnapshotStore store = new ConfigSnapshotStore(path);
+        store.write(Map.of("jwt.access.expiration", "60000"));
+        Files.writeString(path, Files.readString(path).replace("60000", "1"));
+
+        assertNull(store.read(key -> true));
+    }
+
+    @Test
+    void isOnlyAccessibleToItsOwner() throws IOException {
+        Path path = directory.resolve("snapshots").resolve("auth.properties");
+        new ConfigSnapshotStore(path).write(Map.of("jwt.access.expiration", "60000"));
+
+        if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(path)));
+            assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(path.getParent())));
+        }
+    }
+
+    @Test
+    void recognisesSecrets() {
+        assertTrue(ConfigSnapshotStore.isSecret("jwt.secret"));
+        assertTrue(ConfigSnapshotStore.isSecret("spring.datasource.password"));
+        assertTrue(ConfigSnapshotStore.isSecret("spring.security.oauth2.client.registration.github.client-secret"));
+        assertTrue(ConfigSnapshotStore.isSecret("api.accessToken"));
+        assertFalse(ConfigSnapshotStore.isSecret("jwt.access.expiration"));
+        assertFalse(ConfigSnapshotStore.isSecret("spring.datasource.username"));
+    }
+}
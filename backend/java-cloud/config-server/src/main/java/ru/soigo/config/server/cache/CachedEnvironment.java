@@ -0,0 +1,14 @@
+package ru.soigo.config.server.cache;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A resolved environment response kept by {@link EnvironmentCache}.
+ *
+ * @param body        the serialized response body.
+ * @param contentType the content type of the body, may be {@code null}.
+ * @param etag        the quoted strong entity tag derived from the body.
+ * @param generation  the cache generation the response was resolved in.
+ */
+public record CachedEnvironment(byte[] body, @Nullable String contentType, String etag, long generation) {
+}
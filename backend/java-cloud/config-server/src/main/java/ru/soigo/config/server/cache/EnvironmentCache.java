@@ -0,0 +1,138 @@
+package ru.soigo.config.server.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.soigo.config.server.refresh.event.ConfigFilesChangedEvent;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of resolved environment responses, keyed by request.
+ * <p>
+ * The native environment repository runs a full property source resolution for every fetch. Since the
+ * configuration only changes when files change, the serialized responses are kept here together with a content
+ * hash used as the {@code ETag}, and dropped as a whole when {@link ConfigFilesChangedEvent} is published.
+ * </p>
+ * <p>
+ * Every entry remembers the cache generation it was resolved in, and only entries of the current generation are
+ * returned. A response resolved from old files while an invalidation was in progress is therefore never served,
+ * even if it is stored after the invalidation.
+ * </p>
+ * <p>
+ * The cache holds at most {@code config.environment.cache.max-entries} responses and evicts the least used ones
+ * beyond that, so fetches of arbitrary paths cannot grow it without bound.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code config.environment.cache.size} - The number of cached responses.</li>
+ * </ul>
+ *
+ * @see ru.soigo.config.server.cache.filter.EnvironmentCacheFilter
+ */
+@Slf4j
+@Component
+public class EnvironmentCache {
+    final Cache<String, CachedEnvironment> entries;
+    final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Constructs a new instance of {@link EnvironmentCache}.
+     *
+     * @param meterRegistry the registry used to publish the cache size.
+     * @param maxEntries    the largest number of cached responses.
+     */
+    @Autowired
+    public EnvironmentCache(
+            MeterRegistry meterRegistry,
+            @Value("${config.environment.cache.max-entries:1000}") long maxEntries
+    ) {
+        this.entries = Caffeine
+                .newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+
+        Gauge
+                .builder("config.environment.cache.size", entries, Cache::estimatedSize)
+                .description("Number of cached environment responses")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the current cache generation. It must be read before resolving a response that will be stored.
+     *
+     * @return the current generation.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Returns the cached response for the given key, if it belongs to the current generation.
+     *
+     * @param key the request key.
+     * @return the cached response, or {@code null} if there is none.
+     */
+    public @Nullable CachedEnvironment get(String key) {
+        CachedEnvironment cached = entries.getIfPresent(key);
+        return cached != null && cached.generation() == generation.get() ? cached : null;
+    }
+
+    /**
+     * Stores a resolved response.
+     *
+     * @param key         the request key.
+     * @param body        the serialized response body.
+     * @param contentType the content type of the body.
+     * @param generation  the generation read before the response was resolved.
+     * @return the stored response, including its entity tag.
+     */
+    public CachedEnvironment put(String key, byte[] body, @Nullable String contentType, long generation) {
+        CachedEnvironment cached = new CachedEnvironment(body, contentType, etag(body), generation);
+        if (generation == this.generation.get()) {
+            entries.put(key, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Drops all cached responses when configuration files change.
+     *
+     * @param event the change event.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ConfigFilesChangedEvent.class)
+    public void invalidate(ConfigFilesChangedEvent event) {
+        long next = generation.incrementAndGet();
+        entries.invalidateAll();
+        log.info("Environment cache invalidated for {}, generation {}", event.getApplications(), next);
+    }
+
+    /**
+     * Computes a strong entity tag from the SHA-256 hash of a response body.
+     *
+     * @param body the response body.
+     * @return the quoted entity tag.
+     */
+    public static String etag(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+}
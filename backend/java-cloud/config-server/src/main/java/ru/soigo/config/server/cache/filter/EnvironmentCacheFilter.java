@@ -0,0 +1,210 @@
+package ru.soigo.config.server.cache.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.soigo.config.server.cache.CachedEnvironment;
+import ru.soigo.config.server.cache.EnvironmentCache;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Filter that serves environment fetches from {@link EnvironmentCache} and answers unchanged fetches with
+ * {@code 304 Not Modified}.
+ * <p>
+ * Every successful {@code GET} of an environment or of a configuration file is stored with a content hash as its
+ * {@code ETag}. Subsequent fetches of the same application, profile and label are answered from the cache without
+ * resolving property sources again, and fetches whose {@code If-None-Match} matches the current hash get an empty
+ * {@code 304}. Actuator, encryption and subscription endpoints are never cached.
+ * </p>
+ * <p>
+ * Responses are keyed by path and {@code Accept} header, and only fetches without a query string whose
+ * {@code Accept} header is absent or one of {@link #CACHED_MEDIA_TYPES} are cached, so clients cannot multiply the
+ * entries of one path with arbitrary headers. Other fetches are passed through uncached.
+ * </p>
+ *
+ * <p><b>Dependencies:</b></p>
+ * <ul>
+ *   <li>{@link EnvironmentCache} - Cache of resolved responses.</li>
+ * </ul>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code config.environment.cache.requests} - Fetches by {@code result}: {@code hit}, {@code not_modified}
+ *   or {@code miss}.</li>
+ * </ul>
+ *
+ * @see EnvironmentCache
+ * @see OncePerRequestFilter
+ */
+@Slf4j
+@Component
+public class EnvironmentCacheFilter extends OncePerRequestFilter {
+    static final List<String> EXCLUDED_PREFIXES = List.of(
+            "/actuator", "/subscriptions", "/encrypt", "/decrypt", "/key", "/monitor"
+    );
+    static final List<String> CACHED_MEDIA_TYPES = List.of(
+            "application/vnd.spring-cloud.config-server.v2+json", "application/json", "text/plain", "*/*"
+    );
+
+    final EnvironmentCache environmentCache;
+    final Counter hits;
+    final Counter notModified;
+    final Counter misses;
+
+    /**
+     * Constructs a new instance of {@link EnvironmentCacheFilter}.
+     *
+     * @param environmentCache the cache of resolved responses.
+     * @param meterRegistry    the registry used to count cache results.
+     */
+    @Autowired
+    public EnvironmentCacheFilter(EnvironmentCache environmentCache, MeterRegistry meterRegistry) {
+        this.environmentCache = environmentCache;
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.notModified = requestCounter(meterRegistry, "not_modified");
+        this.misses = requestCounter(meterRegistry, "miss");
+    }
+
+    /**
+     * Serves the request from the cache, or resolves it and stores the response.
+     *
+     * @param request     the incoming HTTP request.
+     * @param response    the HTTP response.
+     * @param filterChain the filter chain.
+     * @throws ServletException if an error occurs during filtering.
+     * @throws IOException      if an I/O error occurs during filtering.
+     */
+    @Override
+    protected void doFilterInternal(
+            @NotNull HttpServletRequest request,
+            @NotNull HttpServletResponse response,
+            @NotNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        String key = key(request);
+        if (key == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+
+        CachedEnvironment cached = environmentCache.get(key);
+        if (cached != null) {
+            if (matches(ifNoneMatch, cached.etag())) {
+                notModified.increment();
+                writeNotModified(response, cached.etag());
+            } else {
+                hits.increment();
+                writeCached(response, cached);
+            }
+            return;
+        }
+
+        misses.increment();
+        long generation = environmentCache.generation();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+
+        CachedEnvironment stored = environmentCache.put(
+                key, wrapper.getContentAsByteArray(), wrapper.getContentType(), generation
+        );
+        log.debug("Cached environment response for {} with ETag {}", key, stored.etag());
+        if (matches(ifNoneMatch, stored.etag())) {
+            writeNotModified(response, stored.etag());
+            return;
+        }
+        wrapper.setHeader(HttpHeaders.ETAG, stored.etag());
+        wrapper.copyBodyToResponse();
+    }
+
+    /**
+     * Only {@code GET} requests outside the excluded endpoints are cached.
+     *
+     * @param request the incoming HTTP request.
+     * @return {@code true} if the request bypasses the cache.
+     */
+    @Override
+    protected boolean shouldNotFilter(@NotNull HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return EXCLUDED_PREFIXES.stream().anyMatch(path::startsWith);
+    }
+
+    /**
+     * Builds the cache key of a request from its path and the media type it accepts.
+     *
+     * @param request the incoming HTTP request.
+     * @return the cache key, or {@code null} if the request is not cached.
+     */
+    private static @Nullable String key(HttpServletRequest request) {
+        if (request.getQueryString() != null) {
+            return null;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return request.getRequestURI() + "|";
+        }
+        return CACHED_MEDIA_TYPES.contains(accept.trim())
+                ? request.getRequestURI() + "|" + accept.trim()
+                : null;
+    }
+
+    private static boolean matches(@Nullable String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeNotModified(HttpServletResponse response, String etag) {
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        response.setHeader(HttpHeaders.ETAG, etag);
+    }
+
+    private static void writeCached(HttpServletResponse response, CachedEnvironment cached) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setHeader(HttpHeaders.ETAG, cached.etag());
+        if (cached.contentType() != null) {
+            response.setContentType(cached.contentType());
+        }
+        response.setContentLength(cached.body().length);
+        response.getOutputStream().write(cached.body());
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter
+                .builder("config.environment.cache.requests")
+                .description("Environment fetches by cache result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.soigo.config.server.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.soigo.config.server.refresh.RefreshNotificationService;
+
+/**
+ * Controller through which clients subscribe to refresh notifications of their application.
+ * <p>
+ * A subscription is a server-sent event stream at {@code /subscriptions/{application}}, reached from outside through
+ * the gateway at {@code /config-server/subscriptions/{application}}. It receives a {@code refresh} event whenever the
+ * configuration of the application changes and ends after {@code config.refresh.subscription-timeout}, after which
+ * the client subscribes again.
+ * </p>
+ *
+ * <p><b>Dependencies:</b></p>
+ * <ul>
+ *   <li>{@link RefreshNotificationService} - Holds the subscriptions and pushes the notifications.</li>
+ * </ul>
+ *
+ * @see RefreshNotificationService
+ */
+@RestController
+@RequestMapping("subscriptions")
+@RequiredArgsConstructor
+public class RefreshSubscriptionController {
+    final RefreshNotificationService refreshNotificationService;
+
+    /**
+     * Opens a refresh subscription for the given application.
+     *
+     * @param application the application name of the client, as in {@code spring.application.name}.
+     * @return the emitter streaming the refresh events of the application.
+     */
+    @GetMapping(value = "{application}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter subscribe(@PathVariable String application) {
+        return refreshNotificationService.subscribe(application);
+    }
+}
@@ -0,0 +1,195 @@
+package ru.soigo.config.server.refresh;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import ru.soigo.config.server.refresh.event.ConfigFilesChangedEvent;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Component that watches the native search locations and publishes {@link ConfigFilesChangedEvent} when
+ * configuration files change.
+ * <p>
+ * Every search location is watched from its longest prefix without placeholders, e.g. {@code classpath:/config/}
+ * for {@code classpath:/config/{application}/{profile}}. If the location continues with {@code {application}},
+ * the first directory below the watched root names the application a changed file belongs to; otherwise the
+ * change is attributed to all applications.
+ * </p>
+ * <p>
+ * Bursts of file events, as produced by editors and deployments, are collapsed into one event after
+ * {@code config.watch.debounce}. Locations that are not on the file system, such as resources inside a jar,
+ * cannot change at runtime and are skipped.
+ * </p>
+ *
+ * @see ConfigFilesChangedEvent
+ */
+@Slf4j
+@Component
+public class ConfigFileWatcher {
+    static final String APPLICATION_PLACEHOLDER = "{application}";
+
+    final ResourceLoader resourceLoader;
+    final ApplicationEventPublisher eventPublisher;
+    final List<String> searchLocations;
+    final Duration debounce;
+    final Map<Path, Boolean> roots = new HashMap<>();
+    final Map<WatchKey, Path> directories = new HashMap<>();
+
+    WatchService watchService;
+
+    /**
+     * Constructs a new instance of {@link ConfigFileWatcher}.
+     *
+     * @param resourceLoader  the loader resolving search locations.
+     * @param eventPublisher  the publisher of change events.
+     * @param searchLocations the native search locations.
+     * @param debounce        the quiet period after which collected changes are published.
+     */
+    @Autowired
+    public ConfigFileWatcher(
+            ResourceLoader resourceLoader,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${spring.cloud.config.server.native.search-locations:}") List<String> searchLocations,
+            @Value("${config.watch.debounce:500ms}") Duration debounce
+    ) {
+        this.resourceLoader = resourceLoader;
+        this.eventPublisher = eventPublisher;
+        this.searchLocations = searchLocations;
+        this.debounce = debounce;
+    }
+
+    /**
+     * Starts watching the search locations once the server is ready.
+     *
+     * @throws IOException if the watch service cannot be created.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        for (String location : searchLocations) {
+            int placeholder = location.indexOf('{');
+            String prefix = placeholder < 0 ? location : location.substring(0, placeholder);
+            Resource resource = resourceLoader.getResource(prefix.trim());
+            if (!resource.exists() || !resource.isFile()) {
+                log.info("Search location {} is not on the file system, changes will not be detected", location);
+                continue;
+            }
+            Path root = resource.getFile().toPath();
+            roots.put(root, placeholder >= 0 && location.startsWith(APPLICATION_PLACEHOLDER, placeholder));
+            registerTree(root);
+            log.info("Watching configuration files in {}", root);
+        }
+
+        if (directories.isEmpty()) {
+            watchService.close();
+            return;
+        }
+        Thread.ofPlatform().daemon().name("config-file-watcher").start(this::watch);
+    }
+
+    /**
+     * Stops watching on shutdown.
+     *
+     * @throws IOException if the watch service cannot be closed.
+     */
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                Set<String> applications = new HashSet<>();
+                collect(watchService.take(), applications);
+                WatchKey next;
+                while ((next = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    collect(next, applications);
+                }
+                if (!applications.isEmpty()) {
+                    log.info("Configuration files changed for {}", applications);
+                    eventPublisher.publishEvent(new ConfigFilesChangedEvent(this, applications));
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException exception) {
+            log.debug("Configuration file watcher stopped");
+        }
+    }
+
+    private void collect(WatchKey key, Set<String> applications) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                applications.add(ConfigFilesChangedEvent.SHARED_APPLICATION);
+                continue;
+            }
+            Path changed = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                try {
+                    registerTree(changed);
+                } catch (IOException exception) {
+                    log.warn("Could not watch new directory {}", changed, exception);
+                }
+            }
+            applications.add(application(changed));
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private String application(Path changed) {
+        for (Map.Entry<Path, Boolean> root : roots.entrySet()) {
+            if (!changed.startsWith(root.getKey())) {
+                continue;
+            }
+            Path relative = root.getKey().relativize(changed);
+            if (root.getValue() && relative.getNameCount() > 1) {
+                return relative.getName(0).toString();
+            }
+        }
+        return ConfigFilesChangedEvent.SHARED_APPLICATION;
+    }
+
+    private void registerTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path directory : paths.filter(Files::isDirectory).toList()) {
+                WatchKey key = directory.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE
+                );
+                directories.put(key, directory);
+            }
+        }
+    }
+}
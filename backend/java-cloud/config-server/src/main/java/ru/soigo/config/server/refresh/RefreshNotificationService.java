@@ -0,0 +1,176 @@
+package ru.soigo.config.server.refresh;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.soigo.config.server.cache.EnvironmentCache;
+import ru.soigo.config.server.refresh.event.ConfigFilesChangedEvent;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service that pushes refresh notifications to subscribed clients over server-sent events.
+ * <p>
+ * Clients open a long-lived subscription for their application name instead of polling the config server.
+ * When {@link ConfigFilesChangedEvent} affects an application, every subscriber of that application receives a
+ * {@value #REFRESH_EVENT} event carrying the new cache generation, and refetches its environment. The event is
+ * handled after {@link EnvironmentCache} has been invalidated, so the refetch never sees the old configuration.
+ * </p>
+ * <p>
+ * Subscriptions end after {@code config.refresh.subscription-timeout}, and clients are expected to resubscribe.
+ * Subscribers whose connection is broken are dropped on the next notification.
+ * </p>
+ * <p>
+ * The subscription endpoint is reachable without authentication, so it only accepts the applications listed in
+ * {@code config.refresh.applications} and at most {@code config.refresh.max-subscribers-per-application}
+ * subscriptions of each. An application is forgotten together with its last subscription.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code config.refresh.subscribers} - The number of open subscriptions.</li>
+ * </ul>
+ *
+ * @see ru.soigo.config.server.controller.RefreshSubscriptionController
+ */
+@Slf4j
+@Service
+public class RefreshNotificationService {
+    static final String SUBSCRIBED_EVENT = "subscribed";
+    static final String REFRESH_EVENT = "refresh";
+
+    final EnvironmentCache environmentCache;
+    final Duration subscriptionTimeout;
+    final Set<String> applications;
+    final int maxSubscribersPerApplication;
+    final Map<String, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new instance of {@link RefreshNotificationService}.
+     *
+     * @param environmentCache             the cache whose generation is sent to clients.
+     * @param meterRegistry                the registry used to publish the number of subscribers.
+     * @param subscriptionTimeout          the time after which a subscription ends.
+     * @param applications                 the applications that may subscribe.
+     * @param maxSubscribersPerApplication the largest number of open subscriptions of one application.
+     */
+    @Autowired
+    public RefreshNotificationService(
+            EnvironmentCache environmentCache,
+            MeterRegistry meterRegistry,
+            @Value("${config.refresh.subscription-timeout:30m}") Duration subscriptionTimeout,
+            @Value("${config.refresh.applications:}") Set<String> applications,
+            @Value("${config.refresh.max-subscribers-per-application:1000}") int maxSubscribersPerApplication
+    ) {
+        this.environmentCache = environmentCache;
+        this.subscriptionTimeout = subscriptionTimeout;
+        this.applications = Set.copyOf(applications);
+        this.maxSubscribersPerApplication = maxSubscribersPerApplication;
+
+        Gauge
+                .builder("config.refresh.subscribers", subscribers, RefreshNotificationService::count)
+                .description("Number of clients subscribed to refresh notifications")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a subscription for the given application.
+     *
+     * @param application the application name of the client.
+     * @return the emitter of the subscription.
+     * @throws ResponseStatusException with {@code 404} if the application is unknown, or with {@code 429} if it
+     *                                 already has the largest number of subscriptions.
+     */
+    public SseEmitter subscribe(String application) {
+        if (!applications.contains(application)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown application: " + application);
+        }
+        SseEmitter emitter = new SseEmitter(subscriptionTimeout.toMillis());
+        subscribers.compute(application, (key, emitters) -> {
+            Set<SseEmitter> subscribed = emitters == null ? ConcurrentHashMap.newKeySet() : emitters;
+            if (subscribed.size() >= maxSubscribersPerApplication) {
+                throw new ResponseStatusException(
+                        HttpStatus.TOO_MANY_REQUESTS, "Too many subscriptions of " + application
+                );
+            }
+            subscribed.add(emitter);
+            return subscribed;
+        });
+        emitter.onCompletion(() -> unsubscribe(application, emitter));
+        emitter.onTimeout(() -> unsubscribe(application, emitter));
+        emitter.onError(error -> unsubscribe(application, emitter));
+
+        send(emitter, SUBSCRIBED_EVENT, application);
+        log.debug("Client of {} subscribed to refresh notifications", application);
+        return emitter;
+    }
+
+    /**
+     * Notifies the subscribers of every application affected by a change.
+     *
+     * @param event the change event.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener(ConfigFilesChangedEvent.class)
+    public void notifySubscribers(ConfigFilesChangedEvent event) {
+        subscribers.forEach((application, emitters) -> {
+            if (!event.affects(application)) {
+                return;
+            }
+            List<SseEmitter> broken = new ArrayList<>();
+            for (SseEmitter emitter : emitters) {
+                if (!send(emitter, REFRESH_EVENT, application)) {
+                    broken.add(emitter);
+                }
+            }
+            broken.forEach(emitter -> unsubscribe(application, emitter));
+            log.info("Sent refresh notification to {} clients of {}", emitters.size(), application);
+        });
+    }
+
+    /**
+     * Ends a subscription, forgetting the application once it has no subscription left.
+     *
+     * @param application the application name of the client.
+     * @param emitter     the emitter of the subscription.
+     */
+    void unsubscribe(String application, SseEmitter emitter) {
+        subscribers.computeIfPresent(application, (key, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private boolean send(SseEmitter emitter, String name, String application) {
+        try {
+            emitter.send(SseEmitter
+                    .event()
+                    .name(name)
+                    .id(String.valueOf(environmentCache.generation()))
+                    .data(application));
+            return true;
+        } catch (IOException | IllegalStateException exception) {
+            emitter.completeWithError(exception);
+            return false;
+        }
+    }
+
+    private static double count(Map<String, Set<SseEmitter>> subscribers) {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+}
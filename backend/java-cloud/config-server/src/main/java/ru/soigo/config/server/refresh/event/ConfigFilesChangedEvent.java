@@ -0,0 +1,47 @@
+package ru.soigo.config.server.refresh.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Set;
+
+/**
+ * Event published when configuration files served by the config server have changed.
+ * <p>
+ * The event carries the names of the applications whose files changed. A change of the shared
+ * {@value #SHARED_APPLICATION} configuration, or of a file that cannot be attributed to one application,
+ * affects every application.
+ * </p>
+ *
+ * @see ru.soigo.config.server.refresh.ConfigFileWatcher
+ */
+@Getter
+public class ConfigFilesChangedEvent extends ApplicationEvent {
+    /**
+     * Name under which configuration shared by all applications is stored.
+     */
+    public static final String SHARED_APPLICATION = "application";
+
+    final Set<String> applications;
+
+    /**
+     * Constructs a new instance of {@link ConfigFilesChangedEvent}.
+     *
+     * @param source       the component that detected the change.
+     * @param applications the names of the applications whose files changed.
+     */
+    public ConfigFilesChangedEvent(Object source, Set<String> applications) {
+        super(source);
+        this.applications = Set.copyOf(applications);
+    }
+
+    /**
+     * Checks whether the change affects the configuration of the given application.
+     *
+     * @param application the application name.
+     * @return {@code true} if the application should reload its configuration.
+     */
+    public boolean affects(String application) {
+        return applications.contains(SHARED_APPLICATION) || applications.contains(application);
+    }
+}
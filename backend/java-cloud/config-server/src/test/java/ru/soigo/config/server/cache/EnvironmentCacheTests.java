@@ -0,0 +1,59 @@
+package ru.soigo.config.server.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.soigo.config.server.refresh.event.ConfigFilesChangedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnvironmentCacheTests {
+    final EnvironmentCache cache = new EnvironmentCache(new SimpleMeterRegistry(), 10);
+
+    @Test
+    void servesStoredResponsesOfTheCurrentGeneration() {
+        byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+        CachedEnvironment stored = cache.put("/auth/dev|", body, "application/json", cache.generation());
+
+        CachedEnvironment cached = cache.get("/auth/dev|");
+        assertNotNull(cached);
+        assertArrayEquals(body, cached.body());
+        assertEquals(stored.etag(), cached.etag());
+    }
+
+    @Test
+    void holdsAtMostMaxEntries() {
+        for (int i = 0; i < 1000; i++) {
+            cache.put("/app-" + i + "/dev|", new byte[]{1}, null, cache.generation());
+        }
+        cache.entries.cleanUp();
+
+        assertTrue(cache.entries.estimatedSize() <= 10, cache.entries.estimatedSize() + " entries cached");
+    }
+
+    @Test
+    void responsesResolvedBeforeAnInvalidationAreNotStored() {
+        long generation = cache.generation();
+        cache.invalidate(new ConfigFilesChangedEvent(this, Set.of("auth")));
+
+        cache.put("/auth/dev|", new byte[]{1}, null, generation);
+
+        assertNull(cache.get("/auth/dev|"));
+    }
+
+    @Test
+    void invalidationDropsAllResponses() {
+        cache.put("/auth/dev|", new byte[]{1}, null, cache.generation());
+
+        cache.invalidate(new ConfigFilesChangedEvent(this, Set.of("auth")));
+
+        assertNull(cache.get("/auth/dev|"));
+        assertEquals(0, cache.entries.estimatedSize());
+    }
+}
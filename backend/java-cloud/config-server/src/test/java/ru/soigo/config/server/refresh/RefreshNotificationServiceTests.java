@@ -0,0 +1,72 @@
+package ru.soigo.config.server.refresh;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.soigo.config.server.cache.EnvironmentCache;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RefreshNotificationServiceTests {
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final RefreshNotificationService service = new RefreshNotificationService(
+            new EnvironmentCache(meterRegistry, 100), meterRegistry, Duration.ofMinutes(30), Set.of("auth", "gateway"), 2
+    );
+
+    @Test
+    void unknownApplicationsCannotSubscribe() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> service.subscribe("x".repeat(1000)));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+        assertTrue(service.subscribers.isEmpty());
+    }
+
+    @Test
+    void subscriptionsOfAnApplicationAreLimited() {
+        service.subscribe("auth");
+        service.subscribe("auth");
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> service.subscribe("auth"));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+        assertEquals(2, service.subscribers.get("auth").size());
+        service.subscribe("gateway");
+        assertEquals(3, meterRegistry.get("config.refresh.subscribers").gauge().value());
+    }
+
+    @Test
+    void applicationIsForgottenWithItsLastSubscription() {
+        SseEmitter first = service.subscribe("auth");
+        SseEmitter second = service.subscribe("auth");
+
+        service.unsubscribe("auth", first);
+        assertEquals(Set.of(second), service.subscribers.get("auth"));
+
+        service.unsubscribe("auth", second);
+        assertFalse(service.subscribers.containsKey("auth"));
+
+        service.unsubscribe("auth", second);
+        assertFalse(service.subscribers.containsKey("auth"));
+    }
+
+    @Test
+    void endedSubscriptionsMakeRoomForNewOnes() {
+        SseEmitter first = service.subscribe("auth");
+        service.subscribe("auth");
+
+        service.unsubscribe("auth", first);
+        service.subscribe("auth");
+
+        assertEquals(2, service.subscribers.get("auth").size());
+    }
+}
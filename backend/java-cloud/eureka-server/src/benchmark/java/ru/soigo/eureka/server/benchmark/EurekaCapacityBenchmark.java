@@ -0,0 +1,302 @@
+package ru.soigo.eureka.server.benchmark;
+
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootVersion;
+import org.springframework.cloud.netflix.eureka.server.EurekaServerAutoConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.soigo.eureka.server.EurekaServerApplication;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Capacity benchmark of {@code eureka-server}.
+ * <p>
+ * The benchmark starts {@link EurekaServerApplication} in-process on a random port and drives a growing number of
+ * simulated instances against it. Every instance runs in its own virtual thread and behaves like a Eureka client:
+ * it registers, fetches the full registry once, renews its lease every {@code heartbeatSeconds}, fetches the
+ * registry delta every {@code fetchSeconds}, and with probability {@code churn} per heartbeat is redeployed
+ * (cancelled and registered again under a new instance id).
+ * </p>
+ * <p>
+ * The instance count is raised step by step. After each step the benchmark records:
+ * </p>
+ * <ul>
+ *   <li>CPU time consumed by the server threads (Tomcat workers and Eureka background threads) and by the
+ *   whole process, the latter including the simulated clients.</li>
+ *   <li>Used heap after a full GC.</li>
+ *   <li>Hit rate of the delta response cache, derived from the number of delta payloads the server had to
+ *   regenerate.</li>
+ *   <li>Latency percentiles of every operation.</li>
+ * </ul>
+ * <p>
+ * The result is written as a Markdown report to {@code benchmark.report.dir}, headed by the Java, Spring Boot,
+ * Spring Cloud and Eureka versions, so runs can be diffed across upgrades and configuration changes.
+ * Program arguments are passed to the server unchanged, e.g.
+ * {@code --args='--eureka.server.response-cache-update-interval-ms=10000'}.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * ./gradlew :eureka-server:capacityBenchmark -Psteps=1000,2000,5000 -PstepSeconds=120
+ * </pre>
+ */
+public class EurekaCapacityBenchmark {
+    static final String REGISTER = "register";
+    static final String HEARTBEAT = "heartbeat";
+    static final String FETCH_FULL = "fetch full";
+    static final String FETCH_DELTA = "fetch delta";
+    static final String CANCEL = "cancel";
+
+    final int[] steps = Arrays
+            .stream(System.getProperty("benchmark.steps", "500,1000,2000,4000").split(","))
+            .mapToInt(step -> Integer.parseInt(step.trim()))
+            .toArray();
+    final Duration stepDuration = Duration.ofSeconds(Long.getLong("benchmark.stepSeconds", 60));
+    final int heartbeatSeconds = Integer.getInteger("benchmark.heartbeatSeconds", 5);
+    final int fetchSeconds = Integer.getInteger("benchmark.fetchSeconds", 5);
+    final double churn = Double.parseDouble(System.getProperty("benchmark.churn", "0.01"));
+    final int applications = Integer.getInteger("benchmark.applications", 20);
+    final Path reportDir = Path.of(System.getProperty("benchmark.report.dir", "build/reports/eureka-capacity"));
+
+    final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    final ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+    final List<StepResult> results = new ArrayList<>();
+
+    volatile Map<String, LatencyRecorder> recorders = newRecorders();
+    volatile boolean running = true;
+    EurekaRestClient client;
+    PeerAwareInstanceRegistry registry;
+    int started;
+
+    public static void main(String[] args) throws Exception {
+        new EurekaCapacityBenchmark().run(args);
+    }
+
+    void run(String[] args) throws Exception {
+        String[] serverArgs = Stream
+                .concat(Stream.of(
+                        "--server.port=0",
+                        "--eureka.server.enable-self-preservation=false",
+                        "--eureka.server.snapshot.enabled=false",
+                        "--logging.level.root=WARN"
+                ), Arrays.stream(args))
+                .toArray(String[]::new);
+
+        try (ConfigurableApplicationContext context = SpringApplication.run(EurekaServerApplication.class, serverArgs)) {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            client = new EurekaRestClient("http://localhost:" + port + "/eureka", heartbeatSeconds);
+            registry = context.getBean(PeerAwareInstanceRegistry.class);
+
+            for (int target : steps) {
+                runStep(target);
+            }
+
+            running = false;
+            clients.shutdownNow();
+            writeReport(args);
+        }
+    }
+
+    private void runStep(int target) throws InterruptedException {
+        while (started < target) {
+            SimulatedInstance instance = SimulatedInstance.create("BENCH-APP-" + (started % applications), started);
+            clients.submit(() -> simulate(instance));
+            started++;
+        }
+
+        System.gc();
+        recorders = newRecorders();
+        long serverCpuStart = serverCpuNanos();
+        long processCpuStart = processCpuNanos();
+        long deltaVersionStart = deltaVersion();
+        long wallStart = System.nanoTime();
+
+        Thread.sleep(stepDuration);
+
+        long wallNanos = System.nanoTime() - wallStart;
+        long serverCpu = serverCpuNanos() - serverCpuStart;
+        long processCpu = processCpuNanos() - processCpuStart;
+        long regenerated = deltaVersion() - deltaVersionStart;
+        Map<String, LatencyRecorder.Summary> latencies = new LinkedHashMap<>();
+        recorders.forEach((operation, recorder) -> latencies.put(operation, recorder.summarize()));
+        System.gc();
+        long heapUsed = memory.getHeapMemoryUsage().getUsed();
+
+        long deltaFetches = latencies.get(FETCH_DELTA).count();
+        double hitRate = deltaFetches == 0 ? 0 : Math.max(0, 1 - (double) regenerated / deltaFetches);
+        StepResult result = new StepResult(
+                target,
+                registry.getApplications().getRegisteredApplications().stream()
+                        .mapToInt(application -> application.getInstances().size())
+                        .sum(),
+                (double) serverCpu / wallNanos,
+                (double) processCpu / wallNanos,
+                heapUsed,
+                hitRate,
+                latencies
+        );
+        results.add(result);
+        System.out.printf(Locale.ROOT, "%d instances: server CPU %.2f cores, heap %d MB, delta cache hit rate %.3f%n",
+                target, result.serverCores(), heapUsed >> 20, hitRate);
+    }
+
+    private void simulate(SimulatedInstance initial) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SimulatedInstance instance = initial;
+        try {
+            Thread.sleep(random.nextLong(heartbeatSeconds * 1000L));
+            client.register(instance, recorders.get(REGISTER));
+            client.fetchFull(recorders.get(FETCH_FULL));
+
+            long heartbeatMillis = heartbeatSeconds * 1000L;
+            long fetchMillis = fetchSeconds * 1000L;
+            long nextHeartbeat = System.currentTimeMillis() + heartbeatMillis;
+            long nextFetch = System.currentTimeMillis() + random.nextLong(fetchMillis);
+            while (running) {
+                long now = System.currentTimeMillis();
+                long wait = Math.min(nextHeartbeat, nextFetch) - now;
+                if (wait > 0) {
+                    Thread.sleep(wait);
+                    continue;
+                }
+                if (now >= nextFetch) {
+                    client.fetchDelta(recorders.get(FETCH_DELTA));
+                    nextFetch += fetchMillis;
+                }
+                if (now >= nextHeartbeat) {
+                    if (random.nextDouble() < churn) {
+                        client.cancel(instance, recorders.get(CANCEL));
+                        instance = instance.redeploy();
+                        client.register(instance, recorders.get(REGISTER));
+                    } else if (!client.heartbeat(instance, recorders.get(HEARTBEAT))) {
+                        client.register(instance, recorders.get(REGISTER));
+                    }
+                    nextHeartbeat += heartbeatMillis;
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long serverCpuNanos() {
+        long total = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info == null) {
+                continue;
+            }
+            String name = info.getThreadName();
+            if (name.startsWith("http-nio") || name.contains("Eureka") || name.contains("eureka")) {
+                long cpu = threads.getThreadCpuTime(info.getThreadId());
+                if (cpu > 0) {
+                    total += cpu;
+                }
+            }
+        }
+        return total;
+    }
+
+    private static long processCpuNanos() {
+        return ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os
+                ? os.getProcessCpuTime()
+                : 0;
+    }
+
+    private long deltaVersion() {
+        return registry.getResponseCache().getVersionDelta().get();
+    }
+
+    private static Map<String, LatencyRecorder> newRecorders() {
+        Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+        for (String operation : List.of(REGISTER, HEARTBEAT, FETCH_FULL, FETCH_DELTA, CANCEL)) {
+            recorders.put(operation, new LatencyRecorder());
+        }
+        return recorders;
+    }
+
+    private void writeReport(String[] args) throws IOException {
+        StringBuilder report = new StringBuilder()
+                .append("# Eureka capacity benchmark\n\n")
+                .append("| Setting | Value |\n|---|---|\n")
+                .append(row("Java", System.getProperty("java.version")))
+                .append(row("Spring Boot", SpringBootVersion.getVersion()))
+                .append(row("Spring Cloud Netflix", EurekaServerAutoConfiguration.class.getPackage().getImplementationVersion()))
+                .append(row("Eureka", PeerAwareInstanceRegistry.class.getPackage().getImplementationVersion()))
+                .append(row("Available processors", Runtime.getRuntime().availableProcessors()))
+                .append(row("Max heap", (Runtime.getRuntime().maxMemory() >> 20) + " MB"))
+                .append(row("Step duration", stepDuration.toSeconds() + " s"))
+                .append(row("Heartbeat interval", heartbeatSeconds + " s"))
+                .append(row("Delta fetch interval", fetchSeconds + " s"))
+                .append(row("Churn per heartbeat", churn))
+                .append(row("Applications", applications))
+                .append(row("Server arguments", args.length == 0 ? "-" : String.join(" ", args)))
+                .append("\n## Server\n\n")
+                .append("| Instances | Registered | Server CPU (cores) | Process CPU (cores) | Heap after GC (MB) | Delta cache hit rate |\n")
+                .append("|---:|---:|---:|---:|---:|---:|\n");
+        for (StepResult result : results) {
+            report.append(String.format(Locale.ROOT, "| %d | %d | %.3f | %.3f | %d | %.3f |%n",
+                    result.instances(), result.registered(), result.serverCores(), result.processCores(),
+                    result.heapUsed() >> 20, result.deltaCacheHitRate()));
+        }
+
+        report.append("\n## Latency (ms)\n\n")
+                .append("| Instances | Operation | Requests | Failures | p50 | p90 | p99 | p99.9 |\n")
+                .append("|---:|---|---:|---:|---:|---:|---:|---:|\n");
+        for (StepResult result : results) {
+            result.latencies().forEach((operation, summary) -> report.append(String.format(Locale.ROOT,
+                    "| %d | %s | %d | %d | %.2f | %.2f | %.2f | %.2f |%n",
+                    result.instances(), operation, summary.count(), summary.failures(),
+                    summary.p50(), summary.p90(), summary.p99(), summary.p999())));
+        }
+
+        Files.createDirectories(reportDir);
+        Path file = reportDir.resolve("eureka-capacity.md");
+        Files.writeString(file, report);
+        System.out.println("Report written to " + file.toAbsolutePath());
+    }
+
+    private static String row(String name, Object value) {
+        return "| " + name + " | " + value + " |\n";
+    }
+
+    /**
+     * Measurements of one benchmark step.
+     *
+     * @param instances         the number of simulated instances.
+     * @param registered        the number of instances in the server registry at the end of the step.
+     * @param serverCores       the average number of cores used by server threads.
+     * @param processCores      the average number of cores used by the whole process.
+     * @param heapUsed          the used heap after a full GC, in bytes.
+     * @param deltaCacheHitRate the share of delta fetches answered without regenerating the payload.
+     * @param latencies         the latency summaries by operation.
+     */
+    record StepResult(
+            int instances,
+            int registered,
+            double serverCores,
+            double processCores,
+            long heapUsed,
+            double deltaCacheHitRate,
+            Map<String, LatencyRecorder.Summary> latencies
+    ) {
+    }
+}
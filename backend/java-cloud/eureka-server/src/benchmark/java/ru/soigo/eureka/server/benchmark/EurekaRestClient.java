@@ -0,0 +1,155 @@
+package ru.soigo.eureka.server.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal client of the Eureka REST API that records the latency of every call.
+ * <p>
+ * It speaks the same JSON protocol as the Eureka client used by the services, but without its caches and
+ * background threads, so thousands of instances can be simulated from virtual threads in one JVM.
+ * </p>
+ */
+class EurekaRestClient {
+    static final String JSON = "application/json";
+
+    final HttpClient httpClient = HttpClient
+            .newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    final String baseUrl;
+    final int leaseSeconds;
+    final int heartbeatSeconds;
+
+    /**
+     * Constructs a new client.
+     *
+     * @param baseUrl          the base URL of the Eureka REST API, e.g. {@code http://localhost:8761/eureka}.
+     * @param heartbeatSeconds the heartbeat interval advertised by registered instances.
+     */
+    EurekaRestClient(String baseUrl, int heartbeatSeconds) {
+        this.baseUrl = baseUrl;
+        this.heartbeatSeconds = heartbeatSeconds;
+        this.leaseSeconds = heartbeatSeconds * 3;
+    }
+
+    /**
+     * Registers an instance.
+     *
+     * @param instance the instance to register.
+     * @param recorder the recorder of registration latencies.
+     */
+    void register(SimulatedInstance instance, LatencyRecorder recorder) {
+        String body = """
+                {"instance":{
+                  "instanceId":"%1$s",
+                  "hostName":"%2$s",
+                  "app":"%3$s",
+                  "ipAddr":"%2$s",
+                  "status":"UP",
+                  "overriddenStatus":"UNKNOWN",
+                  "port":{"$":%4$d,"@enabled":"true"},
+                  "securePort":{"$":443,"@enabled":"false"},
+                  "countryId":1,
+                  "dataCenterInfo":{"@class":"com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo","name":"MyOwn"},
+                  "leaseInfo":{"renewalIntervalInSecs":%5$d,"durationInSecs":%6$d},
+                  "vipAddress":"%7$s",
+                  "secureVipAddress":"%7$s",
+                  "metadata":{"benchmark":"true"}
+                }}
+                """.formatted(
+                instance.instanceId(),
+                instance.host(),
+                instance.app(),
+                instance.port(),
+                heartbeatSeconds,
+                leaseSeconds,
+                instance.app().toLowerCase()
+        );
+        send(HttpRequest
+                .newBuilder(URI.create(baseUrl + "/apps/" + instance.app()))
+                .header("Content-Type", JSON)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), recorder);
+    }
+
+    /**
+     * Sends a heartbeat (lease renewal) of an instance.
+     *
+     * @param instance the instance to renew.
+     * @param recorder the recorder of heartbeat latencies.
+     * @return {@code false} if the server did not know the instance and it must register again.
+     */
+    boolean heartbeat(SimulatedInstance instance, LatencyRecorder recorder) {
+        int status = send(HttpRequest
+                .newBuilder(URI.create(baseUrl + "/apps/" + instance.app() + "/" + instance.instanceId() + "?status=UP"))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build(), recorder);
+        return status != 404;
+    }
+
+    /**
+     * Fetches the registry delta, as Eureka clients do on every registry refresh.
+     *
+     * @param recorder the recorder of fetch latencies.
+     */
+    void fetchDelta(LatencyRecorder recorder) {
+        send(HttpRequest
+                .newBuilder(URI.create(baseUrl + "/apps/delta"))
+                .header("Accept", JSON)
+                .GET()
+                .build(), recorder);
+    }
+
+    /**
+     * Fetches the full registry, as Eureka clients do at startup.
+     *
+     * @param recorder the recorder of fetch latencies.
+     */
+    void fetchFull(LatencyRecorder recorder) {
+        send(HttpRequest
+                .newBuilder(URI.create(baseUrl + "/apps"))
+                .header("Accept", JSON)
+                .GET()
+                .build(), recorder);
+    }
+
+    /**
+     * Cancels the lease of an instance, as Eureka clients do on shutdown.
+     *
+     * @param instance the instance to cancel.
+     * @param recorder the recorder of cancellation latencies.
+     */
+    void cancel(SimulatedInstance instance, LatencyRecorder recorder) {
+        send(HttpRequest
+                .newBuilder(URI.create(baseUrl + "/apps/" + instance.app() + "/" + instance.instanceId()))
+                .DELETE()
+                .build(), recorder);
+    }
+
+    private int send(HttpRequest request, LatencyRecorder recorder) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 400 && response.statusCode() != 404) {
+                recorder.fail();
+            } else {
+                recorder.record(System.nanoTime() - start);
+            }
+            return response.statusCode();
+        } catch (IOException exception) {
+            recorder.fail();
+            return -1;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.soigo.eureka.server.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records request latencies and failures of one operation type during one benchmark step.
+ * <p>
+ * Samples are kept in a growable array guarded by the recorder itself; at the request rates of the benchmark
+ * (a few thousand per second) the lock is not a bottleneck and exact percentiles are more useful than a histogram.
+ * </p>
+ */
+class LatencyRecorder {
+    final AtomicLong failures = new AtomicLong();
+    long[] samples = new long[4096];
+    int count;
+
+    /**
+     * Records a successful request.
+     *
+     * @param nanos the request latency in nanoseconds.
+     */
+    synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    /**
+     * Records a failed request.
+     */
+    void fail() {
+        failures.incrementAndGet();
+    }
+
+    /**
+     * Returns a summary of the recorded latencies.
+     *
+     * @return the summary.
+     */
+    synchronized Summary summarize() {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(
+                count,
+                failures.get(),
+                percentileMillis(sorted, 0.50),
+                percentileMillis(sorted, 0.90),
+                percentileMillis(sorted, 0.99),
+                percentileMillis(sorted, 0.999)
+        );
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * Latency summary of one operation type.
+     *
+     * @param count    the number of successful requests.
+     * @param failures the number of failed requests.
+     * @param p50      the median latency in milliseconds.
+     * @param p90      the 90th percentile latency in milliseconds.
+     * @param p99      the 99th percentile latency in milliseconds.
+     * @param p999     the 99.9th percentile latency in milliseconds.
+     */
+    record Summary(long count, long failures, double p50, double p90, double p99, double p999) {
+    }
+}
@@ -0,0 +1,35 @@
+package ru.soigo.eureka.server.benchmark;
+
+import java.util.UUID;
+
+/**
+ * Identity of one simulated service instance.
+ *
+ * @param app        the upper case application name, as used by Eureka.
+ * @param instanceId the unique instance id.
+ * @param host       the advertised host address.
+ * @param port       the advertised port.
+ */
+record SimulatedInstance(String app, String instanceId, String host, int port) {
+
+    /**
+     * Creates a new instance of the given application with a random instance id.
+     *
+     * @param app   the upper case application name.
+     * @param index the sequence number of the instance, used to derive a unique address.
+     * @return the new instance.
+     */
+    static SimulatedInstance create(String app, int index) {
+        String host = "10.%d.%d.%d".formatted((index >> 16) & 0xFF, (index >> 8) & 0xFF, index & 0xFF);
+        return new SimulatedInstance(app, app.toLowerCase() + ":" + UUID.randomUUID(), host, 8080);
+    }
+
+    /**
+     * Returns a replacement of this instance with a new instance id, as after a redeploy.
+     *
+     * @return the replacement.
+     */
+    SimulatedInstance redeploy() {
+        return new SimulatedInstance(app, app.toLowerCase() + ":" + UUID.randomUUID(), host, port);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.soigo.eureka.server.aot;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.util.List;
+
+/**
+ * Reachability metadata for {@code eureka-server} in native images.
+ * <p>
+ * The Eureka REST API is served by Jersey resources that are discovered by classpath scanning and invoked
+ * reflectively, and registry payloads are written by XStream and Jackson converters. The resources, providers and
+ * converters are registered here, together with the templates and static files of the dashboard. The registry
+ * model itself is covered by {@link ru.soigo.eureka.snapshot.aot.EurekaClientRuntimeHints}.
+ * </p>
+ */
+public class EurekaServerRuntimeHints implements RuntimeHintsRegistrar {
+    static final List<String> JERSEY_TYPES = List.of(
+            "com.netflix.eureka.resources.ApplicationsResource",
+            "com.netflix.eureka.resources.ApplicationResource",
+            "com.netflix.eureka.resources.InstanceResource",
+            "com.netflix.eureka.resources.InstancesResource",
+            "com.netflix.eureka.resources.PeerReplicationResource",
+            "com.netflix.eureka.resources.ServerInfoResource",
+            "com.netflix.eureka.resources.StatusResource",
+            "com.netflix.eureka.resources.VIPResource",
+            "com.netflix.eureka.resources.SecureVIPResource",
+            "com.netflix.eureka.resources.ASGResource",
+            "com.netflix.eureka.cluster.protocol.ReplicationList",
+            "com.netflix.eureka.cluster.protocol.ReplicationListResponse",
+            "com.netflix.eureka.cluster.protocol.ReplicationInstance",
+            "com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse",
+            "com.netflix.discovery.provider.DiscoveryJerseyProvider",
+            "com.netflix.discovery.converters.EntityBodyConverter",
+            "com.netflix.discovery.converters.Converters$ApplicationsConverter",
+            "com.netflix.discovery.converters.Converters$ApplicationConverter",
+            "com.netflix.discovery.converters.Converters$InstanceInfoConverter",
+            "com.netflix.discovery.converters.Converters$LeaseInfoConverter",
+            "com.netflix.discovery.converters.Converters$DataCenterInfoConverter",
+            "com.netflix.discovery.converters.Converters$MetadataConverter",
+            "com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl$Action",
+            "com.netflix.eureka.DefaultEurekaServerConfig"
+    );
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void registerHints(@NotNull RuntimeHints hints, @Nullable ClassLoader classLoader) {
+        for (String type : JERSEY_TYPES) {
+            hints.reflection().registerTypeIfPresent(
+                    classLoader,
+                    type,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS,
+                    MemberCategory.DECLARED_FIELDS
+            );
+        }
+        hints.resources()
+                .registerPattern("templates/eureka/*")
+                .registerPattern("static/eureka/**")
+                .registerPattern("eureka-*.properties");
+    }
+}
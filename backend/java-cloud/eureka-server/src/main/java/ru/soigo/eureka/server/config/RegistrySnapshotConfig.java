@@ -0,0 +1,39 @@
+package ru.soigo.eureka.server.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.soigo.eureka.snapshot.RegistrySnapshotStore;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration class for the optional disk snapshot of the server registry.
+ * <p>
+ * Enabled with {@code eureka.server.snapshot.enabled=true}. The snapshot is written to
+ * {@code eureka.server.snapshot.path} and used to seed the registry after a restart.
+ * </p>
+ *
+ * @see ru.soigo.eureka.server.snapshot.RegistrySnapshotService
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(value = "eureka.server.snapshot.enabled", havingValue = "true")
+public class RegistrySnapshotConfig {
+
+    /**
+     * Creates the store of the server registry snapshot.
+     *
+     * @param path the snapshot file.
+     * @return the snapshot store.
+     */
+    @Bean
+    public RegistrySnapshotStore serverRegistrySnapshotStore(
+            @Value("${eureka.server.snapshot.path:${user.home}/.eureka-snapshot/eureka-server-registry.json}")
+            String path
+    ) {
+        return new RegistrySnapshotStore(Path.of(path));
+    }
+}
@@ -0,0 +1,95 @@
+package ru.soigo.eureka.server.snapshot;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.LeaseInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaRegistryAvailableEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.soigo.eureka.snapshot.RegistrySnapshotStore;
+
+/**
+ * Service that keeps a disk snapshot of the server registry and seeds the registry from it after a restart.
+ * <p>
+ * Without a snapshot, a restarted {@code eureka-server} answers with an empty registry until every client has
+ * re-registered. With the snapshot, the last known instances are registered again as soon as the registry becomes
+ * available. Seeded instances get a fresh lease: instances that are still alive renew it with their next heartbeat,
+ * and instances that are gone expire after one lease duration, like any other instance that stops renewing.
+ * </p>
+ * <p>
+ * The registry is written every {@code eureka.server.snapshot.interval} milliseconds when its content changed,
+ * and once more on shutdown.
+ * </p>
+ *
+ * @see RegistrySnapshotStore
+ * @see ru.soigo.eureka.server.config.RegistrySnapshotConfig
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(value = "eureka.server.snapshot.enabled", havingValue = "true")
+public class RegistrySnapshotService {
+    final PeerAwareInstanceRegistry registry;
+    final RegistrySnapshotStore serverRegistrySnapshotStore;
+    volatile String lastHashCode;
+
+    /**
+     * Seeds an empty registry from the snapshot once the registry is available.
+     *
+     * @param event the event published when the registry has been initialized.
+     */
+    @EventListener(EurekaRegistryAvailableEvent.class)
+    public void seedRegistry(EurekaRegistryAvailableEvent event) {
+        if (registry.getApplications().size() > 0) {
+            log.info("Registry already populated, skipping snapshot seeding");
+            return;
+        }
+        Applications snapshot = serverRegistrySnapshotStore.read();
+        if (snapshot == null) {
+            return;
+        }
+
+        int seeded = 0;
+        for (Application application : snapshot.getRegisteredApplications()) {
+            for (InstanceInfo instance : application.getInstances()) {
+                LeaseInfo leaseInfo = instance.getLeaseInfo();
+                int leaseDuration = leaseInfo != null && leaseInfo.getDurationInSecs() > 0
+                        ? leaseInfo.getDurationInSecs()
+                        : LeaseInfo.DEFAULT_LEASE_DURATION;
+                registry.register(instance, leaseDuration, false);
+                seeded++;
+            }
+        }
+        log.info("Seeded registry with {} instances from snapshot", seeded);
+    }
+
+    /**
+     * Writes the registry to the snapshot if it changed since the last write.
+     */
+    @Scheduled(fixedDelayString = "${eureka.server.snapshot.interval:30000}")
+    public void writeSnapshot() {
+        Applications applications = registry.getApplications();
+        String hashCode = applications.getReconcileHashCode();
+        if (applications.size() == 0 || hashCode.equals(lastHashCode)) {
+            return;
+        }
+        serverRegistrySnapshotStore.write(applications);
+        lastHashCode = hashCode;
+    }
+
+    /**
+     * Writes the final state of the registry on shutdown.
+     */
+    @PreDestroy
+    public void writeOnShutdown() {
+        lastHashCode = null;
+        writeSnapshot();
+    }
+}
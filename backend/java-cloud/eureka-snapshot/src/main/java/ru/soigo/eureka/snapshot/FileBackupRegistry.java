@@ -0,0 +1,54 @@
+package ru.soigo.eureka.snapshot;
+
+import com.netflix.discovery.BackupRegistry;
+import com.netflix.discovery.shared.Applications;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+
+/**
+ * {@link BackupRegistry} that serves the last registry snapshot written by this client.
+ * <p>
+ * The Eureka client consults its backup registry when the initial registry fetch fails, for example while
+ * {@code eureka-server} is restarting. Serving the snapshot lets the application route with stale but usable instance
+ * lists until the first successful fetch replaces them.
+ * </p>
+ * <p>
+ * The Eureka client instantiates this class reflectively from {@code eureka.client.backup-registry-impl}, so the
+ * snapshot location is handed over by {@link RegistrySnapshotEnvironmentPostProcessor} through {@link #configure}
+ * before the application context starts.
+ * </p>
+ *
+ * @see RegistrySnapshotStore
+ * @see RegistrySnapshotEnvironmentPostProcessor
+ */
+public class FileBackupRegistry implements BackupRegistry {
+    private static volatile Path snapshotPath;
+
+    /**
+     * Sets the snapshot file served by all instances of this class.
+     *
+     * @param path the snapshot file.
+     */
+    public static void configure(@NotNull Path path) {
+        snapshotPath = path;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @Nullable Applications fetchRegistry() {
+        Path path = snapshotPath;
+        return path == null ? null : new RegistrySnapshotStore(path).read();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @Nullable Applications fetchRegistry(String[] includeRemoteRegions) {
+        return fetchRegistry();
+    }
+}
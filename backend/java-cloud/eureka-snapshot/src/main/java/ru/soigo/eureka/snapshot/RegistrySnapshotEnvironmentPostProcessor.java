@@ -0,0 +1,65 @@
+package ru.soigo.eureka.snapshot;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Prepares the registry snapshot before the Eureka client is created.
+ * <p>
+ * Resolves the snapshot file from {@code eureka.client.snapshot.path} (by default
+ * {@code ~/.eureka-snapshot/${spring.application.name}-eureka-registry.json} rather than the shared temporary
+ * directory, where another local user could plant a registry), hands it to
+ * {@link FileBackupRegistry}, and registers {@link FileBackupRegistry} as the default
+ * {@code eureka.client.backup-registry-impl}. Setting {@code eureka.client.snapshot.enabled=false} turns the
+ * warm start off.
+ * </p>
+ *
+ * @see FileBackupRegistry
+ * @see ru.soigo.eureka.snapshot.config.RegistrySnapshotAutoConfiguration
+ */
+public class RegistrySnapshotEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+    static final String PROPERTY_SOURCE_NAME = "eurekaRegistrySnapshot";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty("eureka.client.snapshot.enabled", Boolean.class, true)) {
+            return;
+        }
+        FileBackupRegistry.configure(snapshotPath(environment));
+        environment.getPropertySources().addLast(new MapPropertySource(
+                PROPERTY_SOURCE_NAME,
+                Map.of("eureka.client.backup-registry-impl", FileBackupRegistry.class.getName())
+        ));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    /**
+     * Resolves the snapshot file of the application.
+     *
+     * @param environment the application environment.
+     * @return the snapshot file.
+     */
+    public static Path snapshotPath(ConfigurableEnvironment environment) {
+        String applicationName = environment.getProperty("spring.application.name", "application");
+        String defaultPath = Path
+                .of(System.getProperty("user.home"), ".eureka-snapshot", applicationName + "-eureka-registry.json")
+                .toString();
+        return Path.of(environment.getProperty("eureka.client.snapshot.path", defaultPath));
+    }
+}
@@ -0,0 +1,155 @@
+package ru.soigo.eureka.snapshot;
+
+import com.netflix.discovery.converters.EurekaJacksonCodec;
+import com.netflix.discovery.shared.Applications;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+
+/**
+ * Reads and writes snapshots of a Eureka registry to a local file.
+ * <p>
+ * Snapshots use the JSON format of the Eureka REST API. Writes go to a temporary file that is atomically moved over
+ * the previous snapshot, so a crash during a write never leaves a truncated snapshot behind.
+ * </p>
+ * <p>
+ * A snapshot decides which instances receive traffic, so it is only loaded from a file the application can trust. On
+ * POSIX file systems, the snapshot and the directories created for it are only accessible to their owner, and a
+ * snapshot that is a symbolic link, is owned by another user, or is writable by its group or others is ignored.
+ * </p>
+ *
+ * <p><b>Example Usage:</b></p>
+ * <pre>{@code
+ * RegistrySnapshotStore store = new RegistrySnapshotStore(Path.of("/var/lib/gateway/eureka-registry.json"));
+ * store.write(eurekaClient.getApplications());
+ * Applications applications = store.read();
+ * }</pre>
+ */
+@Slf4j
+public class RegistrySnapshotStore {
+    static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+    final Path path;
+
+    /**
+     * Constructs a new store backed by the given file.
+     *
+     * @param path the snapshot file.
+     */
+    public RegistrySnapshotStore(@NotNull Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Reads the last written snapshot.
+     *
+     * @return the snapshot, or {@code null} if there is none, it cannot be read or it is not trusted.
+     */
+    public @Nullable Applications read() {
+        if (!Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+            log.info("No registry snapshot found at: {}", path);
+            return null;
+        }
+        try {
+            if (!isTrusted()) {
+                return null;
+            }
+        } catch (IOException exception) {
+            log.warn("Failed to check registry snapshot at {}: {}", path, exception.getMessage());
+            return null;
+        }
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            Applications applications = EurekaJacksonCodec.getInstance().readValue(Applications.class, inputStream);
+            log.info("Loaded registry snapshot with {} applications from: {}", applications.size(), path);
+            return applications;
+        } catch (IOException | RuntimeException exception) {
+            log.warn("Failed to read registry snapshot from {}: {}", path, exception.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the given registry.
+     *
+     * @param applications the registry to store.
+     */
+    public void write(@NotNull Applications applications) {
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            boolean posix = isPosix();
+            if (posix && !Files.isDirectory(directory)) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+            } else {
+                Files.createDirectories(directory);
+            }
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            if (posix) {
+                Files.setPosixFilePermissions(temporary, OWNER_ONLY_FILE);
+            }
+            try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+                EurekaJacksonCodec.getInstance().writeTo(applications, outputStream);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote registry snapshot with {} applications to: {}", applications.size(), path);
+        } catch (IOException | RuntimeException exception) {
+            log.warn("Failed to write registry snapshot to {}: {}", path, exception.getMessage());
+        }
+    }
+
+    /**
+     * Checks that the snapshot was written by this user and cannot have been replaced by anyone else.
+     *
+     * @return {@code true} if the snapshot may be loaded.
+     * @throws IOException if the attributes of the snapshot cannot be read.
+     */
+    boolean isTrusted() throws IOException {
+        if (!isPosix()) {
+            return true;
+        }
+        PosixFileAttributes attributes = Files
+                .readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        UserPrincipal user = path
+                .getFileSystem()
+                .getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!attributes.owner().equals(user)) {
+            log.warn("Ignoring registry snapshot at {} owned by {} instead of {}", path, attributes.owner(), user);
+            return false;
+        }
+        Set<PosixFilePermission> permissions = attributes.permissions();
+        if (permissions.contains(PosixFilePermission.GROUP_WRITE)
+                || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+            log.warn("Ignoring registry snapshot at {} writable by other users: {}",
+                    path, PosixFilePermissions.toString(permissions));
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isPosix() {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    /**
+     * Returns the snapshot file.
+     *
+     * @return the snapshot file.
+     */
+    public @NotNull Path getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.soigo.eureka.snapshot.aot;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import ru.soigo.eureka.snapshot.FileBackupRegistry;
+
+import java.util.List;
+
+/**
+ * Reachability metadata for the Eureka client and the registry snapshot in native images.
+ * <p>
+ * The Eureka client serializes the registry with Jackson mix-ins and instantiates the configured
+ * {@code backup-registry-impl} by class name, both of which are invisible to the static analysis of
+ * {@code native-image}. The registered types cover the registry model, the data center variants and
+ * {@link FileBackupRegistry}.
+ * </p>
+ *
+ * @see FileBackupRegistry
+ */
+public class EurekaClientRuntimeHints implements RuntimeHintsRegistrar {
+    static final List<String> REGISTRY_TYPES = List.of(
+            "com.netflix.appinfo.InstanceInfo",
+            "com.netflix.appinfo.InstanceInfo$PortWrapper",
+            "com.netflix.appinfo.InstanceInfo$InstanceStatus",
+            "com.netflix.appinfo.InstanceInfo$ActionType",
+            "com.netflix.appinfo.LeaseInfo",
+            "com.netflix.appinfo.DataCenterInfo",
+            "com.netflix.appinfo.DataCenterInfo$Name",
+            "com.netflix.appinfo.MyDataCenterInfo",
+            "com.netflix.appinfo.AmazonInfo",
+            "com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo",
+            "com.netflix.discovery.shared.Application",
+            "com.netflix.discovery.shared.Applications",
+            "com.netflix.discovery.converters.jackson.mixin.InstanceInfoJsonMixIn",
+            "com.netflix.discovery.converters.jackson.mixin.ApplicationsJsonMixIn",
+            "com.netflix.discovery.converters.jackson.mixin.DataCenterInfoXmlMixIn",
+            "com.netflix.discovery.converters.jackson.mixin.LeaseInfoXmlMixIn",
+            "com.netflix.discovery.converters.jackson.mixin.PortWrapperXmlMixIn",
+            "com.netflix.discovery.converters.jackson.mixin.MiniInstanceInfoMixIn"
+    );
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void registerHints(@NotNull RuntimeHints hints, @Nullable ClassLoader classLoader) {
+        for (String type : REGISTRY_TYPES) {
+            hints.reflection().registerTypeIfPresent(
+                    classLoader,
+                    type,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS,
+                    MemberCategory.DECLARED_FIELDS
+            );
+        }
+        hints.reflection().registerType(FileBackupRegistry.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
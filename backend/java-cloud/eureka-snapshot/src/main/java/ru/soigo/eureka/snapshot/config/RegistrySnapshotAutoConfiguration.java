@@ -0,0 +1,98 @@
+package ru.soigo.eureka.snapshot.config;
+
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Applications;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.netflix.eureka.EurekaClientAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import ru.soigo.eureka.snapshot.RegistrySnapshotEnvironmentPostProcessor;
+import ru.soigo.eureka.snapshot.RegistrySnapshotStore;
+
+/**
+ * Auto-configuration that keeps the local registry snapshot of a Eureka client up to date.
+ * <p>
+ * After every registry refresh the Eureka client publishes a {@link HeartbeatEvent}. The registry is then written to
+ * the snapshot file whenever its hash code changed since the last write, so the snapshot always holds the last known
+ * registry and the file is not rewritten on every fetch.
+ * </p>
+ *
+ * @see RegistrySnapshotStore
+ * @see ru.soigo.eureka.snapshot.FileBackupRegistry
+ */
+@Slf4j
+@AutoConfiguration(after = EurekaClientAutoConfiguration.class)
+@ConditionalOnClass(EurekaClient.class)
+@ConditionalOnProperty(value = {"eureka.client.snapshot.enabled", "eureka.client.fetch-registry"}, matchIfMissing = true)
+public class RegistrySnapshotAutoConfiguration {
+
+    /**
+     * Creates the store of the registry snapshot of this application.
+     *
+     * @param environment the application environment.
+     * @return the snapshot store.
+     */
+    @Bean
+    public RegistrySnapshotStore registrySnapshotStore(ConfigurableEnvironment environment) {
+        return new RegistrySnapshotStore(RegistrySnapshotEnvironmentPostProcessor.snapshotPath(environment));
+    }
+
+    /**
+     * Creates the listener that writes the snapshot after registry refreshes.
+     *
+     * @param eurekaClient          the Eureka client whose registry is stored.
+     * @param registrySnapshotStore the snapshot store.
+     * @return the snapshot writer.
+     */
+    @Bean
+    public RegistrySnapshotWriter registrySnapshotWriter(
+            ObjectProvider<EurekaClient> eurekaClient,
+            RegistrySnapshotStore registrySnapshotStore
+    ) {
+        return new RegistrySnapshotWriter(eurekaClient, registrySnapshotStore);
+    }
+
+    /**
+     * Writes the registry snapshot when the registry content changes.
+     */
+    public static class RegistrySnapshotWriter {
+        final ObjectProvider<EurekaClient> eurekaClient;
+        final RegistrySnapshotStore registrySnapshotStore;
+        volatile String lastHashCode;
+
+        RegistrySnapshotWriter(ObjectProvider<EurekaClient> eurekaClient, RegistrySnapshotStore registrySnapshotStore) {
+            this.eurekaClient = eurekaClient;
+            this.registrySnapshotStore = registrySnapshotStore;
+        }
+
+        /**
+         * Writes the snapshot if the registry changed since the last write.
+         *
+         * @param event the event published after a registry refresh.
+         */
+        @EventListener(HeartbeatEvent.class)
+        public void onRegistryRefreshed(HeartbeatEvent event) {
+            EurekaClient client = eurekaClient.getIfAvailable();
+            if (client == null) {
+                return;
+            }
+            Applications applications = client.getApplications();
+            if (applications == null || applications.size() == 0) {
+                return;
+            }
+            String hashCode = applications.getAppsHashCode();
+            if (hashCode != null && hashCode.equals(lastHashCode)) {
+                return;
+            }
+            log.debug("Registry changed ({}), writing snapshot", hashCode);
+            registrySnapshotStore.write(applications);
+            lastHashCode = hashCode;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ru.soigo.eureka.snapshot;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RegistrySnapshotStoreTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsWhatWasWritten() {
+        RegistrySnapshotStore store = new RegistrySnapshotStore(directory.resolve("auth-eureka-registry.json"));
+        store.write(applications());
+
+        Applications applications = store.read();
+
+        assertNotNull(applications);
+        assertEquals(1, applications.getRegisteredApplications("AUTH").getInstances().size());
+    }
+
+    @Test
+    void isOnlyAccessibleToItsOwner() throws IOException {
+        Path path = directory.resolve("snapshots").resolve("auth-eureka-registry.json");
+        new RegistrySnapshotStore(path).write(applications());
+
+        if (isPosix(path)) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(path)));
+            assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(path.getParent())));
+        }
+    }
+
+    @Test
+    void ignoresSnapshotWritableByOthers() throws IOException {
+        Path path = directory.resolve("auth-eureka-registry.json");
+        RegistrySnapshotStore store = new RegistrySnapshotStore(path);
+        store.write(applications());
+
+        if (isPosix(path)) {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-rw-rw-"));
+            assertNull(store.read());
+        }
+    }
+
+    @Test
+    void ignoresSymbolicLink() throws IOException {
+        Path target = directory.resolve("planted.json");
+        new RegistrySnapshotStore(target).write(applications());
+        Path link = Files.createSymbolicLink(directory.resolve("auth-eureka-registry.json"), target);
+
+        assertNull(new RegistrySnapshotStore(link).read());
+    }
+
+    @Test
+    void defaultPathIsOutsideTemporaryDirectory() {
+        Path path = RegistrySnapshotEnvironmentPostProcessor
+                .snapshotPath(new MockEnvironment().withProperty("spring.application.name", "auth"));
+
+        assertEquals(Path.of(System.getProperty("user.home"), ".eureka-snapshot", "auth-eureka-registry.json"), path);
+        assertFalse(path.startsWith(Path.of(System.getProperty("java.io.tmpdir"))));
+    }
+
+    private static Applications applications() {
+        Application application = new Application("AUTH");
+        application.addInstance(InstanceInfo.Builder
+                .newBuilder()
+                .setAppName("AUTH")
+                .setInstanceId("auth-1")
+                .setHostName("localhost")
+                .build());
+        Applications applications = new Applications();
+        applications.addApplication(application);
+        return applications;
+    }
+
+    private static boolean isPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+}
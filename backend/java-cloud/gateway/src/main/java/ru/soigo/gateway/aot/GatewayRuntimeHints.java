@@ -0,0 +1,72 @@
+package ru.soigo.gateway.aot;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import ru.soigo.gateway.filter.factory.AuthenticatedUserGatewayFilterFactory;
+import ru.soigo.gateway.filter.factory.ResponseCacheGatewayFilterFactory;
+import ru.soigo.gateway.filter.factory.SingleFlightGatewayFilterFactory;
+
+import java.util.List;
+
+/**
+ * Reachability metadata for the gateway in native images.
+ * <p>
+ * Spring Cloud Gateway binds route filter arguments to the {@code Config} classes of filter factories
+ * reflectively, so the configuration classes of the custom filter factories are registered for binding.
+ * JJWT locates its implementation and JSON support by class name and through {@link java.util.ServiceLoader},
+ * so those classes and service descriptors are registered as well.
+ * </p>
+ *
+ * @see ru.soigo.gateway.jwt.AccessTokenVerifier
+ */
+public class GatewayRuntimeHints implements RuntimeHintsRegistrar {
+    static final List<Class<?>> FILTER_CONFIGS = List.of(
+            AuthenticatedUserGatewayFilterFactory.Config.class,
+            ResponseCacheGatewayFilterFactory.Config.class,
+            SingleFlightGatewayFilterFactory.Config.class
+    );
+    static final List<String> JJWT_TYPES = List.of(
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultClaimsBuilder",
+            "io.jsonwebtoken.impl.io.StandardCompressionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardSecureDigestAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardEncryptionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyOperations",
+            "io.jsonwebtoken.impl.security.StandardHashAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardCurves",
+            "io.jsonwebtoken.impl.security.KeysBridge",
+            "io.jsonwebtoken.impl.security.DefaultJwkParserBuilder",
+            "io.jsonwebtoken.impl.security.DefaultDynamicJwkBuilder",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+    );
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void registerHints(@NotNull RuntimeHints hints, @Nullable ClassLoader classLoader) {
+        for (Class<?> config : FILTER_CONFIGS) {
+            hints.reflection().registerType(
+                    config,
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS,
+                    MemberCategory.DECLARED_FIELDS
+            );
+        }
+        for (String type : JJWT_TYPES) {
+            hints.reflection().registerTypeIfPresent(
+                    classLoader,
+                    type,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS
+            );
+        }
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.io.*");
+    }
+}
@@ -0,0 +1,21 @@
+package ru.soigo.gateway.config;
+
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+import ru.soigo.gateway.loadbalancer.config.ConsistentHashLoadBalancerConfig;
+
+/**
+ * Configuration class selecting the load balancer used for all services routed by the gateway.
+ * <p>
+ * Every service uses {@link ru.soigo.gateway.loadbalancer.ConsistentHashLoadBalancer}, which pins WebSocket
+ * connections of a user to one instance and balances all other requests round-robin. Both choose among the
+ * instances offered by {@link ru.soigo.gateway.loadbalancer.ZoneAffinityServiceInstanceListSupplier}, which keeps
+ * requests in the zone of the gateway while that zone has enough healthy instances.
+ * </p>
+ *
+ * @see ConsistentHashLoadBalancerConfig
+ */
+@Configuration
+@LoadBalancerClients(defaultConfiguration = ConsistentHashLoadBalancerConfig.class)
+public class LoadBalancerConfig {
+}
@@ -0,0 +1,106 @@
+package ru.soigo.gateway.filter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Global filter that stamps every forwarded request with the time budget the gateway will wait for it.
+ * <p>
+ * The budget is taken from the route's {@code response-timeout} metadata, falling back to
+ * {@code spring.cloud.gateway.httpclient.response-timeout}. It is sent as a relative number of milliseconds in the
+ * {@value #TIMEOUT_HEADER} header rather than as an absolute timestamp, so clock skew between hosts does not matter.
+ * If the incoming request already carries a smaller budget, that budget is kept.
+ * </p>
+ * <p>
+ * Downstream services use the header to stop working on requests whose response the gateway will no longer
+ * wait for. Routes without any configured timeout are forwarded unchanged.
+ * </p>
+ *
+ * @see RouteMetadataUtils#RESPONSE_TIMEOUT_ATTR
+ * @see HttpClientProperties#getResponseTimeout()
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeadlineGlobalFilter implements GlobalFilter, Ordered {
+    /**
+     * Header carrying the remaining time budget of the request in milliseconds.
+     */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    final HttpClientProperties httpClientProperties;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Void> filter(@NotNull ServerWebExchange exchange, @NotNull GatewayFilterChain chain) {
+        Duration timeout = routeTimeout(exchange.getAttribute(GATEWAY_ROUTE_ATTR));
+        if (timeout == null) {
+            return chain.filter(exchange);
+        }
+
+        long budget = timeout.toMillis();
+        String incoming = exchange.getRequest().getHeaders().getFirst(TIMEOUT_HEADER);
+        if (incoming != null) {
+            try {
+                budget = Math.min(budget, Long.parseLong(incoming.trim()));
+            } catch (NumberFormatException exception) {
+                log.debug("Ignoring malformed {} header: {}", TIMEOUT_HEADER, incoming);
+            }
+        }
+
+        String value = String.valueOf(Math.max(0, budget));
+        ServerWebExchange stamped = exchange
+                .mutate()
+                .request(request -> request.headers(headers -> headers.set(TIMEOUT_HEADER, value)))
+                .build();
+        return chain.filter(stamped);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+
+    /**
+     * Resolves the response timeout that applies to the given route.
+     *
+     * @param route the matched route, may be {@code null}.
+     * @return the timeout, or {@code null} if the route has none. Malformed route metadata falls back to the global
+     * timeout.
+     */
+    private @Nullable Duration routeTimeout(@Nullable Route route) {
+        if (route != null) {
+            Object metadata = route.getMetadata().get(RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR);
+            if (metadata != null) {
+                try {
+                    long millis = Long.parseLong(String.valueOf(metadata).trim());
+                    return millis < 0 ? null : Duration.ofMillis(millis);
+                } catch (NumberFormatException exception) {
+                    log.debug("Ignoring malformed {} metadata of route {}: {}",
+                            RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR, route.getId(), metadata);
+                }
+            }
+        }
+        return httpClientProperties.getResponseTimeout();
+    }
+}
@@ -0,0 +1,75 @@
+package ru.soigo.gateway.filter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import ru.soigo.gateway.filter.factory.AuthenticatedUserGatewayFilterFactory;
+import ru.soigo.gateway.jwt.AccessTokenVerifier;
+
+/**
+ * Global filter that keeps client-supplied user identities away from routing and backends.
+ * <p>
+ * The filter runs before all others and removes any {@value AuthenticatedUserGatewayFilterFactory#USER_ID_HEADER}
+ * header sent by the client, so the header only ever carries a user id verified by
+ * {@link AuthenticatedUserGatewayFilterFactory}. For WebSocket handshakes with a valid access token it stores the
+ * verified user id in the {@value #VERIFIED_USER_ID_ATTR} exchange attribute, which the load balancer uses to pin the
+ * connections of a user to one instance.
+ * </p>
+ *
+ * <p><b>Dependencies:</b></p>
+ * <ul>
+ *   <li>{@link AccessTokenVerifier} - Verifies the access tokens of WebSocket handshakes.</li>
+ * </ul>
+ *
+ * @see ru.soigo.gateway.loadbalancer.ConsistentHashLoadBalancer
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserIdentityGlobalFilter implements GlobalFilter, Ordered {
+    /**
+     * Exchange attribute holding the user id verified from the access token of a WebSocket handshake.
+     */
+    public static final String VERIFIED_USER_ID_ATTR = "ru.soigo.gateway.verifiedUserId";
+    static final String WEBSOCKET = "websocket";
+
+    final AccessTokenVerifier accessTokenVerifier;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Void> filter(@NotNull ServerWebExchange exchange, @NotNull GatewayFilterChain chain) {
+        ServerWebExchange stripped = exchange;
+        if (exchange.getRequest().getHeaders().containsKey(AuthenticatedUserGatewayFilterFactory.USER_ID_HEADER)) {
+            log.debug("Removing client-supplied {} header", AuthenticatedUserGatewayFilterFactory.USER_ID_HEADER);
+            stripped = exchange
+                    .mutate()
+                    .request(request -> request.headers(headers ->
+                            headers.remove(AuthenticatedUserGatewayFilterFactory.USER_ID_HEADER)))
+                    .build();
+        }
+
+        if (WEBSOCKET.equalsIgnoreCase(stripped.getRequest().getHeaders().getUpgrade())) {
+            String userId = accessTokenVerifier.verifyUserId(stripped.getRequest());
+            if (userId != null) {
+                stripped.getAttributes().put(VERIFIED_USER_ID_ATTR, userId);
+            }
+        }
+        return chain.filter(stripped);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
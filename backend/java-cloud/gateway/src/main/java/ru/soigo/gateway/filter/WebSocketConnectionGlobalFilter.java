@@ -0,0 +1,116 @@
+package ru.soigo.gateway.filter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * Global filter that counts open WebSocket connections per backend instance.
+ * <p>
+ * The filter runs right after the load balancer has chosen an instance. For WebSocket handshakes it increments the
+ * counter of that instance and decrements it when the proxied session ends, so the counts reflect how connections
+ * are spread across instances and can be used for capacity planning.
+ * </p>
+ * <p>
+ * The gauge of an instance is registered with its first connection and removed with its last one, so instances that
+ * left the registry, whose connections have all ended, leave no gauges behind.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code gateway.websocket.connections} - Open connections, tagged by {@code service} and {@code instance};
+ *   absent for instances without connections.</li>
+ * </ul>
+ *
+ * @see ru.soigo.gateway.loadbalancer.ConsistentHashLoadBalancer
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WebSocketConnectionGlobalFilter implements GlobalFilter, Ordered {
+    static final String WEBSOCKET = "websocket";
+
+    final MeterRegistry meterRegistry;
+    final Map<String, Connections> connections = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Void> filter(@NotNull ServerWebExchange exchange, @NotNull GatewayFilterChain chain) {
+        Response<ServiceInstance> response = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (response == null
+                || !response.hasServer()
+                || !WEBSOCKET.equalsIgnoreCase(exchange.getRequest().getHeaders().getUpgrade())) {
+            return chain.filter(exchange);
+        }
+
+        ServiceInstance instance = response.getServer();
+        int open = opened(instance);
+        log.debug("WebSocket connection opened to {}, open connections: {}", instance.getInstanceId(), open);
+        return chain
+                .filter(exchange)
+                .doFinally(signal -> closed(instance.getInstanceId()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+
+    private int opened(@NotNull ServiceInstance instance) {
+        return connections.compute(instance.getInstanceId(), (instanceId, current) -> {
+            if (current != null) {
+                current.open().incrementAndGet();
+                return current;
+            }
+            AtomicInteger open = new AtomicInteger(1);
+            Gauge gauge = Gauge
+                    .builder("gateway.websocket.connections", open, AtomicInteger::get)
+                    .description("Open WebSocket connections per backend instance")
+                    .tag("service", instance.getServiceId())
+                    .tag("instance", instanceId)
+                    .register(meterRegistry);
+            return new Connections(open, gauge);
+        }).open().get();
+    }
+
+    private void closed(@NotNull String instanceId) {
+        connections.computeIfPresent(instanceId, (id, current) -> {
+            if (current.open().decrementAndGet() > 0) {
+                return current;
+            }
+            meterRegistry.remove(current.gauge());
+            return null;
+        });
+    }
+
+    /**
+     * Open connections to a backend instance and the gauge publishing them.
+     *
+     * @param open  the number of open connections.
+     * @param gauge the gauge registered for the instance.
+     */
+    record Connections(@NotNull AtomicInteger open, @NotNull Gauge gauge) {
+    }
+}
@@ -0,0 +1,82 @@
+package ru.soigo.gateway.filter.factory;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import ru.soigo.gateway.filter.UserIdentityGlobalFilter;
+import ru.soigo.gateway.jwt.AccessTokenVerifier;
+
+/**
+ * Gateway filter factory that requires a valid access token and passes the verified user id downstream.
+ * <p>
+ * The token is read from the {@code Authorization} header, or from the {@code access_token} query parameter for
+ * WebSocket handshakes, since browsers cannot set headers on them. Requests without a valid access token are rejected
+ * with {@code 401 Unauthorized}. For valid tokens the user id is set in the {@value #USER_ID_HEADER} header, so that
+ * downstream services can rely on it. A value sent by the client never reaches them: it is removed by
+ * {@link UserIdentityGlobalFilter} on every route.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * {@code
+ * spring.cloud.gateway.routes[0].filters[0]=AuthenticatedUser
+ * }
+ * </pre>
+ *
+ * @see AccessTokenVerifier
+ * @see UserIdentityGlobalFilter
+ */
+@Slf4j
+@Component
+public class AuthenticatedUserGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AuthenticatedUserGatewayFilterFactory.Config> {
+    /**
+     * Header carrying the id of the user verified by the gateway.
+     */
+    public static final String USER_ID_HEADER = "X-User-Id";
+
+    final AccessTokenVerifier accessTokenVerifier;
+
+    /**
+     * Constructs a new instance of {@link AuthenticatedUserGatewayFilterFactory}.
+     *
+     * @param accessTokenVerifier the verifier of access tokens.
+     */
+    public AuthenticatedUserGatewayFilterFactory(AccessTokenVerifier accessTokenVerifier) {
+        super(Config.class);
+        this.accessTokenVerifier = accessTokenVerifier;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GatewayFilter apply(@NotNull Config config) {
+        return (exchange, chain) -> {
+            String userId = accessTokenVerifier.verifyUserId(exchange.getRequest());
+            if (userId == null) {
+                log.debug("Rejecting unauthenticated request: {}", exchange.getRequest().getURI().getRawPath());
+                exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+                return exchange.getResponse().setComplete();
+            }
+
+            return chain.filter(exchange
+                    .mutate()
+                    .request(request -> request.headers(headers -> headers.set(USER_ID_HEADER, userId)))
+                    .build());
+        };
+    }
+
+    /**
+     * Configuration of the {@link AuthenticatedUserGatewayFilterFactory}; the filter has no options.
+     */
+    @Getter
+    @Setter
+    public static class Config {
+    }
+}
@@ -0,0 +1,464 @@
+package ru.soigo.gateway.filter.factory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.soigo.gateway.filter.support.AuthorizationScope;
+import ru.soigo.gateway.filter.support.BufferedResponse;
+import ru.soigo.gateway.filter.support.CacheDirectives;
+import ru.soigo.gateway.filter.support.CachedResponse;
+import ru.soigo.gateway.filter.support.CapturingResponseDecorator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gateway filter factory that keeps a bounded in-memory cache of upstream {@code GET} responses.
+ * <p>
+ * Responses are stored according to their {@code Cache-Control}, {@code Expires}, {@code ETag} and
+ * {@code Last-Modified} headers (see {@link CachedResponse#from}). Fresh entries are served without contacting
+ * upstream; stale entries that carry validators are revalidated with {@code If-None-Match} /
+ * {@code If-Modified-Since}, and a {@code 304 Not Modified} from upstream refreshes the entry and serves
+ * the stored body. Clients sending a matching {@code If-None-Match} receive a {@code 304} from the gateway.
+ * </p>
+ * <p>
+ * Entries are keyed by the {@link AuthorizationScope} of the caller in addition to the path, query,
+ * {@code Accept} and {@code Accept-Encoding}, so users never see each other's responses. Responses that {@code Vary}
+ * on any other request header are not stored. Each route gets its own cache, bounded by {@code maxSize} bytes and
+ * evicted with Caffeine's W-TinyLFU policy.
+ * </p>
+ * <p>
+ * Routes are rebuilt on every route refresh, so the cache of a route is kept here by route id and reused, entries
+ * included, as long as its size, time to live and scope header stay the same. A cache whose settings changed is
+ * dropped together with its meters before its replacement is registered.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code gateway.response.cache.requests} - Requests by {@code result}: hit, revalidated, miss or bypass.</li>
+ *   <li>{@code gateway.response.cache.hit.ratio} - Share of cacheable requests answered without a full upstream response.</li>
+ *   <li>{@code cache.*} - Size, weight and eviction metrics of the underlying Caffeine cache.</li>
+ * </ul>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * {@code
+ * spring.cloud.gateway.routes[0].id=auth
+ * spring.cloud.gateway.routes[0].uri=lb://auth
+ * spring.cloud.gateway.routes[0].predicates[0]=Path=/auth/**
+ * spring.cloud.gateway.routes[0].filters[0]=StripPrefix=1
+ * spring.cloud.gateway.routes[0].filters[1]=ResponseCache=16MB,512KB
+ * }
+ * </pre>
+ *
+ * @see CachedResponse
+ * @see CacheDirectives
+ * @see AuthorizationScope
+ */
+@Slf4j
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+    static final List<String> KEYED_HEADERS = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    static final String CACHE_NAME = "gateway.response.cache";
+
+    final MeterRegistry meterRegistry;
+    final Map<String, RouteCache> routeCaches = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new instance of {@link ResponseCacheGatewayFilterFactory}.
+     *
+     * @param meterRegistry the registry used to publish cache metrics.
+     */
+    public ResponseCacheGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxSize", "maxEntrySize", "timeToLive");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GatewayFilter apply(@NotNull Config config) {
+        RouteCache routeCache = routeCaches.compute(
+                String.valueOf(config.getRouteId()),
+                (routeId, existing) -> existing != null && existing.fits(config)
+                        ? existing
+                        : replace(routeId, existing, config)
+        );
+        Cache<String, CachedResponse> cache = routeCache.cache();
+        Statistics statistics = routeCache.statistics();
+        int maxEntrySize = (int) config.getMaxEntrySize().toBytes();
+        List<String> keyedHeaders = new ArrayList<>(KEYED_HEADERS);
+        keyedHeaders.add(config.getScopeHeader());
+
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            CacheDirectives directives = CacheDirectives.parse(request.getHeaders().getCacheControl());
+            if (!isCacheable(request) || directives.noStore()) {
+                statistics.bypass.increment();
+                return chain.filter(exchange);
+            }
+
+            String scope = AuthorizationScope.of(request, config.getScopeHeader());
+            String key = cacheKey(request, scope);
+            CachedResponse entry = cache.getIfPresent(key);
+            long now = System.currentTimeMillis();
+
+            if (entry != null && entry.isFresh(now) && !directives.noCache()) {
+                log.debug("Serving cached response for key: {}", key);
+                statistics.hit.increment();
+                return serve(entry, request, exchange.getResponse(), now);
+            }
+
+            CapturingResponseDecorator decorator = new CapturingResponseDecorator(
+                    exchange.getResponse(),
+                    maxEntrySize,
+                    response -> store(cache, key, response, !AuthorizationScope.ANONYMOUS.equals(scope), keyedHeaders)
+            );
+            if (entry != null && entry.hasValidators()) {
+                log.debug("Revalidating cached response for key: {}", key);
+                return revalidate(entry, exchange, chain, decorator, cache, key, statistics);
+            }
+
+            statistics.miss.increment();
+            return chain
+                    .filter(exchange.mutate().response(decorator).build())
+                    .doFinally(signal -> decorator.release());
+        };
+    }
+
+    /**
+     * Creates the cache of a route, dropping the previous cache of the route and its meters.
+     *
+     * @param routeId  the id of the route.
+     * @param previous the previous cache of the route, or {@code null} if there is none.
+     * @param config   the filter configuration of the route.
+     * @return the new route cache.
+     */
+    private RouteCache replace(@NotNull String routeId, RouteCache previous, @NotNull Config config) {
+        if (previous != null) {
+            log.info("Response cache settings of route {} changed, dropping its cache", routeId);
+            previous.cache().invalidateAll();
+            List<Meter> meters = meterRegistry
+                    .getMeters()
+                    .stream()
+                    .filter(meter -> routeId.equals(meter.getId().getTag("route")))
+                    .filter(meter -> meter.getId().getName().startsWith(CACHE_NAME)
+                            || CACHE_NAME.equals(meter.getId().getTag("cache")))
+                    .toList();
+            meters.forEach(meterRegistry::remove);
+        }
+
+        Cache<String, CachedResponse> cache = Caffeine
+                .newBuilder()
+                .maximumWeight(config.getMaxSize().toBytes())
+                .weigher((String key, CachedResponse entry) -> key.length() + entry.response().weight())
+                .expireAfterWrite(config.getTimeToLive())
+                .recordStats()
+                .build();
+        Tags tags = Tags.of("route", routeId);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME, tags);
+        return new RouteCache(
+                cache,
+                new Statistics(meterRegistry, tags),
+                config.getMaxSize(),
+                config.getTimeToLive(),
+                config.getScopeHeader()
+        );
+    }
+
+    /**
+     * Forwards a conditional request for a stale entry and serves the stored body if upstream
+     * answers {@code 304 Not Modified}; any other answer is passed through and stored as usual.
+     *
+     * @param entry      the stale entry.
+     * @param exchange   the current exchange.
+     * @param chain      the remaining filter chain.
+     * @param capturing  the decorator that stores a full upstream response.
+     * @param cache      the route cache.
+     * @param key        the cache key of the request.
+     * @param statistics the route cache statistics.
+     * @return a {@link Mono} that completes when the response has been written.
+     */
+    private Mono<Void> revalidate(
+            @NotNull CachedResponse entry,
+            @NotNull ServerWebExchange exchange,
+            @NotNull GatewayFilterChain chain,
+            @NotNull CapturingResponseDecorator capturing,
+            @NotNull Cache<String, CachedResponse> cache,
+            @NotNull String key,
+            @NotNull Statistics statistics
+    ) {
+        ServerHttpRequest original = exchange.getRequest();
+        ServerHttpRequest conditional = original
+                .mutate()
+                .headers(headers -> {
+                    headers.remove(HttpHeaders.IF_NONE_MATCH);
+                    headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                    if (entry.etag() != null) {
+                        headers.setIfNoneMatch(entry.etag());
+                    }
+                    if (entry.lastModified() != null) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified());
+                    }
+                })
+                .build();
+
+        ServerHttpResponseDecorator decorator = new ServerHttpResponseDecorator(capturing) {
+            @Override
+            public @NotNull Mono<Void> writeAndFlushWith(
+                    @NotNull Publisher<? extends Publisher<? extends DataBuffer>> body
+            ) {
+                return writeWith(Flux.from(body).flatMapSequential(Flux::from));
+            }
+
+            @Override
+            public @NotNull Mono<Void> writeWith(@NotNull Publisher<? extends DataBuffer> body) {
+                if (!HttpStatus.NOT_MODIFIED.equals(getDelegate().getStatusCode())) {
+                    statistics.miss.increment();
+                    return capturing.writeWith(body);
+                }
+                capturing.release();
+                long now = System.currentTimeMillis();
+                CachedResponse refreshed = entry.revalidated(capturing.getDelegate().getHeaders(), now);
+                cache.put(key, refreshed);
+                statistics.revalidated.increment();
+                return Flux
+                        .from(body)
+                        .doOnNext(DataBufferUtils::release)
+                        .then(Mono.defer(() -> {
+                            ServerHttpResponse response = capturing.getDelegate();
+                            response.getHeaders().clear();
+                            return serve(refreshed, original, response, now);
+                        }));
+            }
+        };
+        return chain
+                .filter(exchange.mutate().request(conditional).response(decorator).build())
+                .doFinally(signal -> capturing.release());
+    }
+
+    /**
+     * Writes a cached entry to the client, answering {@code 304 Not Modified} if the client already holds it.
+     *
+     * @param entry    the entry to serve.
+     * @param request  the client request.
+     * @param response the client response.
+     * @param now      the current time in epoch milliseconds.
+     * @return a {@link Mono} that completes when the response has been written.
+     */
+    private Mono<Void> serve(
+            @NotNull CachedResponse entry,
+            @NotNull ServerHttpRequest request,
+            @NotNull ServerHttpResponse response,
+            long now
+    ) {
+        String age = String.valueOf(entry.ageSeconds(now));
+        if (entry.etag() != null && request.getHeaders().getIfNoneMatch().contains(entry.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            response.getHeaders().putAll(entry.response().headers());
+            response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            response.getHeaders().set(HttpHeaders.AGE, age);
+            return response.setComplete();
+        }
+        Mono<Void> write = entry.response().writeTo(response);
+        response.getHeaders().set(HttpHeaders.AGE, age);
+        return write;
+    }
+
+    /**
+     * Stores a captured upstream response if it is cacheable.
+     *
+     * @param cache        the route cache.
+     * @param key          the cache key of the request.
+     * @param response     the captured response, or {@code null} if it could not be captured.
+     * @param scoped       {@code true} if the request carried credentials.
+     * @param keyedHeaders the request headers the cache key includes.
+     */
+    private void store(
+            @NotNull Cache<String, CachedResponse> cache,
+            @NotNull String key,
+            BufferedResponse response,
+            boolean scoped,
+            @NotNull List<String> keyedHeaders
+    ) {
+        if (response == null) {
+            return;
+        }
+        CachedResponse entry = CachedResponse.from(response, scoped, keyedHeaders, System.currentTimeMillis());
+        if (entry != null) {
+            log.debug("Storing response for key: {}", key);
+            cache.put(key, entry);
+        }
+    }
+
+    /**
+     * Checks whether the request can be answered from the cache: a {@code GET} without a request body.
+     *
+     * @param request the incoming request.
+     * @return {@code true} if the request is cacheable.
+     */
+    private boolean isCacheable(@NotNull ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return HttpMethod.GET.equals(request.getMethod())
+                && headers.getContentLength() <= 0
+                && !headers.containsKey(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    /**
+     * Builds the key under which the response to the request is cached.
+     *
+     * @param request the incoming request.
+     * @param scope   the authorization scope of the caller.
+     * @return the cache key.
+     */
+    private String cacheKey(@NotNull ServerHttpRequest request, @NotNull String scope) {
+        HttpHeaders headers = request.getHeaders();
+        StringJoiner key = new StringJoiner("\n")
+                .add(scope)
+                .add(request.getURI().getRawPath())
+                .add(String.valueOf(request.getURI().getRawQuery()));
+        for (String header : KEYED_HEADERS) {
+            key.add(String.valueOf(headers.getFirst(header)));
+        }
+        return key.toString();
+    }
+
+    /**
+     * The cache of a route, its counters and the settings it was built with.
+     *
+     * @param cache       the Caffeine cache of the route.
+     * @param statistics  the request counters of the route.
+     * @param maxSize     the byte budget the cache was built with.
+     * @param timeToLive  the time to live the cache was built with.
+     * @param scopeHeader the header the keys of the cache are scoped by.
+     */
+    record RouteCache(
+            @NotNull Cache<String, CachedResponse> cache,
+            @NotNull Statistics statistics,
+            @NotNull DataSize maxSize,
+            @NotNull Duration timeToLive,
+            @NotNull String scopeHeader
+    ) {
+        boolean fits(@NotNull Config config) {
+            return maxSize.equals(config.getMaxSize())
+                    && timeToLive.equals(config.getTimeToLive())
+                    && scopeHeader.equalsIgnoreCase(config.getScopeHeader());
+        }
+    }
+
+    /**
+     * Request counters of a single route cache.
+     */
+    static class Statistics {
+        final Counter hit;
+        final Counter revalidated;
+        final Counter miss;
+        final Counter bypass;
+
+        Statistics(@NotNull MeterRegistry meterRegistry, @NotNull Tags tags) {
+            this.hit = counter(meterRegistry, tags, "hit");
+            this.revalidated = counter(meterRegistry, tags, "revalidated");
+            this.miss = counter(meterRegistry, tags, "miss");
+            this.bypass = counter(meterRegistry, tags, "bypass");
+            Gauge
+                    .builder("gateway.response.cache.hit.ratio", this, Statistics::hitRatio)
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+
+        double hitRatio() {
+            double served = hit.count() + revalidated.count();
+            double total = served + miss.count();
+            return total == 0 ? 0 : served / total;
+        }
+
+        private static Counter counter(@NotNull MeterRegistry meterRegistry, @NotNull Tags tags, @NotNull String result) {
+            return Counter
+                    .builder("gateway.response.cache.requests")
+                    .tags(tags)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Configuration of the {@link ResponseCacheGatewayFilterFactory}.
+     *
+     * <p><b>Fields:</b></p>
+     * <ul>
+     *   <li>{@code maxSize} - The byte budget of the route cache.</li>
+     *   <li>{@code maxEntrySize} - The largest response body that is stored.</li>
+     *   <li>{@code timeToLive} - How long an entry is kept for revalidation after it was stored.</li>
+     *   <li>{@code scopeHeader} - The header identifying the caller; entries are never shared across values.</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class Config implements HasRouteId {
+        /**
+         * The byte budget of the route cache.
+         */
+        DataSize maxSize = DataSize.ofMegabytes(16);
+
+        /**
+         * The largest response body that is stored.
+         */
+        DataSize maxEntrySize = DataSize.ofKilobytes(512);
+
+        /**
+         * How long an entry is kept for revalidation after it was stored or revalidated.
+         */
+        Duration timeToLive = Duration.ofHours(1);
+
+        /**
+         * The header identifying the caller; entries are never shared across values.
+         */
+        String scopeHeader = HttpHeaders.AUTHORIZATION;
+
+        /**
+         * The id of the route the filter is applied to, used to tag metrics.
+         */
+        String routeId;
+    }
+}
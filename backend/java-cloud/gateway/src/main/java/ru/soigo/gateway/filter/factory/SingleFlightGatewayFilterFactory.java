@@ -0,0 +1,199 @@
+package ru.soigo.gateway.filter.factory;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import ru.soigo.gateway.filter.support.AuthorizationScope;
+import ru.soigo.gateway.filter.support.BufferedResponse;
+import ru.soigo.gateway.filter.support.CapturingResponseDecorator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gateway filter factory that collapses concurrent identical {@code GET} requests into a single upstream call.
+ * <p>
+ * The first request for a key (the leader) is forwarded upstream as usual and its body is streamed to its client
+ * while a copy is buffered. Every identical request that arrives while the leader is in flight waits for that copy
+ * and receives it instead of calling the backend. Once the leader completes, the key is released and the next
+ * request starts a new flight, so no response outlives its upstream call.
+ * </p>
+ * <p>
+ * The coalescing key is built from the method, the path and query, the {@code Accept} and
+ * {@code Accept-Encoding} headers and the {@link AuthorizationScope} of the request, so users never share
+ * responses. Waiters fall back to their own upstream call when the leader's body exceeds {@code maxBodySize},
+ * breaks off mid-stream, or sets a cookie.
+ * </p>
+ * <p>
+ * If the leader fails before a response is received, for example because the backend is unreachable, its error is
+ * passed to every waiter instead of sending each of them to the failing backend. The key is released first, so the
+ * error is never served to requests that arrive after it.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * {@code
+ * spring.cloud.gateway.routes[0].id=auth
+ * spring.cloud.gateway.routes[0].uri=lb://auth
+ * spring.cloud.gateway.routes[0].predicates[0]=Path=/auth/**
+ * spring.cloud.gateway.routes[0].filters[0]=StripPrefix=1
+ * spring.cloud.gateway.routes[0].filters[1]=SingleFlight=256KB
+ * }
+ * </pre>
+ *
+ * @see AuthorizationScope
+ * @see CapturingResponseDecorator
+ */
+@Slf4j
+@Component
+public class SingleFlightGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<SingleFlightGatewayFilterFactory.Config> {
+
+    /**
+     * Constructs a new instance of {@link SingleFlightGatewayFilterFactory}.
+     */
+    public SingleFlightGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxBodySize", "scopeHeader");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GatewayFilter apply(@NotNull Config config) {
+        Map<String, Sinks.One<BufferedResponse>> inFlight = new ConcurrentHashMap<>();
+        int maxBodySize = (int) config.getMaxBodySize().toBytes();
+
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!isCoalescable(request)) {
+                return chain.filter(exchange);
+            }
+
+            String key = coalescingKey(request, config.getScopeHeader());
+            Sinks.One<BufferedResponse> flight = Sinks.one();
+            Sinks.One<BufferedResponse> existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                log.debug("Joining in-flight request for key: {}", key);
+                return await(existing, exchange, chain);
+            }
+
+            log.debug("Leading in-flight request for key: {}", key);
+            CapturingResponseDecorator decorator = new CapturingResponseDecorator(
+                    exchange.getResponse(),
+                    maxBodySize,
+                    response -> {
+                        inFlight.remove(key, flight);
+                        if (response == null || response.headers().containsKey(HttpHeaders.SET_COOKIE)) {
+                            flight.tryEmitEmpty();
+                        } else {
+                            flight.tryEmitValue(response);
+                        }
+                    }
+            );
+            return chain
+                    .filter(exchange.mutate().response(decorator).build())
+                    .doOnError(error -> {
+                        inFlight.remove(key, flight);
+                        flight.tryEmitError(error);
+                    })
+                    .doFinally(signal -> decorator.release());
+        };
+    }
+
+    /**
+     * Waits for the leader of a flight and writes its response, or forwards the request itself
+     * if the leader's response could not be shared. An error of the leader is passed on as is.
+     *
+     * @param flight   the flight to wait for.
+     * @param exchange the current exchange.
+     * @param chain    the remaining filter chain.
+     * @return a {@link Mono} that completes when the response has been written.
+     */
+    private Mono<Void> await(
+            @NotNull Sinks.One<BufferedResponse> flight,
+            @NotNull ServerWebExchange exchange,
+            @NotNull GatewayFilterChain chain
+    ) {
+        return flight
+                .asMono()
+                .map(response -> response.writeTo(exchange.getResponse()))
+                .defaultIfEmpty(Mono.defer(() -> chain.filter(exchange)))
+                .flatMap(write -> write);
+    }
+
+    /**
+     * Checks whether the request is safe to coalesce: a {@code GET} without a request body.
+     *
+     * @param request the incoming request.
+     * @return {@code true} if the request can share a response with identical requests.
+     */
+    private boolean isCoalescable(@NotNull ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return HttpMethod.GET.equals(request.getMethod())
+                && headers.getContentLength() <= 0
+                && !headers.containsKey(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    /**
+     * Builds the key under which identical requests are coalesced.
+     *
+     * @param request     the incoming request.
+     * @param scopeHeader the header that identifies the caller.
+     * @return the coalescing key.
+     */
+    private String coalescingKey(@NotNull ServerHttpRequest request, @NotNull String scopeHeader) {
+        HttpHeaders headers = request.getHeaders();
+        return String.join("\n",
+                AuthorizationScope.of(request, scopeHeader),
+                request.getURI().getRawPath(),
+                String.valueOf(request.getURI().getRawQuery()),
+                String.valueOf(headers.getFirst(HttpHeaders.ACCEPT)),
+                String.valueOf(headers.getFirst(HttpHeaders.ACCEPT_ENCODING))
+        );
+    }
+
+    /**
+     * Configuration of the {@link SingleFlightGatewayFilterFactory}.
+     *
+     * <p><b>Fields:</b></p>
+     * <ul>
+     *   <li>{@code maxBodySize} - The largest response body that is buffered and shared with waiters.</li>
+     *   <li>{@code scopeHeader} - The header identifying the caller; requests with different values never share.</li>
+     * </ul>
+     */
+    @Getter
+    @Setter
+    public static class Config {
+        /**
+         * The largest response body that is buffered and shared with waiters.
+         */
+        DataSize maxBodySize = DataSize.ofKilobytes(256);
+
+        /**
+         * The header identifying the caller; requests with different values never share a response.
+         */
+        String scopeHeader = HttpHeaders.AUTHORIZATION;
+    }
+}
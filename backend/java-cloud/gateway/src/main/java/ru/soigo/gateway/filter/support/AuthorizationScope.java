@@ -0,0 +1,54 @@
+package ru.soigo.gateway.filter.support;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Utility for deriving the authorization scope of a request.
+ * <p>
+ * The scope is a digest of the credential header (by default {@code Authorization}) and is used
+ * as part of every key under which the gateway shares or stores responses, so that two different
+ * users can never receive each other's data. The raw credential is never kept in memory as a key.
+ * </p>
+ *
+ * <p><b>Example Usage:</b></p>
+ * <pre>{@code
+ * String scope = AuthorizationScope.of(exchange.getRequest(), HttpHeaders.AUTHORIZATION);
+ * }</pre>
+ */
+public final class AuthorizationScope {
+    /**
+     * Scope used for requests that carry no credential header.
+     */
+    public static final String ANONYMOUS = "anonymous";
+
+    private AuthorizationScope() {
+    }
+
+    /**
+     * Returns the authorization scope of the given request.
+     *
+     * @param request    the incoming request.
+     * @param headerName the name of the header holding the credential.
+     * @return a hex encoded SHA-256 digest of the credential, or {@link #ANONYMOUS} if the header is absent.
+     */
+    public static @NotNull String of(@NotNull ServerHttpRequest request, @NotNull String headerName) {
+        String credential = request.getHeaders().getFirst(headerName);
+        if (credential == null || credential.isBlank()) {
+            return ANONYMOUS;
+        }
+        try {
+            byte[] digest = MessageDigest
+                    .getInstance("SHA-256")
+                    .digest(credential.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+}
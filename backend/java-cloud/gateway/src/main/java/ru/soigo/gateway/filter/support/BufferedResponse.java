@@ -0,0 +1,85 @@
+package ru.soigo.gateway.filter.support;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of an upstream response that was fully buffered by the gateway.
+ * <p>
+ * A snapshot can be written to any number of client responses, which makes it the unit that is
+ * shared between coalesced requests and stored by the response cache.
+ * </p>
+ *
+ * @param status  the status code returned by the upstream service.
+ * @param headers a read-only copy of the upstream response headers.
+ * @param body    the complete response body.
+ */
+public record BufferedResponse(
+        @NotNull HttpStatusCode status,
+        @NotNull HttpHeaders headers,
+        byte[] body
+) {
+    /**
+     * Headers that describe a single connection and must never be copied to another response.
+     */
+    static final List<String> HOP_BY_HOP_HEADERS = List.of(
+            HttpHeaders.CONNECTION,
+            HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.UPGRADE,
+            "Keep-Alive"
+    );
+
+    /**
+     * Creates a snapshot, copying the given headers so later changes to the source do not leak into it.
+     *
+     * @param status  the status code returned by the upstream service.
+     * @param headers the upstream response headers.
+     * @param body    the complete response body.
+     * @return a new snapshot.
+     */
+    public static @NotNull BufferedResponse of(
+            @NotNull HttpStatusCode status,
+            @NotNull HttpHeaders headers,
+            byte[] body
+    ) {
+        HttpHeaders copy = new HttpHeaders();
+        copy.putAll(headers);
+        HOP_BY_HOP_HEADERS.forEach(copy::remove);
+        return new BufferedResponse(status, HttpHeaders.readOnlyHttpHeaders(copy), body);
+    }
+
+    /**
+     * Returns the size of the snapshot in bytes, used for buffer and cache accounting.
+     *
+     * @return the body length plus a rough estimate of the header size.
+     */
+    public int weight() {
+        int headerBytes = 0;
+        for (var entry : headers.entrySet()) {
+            headerBytes += entry.getKey().length();
+            for (String value : entry.getValue()) {
+                headerBytes += value.length();
+            }
+        }
+        return body.length + headerBytes;
+    }
+
+    /**
+     * Writes this snapshot to the given client response.
+     *
+     * @param response the response to write to.
+     * @return a {@link Mono} that completes when the body has been written.
+     */
+    public @NotNull Mono<Void> writeTo(@NotNull ServerHttpResponse response) {
+        response.setStatusCode(status);
+        response.getHeaders().putAll(headers);
+        DataBuffer buffer = response.bufferFactory().wrap(body);
+        return response.writeWith(Mono.just(buffer));
+    }
+}
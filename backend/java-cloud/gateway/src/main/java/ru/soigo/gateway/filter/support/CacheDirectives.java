@@ -0,0 +1,73 @@
+package ru.soigo.gateway.filter.support;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Parsed subset of a {@code Cache-Control} header that is relevant to the gateway response cache.
+ *
+ * @param noStore   {@code true} if the {@code no-store} directive is present.
+ * @param noCache   {@code true} if the {@code no-cache} directive is present.
+ * @param isPrivate {@code true} if the {@code private} directive is present.
+ * @param maxAge    the value of {@code s-maxage}, or {@code max-age} if absent, or {@code null} if neither is present.
+ */
+public record CacheDirectives(
+        boolean noStore,
+        boolean noCache,
+        boolean isPrivate,
+        @Nullable Duration maxAge
+) {
+    /**
+     * Directives of a message without a {@code Cache-Control} header.
+     */
+    public static final CacheDirectives NONE = new CacheDirectives(false, false, false, null);
+
+    /**
+     * Parses the given {@code Cache-Control} header value.
+     * <p>
+     * Unknown directives and malformed values are ignored, as required for caches by RFC 9111.
+     * </p>
+     *
+     * @param header the header value, may be {@code null}.
+     * @return the parsed directives.
+     */
+    public static @NotNull CacheDirectives parse(@Nullable String header) {
+        if (header == null || header.isBlank()) {
+            return NONE;
+        }
+        boolean noStore = false;
+        boolean noCache = false;
+        boolean isPrivate = false;
+        Duration maxAge = null;
+        Duration sharedMaxAge = null;
+
+        for (String directive : header.split(",")) {
+            String[] parts = directive.trim().toLowerCase(Locale.ROOT).split("=", 2);
+            String value = parts.length > 1 ? parts[1].trim().replace("\"", "") : null;
+            switch (parts[0]) {
+                case "no-store" -> noStore = true;
+                case "no-cache" -> noCache = true;
+                case "private" -> isPrivate = true;
+                case "max-age" -> maxAge = seconds(value);
+                case "s-maxage" -> sharedMaxAge = seconds(value);
+                default -> {
+                }
+            }
+        }
+        return new CacheDirectives(noStore, noCache, isPrivate, sharedMaxAge != null ? sharedMaxAge : maxAge);
+    }
+
+    private static @Nullable Duration seconds(@Nullable String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ru.soigo.gateway.filter.support;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Entry of the gateway response cache: a {@link BufferedResponse} together with its freshness and validators.
+ *
+ * @param response     the stored response.
+ * @param storedAt     the time the response was stored or last revalidated, in epoch milliseconds.
+ * @param expiresAt    the time the response becomes stale, in epoch milliseconds.
+ * @param etag         the {@code ETag} of the response, or {@code null} if absent.
+ * @param lastModified the {@code Last-Modified} header of the response, or {@code null} if absent.
+ */
+public record CachedResponse(
+        @NotNull BufferedResponse response,
+        long storedAt,
+        long expiresAt,
+        @Nullable String etag,
+        @Nullable String lastModified
+) {
+
+    /**
+     * Creates a cache entry from an upstream response if the response may be stored.
+     * <p>
+     * Only {@code 200 OK} responses without {@code Set-Cookie} and without {@code no-store} are stored.
+     * A response needs either an explicit lifetime ({@code s-maxage}, {@code max-age} or {@code Expires})
+     * or a validator; responses with {@code no-cache} or only a validator are stored as immediately stale
+     * and are revalidated before every use. {@code private} responses are only stored for requests that
+     * carry credentials, because entries are keyed by the {@link AuthorizationScope} of the caller.
+     * </p>
+     * <p>
+     * A response whose {@code Vary} header lists a request header the cache key does not include, or {@code *}, is
+     * not stored: the cache could not tell apart the requests it answers differently.
+     * </p>
+     *
+     * @param response     the upstream response.
+     * @param scoped       {@code true} if the request carried credentials.
+     * @param keyedHeaders the request headers the cache key includes.
+     * @param now          the current time in epoch milliseconds.
+     * @return the cache entry, or {@code null} if the response must not be stored.
+     */
+    public static @Nullable CachedResponse from(
+            @NotNull BufferedResponse response,
+            boolean scoped,
+            @NotNull Collection<String> keyedHeaders,
+            long now
+    ) {
+        HttpHeaders headers = response.headers();
+        if (!HttpStatus.OK.equals(response.status())
+                || headers.containsKey(HttpHeaders.SET_COOKIE)
+                || !isKeyed(headers.getVary(), keyedHeaders)) {
+            return null;
+        }
+        CacheDirectives directives = CacheDirectives.parse(headers.getCacheControl());
+        if (directives.noStore() || (directives.isPrivate() && !scoped)) {
+            return null;
+        }
+
+        String etag = headers.getETag();
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        Long lifetime = lifetime(directives, headers, now);
+        if (lifetime == null && etag == null && lastModified == null) {
+            return null;
+        }
+        return new CachedResponse(response, now, now + (lifetime == null ? 0 : lifetime), etag, lastModified);
+    }
+
+    /**
+     * Returns a copy of this entry refreshed by a {@code 304 Not Modified} response from upstream.
+     * <p>
+     * Headers of the {@code 304} response replace the stored ones, as required by RFC 9111, while the stored
+     * status and body are kept.
+     * </p>
+     *
+     * @param notModified the headers of the {@code 304} response.
+     * @param now         the current time in epoch milliseconds.
+     * @return the refreshed entry.
+     */
+    public @NotNull CachedResponse revalidated(@NotNull HttpHeaders notModified, long now) {
+        HttpHeaders merged = new HttpHeaders();
+        merged.putAll(response.headers());
+        notModified.forEach((name, values) -> {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                merged.put(name, values);
+            }
+        });
+
+        BufferedResponse refreshed = BufferedResponse.of(response.status(), merged, response.body());
+        CacheDirectives directives = CacheDirectives.parse(merged.getCacheControl());
+        Long lifetime = lifetime(directives, merged, now);
+        return new CachedResponse(
+                refreshed,
+                now,
+                now + (lifetime == null ? 0 : lifetime),
+                merged.getETag(),
+                merged.getFirst(HttpHeaders.LAST_MODIFIED)
+        );
+    }
+
+    /**
+     * Checks whether the entry can be served without contacting upstream.
+     *
+     * @param now the current time in epoch milliseconds.
+     * @return {@code true} if the entry is still fresh.
+     */
+    public boolean isFresh(long now) {
+        return now < expiresAt;
+    }
+
+    /**
+     * Checks whether the entry can be revalidated with a conditional request.
+     *
+     * @return {@code true} if the entry has an {@code ETag} or a {@code Last-Modified} header.
+     */
+    public boolean hasValidators() {
+        return etag != null || lastModified != null;
+    }
+
+    /**
+     * Returns the age of the entry as sent in the {@code Age} header.
+     *
+     * @param now the current time in epoch milliseconds.
+     * @return the number of seconds since the entry was stored or revalidated.
+     */
+    public long ageSeconds(long now) {
+        return Duration.ofMillis(Math.max(0, now - storedAt)).toSeconds();
+    }
+
+    private static boolean isKeyed(@NotNull List<String> vary, @NotNull Collection<String> keyedHeaders) {
+        for (String header : vary) {
+            if (keyedHeaders.stream().noneMatch(header::equalsIgnoreCase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static @Nullable Long lifetime(@NotNull CacheDirectives directives, @NotNull HttpHeaders headers, long now) {
+        if (directives.noCache()) {
+            return 0L;
+        }
+        if (directives.maxAge() != null) {
+            return directives.maxAge().toMillis();
+        }
+        long expires = headers.getExpires();
+        return expires > 0 ? Math.max(0, expires - now) : null;
+    }
+}
@@ -0,0 +1,114 @@
+package ru.soigo.gateway.filter.support;
+
+import org.jetbrains.annotations.NotNull;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Response decorator that streams the upstream body to the client while keeping a copy of it.
+ * <p>
+ * The body is passed through unchanged, so the client that triggered the upstream call never waits
+ * for buffering. Bytes are copied only up to {@code maxBodySize}; once the limit is exceeded the copy
+ * is dropped and the response is reported as not capturable.
+ * </p>
+ * <p>
+ * The listener is invoked exactly once: with the {@link BufferedResponse} when the body completed within
+ * the limit, or with {@code null} when the body was too large, failed, or was never written.
+ * </p>
+ */
+public class CapturingResponseDecorator extends ServerHttpResponseDecorator {
+    final int maxBodySize;
+    final Consumer<BufferedResponse> listener;
+    final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    boolean overflow;
+    boolean notified;
+
+    /**
+     * Constructs a new decorator.
+     *
+     * @param delegate    the response to decorate.
+     * @param maxBodySize the maximum number of body bytes to keep.
+     * @param listener    callback receiving the captured response, or {@code null} if it could not be captured.
+     */
+    public CapturingResponseDecorator(
+            @NotNull ServerHttpResponse delegate,
+            int maxBodySize,
+            @NotNull Consumer<BufferedResponse> listener
+    ) {
+        super(delegate);
+        this.maxBodySize = maxBodySize;
+        this.listener = listener;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @NotNull Mono<Void> writeWith(@NotNull Publisher<? extends DataBuffer> body) {
+        Flux<DataBuffer> tapped = Flux
+                .from(body)
+                .map(this::copy)
+                .doOnComplete(this::complete)
+                .doOnError(error -> notifyListener(null))
+                .doOnCancel(() -> notifyListener(null));
+        return super.writeWith(tapped);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @NotNull Mono<Void> writeAndFlushWith(@NotNull Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        return writeWith(Flux.from(body).flatMapSequential(Flux::from));
+    }
+
+    /**
+     * Reports an uncaptured response if the body was never written, e.g. after an error or an empty response.
+     */
+    public void release() {
+        notifyListener(null);
+    }
+
+    private DataBuffer copy(@NotNull DataBuffer buffer) {
+        if (overflow) {
+            return buffer;
+        }
+        int length = buffer.readableByteCount();
+        if (captured.size() + length > maxBodySize) {
+            overflow = true;
+            captured.reset();
+            return buffer;
+        }
+        int position = buffer.readPosition();
+        byte[] bytes = new byte[length];
+        buffer.read(bytes);
+        buffer.readPosition(position);
+        captured.writeBytes(bytes);
+        return buffer;
+    }
+
+    private void complete() {
+        HttpStatusCode status = getDelegate().getStatusCode();
+        if (overflow || status == null) {
+            notifyListener(null);
+            return;
+        }
+        notifyListener(BufferedResponse.of(status, getDelegate().getHeaders(), captured.toByteArray()));
+    }
+
+    private synchronized void notifyListener(BufferedResponse response) {
+        if (notified) {
+            return;
+        }
+        notified = true;
+        listener.accept(response);
+    }
+}
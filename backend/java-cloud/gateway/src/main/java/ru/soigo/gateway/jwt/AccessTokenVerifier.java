@@ -0,0 +1,129 @@
+package ru.soigo.gateway.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Verifies access tokens issued by the auth service and extracts the user they belong to.
+ * <p>
+ * Only the signature, the expiry and the token type are checked. Session revocation is still enforced by the auth
+ * service, so the gateway uses the result for routing decisions rather than for authorization.
+ * </p>
+ * <p>
+ * Tokens are accepted in both claim formats of the auth service: the legacy one with {@code tokenType} and
+ * {@code userId}, and the compact one marked by {@code v: 2} with the type code {@code t} and the base64url encoded
+ * {@code uid}. The user id is always returned as a standard UUID string.
+ * </p>
+ * <p>
+ * The token of a request is read from the {@code Authorization} header, or from the {@code access_token} query
+ * parameter for WebSocket handshakes, since browsers cannot set headers on them.
+ * </p>
+ */
+@Slf4j
+@Component
+public class AccessTokenVerifier {
+    static final String TOKEN_TYPE_CLAIM = "tokenType";
+    static final String USER_ID_CLAIM = "userId";
+    static final String ACCESS_TOKEN_TYPE = "ACCESS";
+    static final String VERSION_CLAIM = "v";
+    static final int COMPACT_VERSION = 2;
+    static final String COMPACT_TOKEN_TYPE_CLAIM = "t";
+    static final String COMPACT_USER_ID_CLAIM = "uid";
+    static final String COMPACT_ACCESS_TOKEN_TYPE = "a";
+    static final int COMPACT_UUID_LENGTH = 22;
+    static final String ACCESS_TOKEN_PARAM = "access_token";
+
+    final JwtParser parser;
+    final String jwtHeaderStart;
+
+    /**
+     * Constructs a new instance of {@link AccessTokenVerifier}.
+     *
+     * @param jwtSecret      the secret key shared with the auth service, taken from {@code JWT_SECRET} without a
+     *                       default, so the gateway does not start without it.
+     * @param jwtHeaderStart the prefix of the token in the {@code Authorization} header.
+     */
+    public AccessTokenVerifier(
+            @Value("${jwt.secret}") @NotNull String jwtSecret,
+            @Value("${jwt.header.start}") @NotNull String jwtHeaderStart
+    ) {
+        this.parser = Jwts
+                .parser()
+                .verifyWith(Keys.hmacShaKeyFor(jwtSecret.getBytes()))
+                .build();
+        this.jwtHeaderStart = jwtHeaderStart;
+    }
+
+    /**
+     * Returns the id of the user the access token of a request was issued to.
+     *
+     * @param request the incoming request.
+     * @return the user id, or {@code null} if the request carries no valid access token.
+     */
+    public @Nullable String verifyUserId(@NotNull ServerHttpRequest request) {
+        String headerValue = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (headerValue != null && headerValue.startsWith(jwtHeaderStart + " ")) {
+            return verifyUserId(headerValue.substring(jwtHeaderStart.length() + 1));
+        }
+        return verifyUserId(request.getQueryParams().getFirst(ACCESS_TOKEN_PARAM));
+    }
+
+    /**
+     * Returns the id of the user the access token was issued to.
+     *
+     * @param token the access token.
+     * @return the user id, or {@code null} if the token is missing, invalid, expired or not an access token.
+     */
+    public @Nullable String verifyUserId(@Nullable String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.get(VERSION_CLAIM) instanceof Number version && version.intValue() == COMPACT_VERSION) {
+                if (!COMPACT_ACCESS_TOKEN_TYPE.equals(claims.get(COMPACT_TOKEN_TYPE_CLAIM))) {
+                    return null;
+                }
+                Object userId = claims.get(COMPACT_USER_ID_CLAIM);
+                return userId == null ? null : decodeUuid(userId.toString());
+            }
+            if (!ACCESS_TOKEN_TYPE.equals(String.valueOf(claims.get(TOKEN_TYPE_CLAIM)))) {
+                return null;
+            }
+            Object userId = claims.get(USER_ID_CLAIM);
+            return userId == null ? null : userId.toString();
+        } catch (JwtException | IllegalArgumentException exception) {
+            log.debug("Access token verification failed: {}", exception.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decodes a user id of a compact token to a standard UUID string.
+     *
+     * @param value the 22 character base64url encoded UUID.
+     * @return the standard UUID string.
+     * @throws IllegalArgumentException if the value is not an encoded UUID.
+     */
+    private static String decodeUuid(@NotNull String value) {
+        if (value.length() != COMPACT_UUID_LENGTH) {
+            throw new IllegalArgumentException("Malformed user id: " + value);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(value));
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+}
@@ -0,0 +1,138 @@
+package ru.soigo.gateway.loadbalancer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import ru.soigo.gateway.filter.UserIdentityGlobalFilter;
+
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Load balancer that pins WebSocket connections of a user to one instance using a {@link ConsistentHashRing}.
+ * <p>
+ * WebSocket handshakes whose access token was verified by {@link UserIdentityGlobalFilter} are hashed by the user id
+ * of the token, so all sockets of a user land on the same instance and only about {@code 1/N} of users move when an
+ * instance joins or leaves Eureka. All other requests are delegated to a {@link RoundRobinLoadBalancer}. Headers sent
+ * by the client are never used as the key, so a client cannot choose its instance by claiming another identity.
+ * </p>
+ * <p>
+ * The ring is rebuilt only when the set of instance ids changes.
+ * </p>
+ *
+ * @see ConsistentHashRing
+ * @see ru.soigo.gateway.loadbalancer.config.ConsistentHashLoadBalancerConfig
+ */
+@Slf4j
+public class ConsistentHashLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+    static final int VIRTUAL_NODES = 160;
+    static final String WEBSOCKET = "websocket";
+
+    final String serviceId;
+    final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    final RoundRobinLoadBalancer fallback;
+
+    volatile Snapshot snapshot = new Snapshot(new TreeSet<>(), new ConsistentHashRing<>(List.of(), ServiceInstance::getInstanceId, 0));
+
+    /**
+     * Constructs a new instance of {@link ConsistentHashLoadBalancer}.
+     *
+     * @param serviceInstanceListSupplierProvider the provider of the instances of the service.
+     * @param serviceId                           the id of the balanced service.
+     */
+    public ConsistentHashLoadBalancer(
+            @NotNull ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+            @NotNull String serviceId
+    ) {
+        this.serviceId = serviceId;
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.fallback = new RoundRobinLoadBalancer(serviceInstanceListSupplierProvider, serviceId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        String userId = affinityKey(request);
+        if (userId == null) {
+            return fallback.choose(request);
+        }
+
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier
+                .get(request)
+                .next()
+                .map(instances -> select(instances, userId));
+    }
+
+    /**
+     * Selects the instance the user is assigned to on the ring of the given instances.
+     *
+     * @param instances the currently available instances.
+     * @param userId    the id of the user.
+     * @return the response holding the selected instance, or an empty response if there are no instances.
+     */
+    private Response<ServiceInstance> select(@NotNull List<ServiceInstance> instances, @NotNull String userId) {
+        if (instances.isEmpty()) {
+            log.warn("No instances available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+
+        TreeSet<String> ids = new TreeSet<>();
+        instances.forEach(instance -> ids.add(instance.getInstanceId()));
+        Snapshot current = snapshot;
+        if (!current.ids().equals(ids)) {
+            log.info("Rebuilding hash ring for service {} with {} instances", serviceId, ids.size());
+            current = new Snapshot(ids, new ConsistentHashRing<>(instances, ServiceInstance::getInstanceId, VIRTUAL_NODES));
+            snapshot = current;
+        }
+
+        ServiceInstance instance = current.ring().get(userId);
+        log.debug("Routing user {} of service {} to instance {}", userId, serviceId, instance.getInstanceId());
+        return new DefaultResponse(instance);
+    }
+
+    /**
+     * Returns the user id of a WebSocket handshake, which decides the instance the connection is pinned to.
+     *
+     * @param request the load balancer request.
+     * @return the verified user id, or {@code null} if the request is not an authenticated WebSocket handshake.
+     */
+    @SuppressWarnings("rawtypes")
+    private @Nullable String affinityKey(@NotNull Request request) {
+        if (!(request.getContext() instanceof RequestDataContext context) || context.getClientRequest() == null) {
+            return null;
+        }
+        HttpHeaders headers = context.getClientRequest().getHeaders();
+        if (!WEBSOCKET.equalsIgnoreCase(headers.getUpgrade()) || context.getClientRequest().getAttributes() == null) {
+            return null;
+        }
+        return context.getClientRequest().getAttributes().get(UserIdentityGlobalFilter.VERIFIED_USER_ID_ATTR)
+                instanceof String userId ? userId : null;
+    }
+
+    /**
+     * The ring together with the instance ids it was built from.
+     *
+     * @param ids  the sorted ids of the instances on the ring.
+     * @param ring the hash ring.
+     */
+    record Snapshot(TreeSet<String> ids, ConsistentHashRing<ServiceInstance> ring) {
+    }
+}
@@ -0,0 +1,85 @@
+package ru.soigo.gateway.loadbalancer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Immutable consistent hash ring with virtual nodes.
+ * <p>
+ * Each node is placed on the ring {@code virtualNodes} times and a key is assigned to the first node clockwise from
+ * its hash. When a node joins or leaves, only the keys on its arcs move, which is about {@code 1/N} of all keys
+ * for {@code N} nodes; virtual nodes keep the arcs evenly sized.
+ * </p>
+ *
+ * <p><b>Example Usage:</b></p>
+ * <pre>{@code
+ * ConsistentHashRing<ServiceInstance> ring = new ConsistentHashRing<>(instances, ServiceInstance::getInstanceId, 160);
+ * ServiceInstance instance = ring.get(userId);
+ * }</pre>
+ *
+ * @param <T> the type of the nodes.
+ */
+public class ConsistentHashRing<T> {
+    final TreeMap<Long, T> ring = new TreeMap<>();
+
+    /**
+     * Constructs a new ring.
+     *
+     * @param nodes        the nodes to place on the ring.
+     * @param nodeKey      a function returning a stable identifier of a node.
+     * @param virtualNodes the number of points each node occupies on the ring.
+     */
+    public ConsistentHashRing(
+            @NotNull Collection<T> nodes,
+            @NotNull Function<T, String> nodeKey,
+            int virtualNodes
+    ) {
+        for (T node : nodes) {
+            String key = nodeKey.apply(node);
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(key + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * Returns the node the given key is assigned to.
+     *
+     * @param key the key to look up.
+     * @return the node, or {@code null} if the ring is empty.
+     */
+    public @Nullable T get(@NotNull String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Hashes a key to a position on the ring using the first eight bytes of its MD5 digest.
+     *
+     * @param key the key to hash.
+     * @return the position on the ring.
+     */
+    static long hash(@NotNull String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("MD5 is not available", exception);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package ru.soigo.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.http.HttpStatusCode;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Load balancer lifecycle that tracks the health and zone locality of the requests to a service.
+ * <p>
+ * Health is tracked passively from the outcome of proxied requests: an instance that fails
+ * {@code failureThreshold} requests in a row, by a connection error or a {@code 502}, {@code 503} or {@code 504}
+ * response, is ejected for {@code ejectionTime}. A successful request resets the count. Ejected instances are
+ * skipped by {@link ZoneAffinityServiceInstanceListSupplier}, which also decides whether local capacity suffices.
+ * </p>
+ * <p>
+ * Every routed request is counted as local or cross-zone by comparing the zone of the selected instance with the
+ * zone of the gateway. Without a gateway zone, locality is not counted. The cross-zone fraction covers only the
+ * last {@code fractionWindow}, kept in {@value #FRACTION_BUCKETS} buckets, so it reflects the current routing
+ * rather than the average since startup.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code gateway.loadbalancer.zone.requests} - Routed requests, tagged by {@code service} and
+ *   {@code locality}: {@code local} or {@code cross_zone}.</li>
+ *   <li>{@code gateway.loadbalancer.zone.cross.fraction} - The fraction of routed requests that left the zone
+ *   within the last {@code fractionWindow}.</li>
+ *   <li>{@code gateway.loadbalancer.zone.spillover} - Instance selections that spilled over to other zones.</li>
+ *   <li>{@code gateway.loadbalancer.ejected.instances} - The number of currently ejected instances.</li>
+ * </ul>
+ *
+ * @see ZoneAffinityServiceInstanceListSupplier
+ */
+@Slf4j
+public class ZoneAffinityLifecycle implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+    static final Set<Integer> FAILURE_STATUSES = Set.of(502, 503, 504);
+    static final int FRACTION_BUCKETS = 10;
+
+    final String serviceId;
+    final String zone;
+    final int failureThreshold;
+    final long ejectionNanos;
+    final Map<String, InstanceHealth> health = new ConcurrentHashMap<>();
+    final Counter local;
+    final Counter crossZone;
+    final Counter spillover;
+    final LocalityWindow window;
+
+    /**
+     * Constructs a new instance of {@link ZoneAffinityLifecycle}.
+     *
+     * @param meterRegistry    the registry used to publish the locality metrics.
+     * @param serviceId        the id of the balanced service.
+     * @param zone             the zone of the gateway, or {@code null} if it is not configured.
+     * @param failureThreshold the number of consecutive failures after which an instance is ejected.
+     * @param ejectionTime     how long an ejected instance is skipped.
+     * @param fractionWindow   the period over which the cross-zone fraction is computed.
+     */
+    public ZoneAffinityLifecycle(
+            @NotNull MeterRegistry meterRegistry,
+            @NotNull String serviceId,
+            @Nullable String zone,
+            int failureThreshold,
+            @NotNull Duration ejectionTime,
+            @NotNull Duration fractionWindow
+    ) {
+        this.serviceId = serviceId;
+        this.zone = zone;
+        this.failureThreshold = failureThreshold;
+        this.ejectionNanos = ejectionTime.toNanos();
+        this.window = new LocalityWindow(FRACTION_BUCKETS, fractionWindow.toNanos());
+
+        Tags tags = Tags.of("service", serviceId);
+        this.local = requestCounter(meterRegistry, tags, "local");
+        this.crossZone = requestCounter(meterRegistry, tags, "cross_zone");
+        this.spillover = Counter
+                .builder("gateway.loadbalancer.zone.spillover")
+                .description("Instance selections that spilled over to other zones")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge
+                .builder("gateway.loadbalancer.zone.cross.fraction", this, ZoneAffinityLifecycle::crossZoneFraction)
+                .description("Fraction of routed requests that left the zone of the gateway")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge
+                .builder("gateway.loadbalancer.ejected.instances", this, ZoneAffinityLifecycle::ejectedInstances)
+                .description("Instances currently ejected after consecutive failures")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    /**
+     * Counts the request as local or cross-zone.
+     *
+     * @param request    the load balancer request.
+     * @param lbResponse the selected instance.
+     */
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (zone == null || lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        boolean inZone = inZone(lbResponse.getServer(), zone);
+        if (inZone) {
+            local.increment();
+        } else {
+            crossZone.increment();
+        }
+        window.record(inZone, System.nanoTime());
+    }
+
+    /**
+     * Records the outcome of the request for the health of the selected instance.
+     *
+     * @param completionContext the outcome of the request.
+     */
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()
+                || completionContext.status() == CompletionContext.Status.DISCARD) {
+            return;
+        }
+
+        ServiceInstance instance = lbResponse.getServer();
+        InstanceHealth instanceHealth = health.computeIfAbsent(instance.getInstanceId(), id -> new InstanceHealth());
+        if (failed(completionContext)) {
+            if (instanceHealth.recordFailure(failureThreshold, ejectionNanos)) {
+                log.warn("Ejecting instance {} of service {} for {} ms after {} consecutive failures",
+                        instance.getInstanceId(), serviceId, Duration.ofNanos(ejectionNanos).toMillis(), failureThreshold);
+            }
+        } else {
+            instanceHealth.recordSuccess();
+        }
+    }
+
+    /**
+     * Returns whether the instance is currently ejected.
+     *
+     * @param instance the instance to check.
+     * @return {@code true} if the instance failed recently and should be skipped.
+     */
+    boolean isEjected(@NotNull ServiceInstance instance) {
+        InstanceHealth instanceHealth = health.get(instance.getInstanceId());
+        return instanceHealth != null && instanceHealth.isEjected();
+    }
+
+    /**
+     * Forgets the health of instances that are no longer registered.
+     *
+     * @param instances the currently registered instances.
+     */
+    void retain(@NotNull Collection<ServiceInstance> instances) {
+        if (health.size() > instances.size()) {
+            Set<String> ids = new HashSet<>();
+            instances.forEach(instance -> ids.add(instance.getInstanceId()));
+            health.keySet().retainAll(ids);
+        }
+    }
+
+    /**
+     * Counts a selection that could not be served from the local zone alone.
+     */
+    void recordSpillover() {
+        spillover.increment();
+    }
+
+    double crossZoneFraction() {
+        return window.crossZoneFraction(System.nanoTime());
+    }
+
+    int ejectedInstances() {
+        return (int) health.values().stream().filter(InstanceHealth::isEjected).count();
+    }
+
+    /**
+     * Returns whether the instance advertises the given zone in its {@code zone} metadata.
+     *
+     * @param instance the instance to check.
+     * @param zone     the zone to compare with.
+     * @return {@code true} if the instance is in the zone.
+     */
+    static boolean inZone(@NotNull ServiceInstance instance, @NotNull String zone) {
+        return zone.equalsIgnoreCase(instance.getMetadata().get(ZoneAffinityServiceInstanceListSupplier.ZONE));
+    }
+
+    private static boolean failed(@NotNull CompletionContext<ResponseData, ServiceInstance, RequestDataContext> context) {
+        if (context.status() == CompletionContext.Status.FAILED) {
+            return true;
+        }
+        ResponseData response = context.getClientResponse();
+        HttpStatusCode status = response != null ? response.getHttpStatus() : null;
+        return status != null && FAILURE_STATUSES.contains(status.value());
+    }
+
+    private static Counter requestCounter(@NotNull MeterRegistry meterRegistry, @NotNull Tags tags, @NotNull String locality) {
+        return Counter
+                .builder("gateway.loadbalancer.zone.requests")
+                .description("Routed requests by zone locality")
+                .tags(tags)
+                .tag("locality", locality)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Consecutive failures and ejection of one instance.
+     */
+    static class InstanceHealth {
+        int consecutiveFailures;
+        volatile long ejectedUntil;
+
+        synchronized boolean recordFailure(int threshold, long ejectionNanos) {
+            consecutiveFailures++;
+            if (consecutiveFailures < threshold || isEjected()) {
+                return false;
+            }
+            consecutiveFailures = 0;
+            ejectedUntil = System.nanoTime() + ejectionNanos;
+            return true;
+        }
+
+        synchronized void recordSuccess() {
+            consecutiveFailures = 0;
+        }
+
+        boolean isEjected() {
+            long until = ejectedUntil;
+            return until != 0 && until - System.nanoTime() > 0;
+        }
+    }
+
+    /**
+     * Local and cross-zone request counts over a sliding window of time buckets.
+     * <p>
+     * A bucket is reused once its period has left the window; buckets older than the window are ignored when the
+     * fraction is computed, so an idle period reads as no traffic rather than as the last known fraction.
+     * </p>
+     */
+    static class LocalityWindow {
+        final long bucketNanos;
+        final long[] periods;
+        final long[] local;
+        final long[] crossZone;
+
+        LocalityWindow(int buckets, long windowNanos) {
+            this.bucketNanos = Math.max(1, windowNanos / buckets);
+            this.periods = new long[buckets];
+            this.local = new long[buckets];
+            this.crossZone = new long[buckets];
+            Arrays.fill(periods, Long.MIN_VALUE);
+        }
+
+        synchronized void record(boolean inZone, long nowNanos) {
+            long period = Math.floorDiv(nowNanos, bucketNanos);
+            int index = (int) Math.floorMod(period, (long) periods.length);
+            if (periods[index] != period) {
+                periods[index] = period;
+                local[index] = 0;
+                crossZone[index] = 0;
+            }
+            if (inZone) {
+                local[index]++;
+            } else {
+                crossZone[index]++;
+            }
+        }
+
+        synchronized double crossZoneFraction(long nowNanos) {
+            long period = Math.floorDiv(nowNanos, bucketNanos);
+            long localTotal = 0;
+            long crossZoneTotal = 0;
+            for (int i = 0; i < periods.length; i++) {
+                if (periods[i] > period - periods.length) {
+                    localTotal += local[i];
+                    crossZoneTotal += crossZone[i];
+                }
+            }
+            long total = localTotal + crossZoneTotal;
+            return total == 0 ? 0 : (double) crossZoneTotal / total;
+        }
+    }
+}
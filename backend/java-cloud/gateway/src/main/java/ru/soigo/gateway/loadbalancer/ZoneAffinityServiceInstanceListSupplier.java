@@ -0,0 +1,115 @@
+package ru.soigo.gateway.loadbalancer;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instance list supplier that keeps traffic in the zone of the gateway while the zone can serve it.
+ * <p>
+ * Instances advertise their zone in the {@value #ZONE} entry of their Eureka metadata. Instances ejected by
+ * {@link ZoneAffinityLifecycle} are removed first; then, if the healthy instances in the zone of the gateway
+ * number at least {@code minInstances} and make up at least {@code minHealthyRatio} of all instances in the zone,
+ * only those are offered to the load balancer. Otherwise the selection spills over to the healthy instances of all
+ * zones, the local ones included. If every instance is ejected, ejection is ignored rather than failing all
+ * requests.
+ * </p>
+ * <p>
+ * Without a configured zone of the gateway, only ejected instances are removed.
+ * </p>
+ *
+ * @see ZoneAffinityLifecycle
+ * @see ru.soigo.gateway.loadbalancer.config.ConsistentHashLoadBalancerConfig
+ */
+public class ZoneAffinityServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+    static final String ZONE = "zone";
+
+    final ZoneAffinityLifecycle lifecycle;
+    final String zone;
+    final int minInstances;
+    final double minHealthyRatio;
+
+    /**
+     * Constructs a new instance of {@link ZoneAffinityServiceInstanceListSupplier}.
+     *
+     * @param delegate        the supplier of all registered instances.
+     * @param lifecycle       the tracker of instance health.
+     * @param zone            the zone of the gateway, or {@code null} if it is not configured.
+     * @param minInstances    the fewest healthy local instances that are served without spillover.
+     * @param minHealthyRatio the lowest share of healthy local instances that is served without spillover.
+     */
+    public ZoneAffinityServiceInstanceListSupplier(
+            @NotNull ServiceInstanceListSupplier delegate,
+            @NotNull ZoneAffinityLifecycle lifecycle,
+            @Nullable String zone,
+            int minInstances,
+            double minHealthyRatio
+    ) {
+        super(delegate);
+        this.lifecycle = lifecycle;
+        this.zone = zone;
+        this.minInstances = minInstances;
+        this.minHealthyRatio = minHealthyRatio;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return getDelegate().get().map(this::select);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Flux<List<ServiceInstance>> get(Request request) {
+        return getDelegate().get(request).map(this::select);
+    }
+
+    /**
+     * Selects the instances offered to the load balancer.
+     *
+     * @param instances all registered instances of the service.
+     * @return the healthy local instances, or the healthy instances of all zones on spillover.
+     */
+    List<ServiceInstance> select(@NotNull List<ServiceInstance> instances) {
+        lifecycle.retain(instances);
+
+        List<ServiceInstance> healthy = new ArrayList<>(instances.size());
+        List<ServiceInstance> local = new ArrayList<>(instances.size());
+        int localTotal = 0;
+        for (ServiceInstance instance : instances) {
+            boolean inZone = zone != null && ZoneAffinityLifecycle.inZone(instance, zone);
+            if (inZone) {
+                localTotal++;
+            }
+            if (!lifecycle.isEjected(instance)) {
+                healthy.add(instance);
+                if (inZone) {
+                    local.add(instance);
+                }
+            }
+        }
+
+        if (zone == null) {
+            return healthy.isEmpty() ? instances : healthy;
+        }
+        if (!local.isEmpty() && local.size() >= minInstances && local.size() >= localTotal * minHealthyRatio) {
+            return local;
+        }
+        if (localTotal > 0) {
+            lifecycle.recordSpillover();
+        }
+        return healthy.isEmpty() ? instances : healthy;
+    }
+}
@@ -0,0 +1,123 @@
+package ru.soigo.gateway.loadbalancer.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.config.LoadBalancerZoneConfig;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+import ru.soigo.gateway.loadbalancer.ConsistentHashLoadBalancer;
+import ru.soigo.gateway.loadbalancer.ZoneAffinityLifecycle;
+import ru.soigo.gateway.loadbalancer.ZoneAffinityServiceInstanceListSupplier;
+
+import java.time.Duration;
+
+/**
+ * Load balancer client configuration that installs {@link ConsistentHashLoadBalancer} for a service.
+ * <p>
+ * This class is applied to the child context of each load balanced service through
+ * {@link org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients}, so it is intentionally not annotated
+ * with {@code @Configuration} and must stay out of component scanning.
+ * </p>
+ * <p>
+ * The instances offered to the load balancer come from the discovery client through the instance cache and
+ * {@link ZoneAffinityServiceInstanceListSupplier}, which prefers instances in the zone of the gateway. The zone is
+ * taken from {@code spring.cloud.loadbalancer.zone}, which defaults to the {@code zone} metadata of the gateway's
+ * own Eureka instance.
+ * </p>
+ *
+ * @see ru.soigo.gateway.config.LoadBalancerConfig
+ * @see ConsistentHashLoadBalancer
+ */
+public class ConsistentHashLoadBalancerConfig {
+
+    /**
+     * Creates the {@link ConsistentHashLoadBalancer} for the service of the current child context.
+     *
+     * @param environment               the child context environment holding the service id.
+     * @param loadBalancerClientFactory the factory providing the instance supplier of the service.
+     * @return the load balancer of the service.
+     */
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> consistentHashLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory loadBalancerClientFactory
+    ) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new ConsistentHashLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId
+        );
+    }
+
+    /**
+     * Creates the {@link ZoneAffinityLifecycle} tracking the health and locality of requests to the service.
+     *
+     * @param environment      the child context environment holding the service id.
+     * @param zoneConfig       the zone of the gateway.
+     * @param meterRegistry    the registry used to publish the locality metrics.
+     * @param failureThreshold the number of consecutive failures after which an instance is ejected.
+     * @param ejectionTime     how long an ejected instance is skipped.
+     * @param fractionWindow   the period over which the cross-zone fraction is computed.
+     * @return the lifecycle of the service.
+     */
+    @Bean
+    public ZoneAffinityLifecycle zoneAffinityLifecycle(
+            Environment environment,
+            LoadBalancerZoneConfig zoneConfig,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.loadbalancer.zone-affinity.failure-threshold:3}") int failureThreshold,
+            @Value("${gateway.loadbalancer.zone-affinity.ejection-time:30s}") Duration ejectionTime,
+            @Value("${gateway.loadbalancer.zone-affinity.fraction-window:1m}") Duration fractionWindow
+    ) {
+        return new ZoneAffinityLifecycle(
+                meterRegistry,
+                environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME),
+                zone(zoneConfig),
+                failureThreshold,
+                ejectionTime,
+                fractionWindow
+        );
+    }
+
+    /**
+     * Creates the instance supplier of the service, preferring instances in the zone of the gateway.
+     *
+     * @param context         the child context providing the discovery client and the instance cache.
+     * @param lifecycle       the tracker of instance health.
+     * @param zoneConfig      the zone of the gateway.
+     * @param minInstances    the fewest healthy local instances that are served without spillover.
+     * @param minHealthyRatio the lowest share of healthy local instances that is served without spillover.
+     * @return the instance supplier of the service.
+     */
+    @Bean
+    public ServiceInstanceListSupplier zoneAffinityServiceInstanceListSupplier(
+            ConfigurableApplicationContext context,
+            ZoneAffinityLifecycle lifecycle,
+            LoadBalancerZoneConfig zoneConfig,
+            @Value("${gateway.loadbalancer.zone-affinity.min-instances:1}") int minInstances,
+            @Value("${gateway.loadbalancer.zone-affinity.min-healthy-ratio:0.5}") double minHealthyRatio
+    ) {
+        ServiceInstanceListSupplier discovered = ServiceInstanceListSupplier
+                .builder()
+                .withDiscoveryClient()
+                .withCaching()
+                .build(context);
+        return new ZoneAffinityServiceInstanceListSupplier(
+                discovered,
+                lifecycle,
+                zone(zoneConfig),
+                minInstances,
+                minHealthyRatio
+        );
+    }
+
+    private static String zone(LoadBalancerZoneConfig zoneConfig) {
+        return StringUtils.hasText(zoneConfig.getZone()) ? zoneConfig.getZone() : null;
+    }
+}
@@ -3,7 +3,7 @@ package ru.soigo.gateway;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "jwt.secret=test-secret-of-at-least-thirty-two-bytes")
 class GatewayApplicationTests {
 
     @Test
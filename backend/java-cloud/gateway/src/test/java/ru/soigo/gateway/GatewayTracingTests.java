@@ -0,0 +1,63 @@
+package ru.soigo.gateway;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.soigo.tracing.TailSamplingSpanProcessor;
+import ru.soigo.tracing.TracesEndpoint;
+import ru.soigo.tracing.export.InMemorySpanExporter;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "jwt.secret=test-secret-of-at-least-thirty-two-bytes",
+                "eureka.client.enabled=false",
+                "tracing.tail.latency-threshold=0ms",
+                "tracing.tail.export-interval=100ms"
+        }
+)
+class GatewayTracingTests {
+    static final AttributeKey<String> URI = AttributeKey.stringKey("uri");
+
+    @Autowired
+    ApplicationContext context;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Test
+    void tracerProviderFeedsTailSampling() {
+        assertEquals(Set.of("tailSamplingTracerProvider"), context.getBeansOfType(SdkTracerProvider.class).keySet());
+        assertEquals(1, context.getBeansOfType(TailSamplingSpanProcessor.class).size());
+    }
+
+    @Test
+    void tracesEndpointIsNotExposed() {
+        assertNull(context.getBeanProvider(TracesEndpoint.class).getIfAvailable());
+        webTestClient.get().uri("/actuator/traces").exchange().expectStatus().isNotFound();
+        webTestClient.delete().uri("/actuator/traces").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void keepsTraceOfSlowRequest() {
+        InMemorySpanExporter exporter = context.getBean(InMemorySpanExporter.class);
+
+        webTestClient.get().uri("/actuator/metrics").exchange().expectStatus().isOk();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> exporter
+                .getSpans()
+                .stream()
+                .anyMatch(span -> "/actuator/metrics".equals(span.getAttributes().get(URI))));
+    }
+}
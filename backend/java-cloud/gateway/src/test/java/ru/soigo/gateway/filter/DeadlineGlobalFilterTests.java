@@ -0,0 +1,73 @@
+package ru.soigo.gateway.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class DeadlineGlobalFilterTests {
+    final HttpClientProperties httpClientProperties = new HttpClientProperties();
+    final DeadlineGlobalFilter filter = new DeadlineGlobalFilter(httpClientProperties);
+
+    @Test
+    void routeTimeoutTakesPrecedence() {
+        httpClientProperties.setResponseTimeout(Duration.ofSeconds(10));
+        assertEquals("250", forward(route(250), null));
+    }
+
+    @Test
+    void smallerIncomingBudgetIsKept() {
+        httpClientProperties.setResponseTimeout(Duration.ofSeconds(10));
+        assertEquals("100", forward(route("500"), "100"));
+    }
+
+    @Test
+    void malformedRouteTimeoutFallsBackToGlobalTimeout() {
+        httpClientProperties.setResponseTimeout(Duration.ofSeconds(10));
+        assertEquals("10000", forward(route("10s"), null));
+    }
+
+    @Test
+    void routeWithoutTimeoutIsForwardedUnchanged() {
+        assertNull(forward(route(-1), null));
+    }
+
+    private String forward(Route route, String incoming) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/users");
+        if (incoming != null) {
+            request.header(DeadlineGlobalFilter.TIMEOUT_HEADER, incoming);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+        GatewayFilterChain chain = next -> {
+            forwarded.set(next);
+            return Mono.empty();
+        };
+        filter.filter(exchange, chain).block();
+        return forwarded.get().getRequest().getHeaders().getFirst(DeadlineGlobalFilter.TIMEOUT_HEADER);
+    }
+
+    private static Route route(Object responseTimeout) {
+        return Route
+                .async()
+                .id("users")
+                .uri("http://localhost")
+                .predicate(exchange -> true)
+                .metadata(RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR, responseTimeout)
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package ru.soigo.gateway.filter;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import ru.soigo.gateway.filter.factory.AuthenticatedUserGatewayFilterFactory;
+import ru.soigo.gateway.jwt.AccessTokenVerifier;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserIdentityGlobalFilterTests {
+    static final String SECRET = "test-secret-of-at-least-thirty-two-bytes";
+    static final String USER_ID_HEADER = AuthenticatedUserGatewayFilterFactory.USER_ID_HEADER;
+    static final String FORGED_USER_ID = UUID.randomUUID().toString();
+
+    final UserIdentityGlobalFilter filter = new UserIdentityGlobalFilter(new AccessTokenVerifier(SECRET, "Bearer"));
+
+    @Test
+    void forgedHeaderIsRemovedFromPlainRequests() {
+        ServerWebExchange forwarded = forward(MockServerHttpRequest
+                .get("/auth/api/users")
+                .header(USER_ID_HEADER, FORGED_USER_ID));
+
+        assertFalse(forwarded.getRequest().getHeaders().containsKey(USER_ID_HEADER));
+        assertNull(forwarded.getAttribute(UserIdentityGlobalFilter.VERIFIED_USER_ID_ATTR));
+    }
+
+    @Test
+    void forgedHeaderDoesNotIdentifyWebSocketHandshake() {
+        ServerWebExchange forwarded = forward(MockServerHttpRequest
+                .get("/chat")
+                .header(HttpHeaders.UPGRADE, "websocket")
+                .header(USER_ID_HEADER, FORGED_USER_ID));
+
+        assertFalse(forwarded.getRequest().getHeaders().containsKey(USER_ID_HEADER));
+        assertNull(forwarded.getAttribute(UserIdentityGlobalFilter.VERIFIED_USER_ID_ATTR));
+    }
+
+    @Test
+    void webSocketHandshakeIsIdentifiedByItsToken() {
+        UUID userId = UUID.randomUUID();
+        ServerWebExchange forwarded = forward(MockServerHttpRequest
+                .get("/chat")
+                .queryParam("access_token", accessToken(userId))
+                .header(HttpHeaders.UPGRADE, "websocket")
+                .header(USER_ID_HEADER, FORGED_USER_ID));
+
+        assertEquals(userId.toString(), forwarded.getAttribute(UserIdentityGlobalFilter.VERIFIED_USER_ID_ATTR));
+        assertFalse(forwarded.getRequest().getHeaders().containsKey(USER_ID_HEADER));
+    }
+
+    @Test
+    void tokenSignedWithOtherKeyIsIgnored() {
+        String token = Jwts
+                .builder()
+                .claims(Map.of("tokenType", "ACCESS", "userId", FORGED_USER_ID))
+                .signWith(Keys.hmacShaKeyFor("another-secret-of-at-least-thirty-two-bytes".getBytes()))
+                .compact();
+        ServerWebExchange forwarded = forward(MockServerHttpRequest
+                .get("/chat")
+                .header(HttpHeaders.UPGRADE, "websocket")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token));
+
+        assertNull(forwarded.getAttribute(UserIdentityGlobalFilter.VERIFIED_USER_ID_ATTR));
+    }
+
+    private ServerWebExchange forward(MockServerHttpRequest.BaseBuilder<?> request) {
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+        GatewayFilterChain chain = next -> {
+            forwarded.set(next);
+            return Mono.empty();
+        };
+        filter.filter(MockServerWebExchange.from(request), chain).block();
+        return forwarded.get();
+    }
+
+    private static String accessToken(UUID userId) {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(userId.getMostSignificantBits()).putLong(userId.getLeastSignificantBits());
+        return Jwts
+                .builder()
+                .claims(Map.of(
+                        "v", 2,
+                        "t", "a",
+                        "uid", Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array())
+                ))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+    }
+}
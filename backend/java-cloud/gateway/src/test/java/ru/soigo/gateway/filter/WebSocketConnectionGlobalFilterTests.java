@@ -0,0 +1,74 @@
+package ru.soigo.gateway.filter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+class WebSocketConnectionGlobalFilterTests {
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final WebSocketConnectionGlobalFilter filter = new WebSocketConnectionGlobalFilter(meterRegistry);
+
+    @Test
+    void gaugeFollowsOpenConnectionsAndIsRemovedWithTheLast() {
+        Sinks.Empty<Void> first = Sinks.empty();
+        Sinks.Empty<Void> second = Sinks.empty();
+        Disposable firstConnection = filter.filter(handshake("chat-1"), exchange -> first.asMono()).subscribe();
+        Disposable secondConnection = filter.filter(handshake("chat-1"), exchange -> second.asMono()).subscribe();
+        assertEquals(2, gauge("chat-1").value());
+
+        first.tryEmitEmpty();
+        assertEquals(1, gauge("chat-1").value());
+
+        second.tryEmitEmpty();
+        assertNull(meterRegistry.find("gateway.websocket.connections").tag("instance", "chat-1").gauge());
+        assertTrue(filter.connections.isEmpty());
+        assertTrue(firstConnection.isDisposed() && secondConnection.isDisposed());
+    }
+
+    @Test
+    void gaugeIsRegisteredAgainForReturningInstance() {
+        filter.filter(handshake("chat-1"), exchange -> Mono.empty()).block();
+        Sinks.Empty<Void> connection = Sinks.empty();
+        filter.filter(handshake("chat-1"), exchange -> connection.asMono()).subscribe();
+
+        assertEquals(1, gauge("chat-1").value());
+    }
+
+    @Test
+    void plainRequestsAreNotCounted() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/chat"));
+        exchange.getAttributes().put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, response("chat-1"));
+        filter.filter(exchange, next -> Mono.empty()).block();
+
+        assertTrue(meterRegistry.find("gateway.websocket.connections").gauges().isEmpty());
+    }
+
+    private Gauge gauge(String instanceId) {
+        return meterRegistry.get("gateway.websocket.connections").tag("instance", instanceId).gauge();
+    }
+
+    private static MockServerWebExchange handshake(String instanceId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .get("/chat")
+                .header(HttpHeaders.UPGRADE, "websocket"));
+        exchange.getAttributes().put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, response(instanceId));
+        return exchange;
+    }
+
+    private static DefaultResponse response(String instanceId) {
+        return new DefaultResponse(new DefaultServiceInstance(instanceId, "chat", "localhost", 8080, false));
+    }
+}
@@ -0,0 +1,68 @@
+package ru.soigo.gateway.filter.factory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ResponseCacheGatewayFilterFactoryTests {
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final ResponseCacheGatewayFilterFactory factory = new ResponseCacheGatewayFilterFactory(meterRegistry);
+
+    @Test
+    void refreshedRoutesKeepTheirCache() {
+        factory.apply(config("auth", DataSize.ofMegabytes(16)));
+        ResponseCacheGatewayFilterFactory.RouteCache first = factory.routeCaches.get("auth");
+
+        factory.apply(config("auth", DataSize.ofMegabytes(16)));
+
+        assertSame(first, factory.routeCaches.get("auth"));
+        assertEquals(1, meterRegistry.find("cache.size").tag("route", "auth").gauges().size());
+        assertEquals(1, meterRegistry.find("gateway.response.cache.hit.ratio").tag("route", "auth").gauges().size());
+    }
+
+    @Test
+    void changedSettingsReplaceTheCacheAndItsMeters() {
+        factory.apply(config("auth", DataSize.ofMegabytes(16)));
+        ResponseCacheGatewayFilterFactory.RouteCache first = factory.routeCaches.get("auth");
+        first.statistics().hit.increment();
+
+        factory.apply(config("auth", DataSize.ofMegabytes(32)));
+        ResponseCacheGatewayFilterFactory.RouteCache second = factory.routeCaches.get("auth");
+
+        assertNotSame(first, second);
+        assertEquals(1, meterRegistry.find("cache.size").tag("route", "auth").gauges().size());
+        assertEquals(0, meterRegistry
+                .get("gateway.response.cache.hit.ratio")
+                .tag("route", "auth")
+                .gauge()
+                .value());
+        assertEquals(0, meterRegistry
+                .get("gateway.response.cache.requests")
+                .tags("route", "auth", "result", "hit")
+                .counter()
+                .count());
+    }
+
+    @Test
+    void routesHaveSeparateCaches() {
+        factory.apply(config("auth", DataSize.ofMegabytes(16)));
+        factory.apply(config("config-server", DataSize.ofMegabytes(16)));
+
+        assertNotSame(factory.routeCaches.get("auth").cache(), factory.routeCaches.get("config-server").cache());
+        assertEquals(2, meterRegistry.find("cache.size").gauges().size());
+    }
+
+    private static ResponseCacheGatewayFilterFactory.Config config(String routeId, DataSize maxSize) {
+        ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setRouteId(routeId);
+        config.setMaxSize(maxSize);
+        config.setTimeToLive(Duration.ofMinutes(5));
+        return config;
+    }
+}
@@ -0,0 +1,130 @@
+package ru.soigo.gateway.filter.factory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightGatewayFilterFactoryTests {
+    static final int CALLERS = 16;
+
+    final GatewayFilter filter = new SingleFlightGatewayFilterFactory()
+            .apply(new SingleFlightGatewayFilterFactory.Config());
+    final AtomicInteger backendCalls = new AtomicInteger();
+    final Sinks.Empty<Void> backendReleased = Sinks.empty();
+
+    @Test
+    void concurrentIdenticalRequestsCallTheBackendOnce() throws Exception {
+        GatewayFilterChain chain = exchange -> {
+            backendCalls.incrementAndGet();
+            return backendReleased.asMono().then(Mono.defer(() -> write(exchange.getResponse(), "[\"user-1\"]")));
+        };
+        List<MockServerWebExchange> exchanges = new ArrayList<>();
+        List<CompletableFuture<Void>> responses = filterConcurrently(chain, exchanges);
+
+        backendReleased.tryEmitEmpty();
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, backendCalls.get());
+        for (MockServerWebExchange exchange : exchanges) {
+            assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+            assertEquals("[\"user-1\"]", exchange.getResponse().getBodyAsString().block());
+        }
+    }
+
+    @Test
+    void backendErrorReachesEveryWaiterAndIsNotKept() throws Exception {
+        IllegalStateException failure = new IllegalStateException("auth is unreachable");
+        GatewayFilterChain failingChain = exchange -> {
+            backendCalls.incrementAndGet();
+            return backendReleased.asMono().then(Mono.error(failure));
+        };
+        List<CompletableFuture<Void>> responses = filterConcurrently(failingChain, new ArrayList<>());
+
+        backendReleased.tryEmitEmpty();
+
+        for (CompletableFuture<Void> response : responses) {
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> response.get(5, TimeUnit.SECONDS));
+            assertSame(failure, exception.getCause());
+        }
+        assertEquals(1, backendCalls.get());
+
+        GatewayFilterChain recoveredChain = exchange -> {
+            backendCalls.incrementAndGet();
+            return write(exchange.getResponse(), "[\"user-1\"]");
+        };
+        MockServerWebExchange next = exchange();
+        filter.filter(next, recoveredChain).block();
+
+        assertEquals(2, backendCalls.get());
+        assertEquals("[\"user-1\"]", next.getResponse().getBodyAsString().block());
+    }
+
+    private List<CompletableFuture<Void>> filterConcurrently(
+            GatewayFilterChain chain,
+            List<MockServerWebExchange> exchanges
+    ) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch joined = new CountDownLatch(CALLERS);
+        List<CompletableFuture<Void>> responses = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            MockServerWebExchange exchange = exchange();
+            CompletableFuture<Void> response = new CompletableFuture<>();
+            exchanges.add(exchange);
+            responses.add(response);
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    filter.filter(exchange, chain).subscribe(
+                            null,
+                            response::completeExceptionally,
+                            () -> response.complete(null)
+                    );
+                } catch (InterruptedException exception) {
+                    response.completeExceptionally(exception);
+                } finally {
+                    joined.countDown();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        assertTrue(joined.await(5, TimeUnit.SECONDS));
+        return responses;
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest
+                .get("/users?online=true")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer token-1"));
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, String body) {
+        response.setStatusCode(HttpStatus.OK);
+        DataBuffer buffer = response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(buffer));
+    }
+}
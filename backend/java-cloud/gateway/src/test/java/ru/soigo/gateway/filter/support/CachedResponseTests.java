@@ -0,0 +1,66 @@
+package ru.soigo.gateway.filter.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CachedResponseTests {
+    static final List<String> KEYED_HEADERS = List.of(
+            HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.AUTHORIZATION
+    );
+    static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void storesResponseVaryingOnKeyedHeaders() {
+        CachedResponse entry = CachedResponse.from(response("max-age=60", "Accept-Encoding, authorization"), true,
+                KEYED_HEADERS, NOW);
+
+        assertNotNull(entry);
+        assertEquals(NOW + 60_000, entry.expiresAt());
+    }
+
+    @Test
+    void refusesResponseVaryingOnOtherHeaders() {
+        assertNull(CachedResponse.from(response("max-age=60", "Accept, Accept-Language"), true, KEYED_HEADERS, NOW));
+        assertNull(CachedResponse.from(response("max-age=60", "*"), true, KEYED_HEADERS, NOW));
+    }
+
+    @Test
+    void refusesPrivateResponseWithoutCredentials() {
+        assertNull(CachedResponse.from(response("private, max-age=60", null), false, KEYED_HEADERS, NOW));
+        assertNotNull(CachedResponse.from(response("private, max-age=60", null), true, KEYED_HEADERS, NOW));
+    }
+
+    @Test
+    void storesNoCacheResponseAsStale() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("no-cache");
+        headers.setETag("\"v1\"");
+        CachedResponse entry = CachedResponse.from(BufferedResponse.of(HttpStatus.OK, headers, body()), false,
+                KEYED_HEADERS, NOW);
+
+        assertNotNull(entry);
+        assertFalse(entry.isFresh(NOW));
+    }
+
+    private static BufferedResponse response(String cacheControl, String vary) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(cacheControl);
+        if (vary != null) {
+            headers.set(HttpHeaders.VARY, vary);
+        }
+        return BufferedResponse.of(HttpStatus.OK, headers, body());
+    }
+
+    private static byte[] body() {
+        return "{}".getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,69 @@
+package ru.soigo.gateway.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import ru.soigo.gateway.filter.UserIdentityGlobalFilter;
+import ru.soigo.gateway.filter.factory.AuthenticatedUserGatewayFilterFactory;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashLoadBalancerTests {
+    final ConsistentHashLoadBalancer loadBalancer = new ConsistentHashLoadBalancer(
+            ServiceInstanceListSuppliers.toProvider("chat", instance("chat-1"), instance("chat-2"), instance("chat-3")),
+            "chat"
+    );
+
+    @Test
+    void verifiedUserIsPinnedToOneInstance() {
+        Set<String> chosen = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            chosen.add(choose(Map.of(), Map.of(UserIdentityGlobalFilter.VERIFIED_USER_ID_ATTR, "user-1")));
+        }
+
+        assertEquals(1, chosen.size());
+    }
+
+    @Test
+    void forgedUserIdHeaderDoesNotChooseInstance() {
+        Set<String> chosen = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            chosen.add(choose(Map.of(AuthenticatedUserGatewayFilterFactory.USER_ID_HEADER, "user-1"), Map.of()));
+        }
+
+        assertTrue(chosen.size() > 1, "forged header pinned the handshake to " + chosen);
+    }
+
+    private String choose(Map<String, String> extraHeaders, Map<String, Object> attributes) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setUpgrade("websocket");
+        extraHeaders.forEach(headers::set);
+        RequestData requestData = new RequestData(
+                HttpMethod.GET, URI.create("http://chat/chat"), headers, new LinkedMultiValueMap<>(),
+                new HashMap<>(attributes)
+        );
+        return loadBalancer
+                .choose(new DefaultRequest<>(new RequestDataContext(requestData)))
+                .block()
+                .getServer()
+                .getInstanceId();
+    }
+
+    private static ServiceInstance instance(String instanceId) {
+        return new DefaultServiceInstance(instanceId, "chat", instanceId, 8080, false);
+    }
+}
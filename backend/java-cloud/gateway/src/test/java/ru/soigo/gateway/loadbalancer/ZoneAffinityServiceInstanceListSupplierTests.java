@@ -0,0 +1,97 @@
+package ru.soigo.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ZoneAffinityServiceInstanceListSupplierTests {
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    final ZoneAffinityLifecycle lifecycle = new ZoneAffinityLifecycle(
+            meterRegistry, "chat", "eu-1", 3, Duration.ofSeconds(30), Duration.ofMinutes(1)
+    );
+    final ZoneAffinityServiceInstanceListSupplier supplier = new ZoneAffinityServiceInstanceListSupplier(
+            ServiceInstanceListSuppliers.from("chat"), lifecycle, "eu-1", 1, 0.5
+    );
+
+    @Test
+    void healthySameZoneInstancesAreServedAlone() {
+        ServiceInstance local1 = instance("chat-1", "eu-1");
+        ServiceInstance local2 = instance("chat-2", "eu-1");
+        ServiceInstance remote = instance("chat-3", "eu-2");
+
+        assertEquals(List.of(local1, local2), supplier.select(List.of(local1, local2, remote)));
+        assertEquals(0, spillovers());
+    }
+
+    @Test
+    void emptySameZoneSpillsOverToOtherZones() {
+        ServiceInstance remote1 = instance("chat-1", "eu-2");
+        ServiceInstance remote2 = instance("chat-2", "eu-3");
+
+        assertEquals(List.of(remote1, remote2), supplier.select(List.of(remote1, remote2)));
+    }
+
+    @Test
+    void ejectedSameZoneSpillsOverToOtherZones() {
+        ServiceInstance local = instance("chat-1", "eu-1");
+        ServiceInstance remote = instance("chat-2", "eu-2");
+        eject(local);
+
+        assertEquals(List.of(remote), supplier.select(List.of(local, remote)));
+        assertEquals(1, spillovers());
+    }
+
+    @Test
+    void sameZoneBelowHealthyRatioSpillsOver() {
+        ServiceInstance local1 = instance("chat-1", "eu-1");
+        ServiceInstance local2 = instance("chat-2", "eu-1");
+        ServiceInstance local3 = instance("chat-3", "eu-1");
+        ServiceInstance remote = instance("chat-4", "eu-2");
+        eject(local1);
+        eject(local2);
+
+        assertEquals(List.of(local3, remote), supplier.select(List.of(local1, local2, local3, remote)));
+        assertEquals(1, spillovers());
+    }
+
+    @Test
+    void crossZoneFractionCoversOnlyTheWindow() {
+        ZoneAffinityLifecycle.LocalityWindow window = new ZoneAffinityLifecycle.LocalityWindow(10, 1_000);
+        window.record(false, 0);
+        window.record(false, 50);
+        window.record(true, 150);
+        window.record(true, 950);
+
+        assertEquals(0.5, window.crossZoneFraction(990), 1e-9);
+        assertEquals(0.0, window.crossZoneFraction(1_100), 1e-9);
+
+        window.record(false, 1_100);
+
+        assertEquals(0.5, window.crossZoneFraction(1_100), 1e-9);
+        assertEquals(0.0, window.crossZoneFraction(10_000), 1e-9);
+    }
+
+    private void eject(ServiceInstance instance) {
+        lifecycle.health
+                .computeIfAbsent(instance.getInstanceId(), id -> new ZoneAffinityLifecycle.InstanceHealth())
+                .recordFailure(1, Duration.ofMinutes(1).toNanos());
+    }
+
+    private double spillovers() {
+        return meterRegistry.get("gateway.loadbalancer.zone.spillover").counter().count();
+    }
+
+    private static ServiceInstance instance(String instanceId, String zone) {
+        DefaultServiceInstance instance = new DefaultServiceInstance(instanceId, "chat", instanceId, 8080, false);
+        instance.setMetadata(Map.of(ZoneAffinityServiceInstanceListSupplier.ZONE, zone));
+        return instance;
+    }
+}
@@ -0,0 +1,135 @@
+package ru.soigo.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A Spring Boot application launched as a child process by a benchmark.
+ * <p>
+ * The output of the process is drained continuously; the last lines are kept for error reports, and the line
+ * Spring Boot logs once the application has started marks the application as ready.
+ * </p>
+ */
+class ApplicationProcess implements AutoCloseable {
+    static final String STARTED_MARKER = "Started ";
+    static final int LOG_TAIL = 40;
+
+    final Process process;
+    final long startNanos;
+    final Deque<String> tail = new ArrayDeque<>();
+    final CompletableFuture<Long> ready = new CompletableFuture<>();
+
+    private ApplicationProcess(Process process, long startNanos) {
+        this.process = process;
+        this.startNanos = startNanos;
+        Thread.ofVirtual().start(this::drain);
+    }
+
+    /**
+     * Launches an application.
+     *
+     * @param command   the command line.
+     * @param directory the working directory.
+     * @return the launched application.
+     * @throws IOException if the process cannot be started.
+     */
+    static ApplicationProcess start(List<String> command, Path directory) throws IOException {
+        long startNanos = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .start();
+        return new ApplicationProcess(process, startNanos);
+    }
+
+    /**
+     * Waits until the application has started.
+     *
+     * @param timeout the maximum time to wait.
+     * @return the time from process start until the application was ready, in nanoseconds.
+     * @throws InterruptedException if the current thread is interrupted.
+     */
+    long awaitReady(Duration timeout) throws InterruptedException {
+        try {
+            return ready.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException exception) {
+            synchronized (tail) {
+                tail.forEach(System.err::println);
+            }
+            throw new IllegalStateException("Application did not start within " + timeout, exception);
+        }
+    }
+
+    /**
+     * Returns the time the process was launched at.
+     *
+     * @return the launch time as {@link System#nanoTime()}.
+     */
+    long startNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Returns the resident set size of the process, read from {@code /proc}.
+     *
+     * @return the resident set size in kilobytes, or {@code -1} if it is not available on this platform.
+     */
+    long rssKilobytes() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(process.pid()), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException exception) {
+            return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Stops the application gracefully, killing it if it does not exit within 30 seconds.
+     *
+     * @throws InterruptedException if the current thread is interrupted.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private void drain() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!ready.isDone() && line.contains(STARTED_MARKER) && line.contains(" seconds")) {
+                    ready.complete(System.nanoTime() - startNanos);
+                }
+                synchronized (tail) {
+                    tail.addLast(line);
+                    if (tail.size() > LOG_TAIL) {
+                        tail.removeFirst();
+                    }
+                }
+            }
+            ready.completeExceptionally(new IllegalStateException("Process exited with " + process.waitFor()));
+        } catch (IOException | InterruptedException exception) {
+            ready.completeExceptionally(exception);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package ru.soigo.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the native image and JVM builds of the edge and discovery modules.
+ * <p>
+ * Each build of {@code gateway} and {@code eureka-server} is launched on a free port and measured in three phases:
+ * </p>
+ * <ul>
+ *   <li><b>startup</b> - time from process start until Spring Boot logs that the application has started;</li>
+ *   <li><b>idle</b> - resident set size after {@code native.idleSeconds} without traffic;</li>
+ *   <li><b>load</b> - {@code native.concurrency} clients send requests for {@code native.loadSeconds}, after an
+ *   untimed warm-up of the same length as the idle phase. Throughput, 99th percentile latency and the peak resident
+ *   set size are recorded.</li>
+ * </ul>
+ * <p>
+ * The gateway is loaded through a route to a local stub backend, so the measurement covers the routing and
+ * filtering pipeline rather than the backend. The Eureka server is seeded with instances and loaded with full
+ * registry fetches. Native builds that have not been compiled are reported as missing.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * ./gradlew nativeComparison -Pnative -PloadSeconds=60 -PloadConcurrency=128
+ * </pre>
+ */
+public class NativeComparisonBenchmark {
+    static final int SEEDED_INSTANCES = 200;
+    static final byte[] STUB_BODY = "{\"status\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+
+    final String java = System.getProperty("native.java", "java");
+    final Duration idle = Duration.ofSeconds(Long.getLong("native.idleSeconds", 10));
+    final Duration load = Duration.ofSeconds(Long.getLong("native.loadSeconds", 30));
+    final int concurrency = Integer.getInteger("native.concurrency", 64);
+    final Duration timeout = Duration.ofSeconds(120);
+    final Path reportDir = Path.of(System.getProperty("native.report.dir", "build/reports/native"));
+    final HttpClient httpClient = HttpClient
+            .newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    public static void main(String[] args) throws Exception {
+        new NativeComparisonBenchmark().run();
+    }
+
+    void run() throws Exception {
+        HttpServer stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.createContext("/", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, STUB_BODY.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(STUB_BODY);
+            }
+        });
+        stub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        stub.start();
+
+        List<Result> results = new ArrayList<>();
+        try {
+            for (String value : System.getProperty("native.modules", "").split(",")) {
+                if (value.isBlank()) {
+                    continue;
+                }
+                String[] parts = value.split("\\|");
+                String module = parts[0];
+                Path jar = Path.of(parts[1]);
+                Path binary = Path.of(parts[2]);
+
+                results.add(measure(module, "JVM", List.of(java, "-jar", jar.toString()), jar.getParent(), stub));
+                if (Files.isExecutable(binary)) {
+                    List<String> launcher = List.of(binary.toString(), "--spring.profiles.include=aot");
+                    results.add(measure(module, "native", launcher, binary.getParent(), stub));
+                } else {
+                    results.add(Result.missing(module, "native"));
+                }
+            }
+        } finally {
+            stub.stop(0);
+        }
+        writeReport(results);
+    }
+
+    private Result measure(String module, String build, List<String> launcher, Path directory, HttpServer stub)
+            throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>(launcher);
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--eureka.client.register-with-eureka=false",
+                "--eureka.client.fetch-registry=false"
+        ));
+        URI target;
+        if (module.equals("gateway")) {
+            command.addAll(List.of(
+                    "--spring.cloud.gateway.discovery.locator.enabled=false",
+                    "--spring.cloud.gateway.routes[0].id=benchmark",
+                    "--spring.cloud.gateway.routes[0].uri=http://localhost:" + stub.getAddress().getPort(),
+                    "--spring.cloud.gateway.routes[0].predicates[0]=Path=/benchmark/**"
+            ));
+            target = URI.create("http://localhost:" + port + "/benchmark/ping");
+        } else {
+            target = URI.create("http://localhost:" + port + "/eureka/apps");
+        }
+
+        try (ApplicationProcess process = ApplicationProcess.start(command, directory)) {
+            long startupMillis = TimeUnit.NANOSECONDS.toMillis(process.awaitReady(timeout));
+            if (!module.equals("gateway")) {
+                seedRegistry(port);
+            }
+
+            Thread.sleep(idle);
+            long idleRss = process.rssKilobytes();
+
+            runLoad(target, idle, null);
+            LoadStats stats = runLoad(target, load, process);
+            Result result = new Result(
+                    module, build, startupMillis, idleRss, stats.peakRss(),
+                    stats.requests() / (double) load.toSeconds(), stats.p99Millis(), stats.errors()
+            );
+            System.out.printf(Locale.ROOT, "%s [%s]: startup %d ms, idle RSS %d MB, %.0f req/s%n",
+                    module, build, startupMillis, idleRss >> 10, result.throughput());
+            return result;
+        }
+    }
+
+    private LoadStats runLoad(URI target, Duration duration, ApplicationProcess process) throws InterruptedException {
+        AtomicLong requests = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+        long deadline = System.nanoTime() + duration.toNanos();
+        HttpRequest request = HttpRequest.newBuilder(target).header("Accept", "application/json").GET().build();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < concurrency; client++) {
+                long[] samples = new long[1 << 16];
+                latencies.add(samples);
+                clients.submit(() -> {
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (IOException exception) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        samples[count++ % samples.length] = System.nanoTime() - start;
+                        requests.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+
+            long peakRss = -1;
+            while (System.nanoTime() < deadline) {
+                if (process != null) {
+                    peakRss = Math.max(peakRss, process.rssKilobytes());
+                }
+                Thread.sleep(500);
+            }
+            clients.shutdown();
+            clients.awaitTermination(1, TimeUnit.MINUTES);
+
+            long[] all = latencies.stream().flatMapToLong(Arrays::stream).filter(value -> value > 0).sorted().toArray();
+            double p99 = all.length == 0 ? 0 : all[(int) Math.min(all.length - 1, all.length * 0.99)] / 1_000_000.0;
+            return new LoadStats(requests.get(), errors.get(), p99, peakRss);
+        }
+    }
+
+    private void seedRegistry(int port) throws IOException, InterruptedException {
+        for (int index = 0; index < SEEDED_INSTANCES; index++) {
+            String app = "BENCH-APP-" + (index % 10);
+            String body = """
+                    {"instance":{"instanceId":"%1$s","hostName":"10.0.%2$d.%3$d","app":"%4$s",\
+                    "ipAddr":"10.0.%2$d.%3$d","status":"UP","port":{"$":8080,"@enabled":"true"},\
+                    "dataCenterInfo":{"@class":"com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo","name":"MyOwn"},\
+                    "vipAddress":"%5$s"}}
+                    """.formatted(UUID.randomUUID(), index >> 8, index & 0xFF, app, app.toLowerCase(Locale.ROOT));
+            httpClient.send(HttpRequest
+                    .newBuilder(URI.create("http://localhost:" + port + "/eureka/apps/" + app))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+        }
+    }
+
+    private void writeReport(List<Result> results) throws IOException {
+        StringBuilder report = new StringBuilder()
+                .append("# Native image comparison\n\n")
+                .append("| Setting | Value |\n|---|---|\n")
+                .append("| Java | ").append(Runtime.version()).append(" |\n")
+                .append("| Available processors | ").append(Runtime.getRuntime().availableProcessors()).append(" |\n")
+                .append("| Idle / warm-up | ").append(idle.toSeconds()).append(" s |\n")
+                .append("| Load | ").append(load.toSeconds()).append(" s, ").append(concurrency).append(" clients |\n")
+                .append("\n| Module | Build | Startup (ms) | RSS idle (MB) | RSS peak under load (MB) ")
+                .append("| Throughput (req/s) | p99 (ms) | Errors |\n")
+                .append("|---|---|---:|---:|---:|---:|---:|---:|\n");
+        for (Result result : results) {
+            if (result.startupMillis() < 0) {
+                report.append("| %s | %s | not built | | | | | |%n".formatted(result.module(), result.build()));
+                continue;
+            }
+            report.append(String.format(Locale.ROOT, "| %s | %s | %d | %d | %d | %.0f | %.2f | %d |%n",
+                    result.module(), result.build(), result.startupMillis(), result.idleRss() >> 10,
+                    result.peakRss() >> 10, result.throughput(), result.p99Millis(), result.errors()));
+        }
+
+        Files.createDirectories(reportDir);
+        Path file = reportDir.resolve("native-comparison.md");
+        Files.writeString(file, report);
+        System.out.println("Report written to " + file.toAbsolutePath());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Statistics of one load phase.
+     *
+     * @param requests  the number of successful requests.
+     * @param errors    the number of failed requests.
+     * @param p99Millis the 99th percentile latency in milliseconds.
+     * @param peakRss   the peak resident set size in kilobytes, or {@code -1} if not sampled.
+     */
+    record LoadStats(long requests, long errors, double p99Millis, long peakRss) {
+    }
+
+    /**
+     * Measurements of one build of one module.
+     *
+     * @param module        the module name.
+     * @param build         the build, {@code JVM} or {@code native}.
+     * @param startupMillis the time to ready, or {@code -1} if the build is missing.
+     * @param idleRss       the resident set size at idle, in kilobytes.
+     * @param peakRss       the peak resident set size under load, in kilobytes.
+     * @param throughput    the successful requests per second under load.
+     * @param p99Millis     the 99th percentile latency under load, in milliseconds.
+     * @param errors        the number of failed requests under load.
+     */
+    record Result(
+            String module,
+            String build,
+            long startupMillis,
+            long idleRss,
+            long peakRss,
+            double throughput,
+            double p99Millis,
+            long errors
+    ) {
+
+        static Result missing(String module, String build) {
+            return new Result(module, build, -1, -1, -1, 0, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package ru.soigo.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup benchmark of the Spring applications of the project.
+ * <p>
+ * Every application is launched from its extracted jar several times, once without any startup optimization and
+ * once with its AppCDS archive (and AOT-processed classes, where the module supports them). For every launch the
+ * benchmark measures:
+ * </p>
+ * <ul>
+ *   <li><b>time-to-ready</b> - from process start until Spring Boot logs that the application has started;</li>
+ *   <li><b>time-to-registered</b> - from process start until the instance is {@code UP} in the Eureka registry,
+ *   which for auth includes its warm-up. {@code eureka-server} does not register itself, so it only reports
+ *   time-to-ready.</li>
+ * </ul>
+ * <p>
+ * If no Eureka server answers at {@code startup.eureka}, a registry is started from the {@code eureka-server}
+ * module for the duration of the benchmark. Applications that need external services (auth needs PostgreSQL and
+ * Redis) read their connection settings from the environment, as with {@code bootRun}.
+ * </p>
+ * <p>
+ * The result is written as a Markdown report to {@code startup.report.dir}.
+ * </p>
+ *
+ * <p><b>Usage:</b></p>
+ * <pre>
+ * ./gradlew startupBenchmark -PstartupRuns=5 -PeurekaUrl=http://localhost:8761/eureka
+ * </pre>
+ */
+public class StartupBenchmark {
+    final String java = System.getProperty("startup.java", "java");
+    final int runs = Integer.getInteger("startup.runs", 3);
+    final Duration timeout = Duration.ofSeconds(Long.getLong("startup.timeout", 120));
+    final String eurekaUrl = System.getProperty("startup.eureka", "http://localhost:8761/eureka");
+    final Path reportDir = Path.of(System.getProperty("startup.report.dir", "build/reports/startup"));
+    final List<Module> modules = Arrays
+            .stream(System.getProperty("startup.modules", "").split(","))
+            .filter(module -> !module.isBlank())
+            .map(Module::parse)
+            .toList();
+    final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    public static void main(String[] args) throws Exception {
+        new StartupBenchmark().run();
+    }
+
+    void run() throws Exception {
+        ApplicationProcess registry = ensureRegistry();
+        try {
+            Map<Module, Map<Mode, List<Measurement>>> results = new LinkedHashMap<>();
+            for (Module module : modules) {
+                Map<Mode, List<Measurement>> byMode = new LinkedHashMap<>();
+                for (Mode mode : Mode.values()) {
+                    List<Measurement> measurements = new ArrayList<>();
+                    for (int run = 0; run < runs; run++) {
+                        Measurement measurement = measure(module, mode);
+                        System.out.printf(Locale.ROOT, "%s [%s] run %d: ready %d ms, registered %s%n",
+                                module.name(), mode.label, run + 1, measurement.readyMillis(),
+                                measurement.registeredMillis() < 0 ? "-" : measurement.registeredMillis() + " ms");
+                        measurements.add(measurement);
+                    }
+                    byMode.put(mode, measurements);
+                }
+                results.put(module, byMode);
+            }
+            writeReport(results);
+        } finally {
+            if (registry != null) {
+                registry.close();
+            }
+        }
+    }
+
+    private Measurement measure(Module module, Mode mode) throws IOException, InterruptedException {
+        String instanceId = module.name() + ":startup-benchmark-" + UUID.randomUUID();
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        if (mode == Mode.OPTIMIZED) {
+            command.add("-XX:SharedArchiveFile=" + module.archive());
+            if (module.aot()) {
+                command.add("-Dspring.aot.enabled=true");
+                command.add("-Dspring.profiles.include=aot");
+            }
+        }
+        command.addAll(List.of(
+                "-jar", "app.jar",
+                "--server.port=0",
+                "--eureka.client.service-url.defaultZone=" + eurekaUrl + "/",
+                "--eureka.instance.instance-id=" + instanceId
+        ));
+
+        try (ApplicationProcess process = ApplicationProcess.start(command, module.appDir())) {
+            long readyNanos = process.awaitReady(timeout);
+            long registeredNanos = module.registers()
+                    ? awaitRegistration(module, instanceId, process.startNanos())
+                    : -1;
+            return new Measurement(
+                    TimeUnit.NANOSECONDS.toMillis(readyNanos),
+                    registeredNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(registeredNanos)
+            );
+        }
+    }
+
+    private long awaitRegistration(Module module, String instanceId, long start) throws InterruptedException {
+        URI uri = URI.create(eurekaUrl + "/apps/" + module.name().toUpperCase(Locale.ROOT) + "/" + instanceId);
+        long deadline = start + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (instanceUp(uri)) {
+                return System.nanoTime() - start;
+            }
+            Thread.sleep(20);
+        }
+        return -1;
+    }
+
+    private ApplicationProcess ensureRegistry() throws IOException, InterruptedException {
+        if (status(URI.create(eurekaUrl + "/apps")) == 200) {
+            return null;
+        }
+        Module eurekaServer = modules
+                .stream()
+                .filter(module -> !module.registers())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No Eureka server at " + eurekaUrl));
+        System.out.println("Starting Eureka registry at " + eurekaUrl);
+        ApplicationProcess registry = ApplicationProcess.start(
+                List.of(java, "-jar", "app.jar", "--server.port=" + URI.create(eurekaUrl).getPort()),
+                eurekaServer.appDir()
+        );
+        registry.awaitReady(timeout);
+        return registry;
+    }
+
+    private boolean instanceUp(URI uri) throws InterruptedException {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(uri).header("Accept", "application/json").GET().build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() == 200 && response.body().contains("\"status\":\"UP\"");
+        } catch (IOException exception) {
+            return false;
+        }
+    }
+
+    private int status(URI uri) throws InterruptedException {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(uri).header("Accept", "application/json").GET().build();
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException exception) {
+            return -1;
+        }
+    }
+
+    private void writeReport(Map<Module, Map<Mode, List<Measurement>>> results) throws IOException {
+        StringBuilder report = new StringBuilder()
+                .append("# Startup benchmark\n\n")
+                .append("| Setting | Value |\n|---|---|\n")
+                .append("| Java | ").append(Runtime.version()).append(" |\n")
+                .append("| Available processors | ").append(Runtime.getRuntime().availableProcessors()).append(" |\n")
+                .append("| Runs per mode | ").append(runs).append(" |\n")
+                .append("\nTimes are in milliseconds from process start, as median (min - max).\n\n")
+                .append("| Module | Mode | Time to ready | Time to registered |\n")
+                .append("|---|---|---:|---:|\n");
+        results.forEach((module, byMode) -> byMode.forEach((mode, measurements) -> report
+                .append("| ").append(module.name())
+                .append(" | ").append(mode == Mode.OPTIMIZED && module.aot() ? "AppCDS + AOT" : mode.label)
+                .append(" | ").append(summary(measurements.stream().mapToLong(Measurement::readyMillis).toArray()))
+                .append(" | ").append(module.registers()
+                        ? summary(measurements.stream().mapToLong(Measurement::registeredMillis).toArray())
+                        : "-")
+                .append(" |\n")));
+
+        Files.createDirectories(reportDir);
+        Path file = reportDir.resolve("startup.md");
+        Files.writeString(file, report);
+        System.out.println("Report written to " + file.toAbsolutePath());
+    }
+
+    private static String summary(long[] values) {
+        if (Arrays.stream(values).anyMatch(value -> value < 0)) {
+            return "timeout";
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return "%d (%d - %d)".formatted(sorted[sorted.length / 2], sorted[0], sorted[sorted.length - 1]);
+    }
+
+    /**
+     * Launch mode of an application.
+     */
+    enum Mode {
+        BASELINE("JIT"),
+        OPTIMIZED("AppCDS");
+
+        final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * An application module prepared by the {@code cdsArchive} task.
+     *
+     * @param name    the module name, equal to {@code spring.application.name}.
+     * @param appDir  the directory holding the extracted {@code app.jar}.
+     * @param archive the AppCDS archive.
+     * @param aot     whether the module was AOT-processed.
+     */
+    record Module(String name, Path appDir, Path archive, boolean aot) {
+
+        static Module parse(String value) {
+            String[] parts = value.split("\\|");
+            return new Module(parts[0], Path.of(parts[1]), Path.of(parts[2]), Boolean.parseBoolean(parts[3]));
+        }
+
+        boolean registers() {
+            return !name.equals("eureka-server");
+        }
+    }
+
+    /**
+     * Timings of one launch.
+     *
+     * @param readyMillis      the time until the application reported it has started.
+     * @param registeredMillis the time until the instance was {@code UP} in Eureka, or {@code -1}.
+     */
+    record Measurement(long readyMillis, long registeredMillis) {
+    }
+}
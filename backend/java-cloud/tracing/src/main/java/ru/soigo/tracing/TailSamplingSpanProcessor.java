@@ -0,0 +1,342 @@
+package ru.soigo.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Span processor deciding after the fact, from the latency and status of a trace, whether it is exported.
+ * <p>
+ * Head sampling decides when a request starts, so it keeps a fixed share of all requests and misses most of the
+ * slow ones. This processor records every span and holds the ended spans of each trace in memory until the local
+ * root of the trace ends, which is the server span of a request or a span started without a parent. The trace is
+ * then kept if:
+ * </p>
+ * <ul>
+ *   <li>the local root took at least {@code latencyThreshold};</li>
+ *   <li>any of its spans ended with an error status;</li>
+ *   <li>its trace id falls into the {@code baselineRate}, a sample of ordinary traces for comparison.</li>
+ * </ul>
+ * <p>
+ * Other traces are dropped. The decision is taken by every service for its part of a trace, so all services should
+ * use the same threshold: the local root of a caller lasts at least as long as that of its callee, so a part kept by
+ * a callee is kept by its callers, and the baseline, taken from the trace id, is the same everywhere. Kept spans are
+ * queued and handed to the exporter in batches by a background thread, so a slow exporter never delays a request;
+ * when the queue is full, spans are rejected.
+ * </p>
+ * <p>
+ * Spans may end after their local root, typically asynchronous work a request started without waiting for it. The
+ * decisions of the last {@code maxTraceAge} are therefore remembered by trace id, and such a late span follows the
+ * decision of its trace: it is exported if the trace was kept and dropped otherwise, instead of opening a new pending
+ * trace that would never see its root.
+ * </p>
+ * <p>
+ * Memory is bounded by {@code maxPendingTraces} traces of at most {@code maxSpansPerTrace} spans and as many
+ * remembered decisions. Traces whose local root has not ended within {@code maxTraceAge}, because it was lost or
+ * outlives requests, are dropped.
+ * </p>
+ *
+ * <p><b>Metrics:</b></p>
+ * <ul>
+ *   <li>{@code tracing.tail.traces} - Decided traces, tagged by {@code decision}: {@code slow}, {@code error} and
+ *   {@code baseline} for kept traces, {@code dropped}, {@code overflow} for traces not held because too many were
+ *   pending and {@code expired} for traces whose root never ended.</li>
+ *   <li>{@code tracing.tail.pending} - Traces waiting for their local root.</li>
+ *   <li>{@code tracing.export.spans} - Spans handed to the exporter, tagged by {@code result}: {@code exported},
+ *   {@code failed} and {@code rejected}.</li>
+ * </ul>
+ */
+@Slf4j
+public class TailSamplingSpanProcessor implements SpanProcessor {
+    static final int BATCH_SIZE = 512;
+
+    final SpanExporter exporter;
+    final long latencyThresholdNanos;
+    final long baselineBound;
+    final int maxPendingTraces;
+    final int maxSpansPerTrace;
+    final long maxTraceAgeNanos;
+    final Map<String, PendingTrace> pending = new ConcurrentHashMap<>();
+    final Map<String, Decision> decided = new ConcurrentHashMap<>();
+    final BlockingQueue<SpanData> queue;
+    final Map<String, Counter> decisions = new ConcurrentHashMap<>();
+    final MeterRegistry meterRegistry;
+    final Counter exported;
+    final Counter failed;
+    final Counter rejected;
+    final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("tracing-export").daemon().factory()
+    );
+
+    /**
+     * Constructs a new instance of {@link TailSamplingSpanProcessor} and starts the export thread.
+     *
+     * @param exporter         the exporter of kept spans.
+     * @param meterRegistry    the registry used to publish the decisions.
+     * @param latencyThreshold the duration from which a local root is kept.
+     * @param baselineRate     the share of traces kept regardless of their latency, between 0 and 1.
+     * @param maxPendingTraces the number of traces held while waiting for their local root.
+     * @param maxSpansPerTrace the number of spans held for one trace; further spans are dropped.
+     * @param maxTraceAge      the time after which a trace whose root has not ended is dropped, and for which the
+     *                         decision on a trace is remembered for its late spans.
+     * @param queueCapacity    the number of kept spans waiting for the exporter.
+     * @param exportInterval   the interval between two exports.
+     */
+    public TailSamplingSpanProcessor(
+            @NotNull SpanExporter exporter,
+            @NotNull MeterRegistry meterRegistry,
+            @NotNull Duration latencyThreshold,
+            double baselineRate,
+            int maxPendingTraces,
+            int maxSpansPerTrace,
+            @NotNull Duration maxTraceAge,
+            int queueCapacity,
+            @NotNull Duration exportInterval
+    ) {
+        this.exporter = exporter;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.baselineBound = baselineBound(baselineRate);
+        this.maxPendingTraces = maxPendingTraces;
+        this.maxSpansPerTrace = maxSpansPerTrace;
+        this.maxTraceAgeNanos = maxTraceAge.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.meterRegistry = meterRegistry;
+        this.exported = exportedSpans(meterRegistry, "exported");
+        this.failed = exportedSpans(meterRegistry, "failed");
+        this.rejected = exportedSpans(meterRegistry, "rejected");
+        Gauge
+                .builder("tracing.tail.pending", pending, Map::size)
+                .description("Traces waiting for their local root")
+                .register(meterRegistry);
+
+        long interval = exportInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::export, interval, interval, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::expire, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onStart(@NotNull Context parentContext, @NotNull ReadWriteSpan span) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    /**
+     * Holds an ended span and decides on its trace if it is the local root.
+     *
+     * @param span the ended span.
+     */
+    @Override
+    public void onEnd(@NotNull ReadableSpan span) {
+        SpanContext parent = span.getParentSpanContext();
+        boolean localRoot = !parent.isValid() || parent.isRemote();
+        String traceId = span.getSpanContext().getTraceId();
+        SpanData data = span.toSpanData();
+
+        PendingTrace trace = localRoot ? pending.remove(traceId) : pending.get(traceId);
+        if (trace == null) {
+            if (localRoot) {
+                decide(new PendingTrace(), data);
+                return;
+            }
+            Decision decision = decided.get(traceId);
+            if (decision != null) {
+                if (decision.kept()) {
+                    offer(data);
+                }
+                return;
+            }
+            if (pending.size() >= maxPendingTraces) {
+                decision("overflow").increment();
+                return;
+            }
+            trace = pending.computeIfAbsent(traceId, id -> new PendingTrace());
+        }
+        if (localRoot) {
+            decide(trace, data);
+        } else {
+            trace.add(data, maxSpansPerTrace);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @NotNull CompletableResultCode forceFlush() {
+        executor.submit(this::export);
+        return exporter.flush();
+    }
+
+    /**
+     * Exports the queued spans, stops the export thread and shuts the exporter down. Pending traces are dropped.
+     *
+     * @return the result of the exporter shutdown.
+     */
+    @Override
+    public @NotNull CompletableResultCode shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        export();
+        return exporter.shutdown();
+    }
+
+    private void decide(PendingTrace trace, SpanData root) {
+        String decision;
+        if (root.getEndEpochNanos() - root.getStartEpochNanos() >= latencyThresholdNanos) {
+            decision = "slow";
+        } else if (trace.error || root.getStatus().getStatusCode() == StatusCode.ERROR) {
+            decision = "error";
+        } else if (inBaseline(root.getTraceId())) {
+            decision = "baseline";
+        } else {
+            decision = "dropped";
+        }
+        decision(decision).increment();
+        boolean kept = !decision.equals("dropped");
+        if (decided.size() < maxPendingTraces) {
+            decided.put(root.getTraceId(), new Decision(kept, System.nanoTime()));
+        }
+        if (kept) {
+            for (SpanData span : trace.spans()) {
+                offer(span);
+            }
+            offer(root);
+        }
+
+        // A child ending while the root was decided may have opened a new pending trace before the decision was
+        // remembered.
+        PendingTrace late = pending.remove(root.getTraceId());
+        if (late != null && kept) {
+            late.spans().forEach(this::offer);
+        }
+    }
+
+    private void offer(SpanData span) {
+        if (!queue.offer(span)) {
+            rejected.increment();
+        }
+    }
+
+    private boolean inBaseline(String traceId) {
+        long random = Long.parseUnsignedLong(traceId.substring(16), 16) >>> 1;
+        return random < baselineBound;
+    }
+
+    private void export() {
+        List<SpanData> batch = new ArrayList<>(BATCH_SIZE);
+        while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+            CompletableResultCode result = exporter.export(batch).join(10, TimeUnit.SECONDS);
+            if (result.isSuccess()) {
+                exported.increment(batch.size());
+            } else {
+                failed.increment(batch.size());
+                log.debug("Span export of {} spans failed", batch.size());
+            }
+            batch = new ArrayList<>(BATCH_SIZE);
+        }
+    }
+
+    private void expire() {
+        long now = System.nanoTime();
+        pending.entrySet().removeIf(entry -> {
+            boolean expired = now - entry.getValue().created > maxTraceAgeNanos;
+            if (expired) {
+                decision("expired").increment();
+            }
+            return expired;
+        });
+        decided.values().removeIf(decision -> now - decision.decided() > maxTraceAgeNanos);
+    }
+
+    private Counter decision(String decision) {
+        return decisions.computeIfAbsent(decision, key -> Counter
+                .builder("tracing.tail.traces")
+                .description("Traces decided by tail sampling")
+                .tag("decision", key)
+                .register(meterRegistry));
+    }
+
+    private static long baselineBound(double rate) {
+        if (rate <= 0) {
+            return 0;
+        }
+        if (rate >= 1) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (rate * Long.MAX_VALUE);
+    }
+
+    private static Counter exportedSpans(MeterRegistry meterRegistry, String result) {
+        return Counter
+                .builder("tracing.export.spans")
+                .description("Spans handed to the span exporter")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Decision on a trace whose local root has ended, remembered for its late spans.
+     *
+     * @param kept    whether the trace was kept.
+     * @param decided the {@link System#nanoTime()} of the decision.
+     */
+    record Decision(boolean kept, long decided) {
+    }
+
+    /**
+     * Ended spans of a trace whose local root has not ended yet.
+     */
+    static final class PendingTrace {
+        final long created = System.nanoTime();
+        final List<SpanData> spans = new ArrayList<>();
+        volatile boolean error;
+
+        synchronized void add(SpanData span, int maxSpans) {
+            if (span.getStatus().getStatusCode() == StatusCode.ERROR) {
+                error = true;
+            }
+            if (spans.size() < maxSpans) {
+                spans.add(span);
+            }
+        }
+
+        synchronized List<SpanData> spans() {
+            return List.copyOf(spans);
+        }
+    }
+}
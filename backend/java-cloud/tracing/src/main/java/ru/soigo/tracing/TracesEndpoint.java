@@ -0,0 +1,91 @@
+package ru.soigo.tracing;
+
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import ru.soigo.tracing.export.InMemorySpanExporter;
+import ru.soigo.tracing.export.SpanRecords;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint {@code traces} listing the traces kept by the {@link InMemorySpanExporter}.
+ * <p>
+ * A read returns the kept traces, the most recent first, with the duration of their longest span and their spans;
+ * a read with a trace id returns the spans of that trace and a delete discards all kept traces. Like every actuator
+ * endpoint it has to be exposed with {@code management.endpoints.web.exposure.include}.
+ * </p>
+ *
+ * <p><b>Dependencies:</b></p>
+ * <ul>
+ *   <li>{@link InMemorySpanExporter} - The exporter keeping the last spans.</li>
+ * </ul>
+ */
+@Endpoint(id = "traces")
+public class TracesEndpoint {
+    final InMemorySpanExporter exporter;
+
+    /**
+     * Constructs a new instance of {@link TracesEndpoint}.
+     *
+     * @param exporter the exporter keeping the last spans.
+     */
+    public TracesEndpoint(InMemorySpanExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    /**
+     * Lists the kept traces.
+     *
+     * @return the traces, the most recent first.
+     */
+    @ReadOperation
+    public List<Map<String, Object>> traces() {
+        List<Map<String, Object>> traces = new ArrayList<>();
+        exporter.getTraces().forEach((traceId, spans) -> traces.add(0, trace(traceId, spans)));
+        return traces;
+    }
+
+    /**
+     * Returns one kept trace.
+     *
+     * @param traceId the id of the trace.
+     * @return the trace, or {@code null} if it is not kept, which the endpoint reports as not found.
+     */
+    @ReadOperation
+    public Map<String, Object> trace(@Selector String traceId) {
+        List<SpanData> spans = exporter.getTraces().get(traceId);
+        return spans == null ? null : trace(traceId, spans);
+    }
+
+    /**
+     * Discards the kept traces.
+     */
+    @DeleteOperation
+    public void reset() {
+        exporter.reset();
+    }
+
+    private static Map<String, Object> trace(String traceId, List<SpanData> spans) {
+        long duration = spans
+                .stream()
+                .mapToLong(span -> span.getEndEpochNanos() - span.getStartEpochNanos())
+                .max()
+                .orElse(0) / 1000;
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("traceId", traceId);
+        trace.put("duration", duration);
+        trace.put("spans", spans
+                .stream()
+                .sorted(Comparator.comparingLong(SpanData::getStartEpochNanos))
+                .map(SpanRecords::toMap)
+                .toList());
+        return trace;
+    }
+}
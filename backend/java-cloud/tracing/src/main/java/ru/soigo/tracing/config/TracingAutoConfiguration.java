@@ -0,0 +1,181 @@
+package ru.soigo.tracing.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.autoconfigure.tracing.ConditionalOnEnabledTracing;
+import org.springframework.boot.actuate.autoconfigure.tracing.SdkTracerProviderBuilderCustomizer;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.util.unit.DataSize;
+import ru.soigo.tracing.TailSamplingSpanProcessor;
+import ru.soigo.tracing.TracesEndpoint;
+import ru.soigo.tracing.export.FileSpanExporter;
+import ru.soigo.tracing.export.InMemorySpanExporter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Auto-configuration of tail-sampled tracing.
+ * <p>
+ * Replaces the tracer provider of Spring Boot with one that records every span and passes the ended spans to a
+ * {@link TailSamplingSpanProcessor}, which exports the slow and failed traces. Everything else stays with Spring
+ * Boot: the Micrometer tracing bridge, the propagation of the context in W3C {@code traceparent} headers, and the
+ * observations of HTTP servers and clients, JDBC and Lettuce that create the spans. The head sampling probability
+ * {@code management.tracing.sampling.probability} is therefore ignored.
+ * </p>
+ * <p>
+ * Kept spans go to every {@link SpanExporter} bean, so exporters are plugged in by declaring them:
+ * </p>
+ * <ul>
+ *   <li>{@link InMemorySpanExporter} - The last {@code tracing.exporter.memory.capacity} spans, readable through
+ *   the {@code traces} actuator endpoint; on unless {@code tracing.exporter.memory.enabled=false}.</li>
+ *   <li>{@link FileSpanExporter} - JSON lines in {@code tracing.exporter.file.path}, rotated at
+ *   {@code tracing.exporter.file.max-size}; on if the path is set.</li>
+ *   <li>Exporters auto-configured by Spring Boot, such as OTLP with {@code opentelemetry-exporter-otlp} on the
+ *   classpath and {@code management.otlp.tracing.endpoint} set.</li>
+ * </ul>
+ *
+ * <p><b>Properties:</b></p>
+ * <ul>
+ *   <li>{@code tracing.tail.latency-threshold} - Duration from which a trace is kept, {@code 500ms}.</li>
+ *   <li>{@code tracing.tail.baseline-rate} - Share of traces kept regardless of latency, {@code 0.01}.</li>
+ *   <li>{@code tracing.tail.max-pending-traces}, {@code tracing.tail.max-spans-per-trace},
+ *   {@code tracing.tail.max-trace-age} - Bounds of the traces held until their root ends.</li>
+ *   <li>{@code tracing.tail.queue-capacity}, {@code tracing.tail.export-interval} - Queue of kept spans.</li>
+ * </ul>
+ * <p>
+ * Tail sampling is left out with {@code tracing.tail.enabled=false}, and tracing as a whole with
+ * {@code management.tracing.enabled=false}.
+ * </p>
+ *
+ * @see TailSamplingSpanProcessor
+ */
+@Slf4j
+@AutoConfiguration(beforeName = {
+        "org.springframework.boot.actuate.autoconfigure.tracing.OpenTelemetryTracingAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.tracing.OpenTelemetryAutoConfiguration"
+})
+@ConditionalOnClass(SdkTracerProvider.class)
+@ConditionalOnEnabledTracing
+@ConditionalOnProperty(value = "tracing.tail.enabled", matchIfMissing = true)
+public class TracingAutoConfiguration {
+    static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    /**
+     * Creates the exporter keeping the last spans in memory.
+     *
+     * @param capacity the number of spans kept.
+     * @return the in-memory exporter.
+     */
+    @Bean
+    @ConditionalOnProperty(value = "tracing.exporter.memory.enabled", matchIfMissing = true)
+    public InMemorySpanExporter inMemorySpanExporter(@Value("${tracing.exporter.memory.capacity:10000}") int capacity) {
+        return new InMemorySpanExporter(capacity);
+    }
+
+    /**
+     * Creates the exporter writing spans to a local file.
+     *
+     * @param path         the file spans are appended to.
+     * @param maxSize      the size from which the file is rotated.
+     * @param objectMapper the mapper used to write the spans.
+     * @return the file exporter.
+     */
+    @Bean
+    @ConditionalOnProperty("tracing.exporter.file.path")
+    public FileSpanExporter fileSpanExporter(
+            @Value("${tracing.exporter.file.path}") Path path,
+            @Value("${tracing.exporter.file.max-size:100MB}") DataSize maxSize,
+            ObjectProvider<ObjectMapper> objectMapper
+    ) {
+        return new FileSpanExporter(path, maxSize.toBytes(), objectMapper.getIfAvailable(ObjectMapper::new));
+    }
+
+    /**
+     * Creates the endpoint listing the traces kept in memory.
+     *
+     * @param exporter the in-memory exporter.
+     * @return the {@code traces} endpoint.
+     */
+    @Bean
+    @ConditionalOnBean(InMemorySpanExporter.class)
+    @ConditionalOnAvailableEndpoint(endpoint = TracesEndpoint.class)
+    public TracesEndpoint tracesEndpoint(InMemorySpanExporter exporter) {
+        return new TracesEndpoint(exporter);
+    }
+
+    /**
+     * Creates the processor deciding which traces are exported. It is shut down by the tracer provider.
+     *
+     * @param exporters        the exporters of kept spans.
+     * @param meterRegistry    the registry used to publish the decisions.
+     * @param latencyThreshold the duration from which a trace is kept.
+     * @param baselineRate     the share of traces kept regardless of their latency.
+     * @param maxPendingTraces the number of traces held while waiting for their local root.
+     * @param maxSpansPerTrace the number of spans held for one trace.
+     * @param maxTraceAge      the time after which a trace whose root has not ended is dropped.
+     * @param queueCapacity    the number of kept spans waiting for the exporters.
+     * @param exportInterval   the interval between two exports.
+     * @return the tail sampling processor.
+     */
+    @Bean(destroyMethod = "")
+    public TailSamplingSpanProcessor tailSamplingSpanProcessor(
+            ObjectProvider<SpanExporter> exporters,
+            MeterRegistry meterRegistry,
+            @Value("${tracing.tail.latency-threshold:500ms}") Duration latencyThreshold,
+            @Value("${tracing.tail.baseline-rate:0.01}") double baselineRate,
+            @Value("${tracing.tail.max-pending-traces:10000}") int maxPendingTraces,
+            @Value("${tracing.tail.max-spans-per-trace:512}") int maxSpansPerTrace,
+            @Value("${tracing.tail.max-trace-age:1m}") Duration maxTraceAge,
+            @Value("${tracing.tail.queue-capacity:8192}") int queueCapacity,
+            @Value("${tracing.tail.export-interval:1s}") Duration exportInterval
+    ) {
+        List<SpanExporter> delegates = exporters.orderedStream().toList();
+        log.info("Tail sampling traces from {} to {}", latencyThreshold,
+                delegates.stream().map(exporter -> exporter.getClass().getSimpleName()).toList());
+        return new TailSamplingSpanProcessor(
+                SpanExporter.composite(delegates), meterRegistry, latencyThreshold, baselineRate, maxPendingTraces,
+                maxSpansPerTrace, maxTraceAge, queueCapacity, exportInterval
+        );
+    }
+
+    /**
+     * Creates the tracer provider recording every span for the tail sampling processor. It takes the place of the
+     * provider of Spring Boot, which backs off when one exists.
+     *
+     * @param processor       the tail sampling processor.
+     * @param applicationName the name of the application, reported as {@code service.name}.
+     * @param customizers     the customizers of the provider declared for Spring Boot.
+     * @return the tracer provider.
+     */
+    @Bean
+    public SdkTracerProvider tailSamplingTracerProvider(
+            TailSamplingSpanProcessor processor,
+            @Value("${spring.application.name:application}") String applicationName,
+            ObjectProvider<SdkTracerProviderBuilderCustomizer> customizers
+    ) {
+        SdkTracerProviderBuilder builder = SdkTracerProvider
+                .builder()
+                .setResource(Resource.getDefault().merge(Resource.create(Attributes.of(SERVICE_NAME, applicationName))))
+                .setSampler(Sampler.alwaysOn())
+                .addSpanProcessor(processor);
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        return builder.build();
+    }
+}
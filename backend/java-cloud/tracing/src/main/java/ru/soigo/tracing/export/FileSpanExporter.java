@@ -0,0 +1,120 @@
+package ru.soigo.tracing.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * Span exporter appending spans to a local file, one JSON object per line.
+ * <p>
+ * Meant for offline testing and for instances without a tracing backend: the file can be read with any JSON tool,
+ * for example {@code jq 'select(.duration > 100000)' spans.jsonl}, and the spans of a trace share their
+ * {@code traceId}. Each line holds the fields of {@link SpanRecords#toMap(SpanData)}. When the file exceeds
+ * {@code maxSize} bytes it is renamed with the suffix {@code .1}, replacing the previous one, and a new file is
+ * started.
+ * </p>
+ */
+@Slf4j
+public class FileSpanExporter implements SpanExporter {
+    final Path path;
+    final Path rotated;
+    final long maxSize;
+    final ObjectMapper objectMapper;
+
+    BufferedWriter writer;
+    long size;
+
+    /**
+     * Constructs a new instance of {@link FileSpanExporter}.
+     *
+     * @param path         the file spans are appended to, created with its directories if missing.
+     * @param maxSize      the size in bytes from which the file is rotated.
+     * @param objectMapper the mapper used to write the spans.
+     */
+    public FileSpanExporter(@NotNull Path path, long maxSize, @NotNull ObjectMapper objectMapper) {
+        this.path = path;
+        this.rotated = path.resolveSibling(path.getFileName() + ".1");
+        this.maxSize = maxSize;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized @NotNull CompletableResultCode export(@NotNull Collection<SpanData> spans) {
+        try {
+            if (writer == null) {
+                open();
+            }
+            for (SpanData span : spans) {
+                String line = objectMapper.writeValueAsString(SpanRecords.toMap(span)) + '\n';
+                writer.write(line);
+                size += line.getBytes(StandardCharsets.UTF_8).length;
+            }
+            writer.flush();
+            if (size > maxSize) {
+                rotate();
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException exception) {
+            log.warn("Cannot write spans to {}: {}", path, exception.getMessage());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @NotNull CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @return the result of the shutdown.
+     */
+    @Override
+    public synchronized @NotNull CompletableResultCode shutdown() {
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException exception) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    private void open() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        size = Files.size(path);
+    }
+
+    private void rotate() throws IOException {
+        writer.close();
+        writer = null;
+        Files.move(path, rotated, StandardCopyOption.REPLACE_EXISTING);
+        log.debug("Rotated span file {} to {}", path, rotated);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.soigo.tracing.export;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Span exporter keeping the last exported spans in memory.
+ * <p>
+ * Meant for offline testing and for looking at the slow traces of an instance without a tracing backend: the spans
+ * can be read in tests with {@link #getSpans()} and {@link #getTraces()}, and through the {@code traces} actuator
+ * endpoint. Only the last {@code capacity} spans are kept, older ones are discarded.
+ * </p>
+ */
+public class InMemorySpanExporter implements SpanExporter {
+    final int capacity;
+    final Deque<SpanData> spans;
+
+    /**
+     * Constructs a new instance of {@link InMemorySpanExporter}.
+     *
+     * @param capacity the number of spans kept.
+     */
+    public InMemorySpanExporter(int capacity) {
+        this.capacity = capacity;
+        this.spans = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized @NotNull CompletableResultCode export(@NotNull Collection<SpanData> batch) {
+        for (SpanData span : batch) {
+            if (spans.size() == capacity) {
+                spans.removeFirst();
+            }
+            spans.addLast(span);
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * Returns the kept spans.
+     *
+     * @return the spans in the order they were exported.
+     */
+    public synchronized @NotNull List<SpanData> getSpans() {
+        return List.copyOf(spans);
+    }
+
+    /**
+     * Returns the kept spans grouped by trace.
+     *
+     * @return the spans by trace id, the most recently exported trace last.
+     */
+    public @NotNull Map<String, List<SpanData>> getTraces() {
+        Map<String, List<SpanData>> traces = new LinkedHashMap<>();
+        for (SpanData span : getSpans()) {
+            traces.computeIfAbsent(span.getTraceId(), id -> new ArrayList<>()).add(span);
+        }
+        return traces;
+    }
+
+    /**
+     * Discards the kept spans.
+     */
+    public synchronized void reset() {
+        spans.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @NotNull CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public @NotNull CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+}
@@ -0,0 +1,45 @@
+package ru.soigo.tracing.export;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flat representation of spans shared by the file exporter and the {@code traces} endpoint.
+ */
+public final class SpanRecords {
+    static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    private SpanRecords() {
+    }
+
+    /**
+     * Converts a span into a map of its fields, serializable as JSON.
+     *
+     * @param span the span.
+     * @return the trace and span ids, the parent span id if any, the name, kind and service, the start in epoch
+     * microseconds, the duration in microseconds, the status and the attributes of the span.
+     */
+    public static @NotNull Map<String, Object> toMap(@NotNull SpanData span) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("traceId", span.getTraceId());
+        record.put("spanId", span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            record.put("parentSpanId", span.getParentSpanId());
+        }
+        record.put("name", span.getName());
+        record.put("kind", span.getKind().name());
+        record.put("service", span.getResource().getAttribute(SERVICE_NAME));
+        record.put("start", TimeUnit.NANOSECONDS.toMicros(span.getStartEpochNanos()));
+        record.put("duration", TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()));
+        record.put("status", span.getStatus().getStatusCode().name());
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+        record.put("attributes", attributes);
+        return record;
+    }
+}
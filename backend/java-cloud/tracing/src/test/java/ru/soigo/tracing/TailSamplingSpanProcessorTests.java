@@ -0,0 +1,96 @@
+package ru.soigo.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.soigo.tracing.export.InMemorySpanExporter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TailSamplingSpanProcessorTests {
+    final InMemorySpanExporter exporter = new InMemorySpanExporter(100);
+
+    SdkTracerProvider tracerProvider;
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.shutdown().join(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void lateSpanOfKeptTraceIsExported() {
+        TailSamplingSpanProcessor processor = processor(Duration.ZERO);
+        Tracer tracer = tracerProvider.get("test");
+
+        Span root = tracer.spanBuilder("request").setNoParent().startSpan();
+        Span late = tracer.spanBuilder("late").setParent(Context.root().with(root)).startSpan();
+        root.end();
+        late.end();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> exporter.getSpans().size() == 2);
+        assertEquals(List.of("request", "late"), exporter.getSpans().stream().map(SpanData::getName).toList());
+        assertTrue(processor.pending.isEmpty());
+    }
+
+    @Test
+    void lateSpanOfDroppedTraceIsDropped() {
+        TailSamplingSpanProcessor processor = processor(Duration.ofHours(1));
+        Tracer tracer = tracerProvider.get("test");
+
+        Span root = tracer.spanBuilder("request").setNoParent().startSpan();
+        Span late = tracer.spanBuilder("late").setParent(Context.root().with(root)).startSpan();
+        root.end();
+        late.end();
+
+        assertTrue(processor.pending.isEmpty());
+        assertEquals(1, processor.decided.size());
+        tracerProvider.forceFlush().join(10, TimeUnit.SECONDS);
+        assertTrue(exporter.getSpans().isEmpty());
+    }
+
+    @Test
+    void childrenEndedBeforeTheRootAreHeldUntilItEnds() {
+        TailSamplingSpanProcessor processor = processor(Duration.ZERO);
+        Tracer tracer = tracerProvider.get("test");
+
+        Span root = tracer.spanBuilder("request").setNoParent().startSpan();
+        tracer.spanBuilder("child").setParent(Context.root().with(root)).startSpan().end();
+        assertEquals(1, processor.pending.size());
+        root.end();
+
+        assertTrue(processor.pending.isEmpty());
+        await().atMost(Duration.ofSeconds(5)).until(() -> exporter.getSpans().size() == 2);
+        assertEquals(List.of("child", "request"), exporter.getSpans().stream().map(SpanData::getName).toList());
+    }
+
+    @Test
+    void decisionsAreForgottenAfterMaxTraceAge() {
+        TailSamplingSpanProcessor processor = processor(Duration.ofHours(1));
+        Tracer tracer = tracerProvider.get("test");
+
+        tracer.spanBuilder("request").setNoParent().startSpan().end();
+        assertEquals(1, processor.decided.size());
+
+        await().atMost(Duration.ofSeconds(5)).until(processor.decided::isEmpty);
+    }
+
+    private TailSamplingSpanProcessor processor(Duration latencyThreshold) {
+        TailSamplingSpanProcessor processor = new TailSamplingSpanProcessor(
+                exporter, new SimpleMeterRegistry(), latencyThreshold, 0, 100, 16, Duration.ofMillis(200), 100,
+                Duration.ofMillis(50)
+        );
+        tracerProvider = SdkTracerProvider.builder().addSpanProcessor(processor).build();
+        return processor;
+    }
+}